@@ -8,6 +8,7 @@
 package net.mm2d.upnp;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -240,4 +241,39 @@ public interface Action {
             @Nonnull Map<String, String> customArguments,
             boolean returnErrorResponse)
             throws IOException;
+
+    /**
+     * Actionを実行し、応答をストリーミングで読み出せる形で返す。
+     *
+     * <p>実行引数の扱いは{@link #invoke(Map)}と同一である。
+     *
+     * <p>第二引数で指定した引数は文字列に展開せず、{@link ActionResult#openReader(String)}で逐次読み出す。
+     * ContentDirectoryのBrowseの"Result"のように大きな値を返す引数を指定することで、
+     * 応答のDOMや値の文字列を作成することなく処理することができる。
+     * 指定しなかった引数は{@link ActionResult#getValues()}で文字列として取得できる。
+     *
+     * <p>エラー応答を受け取った場合は、IOExceptionを発生させる。
+     *
+     * @param argumentValues     引数への入力値
+     * @param streamingArguments ストリーミングで読み出す引数名
+     * @return 実行結果
+     * @throws IOException 実行時の何らかの通信例外及びエラー応答があった場合
+     * @see ActionResult
+     */
+    @Nonnull
+    ActionResult invokeStreaming(
+            @Nonnull Map<String, String> argumentValues,
+            @Nonnull Collection<String> streamingArguments)
+            throws IOException;
+
+    /**
+     * 繰り返し実行するためのActionInvokerを作成する。
+     *
+     * <p>同一のActionを何度も実行する場合は、毎回の接続先URLの解決やSOAPの作成を省略できる。
+     *
+     * @return ActionInvoker
+     * @see ActionInvoker
+     */
+    @Nonnull
+    ActionInvoker prepare();
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 同一のActionを繰り返し実行するためのインターフェース。
+ *
+ * <p>{@link Action#prepare()}で作成する。
+ * 接続先URLの解決、HTTPリクエストヘッダ及びSOAPの固定部分の作成を最初の実行時に一度だけ行い、
+ * 以降の実行では引数の値の変換のみを行う。
+ * DeviceのLocation等が変化した場合は、次の実行時に接続先URLを解決し直す。
+ *
+ * <p>スレッドセーフであり、複数のスレッドから同時に実行することができる。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ * @see Action#prepare()
+ */
+public interface ActionInvoker {
+    /**
+     * 実行するActionを返す。
+     *
+     * @return Action
+     */
+    @Nonnull
+    Action getAction();
+
+    /**
+     * Actionを実行する。
+     *
+     * <p>{@link Action#invoke(Map)}と同一の動作を行う。
+     *
+     * @param argumentValues 引数への入力値
+     * @return 実行結果
+     * @throws IOException 実行時の何らかの通信例外及びエラー応答があった場合
+     * @see Action#invoke(Map)
+     */
+    @Nonnull
+    Map<String, String> invoke(@Nonnull Map<String, String> argumentValues) throws IOException;
+
+    /**
+     * Actionを実行する。
+     *
+     * <p>{@link Action#invoke(Map, boolean)}と同一の動作を行う。
+     *
+     * @param argumentValues      引数への入力値
+     * @param returnErrorResponse エラーレスポンス受信時の処理を指定、trueにするとエラーもパースして戻り値で返す。falseにするとIOExceptionを発生させる。
+     * @return 実行結果
+     * @throws IOException 実行時の何らかの通信例外及びエラー応答があった場合
+     * @see Action#invoke(Map, boolean)
+     */
+    @Nonnull
+    Map<String, String> invoke(
+            @Nonnull Map<String, String> argumentValues,
+            boolean returnErrorResponse)
+            throws IOException;
+
+    /**
+     * Actionを実行し、応答をストリーミングで読み出せる形で返す。
+     *
+     * <p>{@link Action#invokeStreaming(Map, Collection)}と同一の動作を行う。
+     *
+     * @param argumentValues     引数への入力値
+     * @param streamingArguments ストリーミングで読み出す引数名
+     * @return 実行結果
+     * @throws IOException 実行時の何らかの通信例外及びエラー応答があった場合
+     * @see Action#invokeStreaming(Map, Collection)
+     */
+    @Nonnull
+    ActionResult invokeStreaming(
+            @Nonnull Map<String, String> argumentValues,
+            @Nonnull Collection<String> streamingArguments)
+            throws IOException;
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * {@link Action#invokeStreaming(Map, Collection)}の実行結果。
+ *
+ * <p>ストリーミング指定した引数は文字列に展開せず、応答中の位置のみを保持する。
+ * 値は{@link #openReader(String)}で取得したReaderから逐次読み出すことができる。
+ * それ以外の引数は実行時に文字列として展開される。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ * @see Action#invokeStreaming(Map, Collection)
+ */
+public interface ActionResult {
+    /**
+     * ストリーミング指定していない引数の値を返す。
+     *
+     * <p>Mapは変更不可であり、ストリーミング指定した引数は含まれない。
+     *
+     * @return 引数名をkeyとした値のMap
+     */
+    @Nonnull
+    Map<String, String> getValues();
+
+    /**
+     * 指定した引数が応答に含まれているかを返す。
+     *
+     * @param name 引数名
+     * @return 含まれている場合true
+     */
+    boolean contains(@Nonnull String name);
+
+    /**
+     * 指定した引数の値を返す。
+     *
+     * <p>ストリーミング指定した引数の場合は、コールする度に文字列へ展開する。
+     *
+     * @param name 引数名
+     * @return 値、応答に含まれていない場合null
+     * @throws IOException 値の展開に失敗した場合
+     */
+    @Nullable
+    String getValue(@Nonnull String name) throws IOException;
+
+    /**
+     * 指定した引数の値を読み出すReaderを返す。
+     *
+     * <p>コールする度に先頭から読み出す新しいReaderを返す。
+     * 文字参照は展開済み、CDATAセクションは内容のみとなる。
+     *
+     * @param name 引数名
+     * @return Reader、応答に含まれていない場合null
+     */
+    @Nullable
+    Reader openReader(@Nonnull String name);
+}
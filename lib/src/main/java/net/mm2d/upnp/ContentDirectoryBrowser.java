@@ -0,0 +1,500 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import net.mm2d.upnp.DidlLiteParser.DidlObject;
+import net.mm2d.util.TextParseUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * ContentDirectoryのBrowseを繰り返し実行し、子要素を順に読み出すためのクラス。
+ *
+ * <p>StartingIndex/RequestedCountによるページ分割を隠蔽し、{@link Cursor}で一要素ずつ取得できる。
+ * 現在のページを読み出している間に次のページを並行して取得する。
+ * そのため、一つのCursorが保持するのは読み出し中のページと先読み中のページの最大2ページ分となる。
+ * 1ページ当たりの要求数は応答時間に応じて調整され、同一インスタンスから作成したCursorで共有される。
+ *
+ * <p>同時に実行するBrowseの数を制限する場合は{@link Builder#setMaxConcurrency(int)}を指定する。
+ * 制限は同一インスタンスから作成した全てのCursorに対して適用される。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public final class ContentDirectoryBrowser {
+    private static final String OBJECT_ID = "ObjectID";
+    private static final String BROWSE_FLAG = "BrowseFlag";
+    private static final String BROWSE_DIRECT_CHILDREN = "BrowseDirectChildren";
+    private static final String FILTER = "Filter";
+    private static final String STARTING_INDEX = "StartingIndex";
+    private static final String REQUESTED_COUNT = "RequestedCount";
+    private static final String SORT_CRITERIA = "SortCriteria";
+    private static final String RESULT = "Result";
+    private static final String NUMBER_RETURNED = "NumberReturned";
+    private static final String TOTAL_MATCHES = "TotalMatches";
+
+    /**
+     * TaskExecutorを指定しない場合に使用するスレッドプールのスレッド数。
+     */
+    public static final int DEFAULT_THREAD_COUNT = 4;
+
+    /**
+     * ContentDirectoryBrowserのビルダー。
+     */
+    public static class Builder {
+        private Action mAction;
+        @Nullable
+        private TaskExecutor mExecutor;
+        @Nonnull
+        private String mFilter = "*";
+        @Nonnull
+        private String mSortCriteria = "";
+        private int mInitialPageSize = 100;
+        private int mMinPageSize = 10;
+        private int mMaxPageSize = 1000;
+        private long mTargetResponseTime = 1000;
+        private int mMaxConcurrency = 0;
+
+        /**
+         * Browse Actionを登録する。
+         *
+         * @param action ContentDirectoryのBrowse Action
+         * @return Builder
+         */
+        @Nonnull
+        public Builder setAction(@Nonnull final Action action) {
+            mAction = action;
+            return this;
+        }
+
+        /**
+         * Browseを実行するTaskExecutorを登録する。
+         *
+         * <p>指定しない場合は全インスタンスで共有する、最大{@value ContentDirectoryBrowser#DEFAULT_THREAD_COUNT}スレッドのスレッドプールで実行する。
+         * 同時実行数を制限した場合、実行待ちのタスクはTaskExecutorのスレッド上で待機する。
+         *
+         * @param executor TaskExecutor
+         * @return Builder
+         */
+        @Nonnull
+        public Builder setExecutor(@Nullable final TaskExecutor executor) {
+            mExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Filter引数の値を登録する。デフォルトは"*"。
+         *
+         * @param filter Filter引数の値
+         * @return Builder
+         */
+        @Nonnull
+        public Builder setFilter(@Nonnull final String filter) {
+            mFilter = filter;
+            return this;
+        }
+
+        /**
+         * SortCriteria引数の値を登録する。デフォルトは空。
+         *
+         * @param sortCriteria SortCriteria引数の値
+         * @return Builder
+         */
+        @Nonnull
+        public Builder setSortCriteria(@Nonnull final String sortCriteria) {
+            mSortCriteria = sortCriteria;
+            return this;
+        }
+
+        /**
+         * 1ページ当たりの要求数の範囲を登録する。デフォルトは初期値100、最小10、最大1000。
+         *
+         * @param initial 初期値
+         * @param min     最小値
+         * @param max     最大値
+         * @return Builder
+         * @throws IllegalArgumentException min &lt;= initial &lt;= max を満たさない場合、minが1未満の場合
+         */
+        @Nonnull
+        public Builder setPageSize(
+                final int initial,
+                final int min,
+                final int max) {
+            if (min < 1 || initial < min || max < initial) {
+                throw new IllegalArgumentException("illegal page size: " + initial + " " + min + " " + max);
+            }
+            mInitialPageSize = initial;
+            mMinPageSize = min;
+            mMaxPageSize = max;
+            return this;
+        }
+
+        /**
+         * 1ページの取得にかける目標時間を登録する。デフォルトは1000ms。
+         *
+         * <p>応答時間がこれより短ければ要求数を増やし、長ければ減らす。
+         *
+         * @param timeMillis 目標時間[ms]
+         * @return Builder
+         * @throws IllegalArgumentException 0以下を指定した場合
+         */
+        @Nonnull
+        public Builder setTargetResponseTime(final long timeMillis) {
+            if (timeMillis <= 0) {
+                throw new IllegalArgumentException("time must be positive.");
+            }
+            mTargetResponseTime = timeMillis;
+            return this;
+        }
+
+        /**
+         * 同時に実行するBrowseの最大数を登録する。デフォルトは0で制限しない。
+         *
+         * <p>TaskExecutorを指定しない場合、同時実行数はこの設定によらず{@value ContentDirectoryBrowser#DEFAULT_THREAD_COUNT}以下となる。
+         *
+         * @param maxConcurrency 同時実行数、0以下の場合は制限しない
+         * @return Builder
+         */
+        @Nonnull
+        public Builder setMaxConcurrency(final int maxConcurrency) {
+            mMaxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * ContentDirectoryBrowserのインスタンスを作成する。
+         *
+         * @return ContentDirectoryBrowserのインスタンス
+         * @throws IllegalStateException 必須パラメータが設定されていない場合
+         */
+        @Nonnull
+        public ContentDirectoryBrowser build() throws IllegalStateException {
+            if (mAction == null) {
+                throw new IllegalStateException("action must be set.");
+            }
+            return new ContentDirectoryBrowser(this);
+        }
+    }
+
+    /**
+     * Browse結果の子要素を順に読み出すCursor。
+     *
+     * <p>スレッドセーフではないため、一つのスレッドから使用すること。
+     * 途中で読み出しをやめる場合は{@link #close()}をコールし、先読みを中止させること。
+     */
+    public static final class Cursor implements Closeable {
+        @Nonnull
+        private final ContentDirectoryBrowser mBrowser;
+        @Nonnull
+        private final String mObjectId;
+        @Nonnull
+        private List<DidlObject> mCurrent = Collections.emptyList();
+        private int mIndex;
+        @Nullable
+        private FutureTask<Page> mNext;
+        private int mTotalMatches = -1;
+
+        Cursor(
+                @Nonnull final ContentDirectoryBrowser browser,
+                @Nonnull final String objectId) {
+            mBrowser = browser;
+            mObjectId = objectId;
+            mNext = browser.submit(objectId, 0);
+        }
+
+        /**
+         * 次の要素があるかを返す。
+         *
+         * <p>読み出し済みのページを使い切っている場合は、次のページの取得完了を待つ。
+         *
+         * @return 次の要素がある場合true
+         * @throws IOException Browseに失敗した場合、待機中に割り込まれた場合
+         */
+        public boolean hasNext() throws IOException {
+            while (mIndex >= mCurrent.size()) {
+                final FutureTask<Page> next = mNext;
+                if (next == null) {
+                    return false;
+                }
+                mNext = null;
+                final Page page = await(next);
+                mCurrent = page.mObjects;
+                mIndex = 0;
+                mTotalMatches = page.mTotalMatches;
+                final int nextStart = page.mStart + page.mNumberReturned;
+                if (page.mNumberReturned > 0 && (page.mTotalMatches <= 0 || nextStart < page.mTotalMatches)) {
+                    mNext = mBrowser.submit(mObjectId, nextStart);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 次の要素を返す。
+         *
+         * @return 次の要素
+         * @throws IOException            Browseに失敗した場合、待機中に割り込まれた場合
+         * @throws NoSuchElementException 次の要素がない場合
+         */
+        @Nonnull
+        public DidlObject next() throws IOException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return mCurrent.get(mIndex++);
+        }
+
+        /**
+         * TotalMatchesの値を返す。
+         *
+         * @return TotalMatches、最初のページを読み出す前及びサーバが返さなかった場合は0以下
+         */
+        public int getTotalMatches() {
+            return mTotalMatches;
+        }
+
+        /**
+         * 読み出しを終了し、先読み中のBrowseを中止する。
+         */
+        @Override
+        public void close() {
+            final FutureTask<Page> next = mNext;
+            mNext = null;
+            mCurrent = Collections.emptyList();
+            if (next != null) {
+                next.cancel(true);
+            }
+        }
+
+        @Nonnull
+        private static Page await(@Nonnull final FutureTask<Page> task) throws IOException {
+            try {
+                return task.get();
+            } catch (final InterruptedException e) {
+                task.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (final CancellationException e) {
+                throw new IOException("browse was cancelled", e);
+            } catch (final ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /**
+     * 1回のBrowseの結果。
+     */
+    private static class Page {
+        final int mStart;
+        final int mNumberReturned;
+        final int mTotalMatches;
+        @Nonnull
+        final List<DidlObject> mObjects;
+
+        Page(
+                final int start,
+                final int numberReturned,
+                final int totalMatches,
+                @Nonnull final List<DidlObject> objects) {
+            mStart = start;
+            mNumberReturned = numberReturned;
+            mTotalMatches = totalMatches;
+            mObjects = objects;
+        }
+    }
+
+    /**
+     * TaskExecutorを指定しない場合に使用する、全インスタンスで共有するTaskExecutor。
+     *
+     * <p>スレッド数は{@link ContentDirectoryBrowser#DEFAULT_THREAD_COUNT}までに制限され、アイドル状態のスレッドは終了する。
+     * 共有のため{@link #terminate()}では何もしない。
+     */
+    private static class SharedTaskExecutor implements TaskExecutor {
+        private static final SharedTaskExecutor INSTANCE = new SharedTaskExecutor();
+        @Nonnull
+        private final ThreadPoolExecutor mExecutor;
+
+        private SharedTaskExecutor() {
+            mExecutor = new ThreadPoolExecutor(DEFAULT_THREAD_COUNT, DEFAULT_THREAD_COUNT,
+                    1L, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+                final Thread thread = new Thread(runnable, "browse");
+                thread.setDaemon(true);
+                return thread;
+            });
+            mExecutor.allowCoreThreadTimeOut(true);
+        }
+
+        @Override
+        public boolean execute(@Nonnull final Runnable task) {
+            try {
+                mExecutor.execute(task);
+            } catch (final RejectedExecutionException ignored) {
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void terminate() {
+        }
+    }
+
+    @Nonnull
+    private final Action mAction;
+    @Nonnull
+    private final TaskExecutor mExecutor;
+    @Nonnull
+    private final String mFilter;
+    @Nonnull
+    private final String mSortCriteria;
+    private final int mMinPageSize;
+    private final int mMaxPageSize;
+    private final long mTargetResponseTime;
+    @Nullable
+    private final Semaphore mSemaphore;
+    @Nonnull
+    private final AtomicInteger mPageSize;
+
+    private ContentDirectoryBrowser(@Nonnull final Builder builder) {
+        mAction = builder.mAction;
+        mExecutor = builder.mExecutor != null ? builder.mExecutor : SharedTaskExecutor.INSTANCE;
+        mFilter = builder.mFilter;
+        mSortCriteria = builder.mSortCriteria;
+        mMinPageSize = builder.mMinPageSize;
+        mMaxPageSize = builder.mMaxPageSize;
+        mTargetResponseTime = builder.mTargetResponseTime;
+        mSemaphore = builder.mMaxConcurrency > 0 ? new Semaphore(builder.mMaxConcurrency, true) : null;
+        mPageSize = new AtomicInteger(builder.mInitialPageSize);
+    }
+
+    /**
+     * 指定したオブジェクトの子要素の読み出しを開始する。
+     *
+     * <p>最初のページの取得はこのメソッドの中で開始される。
+     *
+     * @param objectId 親となるオブジェクトのID、ルートは"0"
+     * @return Cursor
+     */
+    @Nonnull
+    public Cursor browseChildren(@Nonnull final String objectId) {
+        return new Cursor(this, objectId);
+    }
+
+    /**
+     * 現在の1ページ当たりの要求数を返す。
+     *
+     * @return 要求数
+     */
+    public int getPageSize() {
+        return mPageSize.get();
+    }
+
+    @Nonnull
+    private FutureTask<Page> submit(
+            @Nonnull final String objectId,
+            final int start) {
+        final FutureTask<Page> task = new FutureTask<>(() -> browse(objectId, start));
+        if (!mExecutor.execute(task)) {
+            task.cancel(false);
+        }
+        return task;
+    }
+
+    @Nonnull
+    private Page browse(
+            @Nonnull final String objectId,
+            final int start) throws IOException, InterruptedException {
+        if (mSemaphore != null) {
+            mSemaphore.acquire();
+        }
+        try {
+            return browseInner(objectId, start);
+        } finally {
+            if (mSemaphore != null) {
+                mSemaphore.release();
+            }
+        }
+    }
+
+    @Nonnull
+    private Page browseInner(
+            @Nonnull final String objectId,
+            final int start) throws IOException {
+        final int count = mPageSize.get();
+        final Map<String, String> argument = new HashMap<>();
+        argument.put(OBJECT_ID, objectId);
+        argument.put(BROWSE_FLAG, BROWSE_DIRECT_CHILDREN);
+        argument.put(FILTER, mFilter);
+        argument.put(STARTING_INDEX, String.valueOf(start));
+        argument.put(REQUESTED_COUNT, String.valueOf(count));
+        argument.put(SORT_CRITERIA, mSortCriteria);
+        final long begin = System.currentTimeMillis();
+        final ActionResult result = mAction.invokeStreaming(argument, Collections.singleton(RESULT));
+        final Reader reader = result.openReader(RESULT);
+        if (reader == null) {
+            throw new IOException("no Result in response");
+        }
+        final List<DidlObject> objects = new ArrayList<>();
+        DidlLiteParser.parse(reader, objects::add);
+        final long elapsed = System.currentTimeMillis() - begin;
+        mPageSize.set(calculatePageSize(count, elapsed, mTargetResponseTime, mMinPageSize, mMaxPageSize));
+        final Map<String, String> values = result.getValues();
+        final int numberReturned = TextParseUtils.parseIntSafely(values.get(NUMBER_RETURNED), objects.size());
+        final int totalMatches = TextParseUtils.parseIntSafely(values.get(TOTAL_MATCHES), 0);
+        return new Page(start, numberReturned, totalMatches, objects);
+    }
+
+    /**
+     * 応答時間から次の1ページ当たりの要求数を求める。
+     *
+     * <p>目標時間に対する比率で増減させるが、急激な変化を避けるため一回の変化は倍又は半分までとする。
+     *
+     * @param current 今回の要求数
+     * @param elapsed 今回の応答時間[ms]
+     * @param target  目標時間[ms]
+     * @param min     最小値
+     * @param max     最大値
+     * @return 次の要求数
+     */
+    // VisibleForTesting
+    static int calculatePageSize(
+            final int current,
+            final long elapsed,
+            final long target,
+            final int min,
+            final int max) {
+        long size = elapsed <= 0 ? current * 2L : current * target / elapsed;
+        size = Math.max(current / 2, Math.min(current * 2L, size));
+        return (int) Math.max(min, Math.min(max, size));
+    }
+}
@@ -7,6 +7,10 @@
 
 package net.mm2d.upnp;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
 import java.util.List;
 
 import javax.annotation.Nonnull;
@@ -79,6 +83,151 @@ public interface ControlPoint {
                 @Nonnull String value);
     }
 
+    /**
+     * Iconの非同期読み込み完了通知を受け取るリスナー。
+     *
+     * <p>{@link ControlPointFactory.Params#setAsyncIconLoadEnabled(boolean)}で
+     * Iconの非同期読み込みを有効にした場合にのみ通知される。
+     * 非同期読み込みが無効の場合、Iconは{@link DiscoveryListener#onDiscover(Device)}の前に読み込まれる。
+     *
+     * <p>
+     * {@link #onIconLoaded(Device)}
+     * も{@link DiscoveryListener}と同一のスレッドからコールされる。
+     *
+     * @see DiscoveryListener
+     */
+    interface IconLoadListener {
+        /**
+         * IconFilterで選択されたIconの読み込みが完了した時にコールされる。
+         *
+         * <p>読み込みに失敗したIconがあってもコールされる。
+         * 読み込めたかどうかは{@link Icon#getBinary()}で確認する。
+         *
+         * @param device Iconの読み込みが完了したDevice
+         * @see Device#getIconList()
+         */
+        void onIconLoaded(@Nonnull Device device);
+    }
+
+    /**
+     * Deviceの読み込みに失敗した情報。
+     *
+     * <p>読み込みに失敗したDeviceは、UUIDとLocationの組み合わせ毎に記録され、
+     * 再試行時刻までは同一のSSDPメッセージを受信しても読み込みは行われない。
+     * 失敗する度に再試行までの間隔は倍になる。
+     *
+     * @see #getLoadFailureList()
+     */
+    interface LoadFailure {
+        /**
+         * UUIDを返す。
+         *
+         * @return UUID
+         */
+        @Nonnull
+        String getUuid();
+
+        /**
+         * Locationを返す。
+         *
+         * @return Location
+         */
+        @Nonnull
+        String getLocation();
+
+        /**
+         * 連続して失敗した回数を返す。
+         *
+         * @return 連続して失敗した回数
+         */
+        int getFailureCount();
+
+        /**
+         * 再試行が可能になる時刻を返す。
+         *
+         * @return 再試行が可能になる時刻
+         * @see System#currentTimeMillis()
+         */
+        long getRetryTime();
+
+        /**
+         * 最後に失敗した理由を返す。
+         *
+         * @return 失敗した理由
+         */
+        @Nonnull
+        String getReason();
+    }
+
+    /**
+     * SSDPメッセージの受信処理の統計情報。
+     *
+     * <p>受信スレッドでパースしたSSDPメッセージはUUID毎に分割された固定長のリングバッファに格納され、
+     * リングバッファ毎の消費タスクがまとめて処理する。
+     * リングバッファの容量を超えて滞留したメッセージは破棄される。
+     * 容量及び件数は全てのリングバッファの合計値、最大値はリングバッファ毎の値の最大値である。
+     * 値は取得時点のスナップショットであり、{@link ControlPoint}の作成時からの累積値である。
+     *
+     * @see #getSsdpReceiveStats()
+     */
+    interface SsdpReceiveStats {
+        /**
+         * リングバッファの容量を返す。
+         *
+         * @return リングバッファの容量
+         */
+        int getCapacity();
+
+        /**
+         * リングバッファに滞留しているメッセージ数を返す。
+         *
+         * @return 滞留しているメッセージ数
+         */
+        int getOccupancy();
+
+        /**
+         * 消費タスクの開始時に観測したリングバッファの滞留数の最大値を返す。
+         *
+         * @return 滞留数の最大値
+         */
+        int getMaxOccupancy();
+
+        /**
+         * 受信したメッセージ数を返す。
+         *
+         * @return 受信したメッセージ数
+         */
+        long getReceivedCount();
+
+        /**
+         * リングバッファが満杯のため破棄したメッセージ数を返す。
+         *
+         * @return 破棄したメッセージ数
+         */
+        long getDroppedCount();
+
+        /**
+         * メッセージを処理した消費タスクの実行回数を返す。
+         *
+         * @return 消費タスクの実行回数
+         */
+        long getBatchCount();
+
+        /**
+         * 一回の消費タスクで処理したメッセージ数の最大値を返す。
+         *
+         * @return 処理したメッセージ数の最大値
+         */
+        int getMaxBatchSize();
+
+        /**
+         * 一回の消費タスクで処理したメッセージ数の平均値を返す。
+         *
+         * @return 処理したメッセージ数の平均値、未実行の場合0
+         */
+        double getAverageBatchSize();
+    }
+
     /**
      * 初期化を行う。
      *
@@ -143,11 +292,52 @@ public interface ControlPoint {
      * Searchパケットを送出する。
      *
      * <p>stがnullの場合、"ssdp:all"として動作する。
+     * {@link #searchTargets(Collection)}に一つのSTを指定した場合と同様に、
+     * {@link #setSearchPolicy(SearchPolicy)}で設定したポリシーに従い非同期に送出する。
      *
      * @param st SearchパケットのSTフィールド
      */
     void search(@Nullable String st);
 
+    /**
+     * 複数のSTでSearchパケットを送出する。
+     *
+     * <p>{@link #setSearchPolicy(SearchPolicy)}で設定したポリシーに従い、
+     * 各STについて複数回のSearchパケットを一定間隔で送出する。
+     * 送出は非同期に行われる。
+     *
+     * @param stList SearchパケットのSTフィールドのリスト
+     * @see SearchPolicy
+     */
+    void searchTargets(@Nonnull Collection<String> stList);
+
+    /**
+     * 定期的なSearchパケットの送出を開始する。
+     *
+     * <p>すぐに一回目の送出を行い、以降はポリシーで定めた間隔で送出する。
+     * 発見済みのデバイスに変化がない場合、間隔は延長される。
+     * 既に開始している場合はSTを置き換え、間隔を初期値に戻す。
+     * {@link #stopPeriodicSearch()}もしくは{@link #stop()}で停止する。
+     *
+     * @param stList SearchパケットのSTフィールドのリスト
+     * @see SearchPolicy
+     */
+    void startPeriodicSearch(@Nonnull Collection<String> stList);
+
+    /**
+     * 定期的なSearchパケットの送出を停止する。
+     */
+    void stopPeriodicSearch();
+
+    /**
+     * Searchパケットの送出方法を設定する。
+     *
+     * <p>{@link #search(String)}、{@link #searchTargets(Collection)}及び{@link #startPeriodicSearch(Collection)}に適用される。
+     *
+     * @param policy ポリシー
+     */
+    void setSearchPolicy(@Nonnull SearchPolicy policy);
+
     /**
      * SsdpMessageを受け入れるかどうかの判定メソッドを設定する。
      *
@@ -199,6 +389,22 @@ public interface ControlPoint {
      */
     void removeNotifyEventListener(@Nonnull NotifyEventListener listener);
 
+    /**
+     * Icon読み込み完了リスナーを登録する。
+     *
+     * @param listener リスナー
+     * @see IconLoadListener
+     */
+    void addIconLoadListener(@Nonnull IconLoadListener listener);
+
+    /**
+     * Icon読み込み完了リスナーを削除する。
+     *
+     * @param listener リスナー
+     * @see IconLoadListener
+     */
+    void removeIconLoadListener(@Nonnull IconLoadListener listener);
+
 
     /**
      * 発見したデバイスの数を返す。
@@ -230,6 +436,87 @@ public interface ControlPoint {
     @Nullable
     Device getDevice(@Nonnull String udn);
 
+    /**
+     * 指定したDeviceTypeのデバイスのリストを返す。
+     *
+     * <p>埋め込みデバイスも対象となり、該当するデバイスそのものが返る。
+     * 内部で保持するインデックスを使用するため、全デバイスを走査するより高速である。
+     *
+     * @param deviceType DeviceType
+     * @return 該当するデバイスのリスト
+     * @see Device#getDeviceType()
+     */
+    @Nonnull
+    List<Device> getDeviceListByType(@Nonnull String deviceType);
+
+    /**
+     * 指定したServiceTypeのサービスを持つデバイスのリストを返す。
+     *
+     * <p>埋め込みデバイスも対象となり、サービスを持つデバイスそのものが返る。
+     *
+     * @param serviceType ServiceType
+     * @return 該当するデバイスのリスト
+     * @see Service#getServiceType()
+     */
+    @Nonnull
+    List<Device> getDeviceListByServiceType(@Nonnull String serviceType);
+
+    /**
+     * 指定したManufactureのデバイスのリストを返す。
+     *
+     * <p>埋め込みデバイスも対象となる。
+     *
+     * @param manufacture Manufacture
+     * @return 該当するデバイスのリスト
+     * @see Device#getManufacture()
+     */
+    @Nonnull
+    List<Device> getDeviceListByManufacture(@Nonnull String manufacture);
+
+    /**
+     * 指定したIPアドレスのデバイスのリストを返す。
+     *
+     * <p>ルートデバイスのみが対象となる。
+     *
+     * @param ipAddress IPアドレス
+     * @return 該当するデバイスのリスト
+     * @see Device#getIpAddress()
+     */
+    @Nonnull
+    List<Device> getDeviceListByIpAddress(@Nonnull String ipAddress);
+
+    /**
+     * デバイスの発見・喪失イベントを購読者の要求数に従って配信するPublisherを返す。
+     *
+     * <p>{@link DiscoveryListener}と同一のイベントを{@link DiscoveryEvent}として配信する。
+     * 購読者が要求していない間に発生したイベントはstrategyに従って保持・破棄される。
+     * {@link OverflowStrategy.Type#LATEST_PER_KEY}ではUDN毎に最新のイベントのみが保持される。
+     * 通知はコールバックスレッドから行われる。
+     * {@link #terminate()}で未配信のイベントは破棄され、{@link EventFlow.Subscriber#onComplete()}が通知される。
+     *
+     * @param strategy 要求を超えてイベントが発生した場合の処理方法
+     * @return Publisher
+     * @see DiscoveryListener
+     */
+    @Nonnull
+    EventFlow.Publisher<DiscoveryEvent> getDiscoveryEventPublisher(@Nonnull OverflowStrategy strategy);
+
+    /**
+     * NotifyEventを購読者の要求数に従って配信するPublisherを返す。
+     *
+     * <p>{@link NotifyEventListener}と同一のイベントを{@link NotifyEvent}として配信する。
+     * 購読者が要求していない間に発生したイベントはstrategyに従って保持・破棄される。
+     * {@link OverflowStrategy.Type#LATEST_PER_KEY}ではServiceと変数名の組み合わせ毎に最新の値のみが保持される。
+     * 通知はコールバックスレッドから行われる。
+     * {@link #terminate()}で未配信のイベントは破棄され、{@link EventFlow.Subscriber#onComplete()}が通知される。
+     *
+     * @param strategy 要求を超えてイベントが発生した場合の処理方法
+     * @return Publisher
+     * @see NotifyEventListener
+     */
+    @Nonnull
+    EventFlow.Publisher<NotifyEvent> getNotifyEventPublisher(@Nonnull OverflowStrategy strategy);
+
     /**
      * 固定デバイスを設定する。
      *
@@ -248,4 +535,74 @@ public interface ControlPoint {
      * @param location locationのURL
      */
     void removePinnedDevice(@Nonnull String location);
+
+    /**
+     * 現在の状態を書き出す。
+     *
+     * <p>発見済みのデバイス（SSDPメッセージ、Description、有効期限）、読み込み中の固定デバイスのlocation、
+     * 購読中のServiceのSubscriptionIDと有効期限を圧縮したバイナリ形式で書き出す。
+     * 未読み込みのServiceのDescriptionは含まれない。
+     * 購読状態は{@link #stop()}で解除されるため、停止前にコールすること。
+     *
+     * <p>OutputStreamはcloseしない。
+     *
+     * @param os 出力先
+     * @throws IOException 書き込みに失敗した場合
+     * @see #importState(InputStream)
+     */
+    void exportState(@Nonnull OutputStream os) throws IOException;
+
+    /**
+     * {@link #exportState(OutputStream)}で書き出した状態を復元する。
+     *
+     * <p>デバイスは通信を行わずに復元され、{@link DiscoveryListener#onDiscover(Device)}が通知される。
+     * 有効期限が切れているデバイスは復元しない。
+     * 復元したデバイスは暫定的なものとして扱い、開始後にバックグラウンドで再検証を行う。
+     * 生存確認ができない場合は保存した有効期限で削除され、Locationが変化していた場合はDescriptionを読み直す。
+     * 購読は以前のSubscriptionIDを破棄した上で改めて購読する。
+     *
+     * <p>{@link #start()}の前にコールすることで、起動直後からデバイスリストを利用できる。
+     * InputStreamはcloseしない。
+     *
+     * @param is 入力元
+     * @throws IOException 読み込みに失敗した場合、形式が不正な場合
+     * @see #exportState(OutputStream)
+     */
+    void importState(@Nonnull InputStream is) throws IOException;
+
+    /**
+     * 読み込みに失敗したDeviceの情報のリストを返す。
+     *
+     * <p>内部で保持するリストのコピーが返される。
+     *
+     * @return 読み込みに失敗したDeviceの情報のリスト
+     * @see LoadFailure
+     */
+    @Nonnull
+    List<LoadFailure> getLoadFailureList();
+
+    /**
+     * 指定したUUIDのDeviceの読み込み失敗の情報を削除する。
+     *
+     * <p>削除後に受信したSSDPメッセージにより、すぐに読み込みが行われる。
+     *
+     * @param uuid UUID
+     */
+    void clearLoadFailure(@Nonnull String uuid);
+
+    /**
+     * 全てのDeviceの読み込み失敗の情報を削除する。
+     */
+    void clearLoadFailureList();
+
+    /**
+     * SSDPメッセージの受信処理の統計情報を返す。
+     *
+     * <p>受信の集中時にメッセージが破棄されていないか、処理が滞留していないかの確認に利用する。
+     *
+     * @return 統計情報のスナップショット
+     * @see SsdpReceiveStats
+     */
+    @Nonnull
+    SsdpReceiveStats getSsdpReceiveStats();
 }
@@ -9,6 +9,7 @@ package net.mm2d.upnp;
 
 import net.mm2d.upnp.internal.impl.ControlPointImpl;
 import net.mm2d.upnp.internal.impl.DiFactory;
+import net.mm2d.upnp.internal.manager.HostGuardRegistry;
 
 import java.net.NetworkInterface;
 import java.util.Collection;
@@ -37,9 +38,25 @@ public final class ControlPointFactory {
         private TaskExecutor mCallbackExecutor;
         @Nullable
         private TaskExecutor mIoExecutor;
+        @Nullable
+        private UpnpRuntime mRuntime;
 
         private boolean mNotifySegmentCheckEnabled;
 
+        private boolean mAsyncIconLoadEnabled;
+
+        private boolean mProgressiveDiscoveryEnabled;
+
+        private boolean mCompactModelEnabled;
+
+        private long mHttpTimeoutFloor = HostGuardRegistry.DEFAULT_TIMEOUT_FLOOR;
+
+        private long mHttpTimeoutCeiling = HostGuardRegistry.DEFAULT_TIMEOUT_CEILING;
+
+        private boolean mHttpCompressionEnabled;
+
+        private int mHttpRequestCompressionThreshold;
+
         /**
          * 使用するプロトコルスタックを指定する。
          *
@@ -95,6 +112,132 @@ public final class ControlPointFactory {
             return mNotifySegmentCheckEnabled;
         }
 
+        /**
+         * Iconの非同期読み込みを行う設定を行う。
+         *
+         * <p>有効にすると、Description XMLの読み込みが完了した時点でDeviceの発見が通知され、
+         * Iconのダウンロードは通常より低い優先度で非同期に行われる。
+         * 読み込み完了は{@link ControlPoint.IconLoadListener}で通知される。
+         * 無効の場合、Iconのダウンロード完了後にDeviceの発見が通知される。
+         *
+         * @param enabled Iconの非同期読み込みを行うときtrue
+         * @return このインスタンス
+         * @see ControlPoint.IconLoadListener
+         */
+        @Nonnull
+        public Params setAsyncIconLoadEnabled(final boolean enabled) {
+            mAsyncIconLoadEnabled = enabled;
+            return this;
+        }
+
+        boolean isAsyncIconLoadEnabled() {
+            return mAsyncIconLoadEnabled;
+        }
+
+        /**
+         * Serviceの読み込みを遅延させる設定を行う。
+         *
+         * <p>有効にすると、DeviceのDescription XMLのパースが完了した時点でDeviceの発見が通知され、
+         * ServiceのDescription XML(SCPD)は、{@link Service#getActionList()}等による
+         * Action/StateVariableへの初回アクセス時に読み込まれる。
+         * そのため、初回アクセス時は通信が発生するため、UIスレッドなどから呼び出さないように注意すること。
+         * 無効の場合、全ServiceのDescription XMLの読み込み完了後にDeviceの発見が通知される。
+         *
+         * @param enabled Serviceの読み込みを遅延させるときtrue
+         * @return このインスタンス
+         */
+        @Nonnull
+        public Params setProgressiveDiscoveryEnabled(final boolean enabled) {
+            mProgressiveDiscoveryEnabled = enabled;
+            return this;
+        }
+
+        boolean isProgressiveDiscoveryEnabled() {
+            return mProgressiveDiscoveryEnabled;
+        }
+
+        /**
+         * Deviceのメモリ使用量を抑える設定を行う。
+         *
+         * <p>有効にすると、DeviceのDescription XMLは圧縮して保持され、
+         * {@link Device#getDescription()}の呼び出し毎に展開される。
+         * また、DeviceTypeやManufacture、ServiceTypeなど、同一機種のDevice間で共通となる文字列は
+         * 同一のインスタンスが使用される。
+         * 多数のDeviceが存在する環境で、Description XMLをほとんど参照しない場合に有効。
+         *
+         * @param enabled Deviceのメモリ使用量を抑えるときtrue
+         * @return このインスタンス
+         */
+        @Nonnull
+        public Params setCompactModelEnabled(final boolean enabled) {
+            mCompactModelEnabled = enabled;
+            return this;
+        }
+
+        boolean isCompactModelEnabled() {
+            return mCompactModelEnabled;
+        }
+
+        /**
+         * HTTP通信のタイムアウト時間の下限と上限を設定する。
+         *
+         * <p>接続のタイムアウト時間はホスト毎の接続時間の統計から算出され、この範囲に収められる。
+         * 統計が十分でないホストに対しては上限値が使用される。
+         * 読み出しのタイムアウト時間には常に上限値が使用される。
+         * 設定はこのパラメータで作成したControlPointの通信にのみ適用される。
+         * デフォルトは下限500ms、上限{@link Property#DEFAULT_TIMEOUT}。
+         * 不正な範囲を指定した場合は{@link ControlPointFactory#create(Params)}でIllegalArgumentExceptionとなる。
+         *
+         * @param floor   下限[ms]
+         * @param ceiling 上限[ms]
+         * @return このインスタンス
+         */
+        @Nonnull
+        public Params setHttpTimeoutRange(
+                final long floor,
+                final long ceiling) {
+            mHttpTimeoutFloor = floor;
+            mHttpTimeoutCeiling = ceiling;
+            return this;
+        }
+
+        /**
+         * HTTP通信で符号化されたレスポンスを受け付けるか否かを設定する。
+         *
+         * <p>trueを指定した場合、リクエストにAccept-Encodingとしてgzip及びdeflateを指定する。
+         * 設定はこのパラメータで作成したControlPointの通信にのみ適用される。デフォルトはfalse。
+         *
+         * @param enabled 符号化されたレスポンスを受け付ける場合true
+         * @return このインスタンス
+         */
+        @Nonnull
+        public Params setHttpCompressionEnabled(final boolean enabled) {
+            mHttpCompressionEnabled = enabled;
+            return this;
+        }
+
+        /**
+         * HTTP通信でリクエストのボディをgzipで符号化する閾値を設定する。
+         *
+         * <p>ボディがこのサイズ以上であり、送信先のホストが以前のレスポンスのAccept-Encodingで
+         * gzipを受け付けることを示していた場合に符号化する。
+         * 設定はこのパラメータで作成したControlPointの通信にのみ適用される。デフォルトは0で符号化は行わない。
+         *
+         * @param size 閾値[byte]、0以下の場合は符号化しない
+         * @return このインスタンス
+         */
+        @Nonnull
+        public Params setHttpRequestCompressionThreshold(final int size) {
+            mHttpRequestCompressionThreshold = size;
+            return this;
+        }
+
+        private void applyHttpSettings(@Nonnull final HostGuardRegistry registry) {
+            registry.setTimeoutRange(mHttpTimeoutFloor, mHttpTimeoutCeiling);
+            registry.setCompressionEnabled(mHttpCompressionEnabled);
+            registry.setRequestCompressionThreshold(mHttpRequestCompressionThreshold);
+        }
+
         /**
          * コールバックを実行する{@link TaskExecutor}を指定する。
          *
@@ -134,6 +277,28 @@ public final class ControlPointFactory {
         TaskExecutor getIoExecutor() {
             return mIoExecutor;
         }
+
+        /**
+         * 複数のControlPointで共有する実行環境を指定する。
+         *
+         * <p>指定した場合、コールバック及びIO処理は実行環境のスレッドプールで実行され、
+         * {@link #setCallbackExecutor(TaskExecutor)}及び{@link #setIoExecutor(TaskExecutor)}の指定は無視される。
+         * 未指定の場合、ControlPoint毎にスレッドプールが作成される。
+         *
+         * @param runtime 共有する実行環境
+         * @return このインスタンス
+         * @see UpnpRuntime
+         */
+        @Nonnull
+        public Params setRuntime(@Nullable final UpnpRuntime runtime) {
+            mRuntime = runtime;
+            return this;
+        }
+
+        @Nullable
+        UpnpRuntime getRuntime() {
+            return mRuntime;
+        }
     }
 
     /**
@@ -201,16 +366,25 @@ public final class ControlPointFactory {
      *
      * @param params 初期化パラメータ
      * @return ControlPointのインスタンス
-     * @throws IllegalStateException 使用可能なインターフェースがない。
+     * @throws IllegalStateException 使用可能なインターフェースがない、もしくは実行環境がshutdown済み。
      */
     @Nonnull
     public static ControlPoint create(@Nonnull final Params params) {
         final Protocol protocol = params.getProtocol();
-        return new ControlPointImpl(
+        final UpnpRuntime runtime = params.getRuntime();
+        final DiFactory factory = runtime != null
+                ? new DiFactory(protocol, runtime.createTaskHandler())
+                : new DiFactory(protocol, params.getCallbackExecutor(), params.getIoExecutor());
+        final ControlPointImpl controlPoint = new ControlPointImpl(
                 protocol,
                 getDefaultInterfacesIfEmpty(protocol, params.getInterfaces()),
                 params.isNotifySegmentCheckEnabled(),
-                new DiFactory(protocol, params.getCallbackExecutor(), params.getIoExecutor()));
+                params.isAsyncIconLoadEnabled(),
+                params.isProgressiveDiscoveryEnabled(),
+                params.isCompactModelEnabled(),
+                factory);
+        params.applyHttpSettings(controlPoint.getHostGuardRegistry());
+        return controlPoint;
     }
 
     @Nonnull
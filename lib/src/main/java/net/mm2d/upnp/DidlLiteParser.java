@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * ContentDirectoryのBrowse/Searchの結果であるDIDL-Liteを逐次パースする。
+ *
+ * <p>DOMを構築せず、container/item要素を一つ読み終える毎に{@link Listener}へ通知する。
+ * 保持するのは読み込み中の一要素分の情報のみであるため、使用メモリは結果全体の大きさに依存しない。
+ * {@link ActionResult#openReader(String)}と組み合わせることで、応答から逐次処理することができる。
+ *
+ * <p>namespaceの宣言漏れがあるサーバも存在するため、要素名はprefixを除いたローカル名で判定する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ * @see Action#invokeStreaming(java.util.Map, java.util.Collection)
+ */
+public final class DidlLiteParser {
+    /**
+     * パース結果を受け取るリスナー。
+     */
+    public interface Listener {
+        /**
+         * container又はitem要素を一つ読み終える毎にコールされる。
+         *
+         * <p>文書中の出現順にコールされる。
+         *
+         * @param object 読み込んだ要素
+         */
+        void onObject(@Nonnull DidlObject object);
+    }
+
+    /**
+     * container又はitem要素の情報。
+     */
+    public static final class DidlObject {
+        private final boolean mItem;
+        @Nonnull
+        private final String mId;
+        @Nonnull
+        private final String mParentId;
+        private final boolean mRestricted;
+        @Nullable
+        private final String mTitle;
+        @Nullable
+        private final String mUpnpClass;
+        @Nonnull
+        private final List<Resource> mResources;
+
+        DidlObject(
+                final boolean item,
+                @Nonnull final String id,
+                @Nonnull final String parentId,
+                final boolean restricted,
+                @Nullable final String title,
+                @Nullable final String upnpClass,
+                @Nonnull final List<Resource> resources) {
+            mItem = item;
+            mId = id;
+            mParentId = parentId;
+            mRestricted = restricted;
+            mTitle = title;
+            mUpnpClass = upnpClass;
+            mResources = resources;
+        }
+
+        /**
+         * item要素であるかを返す。
+         *
+         * @return item要素であればtrue、container要素であればfalse
+         */
+        public boolean isItem() {
+            return mItem;
+        }
+
+        /**
+         * container要素であるかを返す。
+         *
+         * @return container要素であればtrue、item要素であればfalse
+         */
+        public boolean isContainer() {
+            return !mItem;
+        }
+
+        /**
+         * id属性の値を返す。
+         *
+         * @return id、属性がない場合は空文字
+         */
+        @Nonnull
+        public String getId() {
+            return mId;
+        }
+
+        /**
+         * parentID属性の値を返す。
+         *
+         * @return parentID、属性がない場合は空文字
+         */
+        @Nonnull
+        public String getParentId() {
+            return mParentId;
+        }
+
+        /**
+         * restricted属性の値を返す。
+         *
+         * @return restrictedが"1"又は"true"の場合true
+         */
+        public boolean isRestricted() {
+            return mRestricted;
+        }
+
+        /**
+         * dc:titleの値を返す。
+         *
+         * @return タイトル、要素がない場合null
+         */
+        @Nullable
+        public String getTitle() {
+            return mTitle;
+        }
+
+        /**
+         * upnp:classの値を返す。
+         *
+         * @return クラス、要素がない場合null
+         */
+        @Nullable
+        public String getUpnpClass() {
+            return mUpnpClass;
+        }
+
+        /**
+         * res要素のリストを返す。
+         *
+         * <p>リストは変更不可であり、文書中の出現順である。
+         *
+         * @return res要素のリスト
+         */
+        @Nonnull
+        public List<Resource> getResources() {
+            return mResources;
+        }
+
+        @Override
+        public String toString() {
+            return (mItem ? "item" : "container") + " id=" + mId + " parentID=" + mParentId + " title=" + mTitle;
+        }
+    }
+
+    /**
+     * res要素の情報。
+     */
+    public static final class Resource {
+        @Nonnull
+        private final String mUri;
+        @Nullable
+        private final String mProtocolInfo;
+
+        Resource(
+                @Nonnull final String uri,
+                @Nullable final String protocolInfo) {
+            mUri = uri;
+            mProtocolInfo = protocolInfo;
+        }
+
+        /**
+         * res要素の値であるURIを返す。
+         *
+         * @return URI
+         */
+        @Nonnull
+        public String getUri() {
+            return mUri;
+        }
+
+        /**
+         * protocolInfo属性の値を返す。
+         *
+         * @return protocolInfo、属性がない場合null
+         */
+        @Nullable
+        public String getProtocolInfo() {
+            return mProtocolInfo;
+        }
+
+        @Override
+        public String toString() {
+            return mUri + " " + mProtocolInfo;
+        }
+    }
+
+    /**
+     * DIDL-Liteの文字列をパースする。
+     *
+     * @param xml      DIDL-Lite
+     * @param listener 結果を受け取るリスナー
+     * @throws IOException パースに失敗した場合
+     */
+    public static void parse(
+            @Nonnull final String xml,
+            @Nonnull final Listener listener) throws IOException {
+        parse(new StringReader(xml), listener);
+    }
+
+    /**
+     * DIDL-Liteを逐次読み込みながらパースする。
+     *
+     * <p>パースに失敗した場合でも、失敗箇所までに読み込んだ要素は通知される。
+     *
+     * @param reader   DIDL-Liteを読み出すReader
+     * @param listener 結果を受け取るリスナー
+     * @throws IOException パースに失敗した場合
+     */
+    public static void parse(
+            @Nonnull final Reader reader,
+            @Nonnull final Listener listener) throws IOException {
+        try {
+            final SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(false);
+            factory.newSAXParser().parse(new InputSource(reader), new Handler(listener));
+        } catch (final SAXException | ParserConfigurationException e) {
+            throw new IOException(e);
+        }
+    }
+
+    // インスタンス化禁止
+    private DidlLiteParser() {
+    }
+
+    private static class Handler extends DefaultHandler {
+        private static final int TEXT_NONE = 0;
+        private static final int TEXT_TITLE = 1;
+        private static final int TEXT_CLASS = 2;
+        private static final int TEXT_RES = 3;
+        @Nonnull
+        private final Listener mListener;
+        @Nonnull
+        private final StringBuilder mText = new StringBuilder();
+        @Nonnull
+        private final List<Resource> mResources = new ArrayList<>();
+        private int mDepth;
+        private int mTextType;
+        private boolean mInObject;
+        private boolean mItem;
+        private String mId;
+        private String mParentId;
+        private boolean mRestricted;
+        private String mTitle;
+        private String mUpnpClass;
+        private String mProtocolInfo;
+
+        Handler(@Nonnull final Listener listener) {
+            mListener = listener;
+        }
+
+        @Override
+        public void startElement(
+                final String uri,
+                final String localName,
+                final String qName,
+                final Attributes attributes) {
+            mDepth++;
+            final String name = toLocalName(qName);
+            if (mDepth == 2) {
+                if (name.equals("item") || name.equals("container")) {
+                    startObject(name.equals("item"), attributes);
+                }
+                return;
+            }
+            if (!mInObject || mDepth != 3) {
+                return;
+            }
+            switch (name) {
+                case "title":
+                    startText(TEXT_TITLE);
+                    break;
+                case "class":
+                    startText(TEXT_CLASS);
+                    break;
+                case "res":
+                    mProtocolInfo = attributes.getValue("protocolInfo");
+                    startText(TEXT_RES);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(
+                final String uri,
+                final String localName,
+                final String qName) {
+            if (mDepth == 2 && mInObject) {
+                endObject();
+            } else if (mDepth == 3 && mTextType != TEXT_NONE) {
+                endText();
+            }
+            mDepth--;
+        }
+
+        @Override
+        public void characters(
+                final char[] ch,
+                final int start,
+                final int length) {
+            if (mTextType != TEXT_NONE) {
+                mText.append(ch, start, length);
+            }
+        }
+
+        private void startObject(
+                final boolean item,
+                @Nonnull final Attributes attributes) {
+            mInObject = true;
+            mItem = item;
+            mId = nonNull(attributes.getValue("id"));
+            mParentId = nonNull(attributes.getValue("parentID"));
+            final String restricted = attributes.getValue("restricted");
+            mRestricted = "1".equals(restricted) || "true".equalsIgnoreCase(restricted);
+            mTitle = null;
+            mUpnpClass = null;
+            mResources.clear();
+        }
+
+        private void endObject() {
+            mInObject = false;
+            final List<Resource> resources = mResources.isEmpty()
+                    ? Collections.emptyList()
+                    : Collections.unmodifiableList(new ArrayList<>(mResources));
+            mListener.onObject(new DidlObject(mItem, mId, mParentId, mRestricted, mTitle, mUpnpClass, resources));
+        }
+
+        private void startText(final int type) {
+            mTextType = type;
+            mText.setLength(0);
+        }
+
+        private void endText() {
+            final String text = mText.toString().trim();
+            switch (mTextType) {
+                case TEXT_TITLE:
+                    mTitle = text;
+                    break;
+                case TEXT_CLASS:
+                    mUpnpClass = text;
+                    break;
+                default:
+                    mResources.add(new Resource(text, mProtocolInfo));
+                    break;
+            }
+            mTextType = TEXT_NONE;
+        }
+
+        @Nonnull
+        private static String toLocalName(@Nonnull final String qName) {
+            final int index = qName.indexOf(':');
+            return index < 0 ? qName : qName.substring(index + 1);
+        }
+
+        @Nonnull
+        private static String nonNull(@Nullable final String value) {
+            return value == null ? "" : value;
+        }
+    }
+}
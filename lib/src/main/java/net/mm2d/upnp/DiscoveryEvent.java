@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 機器の発見及び喪失のイベント。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ * @see ControlPoint#getDiscoveryEventPublisher(OverflowStrategy)
+ */
+public final class DiscoveryEvent {
+    /**
+     * イベントの種別。
+     */
+    public enum Type {
+        /**
+         * 機器発見。
+         *
+         * @see ControlPoint.DiscoveryListener#onDiscover(Device)
+         */
+        DISCOVER,
+        /**
+         * 機器喪失。
+         *
+         * @see ControlPoint.DiscoveryListener#onLost(Device)
+         */
+        LOST,
+    }
+
+    @Nonnull
+    private final Type mType;
+    @Nonnull
+    private final Device mDevice;
+
+    /**
+     * インスタンス作成。
+     *
+     * @param type   種別
+     * @param device 対象のDevice
+     */
+    public DiscoveryEvent(
+            @Nonnull final Type type,
+            @Nonnull final Device device) {
+        mType = type;
+        mDevice = device;
+    }
+
+    /**
+     * 種別を返す。
+     *
+     * @return 種別
+     */
+    @Nonnull
+    public Type getType() {
+        return mType;
+    }
+
+    /**
+     * 対象のDeviceを返す。
+     *
+     * @return 対象のDevice
+     */
+    @Nonnull
+    public Device getDevice() {
+        return mDevice;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return mType + " " + mDevice.getUdn();
+    }
+}
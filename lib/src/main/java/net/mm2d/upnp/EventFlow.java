@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 購読者の要求数に従ってイベントを配信するためのインターフェース群。
+ *
+ * <p>java.util.concurrent.Flow及びReactive Streamsと同一の構成、同一のシグネチャとしているため、
+ * 単純なアダプタでそれらのライブラリと接続することができる。
+ * Java 9未満の環境をサポートするため、独自に定義している。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ * @see ControlPoint#getDiscoveryEventPublisher(OverflowStrategy)
+ * @see ControlPoint#getNotifyEventPublisher(OverflowStrategy)
+ */
+public final class EventFlow {
+    /**
+     * イベントの発行元。
+     *
+     * @param <T> イベントの型
+     */
+    public interface Publisher<T> {
+        /**
+         * 購読を開始する。
+         *
+         * <p>{@link Subscriber#onSubscribe(Subscription)}が最初にコールされ、
+         * {@link Subscription#request(long)}で要求された数だけ{@link Subscriber#onNext(Object)}がコールされる。
+         *
+         * @param subscriber 購読者
+         */
+        void subscribe(@Nonnull Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * イベントの購読者。
+     *
+     * <p>各メソッドは同時にコールされることはない。
+     *
+     * @param <T> イベントの型
+     */
+    public interface Subscriber<T> {
+        /**
+         * 購読開始時にコールされる。
+         *
+         * @param subscription 購読
+         */
+        void onSubscribe(@Nonnull Subscription subscription);
+
+        /**
+         * イベントを通知する。
+         *
+         * @param item イベント
+         */
+        void onNext(@Nonnull T item);
+
+        /**
+         * エラーにより購読が終了した時にコールされる。
+         *
+         * @param throwable エラー
+         */
+        void onError(@Nonnull Throwable throwable);
+
+        /**
+         * 発行元の終了により購読が終了した時にコールされる。
+         */
+        void onComplete();
+    }
+
+    /**
+     * 購読者と発行元を結ぶ購読。
+     */
+    public interface Subscription {
+        /**
+         * イベントを要求する。
+         *
+         * <p>要求数は累積する。0以下を指定した場合は{@link Subscriber#onError(Throwable)}で
+         * IllegalArgumentExceptionが通知され、購読は終了する。
+         *
+         * @param n 要求数
+         */
+        void request(long n);
+
+        /**
+         * 購読を終了する。
+         *
+         * <p>終了後、通知は行われない。
+         */
+        void cancel();
+    }
+
+    // インスタンス化禁止
+    private EventFlow() {
+    }
+}
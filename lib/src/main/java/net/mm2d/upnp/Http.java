@@ -14,12 +14,7 @@ import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.UnknownHostException;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -46,6 +41,14 @@ public final class Http {
     public static final String CONTENT_TYPE = "Content-Type";
     public static final String CONTENT_TYPE_DEFAULT = "text/xml; charset=\"utf-8\"";
     public static final String USER_AGENT = "User-Agent";
+    public static final String ETAG = "ETag";
+    public static final String LAST_MODIFIED = "Last-Modified";
+    public static final String IF_NONE_MATCH = "If-None-Match";
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
     /**
      * Mandatory request
      */
@@ -195,45 +198,22 @@ public final class Http {
     }
 
     private static final String HTTP_SCHEME = "http://";
-    private static final DateFormat RFC_1123_FORMAT;
-    private static final DateFormat RFC_1036_FORMAT;
-    private static final DateFormat ASC_TIME_FORMAT;
-
-    static {
-        final Locale locale = Locale.US;
-        final TimeZone tz = TimeZone.getTimeZone("GMT");
-        RFC_1123_FORMAT = new SimpleDateFormat("E, dd MMM yyyy HH:mm:ss z", locale);
-        RFC_1123_FORMAT.setTimeZone(tz);
-        RFC_1036_FORMAT = new SimpleDateFormat("EEEE, dd-MMM-yy HH:mm:ss z", locale);
-        RFC_1036_FORMAT.setTimeZone(tz);
-        ASC_TIME_FORMAT = new SimpleDateFormat("E MMM d HH:mm:ss yyyy", locale);
-        ASC_TIME_FORMAT.setTimeZone(tz);
-    }
 
     /**
      * Dateヘッダのパースを行う。
      *
+     * <p>RFC1123、RFC1036、asctime形式に対応する。
+     * 複数スレッドから同時に呼び出すことができる。
+     *
      * @param string Dateヘッダ
      * @return パース結果、失敗した場合null
      */
     @Nullable
-    public static synchronized Date parseDate(@Nullable final String string) {
+    public static Date parseDate(@Nullable final String string) {
         if (TextUtils.isEmpty(string)) {
             return null;
         }
-        try {
-            return RFC_1123_FORMAT.parse(string);
-        } catch (final ParseException ignored) {
-        }
-        try {
-            return RFC_1036_FORMAT.parse(string);
-        } catch (final ParseException ignored) {
-        }
-        try {
-            return ASC_TIME_FORMAT.parse(string);
-        } catch (final ParseException ignored) {
-        }
-        return null;
+        return HttpDateFormat.parse(string);
     }
 
     /**
@@ -243,8 +223,8 @@ public final class Http {
      * @return RFC1123形式の日付文字列
      */
     @Nonnull
-    public static synchronized String formatDate(final long date) {
-        return formatDate(new Date(date));
+    public static String formatDate(final long date) {
+        return HttpDateFormat.format(date);
     }
 
     /**
@@ -255,18 +235,20 @@ public final class Http {
      */
     @SuppressWarnings("WeakerAccess")
     @Nonnull
-    public static synchronized String formatDate(@Nonnull final Date date) {
-        return RFC_1123_FORMAT.format(date);
+    public static String formatDate(@Nonnull final Date date) {
+        return HttpDateFormat.format(date.getTime());
     }
 
     /**
      * 現在時刻の日付文字列を作成して返す。
      *
+     * <p>秒単位でキャッシュされた値を返すため、同一秒内の呼び出しでは同一のインスタンスを返す。
+     *
      * @return RFC1123形式の日付文字列
      */
     @Nonnull
-    public static synchronized String getCurrentDate() {
-        return formatDate(System.currentTimeMillis());
+    public static String getCurrentDate() {
+        return HttpDateFormat.formatCurrent(System.currentTimeMillis());
     }
 
     /**
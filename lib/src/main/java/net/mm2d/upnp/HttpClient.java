@@ -8,6 +8,10 @@
 package net.mm2d.upnp;
 
 import net.mm2d.log.Log;
+import net.mm2d.upnp.internal.manager.HostGuard;
+import net.mm2d.upnp.internal.manager.HostGuardRegistry;
+import net.mm2d.upnp.internal.message.CacheValidator;
+import net.mm2d.upnp.internal.message.ContentCoding;
 import net.mm2d.upnp.internal.message.HttpRequest;
 import net.mm2d.upnp.internal.message.HttpResponse;
 import net.mm2d.util.IoUtils;
@@ -20,6 +24,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.net.URL;
 
 import javax.annotation.Nonnull;
@@ -39,10 +44,27 @@ import javax.annotation.Nullable;
  * <p>keep-alive状態であっても、post時に維持したコネクションと
  * 同一のホスト・ポートでない場合は切断、再接続を行う。
  *
+ * <p>ホスト毎の同時実行数の制限とサーキットブレーカーが適用され、
+ * 応答しないホストへの通信は即座に失敗する場合がある。
+ * また、接続のタイムアウト時間はホスト毎の接続時間の統計から算出される。
+ *
+ * <p>ホスト毎の状態及びタイムアウト時間、符号化の設定は{@link HostGuardRegistry}が保持し、
+ * ControlPointが作成するHttpClientはControlPoint毎のHostGuardRegistryを使用する。
+ *
+ * <p>{@link HostGuardRegistry#setCompressionEnabled(boolean)}で有効にした場合、Accept-Encodingを送信し、
+ * gzip/deflateで符号化されたレスポンスを受け付ける。
+ * レスポンスの復号はAccept-Encodingを送信したリクエストに対してのみ行い、
+ * 復号後のサイズが{@link ContentCoding#MAX_DECODED_SIZE}を超える場合はIOExceptionとする。
+ * {@link HostGuardRegistry#setRequestCompressionThreshold(int)}で閾値を設定した場合、
+ * Accept-Encodingでgzipを受け付けることを示したホストには、閾値以上のボディを符号化して送信する。
+ * 符号化したリクエストに415 Unsupported Media Typeが返された場合は、符号化せずに再送する。
+ *
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
  */
 public class HttpClient {
     private static final int REDIRECT_MAX = 2;
+    @Nonnull
+    private final HostGuardRegistry mRegistry;
     @Nullable
     private Socket mSocket;
     private boolean mKeepAlive;
@@ -52,6 +74,8 @@ public class HttpClient {
     private OutputStream mOutputStream;
     @Nullable
     private InetAddress mLocalAddress;
+    @Nullable
+    private CacheValidator mCacheValidator;
 
     /**
      * インスタンス作成
@@ -59,16 +83,32 @@ public class HttpClient {
      * @see #setKeepAlive(boolean)
      */
     public HttpClient() {
-        setKeepAlive(true);
+        this(true);
     }
 
     /**
      * インスタンス作成
      *
+     * <p>{@link HostGuardRegistry#getDefault()}のホスト毎の状態と設定を使用する。
+     *
      * @param keepAlive keep-alive通信を行う場合true
      * @see #setKeepAlive(boolean)
      */
     public HttpClient(final boolean keepAlive) {
+        this(keepAlive, HostGuardRegistry.getDefault());
+    }
+
+    /**
+     * インスタンス作成
+     *
+     * @param keepAlive keep-alive通信を行う場合true
+     * @param registry  ホスト毎の状態と設定を保持するHostGuardRegistry
+     * @see #setKeepAlive(boolean)
+     */
+    public HttpClient(
+            final boolean keepAlive,
+            @Nonnull final HostGuardRegistry registry) {
+        mRegistry = registry;
         setKeepAlive(keepAlive);
     }
 
@@ -129,19 +169,99 @@ public class HttpClient {
             @Nonnull final HttpRequest request,
             final int redirectDepth) throws IOException {
         confirmReuseSocket(request);
+        final HostGuard guard = getHostGuard(request);
+        final HttpRequest actualRequest = prepareRequest(request, guard);
+        guard.acquire();
         final HttpResponse response;
         try {
-            response = doRequest(request);
+            response = doRequest(actualRequest, guard);
+            guard.onSuccess();
+        } catch (final SocketTimeoutException e) {
+            guard.onTimeout();
+            closeSocket();
+            throw e;
         } catch (final IOException e) {
+            guard.onFailure();
             closeSocket();
             throw e;
+        } finally {
+            guard.release();
         }
         if (!isKeepAlive() || !response.isKeepAlive()) {
             closeSocket();
         }
+        // Accept-Encodingを送信していない場合、符号化されたレスポンスは受け付けていないため復号しない
+        if (actualRequest.getHeader(Http.ACCEPT_ENCODING) != null) {
+            response.decodeBody();
+        }
+        final String acceptEncoding = response.getHeader(Http.ACCEPT_ENCODING);
+        if (acceptEncoding != null) {
+            guard.setGzipRequestAccepted(ContentCoding.acceptsGzip(acceptEncoding));
+        }
+        if (actualRequest != request
+                && actualRequest.getHeader(Http.CONTENT_ENCODING) != null
+                && response.getStatus() == Http.Status.HTTP_UNSUPPORTED_TYPE) {
+            // 符号化したリクエストを受け付けなかった場合は、符号化せずに再送する
+            guard.setGzipRequestAccepted(false);
+            return post(request, redirectDepth);
+        }
         return redirectIfNeeded(request, response, redirectDepth);
     }
 
+    /**
+     * 符号化に関する設定を反映したリクエストを作成する。
+     *
+     * <p>引数のリクエストは変更せず、変更が必要な場合は複製して返す。
+     *
+     * @param request 送信するリクエスト
+     * @param guard   送信先ホストのHostGuard
+     * @return 送信するリクエスト
+     * @throws IOException 符号化に失敗した場合
+     */
+    @Nonnull
+    private HttpRequest prepareRequest(
+            @Nonnull final HttpRequest request,
+            @Nonnull final HostGuard guard) throws IOException {
+        final boolean acceptEncoding = mRegistry.isCompressionEnabled() && request.getHeader(Http.ACCEPT_ENCODING) == null;
+        final boolean compress = needToCompress(request, guard);
+        if (!acceptEncoding && !compress) {
+            return request;
+        }
+        final HttpRequest newRequest = new HttpRequest(request);
+        if (acceptEncoding) {
+            newRequest.setHeader(Http.ACCEPT_ENCODING, ContentCoding.ACCEPT_ENCODING_VALUE);
+        }
+        if (compress) {
+            //noinspection ConstantConditions : needToCompressでチェック済み
+            newRequest.setBodyBinary(ContentCoding.encodeGzip(request.getBodyBinary()), !request.isChunked());
+            newRequest.setHeader(Http.CONTENT_ENCODING, Http.GZIP);
+        }
+        return newRequest;
+    }
+
+    private boolean needToCompress(
+            @Nonnull final HttpRequest request,
+            @Nonnull final HostGuard guard) {
+        final int threshold = mRegistry.getRequestCompressionThreshold();
+        if (threshold <= 0 || !guard.isGzipRequestAccepted()) {
+            return false;
+        }
+        if (request.getHeader(Http.CONTENT_ENCODING) != null) {
+            return false;
+        }
+        final byte[] body = request.getBodyBinary();
+        return body != null && body.length >= threshold;
+    }
+
+    @Nonnull
+    private HostGuard getHostGuard(@Nonnull final HttpRequest request) throws IOException {
+        final InetAddress address = request.getAddress();
+        if (address == null) {
+            throw new IOException("address must be set");
+        }
+        return mRegistry.get(address);
+    }
+
     private void confirmReuseSocket(@Nonnull final HttpRequest request) {
         if (!canReuse(request)) {
             closeSocket();
@@ -149,9 +269,11 @@ public class HttpClient {
     }
 
     @Nonnull
-    private HttpResponse doRequest(@Nonnull final HttpRequest request) throws IOException {
+    private HttpResponse doRequest(
+            @Nonnull final HttpRequest request,
+            @Nonnull final HostGuard guard) throws IOException {
         if (isClosed()) {
-            openSocket(request);
+            openSocket(request, guard);
             return writeAndRead(request);
         } else {
             try {
@@ -162,7 +284,7 @@ public class HttpClient {
                 Log.w("retry:" + e.getMessage());
                 setKeepAlive(false);
                 closeSocket();
-                openSocket(request);
+                openSocket(request, guard);
                 return writeAndRead(request);
             }
         }
@@ -212,7 +334,7 @@ public class HttpClient {
         final HttpRequest newRequest = new HttpRequest(request)
                 .setUrl(new URL(location), true)
                 .setHeader(Http.CONNECTION, Http.CLOSE);
-        return new HttpClient(false).post(newRequest, redirectDepth + 1);
+        return new HttpClient(false, mRegistry).post(newRequest, redirectDepth + 1);
     }
 
     // VisibleForTesting
@@ -228,10 +350,14 @@ public class HttpClient {
         return mSocket == null;
     }
 
-    private void openSocket(@Nonnull final HttpRequest request) throws IOException {
+    private void openSocket(
+            @Nonnull final HttpRequest request,
+            @Nonnull final HostGuard guard) throws IOException {
         mSocket = new Socket();
-        mSocket.connect(request.getSocketAddress(), Property.DEFAULT_TIMEOUT);
-        mSocket.setSoTimeout(Property.DEFAULT_TIMEOUT);
+        final long start = System.currentTimeMillis();
+        mSocket.connect(request.getSocketAddress(), guard.getConnectTimeout());
+        guard.recordConnectTime(System.currentTimeMillis() - start);
+        mSocket.setSoTimeout(guard.getReadTimeout());
         mInputStream = new BufferedInputStream(mSocket.getInputStream());
         mOutputStream = new BufferedOutputStream(mSocket.getOutputStream());
         mLocalAddress = mSocket.getLocalAddress();
@@ -265,6 +391,19 @@ public class HttpClient {
         return mLocalAddress;
     }
 
+    /**
+     * 直前のダウンロードのレスポンスに含まれていた検証子を返す。
+     *
+     * <p>ダウンロードの成功後保存し、次のダウンロードまで保持される。
+     *
+     * @return 検証子、レスポンスにETagとLast-Modifiedのいずれも含まれていなかった場合null
+     * @see #downloadStringIfModified(URL, CacheValidator)
+     */
+    @Nullable
+    public CacheValidator getCacheValidator() {
+        return mCacheValidator;
+    }
+
     /**
      * 単純なHTTP GETにより文字列を取得する。
      *
@@ -301,12 +440,47 @@ public class HttpClient {
     @Nonnull
     public HttpResponse download(@Nonnull final URL url) throws IOException {
         final HttpRequest request = makeHttpRequest(url);
+        return checkResponse(request, post(request));
+    }
+
+    /**
+     * 条件付きのHTTP GETにより文字列を取得する。
+     *
+     * <p>検証子をIf-None-Match及びIf-Modified-Sinceとして送信し、
+     * 304 Not Modifiedが返された場合はnullを返す。
+     *
+     * @param url       取得先URL
+     * @param validator 前回取得時の検証子、nullの場合は条件なしで取得する
+     * @return 取得できた文字列、変更がない場合null
+     * @throws IOException 取得に問題があった場合
+     */
+    @SuppressWarnings("ConstantConditions") // checkResponse()の中でgetBody()がnullで無いことはチェック済み
+    @Nullable
+    public String downloadStringIfModified(
+            @Nonnull final URL url,
+            @Nullable final CacheValidator validator) throws IOException {
+        final HttpRequest request = makeHttpRequest(url);
+        if (validator != null) {
+            validator.apply(request);
+        }
         final HttpResponse response = post(request);
+        if (validator != null && response.getStatus() == Http.Status.HTTP_NOT_MODIFIED) {
+            mCacheValidator = validator;
+            return null;
+        }
+        return checkResponse(request, response).getBody();
+    }
+
+    @Nonnull
+    private HttpResponse checkResponse(
+            @Nonnull final HttpRequest request,
+            @Nonnull final HttpResponse response) throws IOException {
         // response bodyがemptyであることは正常
         if (response.getStatus() != Http.Status.HTTP_OK || response.getBody() == null) {
             Log.i("request:" + request.toString() + "\nresponse:" + response.toString());
             throw new IOException(response.getStartLine());
         }
+        mCacheValidator = CacheValidator.from(response);
         return response;
     }
 
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.Date;
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * HTTPの日付文字列の変換を行う。
+ *
+ * <p>ロックを使用せず、複数スレッドから同時に呼び出すことができる。
+ * RFC1123形式への変換は状態を持たない計算のみで行い、
+ * 現在時刻の文字列は秒単位でキャッシュする。
+ * パースは不変でスレッドセーフなDateTimeFormatterを使用する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+final class HttpDateFormat {
+    private static final long SECOND = 1000L;
+    private static final long SECONDS_PER_DAY = 86400L;
+    // 1970-01-01は木曜日
+    private static final String[] DAY_OF_WEEK = {"Thu", "Fri", "Sat", "Sun", "Mon", "Tue", "Wed"};
+    private static final String[] MONTH = {
+            "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+    private static final int RFC_1123_LENGTH = 29;
+
+    private static final DateTimeFormatter[] PARSERS = {
+            DateTimeFormatter.ofPattern("EEE, d MMM uuuu HH:mm:ss [z][xx]", Locale.US),
+            new DateTimeFormatterBuilder()
+                    .appendPattern("EEEE, dd-MMM-")
+                    // 2桁の年は50年以上未来になる場合は過去として扱う (RFC7231 7.1.1.1)
+                    .appendValueReduced(ChronoField.YEAR, 2, 2, LocalDate.now(ZoneOffset.UTC).minusYears(49))
+                    .appendPattern(" HH:mm:ss [z][xx]")
+                    .toFormatter(Locale.US),
+            DateTimeFormatter.ofPattern("EEE MMM ppd HH:mm:ss uuuu", Locale.US)
+                    .withZone(ZoneOffset.UTC),
+    };
+
+    private static final class CachedDate {
+        private final long mSecond;
+        @Nonnull
+        private final String mValue;
+
+        CachedDate(
+                final long second,
+                @Nonnull final String value) {
+            mSecond = second;
+            mValue = value;
+        }
+    }
+
+    @Nonnull
+    private static volatile CachedDate sCurrentDate = new CachedDate(Long.MIN_VALUE, "");
+
+    /**
+     * 日付文字列のパースを行う。
+     *
+     * <p>RFC1123、RFC1036、asctimeの順にパースを試みる。
+     *
+     * @param string 日付文字列
+     * @return パース結果、失敗した場合null
+     */
+    @Nullable
+    static Date parse(@Nonnull final String string) {
+        for (final DateTimeFormatter parser : PARSERS) {
+            try {
+                return Date.from(Instant.from(parser.parse(string)));
+            } catch (final DateTimeException ignored) {
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 現在時刻のRFC1123形式の日付文字列を返す。
+     *
+     * <p>同一秒内の呼び出しではキャッシュした値を返す。
+     *
+     * @param now 現在時刻
+     * @return RFC1123形式の日付文字列
+     */
+    @Nonnull
+    static String formatCurrent(final long now) {
+        final long second = Math.floorDiv(now, SECOND);
+        final CachedDate cache = sCurrentDate;
+        if (cache.mSecond == second) {
+            return cache.mValue;
+        }
+        final String value = format(now);
+        sCurrentDate = new CachedDate(second, value);
+        return value;
+    }
+
+    /**
+     * RFC1123形式の日付文字列を作成する。
+     *
+     * @param date 1970-01-01T00:00:00Zからの経過ミリ秒
+     * @return RFC1123形式の日付文字列
+     */
+    @Nonnull
+    static String format(final long date) {
+        final long seconds = Math.floorDiv(date, SECOND);
+        final long days = Math.floorDiv(seconds, SECONDS_PER_DAY);
+        final int secondOfDay = (int) (seconds - days * SECONDS_PER_DAY);
+        // 暦日への変換 (proleptic gregorian calendar)
+        // http://howardhinnant.github.io/date_algorithms.html#civil_from_days
+        final long z = days + 719468;
+        final long era = Math.floorDiv(z, 146097);
+        final long dayOfEra = z - era * 146097;
+        final long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final long mp = (5 * dayOfYear + 2) / 153;
+        final int dayOfMonth = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        final int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        final long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        final StringBuilder sb = new StringBuilder(RFC_1123_LENGTH);
+        sb.append(DAY_OF_WEEK[(int) (days - Math.floorDiv(days, 7) * 7)]).append(", ");
+        appendTwoDigits(sb, dayOfMonth).append(' ');
+        sb.append(MONTH[month - 1]).append(' ');
+        appendYear(sb, year).append(' ');
+        appendTwoDigits(sb, secondOfDay / 3600).append(':');
+        appendTwoDigits(sb, secondOfDay / 60 % 60).append(':');
+        appendTwoDigits(sb, secondOfDay % 60).append(" GMT");
+        return sb.toString();
+    }
+
+    @Nonnull
+    private static StringBuilder appendTwoDigits(
+            @Nonnull final StringBuilder sb,
+            final int value) {
+        return sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    @Nonnull
+    private static StringBuilder appendYear(
+            @Nonnull final StringBuilder sb,
+            final long year) {
+        if (year >= 0 && year < 1000) {
+            sb.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+        }
+        return sb.append(year);
+    }
+
+    // インスタンス化禁止
+    private HttpDateFormat() {
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import javax.annotation.Nonnull;
+
+/**
+ * NotifyEventの受信イベント。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ * @see ControlPoint#getNotifyEventPublisher(OverflowStrategy)
+ * @see ControlPoint.NotifyEventListener#onNotifyEvent(Service, long, String, String)
+ */
+public final class NotifyEvent {
+    @Nonnull
+    private final Service mService;
+    private final long mSeq;
+    @Nonnull
+    private final String mVariable;
+    @Nonnull
+    private final String mValue;
+
+    /**
+     * インスタンス作成。
+     *
+     * @param service  対応するService
+     * @param seq      シーケンス番号
+     * @param variable 変数名
+     * @param value    値
+     */
+    public NotifyEvent(
+            @Nonnull final Service service,
+            final long seq,
+            @Nonnull final String variable,
+            @Nonnull final String value) {
+        mService = service;
+        mSeq = seq;
+        mVariable = variable;
+        mValue = value;
+    }
+
+    /**
+     * 対応するServiceを返す。
+     *
+     * @return 対応するService
+     */
+    @Nonnull
+    public Service getService() {
+        return mService;
+    }
+
+    /**
+     * シーケンス番号を返す。
+     *
+     * @return シーケンス番号
+     */
+    public long getSeq() {
+        return mSeq;
+    }
+
+    /**
+     * 変数名を返す。
+     *
+     * @return 変数名
+     */
+    @Nonnull
+    public String getVariable() {
+        return mVariable;
+    }
+
+    /**
+     * 値を返す。
+     *
+     * @return 値
+     */
+    @Nonnull
+    public String getValue() {
+        return mValue;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return mService.getServiceId() + " " + mSeq + " " + mVariable + "=" + mValue;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 購読者の要求を超えてイベントが発生した場合の処理方法。
+ *
+ * <p>未配信のイベントは購読毎に保持され、その量はこの設定により制限される。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ * @see EventFlow
+ */
+public final class OverflowStrategy {
+    /**
+     * 処理方法の種別。
+     */
+    public enum Type {
+        /**
+         * 指定数まで保持し、それを超えたイベントは破棄する。
+         */
+        BUFFER,
+        /**
+         * 指定数まで保持し、それを超えた場合は最も古いイベントを破棄する。
+         */
+        DROP_OLDEST,
+        /**
+         * キー毎に最新のイベントのみを保持する。
+         *
+         * <p>キーはDiscoveryEventではUDN、NotifyEventではServiceと変数名の組み合わせ。
+         * 保持数はキーの数に比例する。
+         */
+        LATEST_PER_KEY,
+    }
+
+    @Nonnull
+    private final Type mType;
+    private final int mCapacity;
+
+    private OverflowStrategy(
+            @Nonnull final Type type,
+            final int capacity) {
+        mType = type;
+        mCapacity = capacity;
+    }
+
+    /**
+     * 指定数まで保持し、それを超えたイベントは破棄する。
+     *
+     * @param capacity 保持数
+     * @return OverflowStrategy
+     */
+    @Nonnull
+    public static OverflowStrategy buffer(final int capacity) {
+        checkCapacity(capacity);
+        return new OverflowStrategy(Type.BUFFER, capacity);
+    }
+
+    /**
+     * 指定数まで保持し、それを超えた場合は最も古いイベントを破棄する。
+     *
+     * @param capacity 保持数
+     * @return OverflowStrategy
+     */
+    @Nonnull
+    public static OverflowStrategy dropOldest(final int capacity) {
+        checkCapacity(capacity);
+        return new OverflowStrategy(Type.DROP_OLDEST, capacity);
+    }
+
+    /**
+     * キー毎に最新のイベントのみを保持する。
+     *
+     * @return OverflowStrategy
+     */
+    @Nonnull
+    public static OverflowStrategy latestPerKey() {
+        return new OverflowStrategy(Type.LATEST_PER_KEY, Integer.MAX_VALUE);
+    }
+
+    private static void checkCapacity(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive.");
+        }
+    }
+
+    /**
+     * 種別を返す。
+     *
+     * @return 種別
+     */
+    @Nonnull
+    public Type getType() {
+        return mType;
+    }
+
+    /**
+     * 保持数を返す。
+     *
+     * @return 保持数、LATEST_PER_KEYの場合はInteger.MAX_VALUE
+     */
+    public int getCapacity() {
+        return mCapacity;
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * M-SEARCHの送信方法を定めるポリシー。
+ *
+ * <p>{@link ControlPoint#searchTargets(java.util.Collection)}及び
+ * {@link ControlPoint#startPeriodicSearch(java.util.Collection)}の送信方法を定める。
+ *
+ * <ul>
+ * <li>UDPパケットの欠落に備え、一回の検索で指定回数のM-SEARCHを一定間隔で送信する。</li>
+ * <li>MXは発見済みの機器が多いほど大きな値とし、応答が集中することを防ぐ。</li>
+ * <li>全体の送信頻度には上限があり、上限を超える場合は送信を遅延させる。</li>
+ * <li>定期検索では、発見済みの機器に変化がなければ間隔を倍々に延長する。</li>
+ * </ul>
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public final class SearchPolicy {
+    /**
+     * デフォルトのポリシー。
+     */
+    @Nonnull
+    public static final SearchPolicy DEFAULT = new Builder().build();
+
+    /**
+     * SearchPolicyのビルダー。
+     */
+    public static class Builder {
+        private int mBurstCount = 3;
+        private long mBurstInterval = 100;
+        private int mMinMx = 1;
+        private int mMaxMx = 5;
+        private int mDevicesPerMx = 32;
+        private int mMaxSearchPerSecond = 20;
+        private long mPeriodicInterval = TimeUnit.SECONDS.toMillis(30);
+        private long mMaxPeriodicInterval = TimeUnit.MINUTES.toMillis(10);
+
+        /**
+         * 一回の検索で送信する回数を設定する。
+         *
+         * <p>デフォルトは3。
+         *
+         * @param count 送信回数
+         * @return Builder
+         */
+        @Nonnull
+        public Builder setBurstCount(final int count) {
+            if (count <= 0) {
+                throw new IllegalArgumentException("count must be positive.");
+            }
+            mBurstCount = count;
+            return this;
+        }
+
+        /**
+         * 一回の検索で複数回送信する場合の送信間隔を設定する。
+         *
+         * <p>デフォルトは100ms。
+         *
+         * @param interval 送信間隔[ms]
+         * @return Builder
+         */
+        @Nonnull
+        public Builder setBurstInterval(final long interval) {
+            if (interval < 0) {
+                throw new IllegalArgumentException("interval must not be negative.");
+            }
+            mBurstInterval = interval;
+            return this;
+        }
+
+        /**
+         * MXの範囲を設定する。
+         *
+         * <p>発見済みの機器がない場合は最小値を使用し、
+         * 発見済みの機器が{@code devicesPerMx}増える毎に1ずつ大きくする。
+         * デフォルトは最小1、最大5、32台毎。
+         *
+         * @param min          最小値
+         * @param max          最大値
+         * @param devicesPerMx MXを1増やす発見済み機器の数
+         * @return Builder
+         */
+        @Nonnull
+        public Builder setMxRange(
+                final int min,
+                final int max,
+                final int devicesPerMx) {
+            if (min <= 0 || max < min || devicesPerMx <= 0) {
+                throw new IllegalArgumentException("invalid mx range.");
+            }
+            mMinMx = min;
+            mMaxMx = max;
+            mDevicesPerMx = devicesPerMx;
+            return this;
+        }
+
+        /**
+         * 一秒あたりの送信回数の上限を設定する。
+         *
+         * <p>デフォルトは20。
+         *
+         * @param count 一秒あたりの送信回数の上限
+         * @return Builder
+         */
+        @Nonnull
+        public Builder setMaxSearchPerSecond(final int count) {
+            if (count <= 0) {
+                throw new IllegalArgumentException("count must be positive.");
+            }
+            mMaxSearchPerSecond = count;
+            return this;
+        }
+
+        /**
+         * 定期検索の間隔を設定する。
+         *
+         * <p>発見済みの機器に変化がない場合、間隔は最大値まで倍々に延長される。
+         * 変化があった場合は初期値に戻る。
+         * デフォルトは初期値30秒、最大値10分。
+         *
+         * @param interval    初期値[ms]
+         * @param maxInterval 最大値[ms]
+         * @return Builder
+         */
+        @Nonnull
+        public Builder setPeriodicInterval(
+                final long interval,
+                final long maxInterval) {
+            if (interval <= 0 || maxInterval < interval) {
+                throw new IllegalArgumentException("invalid interval.");
+            }
+            mPeriodicInterval = interval;
+            mMaxPeriodicInterval = maxInterval;
+            return this;
+        }
+
+        /**
+         * SearchPolicyを作成する。
+         *
+         * @return SearchPolicy
+         */
+        @Nonnull
+        public SearchPolicy build() {
+            return new SearchPolicy(this);
+        }
+    }
+
+    private final int mBurstCount;
+    private final long mBurstInterval;
+    private final int mMinMx;
+    private final int mMaxMx;
+    private final int mDevicesPerMx;
+    private final long mMinSearchInterval;
+    private final long mPeriodicInterval;
+    private final long mMaxPeriodicInterval;
+
+    private SearchPolicy(@Nonnull final Builder builder) {
+        mBurstCount = builder.mBurstCount;
+        mBurstInterval = builder.mBurstInterval;
+        mMinMx = builder.mMinMx;
+        mMaxMx = builder.mMaxMx;
+        mDevicesPerMx = builder.mDevicesPerMx;
+        mMinSearchInterval = TimeUnit.SECONDS.toMillis(1) / builder.mMaxSearchPerSecond;
+        mPeriodicInterval = builder.mPeriodicInterval;
+        mMaxPeriodicInterval = builder.mMaxPeriodicInterval;
+    }
+
+    /**
+     * 一回の検索で送信する回数を返す。
+     *
+     * @return 送信回数
+     */
+    public int getBurstCount() {
+        return mBurstCount;
+    }
+
+    /**
+     * 一回の検索で複数回送信する場合の送信間隔を返す。
+     *
+     * @return 送信間隔[ms]
+     */
+    public long getBurstInterval() {
+        return mBurstInterval;
+    }
+
+    /**
+     * 発見済み機器の数に応じたMXを返す。
+     *
+     * @param deviceCount 発見済み機器の数
+     * @return MX
+     */
+    public int calculateMx(final int deviceCount) {
+        return Math.min(mMaxMx, mMinMx + deviceCount / mDevicesPerMx);
+    }
+
+    /**
+     * 送信の最小間隔を返す。
+     *
+     * @return 送信の最小間隔[ms]
+     */
+    public long getMinSearchInterval() {
+        return mMinSearchInterval;
+    }
+
+    /**
+     * 定期検索の間隔の初期値を返す。
+     *
+     * @return 定期検索の間隔の初期値[ms]
+     */
+    public long getPeriodicInterval() {
+        return mPeriodicInterval;
+    }
+
+    /**
+     * 定期検索の間隔の最大値を返す。
+     *
+     * @return 定期検索の間隔の最大値[ms]
+     */
+    public long getMaxPeriodicInterval() {
+        return mMaxPeriodicInterval;
+    }
+}
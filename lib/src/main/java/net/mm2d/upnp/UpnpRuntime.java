@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import net.mm2d.upnp.internal.thread.TaskHandler;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * 複数のControlPointで共有する実行環境。
+ *
+ * <p>一つのJVM内で複数のControlPointを使用する場合に、
+ * コールバック及びIO処理のスレッドプールを共有し、スレッド数の増加を抑える。
+ * Deviceの有効期限やSubscribeの更新、M-SEARCHの送信を待機するタイマーのスレッドも共有される。
+ * Deviceの保持や購読状態など、ControlPointの状態は共有されない。
+ *
+ * <p>イベント受信用のHTTPサーバーの受付スレッドと接続毎のスレッドは共有されず、
+ * ControlPoint毎に作成される。
+ *
+ * <p>{@link ControlPointFactory.Params#setRuntime(UpnpRuntime)}で指定して使用する。
+ * ControlPointの{@link ControlPoint#terminate()}ではスレッドプールは終了しないため、
+ * 全てのControlPointの終了後に{@link #shutdown()}をコールすること。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public final class UpnpRuntime {
+    @Nonnull
+    private final TaskHandler mTaskHandler;
+    @Nonnull
+    private final AtomicBoolean mShutdown = new AtomicBoolean();
+
+    /**
+     * デフォルトのExecutorを使用するインスタンスを作成する。
+     */
+    public UpnpRuntime() {
+        this(null, null);
+    }
+
+    /**
+     * 使用するExecutorを指定してインスタンスを作成する。
+     *
+     * @param callback コールバックを実行するTaskExecutor、nullの場合singleThreadのExecutorが使用される
+     * @param io       IO処理を実行するTaskExecutor、nullの場合CPU数に基づくExecutorが使用される
+     * @see ControlPointFactory.Params#setCallbackExecutor(TaskExecutor)
+     * @see ControlPointFactory.Params#setIoExecutor(TaskExecutor)
+     */
+    public UpnpRuntime(
+            @Nullable final TaskExecutor callback,
+            @Nullable final TaskExecutor io) {
+        mTaskHandler = new TaskHandler(callback, io);
+    }
+
+    /**
+     * ControlPointに渡すTaskHandlerを作成する。
+     *
+     * @return Executorを共有するTaskHandler
+     */
+    @Nonnull
+    TaskHandler createTaskHandler() {
+        if (mShutdown.get()) {
+            throw new IllegalStateException("runtime is already shutdown.");
+        }
+        return mTaskHandler.createSharedHandler();
+    }
+
+    /**
+     * スレッドプールを終了させる。
+     *
+     * <p>このインスタンスを使用する全てのControlPointを終了させてからコールすること。
+     */
+    public void shutdown() {
+        if (mShutdown.getAndSet(true)) {
+            return;
+        }
+        mTaskHandler.terminate();
+    }
+
+    /**
+     * {@link #shutdown()}がコールされたか否かを返す。
+     *
+     * @return shutdown済みの場合true
+     */
+    public boolean isShutdown() {
+        return mShutdown.get();
+    }
+}
@@ -8,11 +8,14 @@
 package net.mm2d.upnp.empty;
 
 import net.mm2d.upnp.Action;
+import net.mm2d.upnp.ActionInvoker;
+import net.mm2d.upnp.ActionResult;
 import net.mm2d.upnp.Argument;
 import net.mm2d.upnp.ControlPoints;
 import net.mm2d.upnp.Service;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -77,4 +80,46 @@ public class EmptyAction implements Action {
             final boolean returnErrorResponse) throws IOException {
         throw new IOException("empty object");
     }
+
+    @Nonnull
+    @Override
+    public ActionResult invokeStreaming(
+            @Nonnull final Map<String, String> argumentValues,
+            @Nonnull final Collection<String> streamingArguments) throws IOException {
+        throw new IOException("empty object");
+    }
+
+    @Nonnull
+    @Override
+    public ActionInvoker prepare() {
+        return new ActionInvoker() {
+            @Nonnull
+            @Override
+            public Action getAction() {
+                return EmptyAction.this;
+            }
+
+            @Nonnull
+            @Override
+            public Map<String, String> invoke(@Nonnull final Map<String, String> argumentValues) throws IOException {
+                throw new IOException("empty object");
+            }
+
+            @Nonnull
+            @Override
+            public Map<String, String> invoke(
+                    @Nonnull final Map<String, String> argumentValues,
+                    final boolean returnErrorResponse) throws IOException {
+                throw new IOException("empty object");
+            }
+
+            @Nonnull
+            @Override
+            public ActionResult invokeStreaming(
+                    @Nonnull final Map<String, String> argumentValues,
+                    @Nonnull final Collection<String> streamingArguments) throws IOException {
+                throw new IOException("empty object");
+            }
+        };
+    }
 }
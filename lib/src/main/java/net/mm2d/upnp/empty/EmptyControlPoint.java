@@ -9,9 +9,17 @@ package net.mm2d.upnp.empty;
 
 import net.mm2d.upnp.ControlPoint;
 import net.mm2d.upnp.Device;
+import net.mm2d.upnp.DiscoveryEvent;
+import net.mm2d.upnp.EventFlow;
 import net.mm2d.upnp.IconFilter;
+import net.mm2d.upnp.NotifyEvent;
+import net.mm2d.upnp.OverflowStrategy;
+import net.mm2d.upnp.SearchPolicy;
 import net.mm2d.upnp.SsdpMessageFilter;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -19,6 +27,48 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 public class EmptyControlPoint implements ControlPoint {
+    private static final SsdpReceiveStats EMPTY_SSDP_RECEIVE_STATS = new SsdpReceiveStats() {
+        @Override
+        public int getCapacity() {
+            return 0;
+        }
+
+        @Override
+        public int getOccupancy() {
+            return 0;
+        }
+
+        @Override
+        public int getMaxOccupancy() {
+            return 0;
+        }
+
+        @Override
+        public long getReceivedCount() {
+            return 0;
+        }
+
+        @Override
+        public long getDroppedCount() {
+            return 0;
+        }
+
+        @Override
+        public long getBatchCount() {
+            return 0;
+        }
+
+        @Override
+        public int getMaxBatchSize() {
+            return 0;
+        }
+
+        @Override
+        public double getAverageBatchSize() {
+            return 0;
+        }
+    };
+
     @Override
     public void initialize() {
     }
@@ -47,6 +97,22 @@ public class EmptyControlPoint implements ControlPoint {
     public void search(@Nullable final String st) {
     }
 
+    @Override
+    public void searchTargets(@Nonnull final Collection<String> stList) {
+    }
+
+    @Override
+    public void startPeriodicSearch(@Nonnull final Collection<String> stList) {
+    }
+
+    @Override
+    public void stopPeriodicSearch() {
+    }
+
+    @Override
+    public void setSearchPolicy(@Nonnull final SearchPolicy policy) {
+    }
+
     @Override
     public void setSsdpMessageFilter(@Nullable final SsdpMessageFilter filter) {
     }
@@ -71,6 +137,14 @@ public class EmptyControlPoint implements ControlPoint {
     public void removeNotifyEventListener(@Nonnull final NotifyEventListener listener) {
     }
 
+    @Override
+    public void addIconLoadListener(@Nonnull final IconLoadListener listener) {
+    }
+
+    @Override
+    public void removeIconLoadListener(@Nonnull final IconLoadListener listener) {
+    }
+
     @Override
     public int getDeviceListSize() {
         return 0;
@@ -88,6 +162,55 @@ public class EmptyControlPoint implements ControlPoint {
         return null;
     }
 
+    @Nonnull
+    @Override
+    public List<Device> getDeviceListByType(@Nonnull final String deviceType) {
+        return Collections.emptyList();
+    }
+
+    @Nonnull
+    @Override
+    public List<Device> getDeviceListByServiceType(@Nonnull final String serviceType) {
+        return Collections.emptyList();
+    }
+
+    @Nonnull
+    @Override
+    public List<Device> getDeviceListByManufacture(@Nonnull final String manufacture) {
+        return Collections.emptyList();
+    }
+
+    @Nonnull
+    @Override
+    public List<Device> getDeviceListByIpAddress(@Nonnull final String ipAddress) {
+        return Collections.emptyList();
+    }
+
+    @Nonnull
+    @Override
+    public EventFlow.Publisher<DiscoveryEvent> getDiscoveryEventPublisher(@Nonnull final OverflowStrategy strategy) {
+        return EmptyControlPoint::subscribeEmpty;
+    }
+
+    @Nonnull
+    @Override
+    public EventFlow.Publisher<NotifyEvent> getNotifyEventPublisher(@Nonnull final OverflowStrategy strategy) {
+        return EmptyControlPoint::subscribeEmpty;
+    }
+
+    private static void subscribeEmpty(@Nonnull final EventFlow.Subscriber<?> subscriber) {
+        subscriber.onSubscribe(new EventFlow.Subscription() {
+            @Override
+            public void request(final long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        subscriber.onComplete();
+    }
+
     @Override
     public void addPinnedDevice(@Nonnull final String location) {
     }
@@ -95,4 +218,32 @@ public class EmptyControlPoint implements ControlPoint {
     @Override
     public void removePinnedDevice(@Nonnull final String location) {
     }
+
+    @Nonnull
+    @Override
+    public List<LoadFailure> getLoadFailureList() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void clearLoadFailure(@Nonnull final String uuid) {
+    }
+
+    @Override
+    public void clearLoadFailureList() {
+    }
+
+    @Nonnull
+    @Override
+    public SsdpReceiveStats getSsdpReceiveStats() {
+        return EMPTY_SSDP_RECEIVE_STATS;
+    }
+
+    @Override
+    public void exportState(@Nonnull final OutputStream os) {
+    }
+
+    @Override
+    public void importState(@Nonnull final InputStream is) {
+    }
 }
@@ -9,6 +9,8 @@ package net.mm2d.upnp.internal.impl;
 
 import net.mm2d.log.Log;
 import net.mm2d.upnp.Action;
+import net.mm2d.upnp.ActionInvoker;
+import net.mm2d.upnp.ActionResult;
 import net.mm2d.upnp.Argument;
 import net.mm2d.upnp.Device;
 import net.mm2d.upnp.Http;
@@ -36,6 +38,7 @@ import java.io.StringWriter;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -103,6 +106,16 @@ public class ActionImpl implements Action {
             return this;
         }
 
+        /**
+         * Action名を返す。
+         *
+         * @return Action名
+         */
+        @Nullable
+        public String getName() {
+            return mName;
+        }
+
         /**
          * Argumentのビルダーを登録する。
          *
@@ -141,14 +154,35 @@ public class ActionImpl implements Action {
             if (mName == null) {
                 throw new IllegalStateException("name must be set.");
             }
-            return new ActionImpl(this);
+            return new ActionImpl(mService, mName, buildArgumentMap(mArgumentList));
         }
     }
 
+    /**
+     * ArgumentのBuilderのリストからArgumentのマップを作成する。
+     *
+     * @param builderList ArgumentのBuilderのリスト
+     * @return Argument名をキーとした変更不可のマップ
+     * @throws IllegalStateException 必須パラメータが設定されていない場合
+     */
+    @Nonnull
+    static Map<String, Argument> buildArgumentMap(@Nonnull final List<ArgumentImpl.Builder> builderList)
+            throws IllegalStateException {
+        if (builderList.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final Map<String, Argument> map = new LinkedHashMap<>(builderList.size());
+        for (final ArgumentImpl.Builder argumentBuilder : builderList) {
+            final Argument argument = argumentBuilder.build();
+            map.put(argument.getName(), argument);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
     private static final String XMLNS_URI = "http://www.w3.org/2000/xmlns/";
     private static final String XMLNS_PREFIX = "xmlns:";
-    private static final String SOAP_NS = "http://schemas.xmlsoap.org/soap/envelope/";
-    private static final String SOAP_STYLE = "http://schemas.xmlsoap.org/soap/encoding/";
+    static final String SOAP_NS = "http://schemas.xmlsoap.org/soap/envelope/";
+    static final String SOAP_STYLE = "http://schemas.xmlsoap.org/soap/encoding/";
     @Nonnull
     private final Service mService;
     @Nonnull
@@ -158,14 +192,22 @@ public class ActionImpl implements Action {
     @Nullable
     private List<Argument> mArgumentList;
 
-    private ActionImpl(@Nonnull final Builder builder) {
-        mService = builder.mService;
-        mName = builder.mName;
-        mArgumentMap = new LinkedHashMap<>(builder.mArgumentList.size());
-        for (final ArgumentImpl.Builder argumentBuilder : builder.mArgumentList) {
-            final Argument argument = argumentBuilder.build();
-            mArgumentMap.put(argument.getName(), argument);
-        }
+    /**
+     * インスタンス作成。
+     *
+     * <p>Argumentのマップは同一内容のServiceを持つ他のActionと共有されるため変更してはならない。
+     *
+     * @param service     このActionを保持するService
+     * @param name        Action名
+     * @param argumentMap Argument名をキーとしたArgumentのマップ
+     */
+    ActionImpl(
+            @Nonnull final Service service,
+            @Nonnull final String name,
+            @Nonnull final Map<String, Argument> argumentMap) {
+        mService = service;
+        mName = name;
+        mArgumentMap = argumentMap;
     }
 
     @Override
@@ -196,7 +238,7 @@ public class ActionImpl implements Action {
     }
 
     @Nonnull
-    private String getSoapActionName() {
+    String getSoapActionName() {
         return '"' + mService.getServiceType() + '#' + mName + '"';
     }
 
@@ -208,7 +250,7 @@ public class ActionImpl implements Action {
     // VisibleForTesting
     @Nonnull
     HttpClient createHttpClient() {
-        return new HttpClient(false);
+        return ControlPointImpl.createHttpClient(mService.getDevice().getControlPoint(), false);
     }
 
     @Override
@@ -261,6 +303,59 @@ public class ActionImpl implements Action {
         return result;
     }
 
+    @Override
+    @Nonnull
+    public ActionResult invokeStreaming(
+            @Nonnull final Map<String, String> argumentValues,
+            @Nonnull final Collection<String> streamingArguments)
+            throws IOException {
+        final List<StringPair> arguments = makeArguments(argumentValues);
+        final String soap = makeSoap(null, arguments);
+        return handleStreamingResponse(post(soap), streamingArguments);
+    }
+
+    @Override
+    @Nonnull
+    public ActionInvoker prepare() {
+        return new ActionInvokerImpl(this);
+    }
+
+    /**
+     * 応答をストリーミングで読み出せる形に変換する。
+     *
+     * @param response           応答
+     * @param streamingArguments ストリーミングで読み出す引数名
+     * @return 実行結果
+     * @throws IOException エラー応答があった場合、応答に問題がある場合
+     */
+    @Nonnull
+    ActionResult handleStreamingResponse(
+            @Nonnull final HttpResponse response,
+            @Nonnull final Collection<String> streamingArguments)
+            throws IOException {
+        final byte[] body = response.getBodyBinary();
+        if (response.getStatus() == Status.HTTP_INTERNAL_ERROR && body != null && body.length != 0) {
+            final Map<String, String> result;
+            try {
+                result = parseErrorResponse(response.getBody());
+            } catch (final SAXException | ParserConfigurationException e) {
+                throw new IOException(response.getBody(), e);
+            }
+            throw new IOException("error response:" + result);
+        }
+        if (response.getStatus() != Http.Status.HTTP_OK || body == null || body.length == 0) {
+            Log.w(response.toString());
+            throw new IOException(response.getStartLine());
+        }
+        final List<SoapResponseScanner.Range> ranges = new SoapResponseScanner(body).scan(getResponseTagName());
+        for (final SoapResponseScanner.Range range : ranges) {
+            if (findArgument(range.mName) == null) {
+                Log.d("invalid argument:" + range.mName);
+            }
+        }
+        return new ActionResultImpl(body, ranges, streamingArguments);
+    }
+
     /**
      * 入力をもとに引数リストを作成する。
      *
@@ -268,7 +363,7 @@ public class ActionImpl implements Action {
      * @return 引数リスト
      */
     @Nonnull
-    private List<StringPair> makeArguments(@Nonnull final Map<String, String> argumentValues) {
+    List<StringPair> makeArguments(@Nonnull final Map<String, String> argumentValues) {
         final List<StringPair> list = new ArrayList<>();
         for (final Entry<String, Argument> entry : mArgumentMap.entrySet()) {
             final Argument argument = entry.getValue();
@@ -325,10 +420,19 @@ public class ActionImpl implements Action {
     @Nonnull
     private Map<String, String> invokeInner(@Nonnull final String soap)
             throws IOException {
-        final URL url = makeAbsoluteControlUrl();
-        final HttpRequest request = makeHttpRequest(url, soap);
-        final HttpClient client = createHttpClient();
-        final HttpResponse response = client.post(request);
+        return handleResponse(post(soap));
+    }
+
+    /**
+     * 応答をパースする。
+     *
+     * @param response 応答
+     * @return 実行結果
+     * @throws IOException 応答に問題がある場合
+     */
+    @Nonnull
+    Map<String, String> handleResponse(@Nonnull final HttpResponse response)
+            throws IOException {
         final String body = response.getBody();
         if (response.getStatus() == Status.HTTP_INTERNAL_ERROR && !TextUtils.isEmpty(body)) {
             try {
@@ -348,6 +452,21 @@ public class ActionImpl implements Action {
         }
     }
 
+    /**
+     * SOAPを送信し応答を受け取る。
+     *
+     * @param soap 送信するSOAP XML文字列
+     * @return 応答
+     * @throws IOException 通信で問題が発生した場合
+     */
+    @Nonnull
+    private HttpResponse post(@Nonnull final String soap) throws IOException {
+        final URL url = makeAbsoluteControlUrl();
+        final HttpRequest request = makeHttpRequest(url, soap);
+        final HttpClient client = createHttpClient();
+        return client.post(request);
+    }
+
     // VisibleForTesting
     @Nonnull
     URL makeAbsoluteControlUrl() throws MalformedURLException {
@@ -368,14 +487,27 @@ public class ActionImpl implements Action {
             @Nonnull final URL url,
             @Nonnull final String soap)
             throws IOException {
+        return makeHttpRequestTemplate(url)
+                .setBody(soap, true);
+    }
+
+    /**
+     * SOAP送信のためのHttpRequestのBody以外の部分を作成する。
+     *
+     * @param url 接続先URL
+     * @return Bodyを持たないSOAP送信用HttpRequest
+     * @throws IOException 通信で問題が発生した場合
+     */
+    @Nonnull
+    HttpRequest makeHttpRequestTemplate(@Nonnull final URL url)
+            throws IOException {
         return new HttpRequest()
                 .setMethod(Http.POST)
                 .setUrl(url, true)
                 .setHeader(Http.SOAPACTION, getSoapActionName())
                 .setHeader(Http.USER_AGENT, Property.USER_AGENT_VALUE)
                 .setHeader(Http.CONNECTION, Http.CLOSE)
-                .setHeader(Http.CONTENT_TYPE, Http.CONTENT_TYPE_DEFAULT)
-                .setBody(soap, true);
+                .setHeader(Http.CONTENT_TYPE, Http.CONTENT_TYPE_DEFAULT);
     }
 
     /**
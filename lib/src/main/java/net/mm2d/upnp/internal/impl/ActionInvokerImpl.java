@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import net.mm2d.upnp.Action;
+import net.mm2d.upnp.ActionInvoker;
+import net.mm2d.upnp.ActionResult;
+import net.mm2d.upnp.Device;
+import net.mm2d.upnp.internal.message.HttpRequest;
+import net.mm2d.upnp.internal.message.HttpResponse;
+import net.mm2d.util.StringPair;
+import net.mm2d.util.TextUtils;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * ActionInvokerの実装。
+ *
+ * <p>接続先URLを解決したBodyを持たないHttpRequestをテンプレートとして保持し、実行毎に複製してBodyを設定する。
+ * テンプレートはDeviceのBaseURLとScopeIDが変化した場合に作り直す。
+ * SOAPはDOMを使用せず、固定部分の文字列と引数の値を連結して作成する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class ActionInvokerImpl implements ActionInvoker {
+    /**
+     * 接続先の解決結果。
+     */
+    private static class Target {
+        @Nonnull
+        final String mBaseUrl;
+        final int mScopeId;
+        @Nonnull
+        final HttpRequest mTemplate;
+
+        Target(
+                @Nonnull final String baseUrl,
+                final int scopeId,
+                @Nonnull final HttpRequest template) {
+            mBaseUrl = baseUrl;
+            mScopeId = scopeId;
+            mTemplate = template;
+        }
+
+        boolean matches(
+                @Nonnull final String baseUrl,
+                final int scopeId) {
+            return mScopeId == scopeId && mBaseUrl.equals(baseUrl);
+        }
+    }
+
+    @Nonnull
+    private final ActionImpl mAction;
+    @Nonnull
+    private final String mSoapPrefix;
+    @Nonnull
+    private final String mSoapSuffix;
+    @Nullable
+    private volatile Target mTarget;
+
+    ActionInvokerImpl(@Nonnull final ActionImpl action) {
+        mAction = action;
+        final String name = action.getName();
+        mSoapPrefix = "<s:Envelope xmlns:s=\"" + ActionImpl.SOAP_NS + "\""
+                + " s:encodingStyle=\"" + ActionImpl.SOAP_STYLE + "\">"
+                + "<s:Body>"
+                + "<u:" + name + " xmlns:u=\"" + escape(action.getService().getServiceType()) + "\">";
+        mSoapSuffix = "</u:" + name + ">"
+                + "</s:Body>"
+                + "</s:Envelope>";
+    }
+
+    @Nonnull
+    @Override
+    public Action getAction() {
+        return mAction;
+    }
+
+    @Nonnull
+    @Override
+    public Map<String, String> invoke(@Nonnull final Map<String, String> argumentValues) throws IOException {
+        return invoke(argumentValues, false);
+    }
+
+    @Nonnull
+    @Override
+    public Map<String, String> invoke(
+            @Nonnull final Map<String, String> argumentValues,
+            final boolean returnErrorResponse)
+            throws IOException {
+        final Map<String, String> result = mAction.handleResponse(post(argumentValues));
+        if (!returnErrorResponse && result.containsKey(Action.ERROR_CODE_KEY)) {
+            throw new IOException("error response:" + result);
+        }
+        return result;
+    }
+
+    @Nonnull
+    @Override
+    public ActionResult invokeStreaming(
+            @Nonnull final Map<String, String> argumentValues,
+            @Nonnull final Collection<String> streamingArguments)
+            throws IOException {
+        return mAction.handleStreamingResponse(post(argumentValues), streamingArguments);
+    }
+
+    @Nonnull
+    private HttpResponse post(@Nonnull final Map<String, String> argumentValues) throws IOException {
+        final HttpRequest request = new HttpRequest(getTarget().mTemplate)
+                .setBody(makeSoap(mAction.makeArguments(argumentValues)), true);
+        return mAction.createHttpClient().post(request);
+    }
+
+    /**
+     * 接続先の解決結果を返す。
+     *
+     * <p>DeviceのBaseURLとScopeIDが前回の解決時から変化していなければ、前回の結果を返す。
+     *
+     * @return 接続先の解決結果
+     * @throws IOException URLに問題がある場合
+     */
+    @Nonnull
+    private Target getTarget() throws IOException {
+        final Device device = mAction.getService().getDevice();
+        final String baseUrl = device.getBaseUrl();
+        final int scopeId = device.getScopeId();
+        final Target target = mTarget;
+        if (target != null && target.matches(baseUrl, scopeId)) {
+            return target;
+        }
+        final URL url = mAction.makeAbsoluteControlUrl();
+        final Target newTarget = new Target(baseUrl, scopeId, mAction.makeHttpRequestTemplate(url));
+        mTarget = newTarget;
+        return newTarget;
+    }
+
+    /**
+     * SOAP ActionのXML文字列を作成する。
+     *
+     * @param arguments 引数
+     * @return SOAP ActionのXML文字列
+     */
+    // VisibleForTesting
+    @Nonnull
+    String makeSoap(@Nonnull final List<StringPair> arguments) {
+        final StringBuilder sb = new StringBuilder(mSoapPrefix);
+        for (final StringPair pair : arguments) {
+            final String name = pair.getKey();
+            final String value = pair.getValue();
+            if (TextUtils.isEmpty(value)) {
+                sb.append('<').append(name).append("/>");
+                continue;
+            }
+            sb.append('<').append(name).append('>');
+            appendEscaped(sb, value);
+            sb.append("</").append(name).append('>');
+        }
+        return sb.append(mSoapSuffix).toString();
+    }
+
+    @Nonnull
+    private static String escape(@Nonnull final String value) {
+        final StringBuilder sb = new StringBuilder();
+        appendEscaped(sb, value);
+        return sb.toString();
+    }
+
+    private static void appendEscaped(
+            @Nonnull final StringBuilder sb,
+            @Nonnull final String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                case '\r':
+                    sb.append("&#13;");
+                    break;
+                default:
+                    sb.append(c);
+                    break;
+            }
+        }
+    }
+}
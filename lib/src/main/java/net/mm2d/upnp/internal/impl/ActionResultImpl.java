@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import net.mm2d.upnp.ActionResult;
+import net.mm2d.upnp.internal.impl.SoapResponseScanner.Range;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * ActionResultの実装。
+ *
+ * <p>ストリーミング指定した引数は応答のバイト列とその範囲のみを保持する。
+ * バイト列はコピーせずに共有する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class ActionResultImpl implements ActionResult {
+    @Nonnull
+    private final byte[] mXml;
+    @Nonnull
+    private final Map<String, String> mValues;
+    @Nonnull
+    private final Map<String, Range> mStreams;
+
+    /**
+     * インスタンス作成。
+     *
+     * <p>ストリーミング指定していない引数はここで文字列へ展開する。
+     *
+     * @param xml       応答のバイト列
+     * @param ranges    応答に含まれる引数の位置情報
+     * @param streaming ストリーミング指定した引数名
+     * @throws IOException 引数の展開に失敗した場合
+     */
+    ActionResultImpl(
+            @Nonnull final byte[] xml,
+            @Nonnull final List<Range> ranges,
+            @Nonnull final Collection<String> streaming) throws IOException {
+        mXml = xml;
+        final Map<String, String> values = new HashMap<>();
+        final Map<String, Range> streams = new HashMap<>();
+        for (final Range range : ranges) {
+            if (streaming.contains(range.mName)) {
+                values.remove(range.mName);
+                streams.put(range.mName, range);
+            } else {
+                streams.remove(range.mName);
+                values.put(range.mName, newReader(range).readFully());
+            }
+        }
+        mValues = Collections.unmodifiableMap(values);
+        mStreams = streams;
+    }
+
+    @Nonnull
+    private XmlTextReader newReader(@Nonnull final Range range) {
+        return new XmlTextReader(mXml, range.mStart, range.mEnd - range.mStart);
+    }
+
+    @Nonnull
+    @Override
+    public Map<String, String> getValues() {
+        return mValues;
+    }
+
+    @Override
+    public boolean contains(@Nonnull final String name) {
+        return mValues.containsKey(name) || mStreams.containsKey(name);
+    }
+
+    @Nullable
+    @Override
+    public String getValue(@Nonnull final String name) throws IOException {
+        final Range range = mStreams.get(name);
+        if (range != null) {
+            return newReader(range).readFully();
+        }
+        return mValues.get(name);
+    }
+
+    @Nullable
+    @Override
+    public Reader openReader(@Nonnull final String name) {
+        final Range range = mStreams.get(name);
+        if (range != null) {
+            return newReader(range);
+        }
+        final String value = mValues.get(name);
+        return value == null ? null : new StringReader(value);
+    }
+}
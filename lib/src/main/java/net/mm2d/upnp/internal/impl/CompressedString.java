@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 文字列を圧縮して保持する。
+ *
+ * <p>参照頻度が低く、サイズの大きいDescription XMLを保持するために使用する。
+ * 値を取り出す度に展開を行う。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+final class CompressedString {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 1024;
+    @Nonnull
+    private final byte[] mData;
+    private final int mLength;
+
+    /**
+     * インスタンス作成。
+     *
+     * @param string 圧縮する文字列
+     */
+    CompressedString(@Nonnull final String string) {
+        final byte[] bytes = string.getBytes(UTF_8);
+        mLength = bytes.length;
+        mData = deflate(bytes);
+    }
+
+    @Nonnull
+    private static byte[] deflate(@Nonnull final byte[] bytes) {
+        final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            final ByteArrayOutputStream os = new ByteArrayOutputStream(bytes.length / 4 + 16);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                final int size = deflater.deflate(buffer);
+                os.write(buffer, 0, size);
+            }
+            return os.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 圧縮後のサイズを返す。
+     *
+     * @return 圧縮後のバイト数
+     */
+    int getCompressedSize() {
+        return mData.length;
+    }
+
+    /**
+     * 展開した文字列を返す。
+     *
+     * @return 展開した文字列
+     */
+    @Override
+    @Nonnull
+    public String toString() {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(mData);
+            final byte[] bytes = new byte[mLength];
+            int offset = 0;
+            while (offset < mLength && !inflater.finished()) {
+                final int size = inflater.inflate(bytes, offset, mLength - offset);
+                if (size == 0 && inflater.needsInput()) {
+                    break;
+                }
+                offset += size;
+            }
+            return new String(bytes, 0, offset, UTF_8);
+        } catch (final DataFormatException e) {
+            // 自身で圧縮したデータのため発生しない
+            throw new IllegalStateException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
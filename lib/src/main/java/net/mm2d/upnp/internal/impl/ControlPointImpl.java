@@ -10,36 +10,62 @@ package net.mm2d.upnp.internal.impl;
 import net.mm2d.log.Log;
 import net.mm2d.upnp.ControlPoint;
 import net.mm2d.upnp.Device;
+import net.mm2d.upnp.DiscoveryEvent;
+import net.mm2d.upnp.EventFlow;
+import net.mm2d.upnp.Http;
 import net.mm2d.upnp.HttpClient;
+import net.mm2d.upnp.Icon;
 import net.mm2d.upnp.IconFilter;
+import net.mm2d.upnp.NotifyEvent;
+import net.mm2d.upnp.OverflowStrategy;
 import net.mm2d.upnp.Protocol;
+import net.mm2d.upnp.SearchPolicy;
 import net.mm2d.upnp.Service;
 import net.mm2d.upnp.SsdpMessage;
 import net.mm2d.upnp.SsdpMessageFilter;
 import net.mm2d.upnp.internal.manager.DeviceHolder;
+import net.mm2d.upnp.internal.manager.HostGuardRegistry;
+import net.mm2d.upnp.internal.manager.LoadFailureCache;
+import net.mm2d.upnp.internal.manager.SearchScheduler;
 import net.mm2d.upnp.internal.manager.SubscribeManager;
+import net.mm2d.upnp.internal.manager.SubscriptionInfo;
 import net.mm2d.upnp.internal.message.PinnedSsdpMessage;
+import net.mm2d.upnp.internal.message.SsdpRequest;
+import net.mm2d.upnp.internal.message.SsdpResponse;
 import net.mm2d.upnp.internal.parser.DeviceParser;
+import net.mm2d.upnp.internal.parser.ServiceParser;
 import net.mm2d.upnp.internal.server.SsdpNotifyReceiverList;
+import net.mm2d.upnp.internal.server.SsdpSearchServer;
 import net.mm2d.upnp.internal.server.SsdpSearchServerList;
+import net.mm2d.upnp.internal.server.SsdpServer;
+import net.mm2d.upnp.internal.thread.IoTaskType;
+import net.mm2d.upnp.internal.thread.StripedBatchDispatcher;
+import net.mm2d.upnp.internal.thread.StripedLock;
 import net.mm2d.upnp.internal.thread.TaskHandler;
 import net.mm2d.util.TextUtils;
 
 import org.xml.sax.SAXException;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.Inet4Address;
 import java.net.Inet6Address;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.NetworkInterface;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.Nonnull;
@@ -63,13 +89,23 @@ public class ControlPointImpl implements ControlPoint {
     @Nonnull
     private final NotifyEventListenerList mNotifyEventListenerList;
     @Nonnull
+    private final IconLoadListenerList mIconLoadListenerList;
+    @Nonnull
+    private final EventPublisher<DiscoveryEvent> mDiscoveryEventPublisher;
+    @Nonnull
+    private final EventPublisher<NotifyEvent> mNotifyEventPublisher;
+    @Nonnull
+    private final StripedBatchDispatcher<SsdpMessage> mSsdpDispatcher;
+    @Nonnull
     private final SsdpSearchServerList mSearchServerList;
     @Nonnull
     private final SsdpNotifyReceiverList mNotifyReceiverList;
     @Nonnull
     private final Map<String, DeviceImpl.Builder> mLoadingDeviceMap;
     @Nonnull
-    private final Set<String> mEmbeddedUdnSet = new HashSet<>();
+    private final Set<String> mEmbeddedUdnSet = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    @Nonnull
+    private final StripedLock mUuidLock = new StripedLock();
     @Nonnull
     private final TaskHandler mTaskHandler;
     @Nonnull
@@ -81,28 +117,103 @@ public class ControlPointImpl implements ControlPoint {
     @Nonnull
     private final SubscribeManager mSubscribeManager;
     @Nonnull
+    private final LoadFailureCache mLoadFailureCache;
+    @Nonnull
+    private final HostGuardRegistry mHostGuardRegistry;
+    @Nonnull
+    private final SearchScheduler mSearchScheduler;
+    @Nonnull
     private final List<DeviceImpl.Builder> mLoadingPinnedDevices = Collections.synchronizedList(new ArrayList<>());
+    @Nonnull
+    private final Set<String> mProvisionalUdnSet = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    @Nonnull
+    private final Set<String> mRevalidatingUdnSet = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    @Nonnull
+    private final List<StateSnapshot.SubscriptionRecord> mRestoredSubscriptions =
+            Collections.synchronizedList(new ArrayList<>());
+    private final boolean mAsyncIconLoadEnabled;
+    private final boolean mProgressiveDiscoveryEnabled;
+    private final boolean mCompactModelEnabled;
+
+    public ControlPointImpl(
+            @Nonnull final Protocol protocol,
+            @Nonnull final Collection<NetworkInterface> interfaces,
+            final boolean notifySegmentCheckEnabled,
+            @Nonnull final DiFactory factory) {
+        this(protocol, interfaces, notifySegmentCheckEnabled, false, false, false, factory);
+    }
 
     public ControlPointImpl(
             @Nonnull final Protocol protocol,
             @Nonnull final Collection<NetworkInterface> interfaces,
             final boolean notifySegmentCheckEnabled,
+            final boolean asyncIconLoadEnabled,
+            final boolean progressiveDiscoveryEnabled,
+            final boolean compactModelEnabled,
             @Nonnull final DiFactory factory) {
         if (interfaces.isEmpty()) {
             throw new IllegalStateException("no valid network interface.");
         }
         mProtocol = protocol;
+        mAsyncIconLoadEnabled = asyncIconLoadEnabled;
+        mProgressiveDiscoveryEnabled = progressiveDiscoveryEnabled;
+        mCompactModelEnabled = compactModelEnabled;
         mTaskHandler = factory.createTaskHandler();
         mLoadingDeviceMap = factory.createLoadingDeviceMap();
+        mHostGuardRegistry = factory.createHostGuardRegistry();
         mDiscoveryListenerList = new DiscoveryListenerList();
         mNotifyEventListenerList = new NotifyEventListenerList();
+        mIconLoadListenerList = new IconLoadListenerList();
+        mDiscoveryEventPublisher = new EventPublisher<>(mTaskHandler, event -> event.getDevice().getUdn());
+        mNotifyEventPublisher = new EventPublisher<>(mTaskHandler, event ->
+                event.getService().getDevice().getUdn() + "\n" + event.getService().getServiceId() + "\n" + event.getVariable());
+        mDiscoveryListenerList.add(new DiscoveryListener() {
+            @Override
+            public void onDiscover(@Nonnull final Device device) {
+                mDiscoveryEventPublisher.offer(new DiscoveryEvent(DiscoveryEvent.Type.DISCOVER, device));
+            }
+
+            @Override
+            public void onLost(@Nonnull final Device device) {
+                mDiscoveryEventPublisher.offer(new DiscoveryEvent(DiscoveryEvent.Type.LOST, device));
+            }
+        });
+        mNotifyEventListenerList.add((service, seq, variable, value) ->
+                mNotifyEventPublisher.offer(new NotifyEvent(service, seq, variable, value)));
 
-        mSearchServerList = factory.createSsdpSearchServerList(interfaces, message ->
-                mTaskHandler.io(() -> onReceiveSsdpMessage(message)));
-        mNotifyReceiverList = factory.createSsdpNotifyReceiverList(interfaces, message ->
-                mTaskHandler.io(() -> onReceiveSsdpMessage(message)));
+        // 受信スレッドからはリングバッファへの格納のみを行い、消費タスクでまとめて処理する
+        // UUID毎に消費タスクを分割し、同一機器のメッセージは受信順を保ちつつ、異なる機器のメッセージは並列に処理する
+        // 消費タスクはSSDPのタスクが溢れても破棄されないよう、専用の種別で実行する
+        mSsdpDispatcher = new StripedBatchDispatcher<>(SsdpMessage::getUuid,
+                task -> mTaskHandler.io(IoTaskType.SSDP_DISPATCH, task), this::onReceiveSsdpMessage);
+        mSearchServerList = factory.createSsdpSearchServerList(interfaces, mSsdpDispatcher::offer);
+        mNotifyReceiverList = factory.createSsdpNotifyReceiverList(interfaces, mSsdpDispatcher::offer);
         mNotifyReceiverList.setSegmentCheckEnabled(notifySegmentCheckEnabled);
-        mDeviceHolder = factory.createDeviceHolder(this::lostDevice);
+        mDeviceHolder = factory.createDeviceHolder(mTaskHandler, this::lostDevice, this::refreshDevice);
+        mLoadFailureCache = factory.createLoadFailureCache();
+        mSearchScheduler = factory.createSearchScheduler(mTaskHandler, new SearchScheduler.Callback() {
+            @Override
+            public void send(
+                    @Nonnull final String st,
+                    final int mx) {
+                mSearchServerList.search(st, mx);
+            }
+
+            @Override
+            public int getDeviceCount() {
+                return getDeviceListSize();
+            }
+
+            @Nonnull
+            @Override
+            public Set<String> getDeviceUdnSet() {
+                final Set<String> set = new HashSet<>();
+                for (final Device device : getDeviceList()) {
+                    set.add(device.getUdn());
+                }
+                return set;
+            }
+        });
         mSubscribeManager = factory.createSubscribeManager(mTaskHandler, mNotifyEventListenerList);
     }
 
@@ -110,7 +221,36 @@ public class ControlPointImpl implements ControlPoint {
     @SuppressWarnings("WeakerAccess")
     @Nonnull
     HttpClient createHttpClient() {
-        return new HttpClient(true);
+        return new HttpClient(true, mHostGuardRegistry);
+    }
+
+    /**
+     * このControlPointのホスト毎の状態とHTTP通信の設定を返す。
+     *
+     * @return HostGuardRegistry
+     */
+    @Nonnull
+    public HostGuardRegistry getHostGuardRegistry() {
+        return mHostGuardRegistry;
+    }
+
+    /**
+     * ControlPointに属するHttpClientを作成する。
+     *
+     * <p>ControlPointImpl以外が指定された場合は{@link HostGuardRegistry#getDefault()}を使用する。
+     *
+     * @param controlPoint 通信を行うControlPoint
+     * @param keepAlive    keep-alive通信を行う場合true
+     * @return HttpClient
+     */
+    @Nonnull
+    static HttpClient createHttpClient(
+            @Nullable final ControlPoint controlPoint,
+            final boolean keepAlive) {
+        if (controlPoint instanceof ControlPointImpl) {
+            return new HttpClient(keepAlive, ((ControlPointImpl) controlPoint).mHostGuardRegistry);
+        }
+        return new HttpClient(keepAlive);
     }
 
     // VisibleForTesting
@@ -150,8 +290,12 @@ public class ControlPointImpl implements ControlPoint {
     // VisibleForTesting
     @SuppressWarnings("WeakerAccess")
     void onAcceptSsdpMessage(@Nonnull final SsdpMessage message) {
-        synchronized (mDeviceHolder) {
-            final String uuid = message.getUuid();
+        if (!TextUtils.equals(message.getNts(), SsdpMessage.SSDP_BYEBYE)) {
+            mHostGuardRegistry.onAlive(message.getLocation());
+        }
+        final String uuid = message.getUuid();
+        // 同一UUIDのメッセージは逐次処理し、異なるUUIDのメッセージは並列に処理する
+        synchronized (mUuidLock.get(uuid)) {
             final Device device = mDeviceHolder.get(uuid);
             if (device == null) {
                 if (mEmbeddedUdnSet.contains(uuid)) {
@@ -165,10 +309,155 @@ public class ControlPointImpl implements ControlPoint {
                     lostDevice(device);
                 }
             } else {
-                if (needToUpdateSsdpMessage(device.getSsdpMessage(), message)) {
+                mProvisionalUdnSet.remove(uuid);
+                if (!needToUpdateSsdpMessage(device.getSsdpMessage(), message)) {
+                    return;
+                }
+                if (device instanceof DeviceImpl && !isPinnedDevice(device)
+                        && needToRevalidate(device.getSsdpMessage(), message)) {
+                    startRevalidateDevice((DeviceImpl) device, message);
+                    return;
+                }
+                device.updateSsdpMessage(message);
+                mDeviceHolder.updateIndex(device);
+            }
+        }
+    }
+
+    /**
+     * Descriptionの再検証が必要か否かを判定する。
+     *
+     * <p>LocationもしくはBOOTID.UPNP.ORGが変化している場合、
+     * Deviceの再起動などによりDescriptionが変化している可能性がある。
+     *
+     * @param oldMessage 保持しているSSDPメッセージ
+     * @param newMessage 受信したSSDPメッセージ
+     * @return 再検証が必要な場合true
+     */
+    // VisibleForTesting
+    @SuppressWarnings("WeakerAccess")
+    static boolean needToRevalidate(
+            @Nonnull final SsdpMessage oldMessage,
+            @Nonnull final SsdpMessage newMessage) {
+        if (!TextUtils.equals(oldMessage.getLocation(), newMessage.getLocation())) {
+            return true;
+        }
+        return isBootIdChanged(oldMessage, newMessage);
+    }
+
+    private static boolean isBootIdChanged(
+            @Nonnull final SsdpMessage oldMessage,
+            @Nonnull final SsdpMessage newMessage) {
+        final String oldBootId = oldMessage.getHeader(Http.BOOTID_UPNP_ORG);
+        final String newBootId = newMessage.getHeader(Http.BOOTID_UPNP_ORG);
+        return oldBootId != null && newBootId != null && !oldBootId.equals(newBootId);
+    }
+
+    private void startRevalidateDevice(
+            @Nonnull final DeviceImpl device,
+            @Nonnull final SsdpMessage message) {
+        final String uuid = device.getUdn();
+        if (!mRevalidatingUdnSet.add(uuid)) {
+            return;
+        }
+        if (!mTaskHandler.io(IoTaskType.DESCRIPTION, () -> revalidateDevice(device, message))) {
+            mRevalidatingUdnSet.remove(uuid);
+        }
+    }
+
+    /**
+     * 条件付きリクエストでDescriptionを再取得し、Deviceを更新する。
+     *
+     * <p>いずれのDescriptionにも変更がなければ、DeviceのインスタンスはそのままにSSDPメッセージのみを更新する。
+     * この時、BOOTID.UPNP.ORGが変化していればDeviceは再起動しており以前の購読は無効になっているため、購読をやり直す。
+     * 変更があった場合は新たに構築したDeviceに置き換える。
+     * 再取得に失敗した場合は、一旦喪失として扱い新規に読み込みを行う。
+     *
+     * @param device  保持しているDevice
+     * @param message 受信したSSDPメッセージ
+     */
+    // VisibleForTesting
+    @SuppressWarnings("WeakerAccess")
+    void revalidateDevice(
+            @Nonnull final DeviceImpl device,
+            @Nonnull final SsdpMessage message) {
+        final String uuid = device.getUdn();
+        final boolean rebooted = isBootIdChanged(device.getSsdpMessage(), message);
+        final HttpClient client = createHttpClient();
+        try {
+            final DeviceImpl.Builder builder = new DeviceImpl.Builder(this, mSubscribeManager, message)
+                    .setCompactModelEnabled(mCompactModelEnabled);
+            final boolean modified =
+                    DeviceParser.revalidateDescription(client, builder, device, mProgressiveDiscoveryEnabled);
+            final Device newDevice = modified ? builder.build() : null;
+            if (newDevice != null && !mAsyncIconLoadEnabled) {
+                newDevice.loadIconBinary(client, mIconFilter);
+            }
+            synchronized (mUuidLock.get(uuid)) {
+                if (mDeviceHolder.get(uuid) != device) {
+                    return;
+                }
+                if (newDevice == null) {
                     device.updateSsdpMessage(message);
+                    mDeviceHolder.updateIndex(device);
+                } else {
+                    lostDevice(device);
+                    discoverDevice(newDevice);
+                }
+            }
+            if (newDevice == null) {
+                if (rebooted) {
+                    startResubscribe(device);
+                }
+                return;
+            }
+            if (mAsyncIconLoadEnabled) {
+                loadIconBinaryAsync(newDevice);
+            }
+        } catch (final IOException | SAXException | ParserConfigurationException | RuntimeException e) {
+            Log.w(e);
+            synchronized (mUuidLock.get(uuid)) {
+                if (mDeviceHolder.get(uuid) == device) {
+                    lostDevice(device);
+                    onReceiveNewSsdp(message);
                 }
             }
+        } finally {
+            mRevalidatingUdnSet.remove(uuid);
+            client.close();
+        }
+    }
+
+    /**
+     * 再起動したDeviceとEmbeddedDeviceの購読をやり直す。
+     *
+     * <p>再起動により以前のSubscriptionIDは無効になっているため、購読リストから削除した上で新規に購読する。
+     * 購読に失敗した場合は購読されていない状態となる。
+     *
+     * @param device 再起動したDevice
+     */
+    private void startResubscribe(@Nonnull final Device device) {
+        for (final SubscriptionInfo info : mSubscribeManager.getSubscriptionList()) {
+            final Service service = info.getService();
+            if (!(service instanceof ServiceImpl) || findDevice(device, service.getDevice().getUdn()) == null) {
+                continue;
+            }
+            final ServiceImpl serviceImpl = (ServiceImpl) service;
+            final boolean keepRenew = info.isKeepRenew();
+            mSubscribeManager.unregister(serviceImpl);
+            serviceImpl.restoreSubscriptionId(null);
+            mTaskHandler.io(IoTaskType.SUBSCRIPTION, () -> resubscribeAfterReboot(serviceImpl, keepRenew));
+        }
+    }
+
+    // VisibleForTesting
+    void resubscribeAfterReboot(
+            @Nonnull final ServiceImpl service,
+            final boolean keepRenew) {
+        try {
+            service.subscribe(keepRenew);
+        } catch (final IOException e) {
+            Log.w(e);
         }
     }
 
@@ -176,6 +465,11 @@ public class ControlPointImpl implements ControlPoint {
         final String uuid = message.getUuid();
         if (TextUtils.equals(message.getNts(), SsdpMessage.SSDP_BYEBYE)) {
             mLoadingDeviceMap.remove(uuid);
+            // 再起動などにより状態が変化する可能性があるため、失敗情報は破棄する
+            mLoadFailureCache.remove(uuid);
+            return;
+        }
+        if (mLoadFailureCache.isBackingOff(uuid, message.getLocation())) {
             return;
         }
         final DeviceImpl.Builder deviceBuilder = mLoadingDeviceMap.get(uuid);
@@ -185,9 +479,10 @@ public class ControlPointImpl implements ControlPoint {
             }
             return;
         }
-        final DeviceImpl.Builder builder = new DeviceImpl.Builder(this, mSubscribeManager, message);
+        final DeviceImpl.Builder builder = new DeviceImpl.Builder(this, mSubscribeManager, message)
+                .setCompactModelEnabled(mCompactModelEnabled);
         mLoadingDeviceMap.put(uuid, builder);
-        if (!mTaskHandler.io(() -> loadDevice(builder))) {
+        if (!mTaskHandler.io(IoTaskType.DESCRIPTION, () -> loadDevice(builder))) {
             mLoadingDeviceMap.remove(uuid);
         }
     }
@@ -196,25 +491,68 @@ public class ControlPointImpl implements ControlPoint {
         final HttpClient client = createHttpClient();
         final String uuid = builder.getUuid();
         try {
-            DeviceParser.loadDescription(client, builder);
+            DeviceParser.loadDescription(client, builder, mProgressiveDiscoveryEnabled);
             final Device device = builder.build();
-            device.loadIconBinary(client, mIconFilter);
-            synchronized (mDeviceHolder) {
-                if (mLoadingDeviceMap.remove(uuid) != null) {
-                    discoverDevice(device);
+            if (!mAsyncIconLoadEnabled) {
+                device.loadIconBinary(client, mIconFilter);
+            }
+            synchronized (mUuidLock.get(uuid)) {
+                if (mLoadingDeviceMap.remove(uuid) == null) {
+                    return;
                 }
+                mLoadFailureCache.remove(uuid);
+                discoverDevice(device);
+            }
+            if (mAsyncIconLoadEnabled) {
+                loadIconBinaryAsync(device);
             }
         } catch (final IOException | SAXException | ParserConfigurationException | RuntimeException e) {
             Log.d(e.getClass().getSimpleName() + " occurred on loadDevice\n" + builder.toDumpString());
             Log.w(e);
-            synchronized (mDeviceHolder) {
-                mLoadingDeviceMap.remove(uuid);
+            synchronized (mUuidLock.get(uuid)) {
+                if (mLoadingDeviceMap.remove(uuid) != null) {
+                    mLoadFailureCache.onFailure(uuid, builder.getLocation(),
+                            e.getClass().getSimpleName() + ": " + e.getMessage());
+                }
             }
         } finally {
             client.close();
         }
     }
 
+    /**
+     * Iconのバイナリを優先度の低いIOスレッドで読み込む。
+     *
+     * <p>読み込むIconの選択はこのメソッドのコール時点で設定されているIconFilterで行う。
+     * 読み込み完了時点でDeviceが保持されていれば、IconLoadListenerに通知する。
+     *
+     * @param device Iconを読み込むDevice
+     */
+    // VisibleForTesting
+    @SuppressWarnings("WeakerAccess")
+    void loadIconBinaryAsync(@Nonnull final Device device) {
+        if (device.getIconList().isEmpty()) {
+            return;
+        }
+        final List<Icon> loadList = mIconFilter.filter(device.getIconList());
+        if (loadList.isEmpty()) {
+            return;
+        }
+        mTaskHandler.lowPriorityIo(() -> {
+            final HttpClient client = createHttpClient();
+            try {
+                device.loadIconBinary(client, list -> loadList);
+            } finally {
+                client.close();
+            }
+            if (mDeviceHolder.get(device.getUdn()) != device) {
+                return;
+            }
+            mTaskHandler.callback(() ->
+                    mIconLoadListenerList.onIconLoaded(device));
+        });
+    }
+
     @Override
     public void initialize() {
         if (mInitialized.getAndSet(true)) {
@@ -229,6 +567,8 @@ public class ControlPointImpl implements ControlPoint {
         if (mStarted.get()) {
             stop();
         }
+        mDiscoveryEventPublisher.complete();
+        mNotifyEventPublisher.complete();
         if (!mInitialized.getAndSet(false)) {
             return;
         }
@@ -248,6 +588,8 @@ public class ControlPointImpl implements ControlPoint {
         mSubscribeManager.start();
         mSearchServerList.openAndStart();
         mNotifyReceiverList.openAndStart();
+        mSearchScheduler.start();
+        revalidateRestoredState();
     }
 
     @Override
@@ -256,6 +598,7 @@ public class ControlPointImpl implements ControlPoint {
             return;
         }
         mSubscribeManager.stop();
+        mSearchScheduler.shutdownRequest();
         mSearchServerList.stop();
         mNotifyReceiverList.stop();
         mSearchServerList.close();
@@ -265,13 +608,15 @@ public class ControlPointImpl implements ControlPoint {
             lostDevice(device);
         }
         mDeviceHolder.clear();
+        mProvisionalUdnSet.clear();
+        mRestoredSubscriptions.clear();
     }
 
     @Override
     public void clearDeviceList() {
-        synchronized (mDeviceHolder) {
-            final List<Device> list = getDeviceList();
-            for (final Device device : list) {
+        final List<Device> list = getDeviceList();
+        for (final Device device : list) {
+            synchronized (mUuidLock.get(device.getUdn())) {
                 lostDevice(device);
             }
         }
@@ -287,7 +632,33 @@ public class ControlPointImpl implements ControlPoint {
         if (!mStarted.get()) {
             throw new IllegalStateException("ControlPoint is not started.");
         }
-        mSearchServerList.search(st);
+        mSearchScheduler.search(Collections.singletonList(TextUtils.isEmpty(st) ? SsdpSearchServer.ST_ALL : st));
+    }
+
+    @Override
+    public void searchTargets(@Nonnull final Collection<String> stList) {
+        if (!mStarted.get()) {
+            throw new IllegalStateException("ControlPoint is not started.");
+        }
+        mSearchScheduler.search(stList);
+    }
+
+    @Override
+    public void startPeriodicSearch(@Nonnull final Collection<String> stList) {
+        if (!mStarted.get()) {
+            throw new IllegalStateException("ControlPoint is not started.");
+        }
+        mSearchScheduler.startPeriodicSearch(stList);
+    }
+
+    @Override
+    public void stopPeriodicSearch() {
+        mSearchScheduler.stopPeriodicSearch();
+    }
+
+    @Override
+    public void setSearchPolicy(@Nonnull final SearchPolicy policy) {
+        mSearchScheduler.setPolicy(policy);
     }
 
     @Override
@@ -320,6 +691,16 @@ public class ControlPointImpl implements ControlPoint {
         mNotifyEventListenerList.remove(listener);
     }
 
+    @Override
+    public void addIconLoadListener(@Nonnull final IconLoadListener listener) {
+        mIconLoadListenerList.add(listener);
+    }
+
+    @Override
+    public void removeIconLoadListener(@Nonnull final IconLoadListener listener) {
+        mIconLoadListenerList.remove(listener);
+    }
+
     // VisibleForTesting
     @SuppressWarnings("WeakerAccess")
     void discoverDevice(@Nonnull final Device device) {
@@ -332,16 +713,76 @@ public class ControlPointImpl implements ControlPoint {
                 mDiscoveryListenerList.onDiscover(device));
     }
 
+    /**
+     * 有効期限が切れる前に、ユニキャストのM-SEARCHで生存確認を行う。
+     *
+     * <p>宛先はLocationのホストと、SEARCHPORT.UPNP.ORGで通知されたポート（省略時は1900）。
+     * STにUDNを指定するため、対象のDeviceだけが応答する。
+     * 応答を受信するとSsdpMessageが更新され、有効期限が延長される。
+     *
+     * @param device 生存確認を行うDevice
+     */
+    // VisibleForTesting
+    @SuppressWarnings("WeakerAccess")
+    void refreshDevice(@Nonnull final Device device) {
+        if (isPinnedDevice(device)) {
+            return;
+        }
+        final SsdpMessage message = device.getSsdpMessage();
+        final String location = message.getLocation();
+        if (location == null) {
+            return;
+        }
+        final String udn = device.getUdn();
+        final int port = getSearchPort(message);
+        final int scopeId = message.getScopeId();
+        mTaskHandler.io(IoTaskType.SSDP, () -> {
+            try {
+                final URL url = Http.makeUrlWithScopeId(location, scopeId);
+                final InetAddress address = InetAddress.getByName(url.getHost());
+                mSearchServerList.searchUnicast(udn, new InetSocketAddress(address, port));
+            } catch (final IOException e) {
+                Log.w(e);
+            }
+        });
+    }
+
+    // VisibleForTesting
+    static int getSearchPort(@Nonnull final SsdpMessage message) {
+        final String value = message.getHeader(Http.SEARCHPORT_UPNP_ORG);
+        if (TextUtils.isEmpty(value)) {
+            return SsdpServer.SSDP_PORT;
+        }
+        try {
+            final int port = Integer.parseInt(value.trim());
+            // UDA 1.1ではSEARCHPORTは49152-65535の範囲
+            if (port >= 49152 && port <= 65535) {
+                return port;
+            }
+        } catch (final NumberFormatException ignored) {
+        }
+        return SsdpServer.SSDP_PORT;
+    }
+
+    /**
+     * Deviceの喪失処理を行う。
+     *
+     * <p>DeviceHolderの有効期限切れからもコールされる。
+     * DeviceHolderのロックを保持した状態でコールされる場合があるため、
+     * デッドロックを避けるためUUID毎のロックは取得しない。
+     * DeviceHolderからは引数のインスタンスが登録されている場合のみ削除するため、
+     * 同一UDNの新しいDeviceが並行して登録された場合もそれを削除することはない。
+     *
+     * @param device 喪失したDevice
+     */
     @SuppressWarnings("WeakerAccess")
     void lostDevice(@Nonnull final Device device) {
         mEmbeddedUdnSet.removeAll(collectEmbeddedUdn(device));
-        synchronized (mDeviceHolder) {
-            final List<Service> list = device.getServiceList();
-            for (final Service s : list) {
-                mSubscribeManager.unregister(s);
-            }
-            mDeviceHolder.remove(device);
+        final List<Service> list = device.getServiceList();
+        for (final Service s : list) {
+            mSubscribeManager.unregister(s);
         }
+        mDeviceHolder.remove(device);
         mTaskHandler.callback(() ->
                 mDiscoveryListenerList.onLost(device));
     }
@@ -386,6 +827,42 @@ public class ControlPointImpl implements ControlPoint {
         return mDeviceHolder.get(udn);
     }
 
+    @Override
+    @Nonnull
+    public List<Device> getDeviceListByType(@Nonnull final String deviceType) {
+        return mDeviceHolder.getDeviceListByType(deviceType);
+    }
+
+    @Override
+    @Nonnull
+    public List<Device> getDeviceListByServiceType(@Nonnull final String serviceType) {
+        return mDeviceHolder.getDeviceListByServiceType(serviceType);
+    }
+
+    @Override
+    @Nonnull
+    public List<Device> getDeviceListByManufacture(@Nonnull final String manufacture) {
+        return mDeviceHolder.getDeviceListByManufacture(manufacture);
+    }
+
+    @Override
+    @Nonnull
+    public List<Device> getDeviceListByIpAddress(@Nonnull final String ipAddress) {
+        return mDeviceHolder.getDeviceListByIpAddress(ipAddress);
+    }
+
+    @Nonnull
+    @Override
+    public EventFlow.Publisher<DiscoveryEvent> getDiscoveryEventPublisher(@Nonnull final OverflowStrategy strategy) {
+        return mDiscoveryEventPublisher.create(strategy);
+    }
+
+    @Nonnull
+    @Override
+    public EventFlow.Publisher<NotifyEvent> getNotifyEventPublisher(@Nonnull final OverflowStrategy strategy) {
+        return mNotifyEventPublisher.create(strategy);
+    }
+
     @Override
     public void addPinnedDevice(@Nonnull final String location) {
         for (final Device device : getDeviceList()) {
@@ -393,30 +870,33 @@ public class ControlPointImpl implements ControlPoint {
                 return;
             }
         }
-        final DeviceImpl.Builder builder = new DeviceImpl.Builder(
-                this, mSubscribeManager, new PinnedSsdpMessage(location));
-        mLoadingPinnedDevices.add(builder);
-        mTaskHandler.io(() -> loadPinnedDevice(builder));
+        startLoadPinnedDevice(location);
     }
 
     private void loadPinnedDevice(@Nonnull final DeviceImpl.Builder builder) {
         final HttpClient client = createHttpClient();
         try {
-            DeviceParser.loadDescription(client, builder);
+            DeviceParser.loadDescription(client, builder, mProgressiveDiscoveryEnabled);
             final Device device = builder.build();
-            device.loadIconBinary(client, mIconFilter);
-            synchronized (mDeviceHolder) {
-                final String udn = device.getUdn();
+            if (!mAsyncIconLoadEnabled) {
+                device.loadIconBinary(client, mIconFilter);
+            }
+            final String udn = device.getUdn();
+            synchronized (mUuidLock.get(udn)) {
                 if (!mLoadingPinnedDevices.remove(builder)) {
                     return;
                 }
                 mLoadingDeviceMap.remove(udn);
+                mProvisionalUdnSet.remove(udn);
                 final Device lostDevice = mDeviceHolder.remove(udn);
                 if (lostDevice != null) {
                     lostDevice(lostDevice);
                 }
                 discoverDevice(device);
             }
+            if (mAsyncIconLoadEnabled) {
+                loadIconBinaryAsync(device);
+            }
         } catch (final IOException | IllegalStateException | SAXException | ParserConfigurationException e) {
             Log.w(null, "fail to load:" + builder.getLocation(), e);
         } finally {
@@ -424,6 +904,268 @@ public class ControlPointImpl implements ControlPoint {
         }
     }
 
+    @Nonnull
+    @Override
+    public List<LoadFailure> getLoadFailureList() {
+        return mLoadFailureCache.getList();
+    }
+
+    @Nonnull
+    @Override
+    public SsdpReceiveStats getSsdpReceiveStats() {
+        return mSsdpDispatcher.getStats();
+    }
+
+    @Override
+    public void clearLoadFailure(@Nonnull final String uuid) {
+        mLoadFailureCache.remove(uuid);
+    }
+
+    @Override
+    public void clearLoadFailureList() {
+        mLoadFailureCache.clear();
+    }
+
+    @Override
+    public void exportState(@Nonnull final OutputStream os) throws IOException {
+        final StateSnapshot snapshot = new StateSnapshot();
+        for (final Device device : getDeviceList()) {
+            final StateSnapshot.DeviceRecord record = createDeviceRecord(device);
+            if (record != null) {
+                snapshot.mDevices.add(record);
+            }
+        }
+        synchronized (mLoadingPinnedDevices) {
+            for (final DeviceImpl.Builder builder : mLoadingPinnedDevices) {
+                snapshot.mPinnedLocations.add(builder.getLocation());
+            }
+        }
+        for (final SubscriptionInfo info : mSubscribeManager.getSubscriptionList()) {
+            final StateSnapshot.SubscriptionRecord record = new StateSnapshot.SubscriptionRecord();
+            record.mUdn = info.getService().getDevice().getUdn();
+            record.mServiceId = info.getService().getServiceId();
+            record.mSubscriptionId = info.getSubscriptionId();
+            record.mExpiryTime = info.getExpiryTime();
+            record.mKeepRenew = info.isKeepRenew();
+            snapshot.mSubscriptions.add(record);
+        }
+        snapshot.write(os);
+    }
+
+    @Nullable
+    private static StateSnapshot.DeviceRecord createDeviceRecord(@Nonnull final Device device) throws IOException {
+        final SsdpMessage message = device.getSsdpMessage();
+        final StateSnapshot.DeviceRecord record = new StateSnapshot.DeviceRecord();
+        record.setLocalAddress(message.getLocalAddress());
+        record.mExpireTime = message.getExpireTime();
+        if (message instanceof PinnedSsdpMessage) {
+            record.mKind = StateSnapshot.KIND_PINNED;
+            record.mLocation = message.getLocation();
+        } else {
+            if (message.getLocalAddress() == null) {
+                return null;
+            }
+            record.mKind = message instanceof SsdpResponse ? StateSnapshot.KIND_RESPONSE : StateSnapshot.KIND_NOTIFY;
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            message.writeData(baos);
+            record.mMessage = baos.toByteArray();
+        }
+        record.mDescription = device.getDescription();
+        collectServiceDescriptions(device, record.mServiceDescriptions);
+        return record;
+    }
+
+    private static void collectServiceDescriptions(
+            @Nonnull final Device device,
+            @Nonnull final List<String> outList) {
+        for (final Service service : device.getServiceList()) {
+            outList.add(service instanceof ServiceImpl ? ((ServiceImpl) service).getLoadedDescription() : null);
+        }
+        for (final Device embedded : device.getDeviceList()) {
+            collectServiceDescriptions(embedded, outList);
+        }
+    }
+
+    @Override
+    public void importState(@Nonnull final InputStream is) throws IOException {
+        final StateSnapshot snapshot = StateSnapshot.read(is);
+        if (!mInitialized.get()) {
+            initialize();
+        }
+        final long now = System.currentTimeMillis();
+        for (final StateSnapshot.DeviceRecord record : snapshot.mDevices) {
+            if (record.mKind != StateSnapshot.KIND_PINNED && record.mExpireTime <= now) {
+                continue;
+            }
+            try {
+                restoreDevice(record);
+            } catch (final IOException | SAXException | ParserConfigurationException | RuntimeException e) {
+                Log.w(e);
+            }
+        }
+        for (final String location : snapshot.mPinnedLocations) {
+            addPinnedDevice(location);
+        }
+        for (final StateSnapshot.SubscriptionRecord record : snapshot.mSubscriptions) {
+            if (record.mExpiryTime > now) {
+                mRestoredSubscriptions.add(record);
+            }
+        }
+        if (mStarted.get()) {
+            revalidateRestoredState();
+        }
+    }
+
+    private void restoreDevice(@Nonnull final StateSnapshot.DeviceRecord record)
+            throws IOException, SAXException, ParserConfigurationException {
+        final DeviceImpl.Builder builder = new DeviceImpl.Builder(this, mSubscribeManager, createSsdpMessage(record))
+                .setCompactModelEnabled(mCompactModelEnabled);
+        DeviceParser.parseDescription(builder, record.mDescription);
+        restoreServices(builder, record.mServiceDescriptions.iterator());
+        final Device device = builder.build();
+        final String udn = device.getUdn();
+        synchronized (mUuidLock.get(udn)) {
+            if (mDeviceHolder.get(udn) != null || mLoadingDeviceMap.containsKey(udn)) {
+                return;
+            }
+            discoverDevice(device);
+            mProvisionalUdnSet.add(udn);
+        }
+    }
+
+    @Nonnull
+    private static SsdpMessage createSsdpMessage(@Nonnull final StateSnapshot.DeviceRecord record) throws IOException {
+        final InetAddress address = record.getLocalAddress();
+        if (record.mKind == StateSnapshot.KIND_PINNED) {
+            //noinspection ConstantConditions : 読み込み時にチェック済み
+            final PinnedSsdpMessage message = new PinnedSsdpMessage(record.mLocation);
+            if (address != null) {
+                message.setLocalAddress(address);
+            }
+            return message;
+        }
+        final byte[] data = record.mMessage;
+        if (address == null || data == null) {
+            throw new IOException("local address or message is missing");
+        }
+        if (record.mKind == StateSnapshot.KIND_RESPONSE) {
+            return new SsdpResponse(address, data, data.length, record.mExpireTime);
+        }
+        return new SsdpRequest(address, data, data.length, record.mExpireTime);
+    }
+
+    private static void restoreServices(
+            @Nonnull final DeviceImpl.Builder builder,
+            @Nonnull final Iterator<String> descriptions)
+            throws IOException, SAXException, ParserConfigurationException {
+        for (final ServiceImpl.Builder serviceBuilder : builder.getServiceBuilderList()) {
+            final String description = descriptions.hasNext() ? descriptions.next() : null;
+            if (description == null) {
+                serviceBuilder.setLazyLoad(true);
+            } else {
+                ServiceParser.parseDescription(serviceBuilder, description);
+            }
+        }
+        for (final DeviceImpl.Builder deviceBuilder : builder.getEmbeddedDeviceBuilderList()) {
+            restoreServices(deviceBuilder, descriptions);
+        }
+    }
+
+    /**
+     * 復元した状態の再検証を行う。
+     *
+     * <p>復元したDeviceにはユニキャストのM-SEARCHで生存確認を行い、固定デバイスはDescriptionを読み直す。
+     * 復元した購読は、以前のSubscriptionIDを破棄した上で改めて購読する。
+     * 通信を伴うため、開始後にのみ実行する。
+     */
+    // VisibleForTesting
+    @SuppressWarnings("WeakerAccess")
+    void revalidateRestoredState() {
+        for (final String udn : mProvisionalUdnSet) {
+            final Device device = mDeviceHolder.get(udn);
+            if (device == null) {
+                mProvisionalUdnSet.remove(udn);
+            } else if (isPinnedDevice(device)) {
+                startLoadPinnedDevice(device.getLocation());
+            } else {
+                refreshDevice(device);
+            }
+        }
+        final List<StateSnapshot.SubscriptionRecord> records;
+        synchronized (mRestoredSubscriptions) {
+            records = new ArrayList<>(mRestoredSubscriptions);
+            mRestoredSubscriptions.clear();
+        }
+        for (final StateSnapshot.SubscriptionRecord record : records) {
+            final ServiceImpl service = findService(record.mUdn, record.mServiceId);
+            if (service == null) {
+                continue;
+            }
+            mTaskHandler.io(IoTaskType.SUBSCRIPTION, () -> resubscribe(service, record));
+        }
+    }
+
+    private static void resubscribe(
+            @Nonnull final ServiceImpl service,
+            @Nonnull final StateSnapshot.SubscriptionRecord record) {
+        if (service.getSubscriptionId() != null) {
+            return;
+        }
+        service.restoreSubscriptionId(record.mSubscriptionId);
+        try {
+            service.unsubscribe();
+        } catch (final IOException e) {
+            Log.w(e);
+        } finally {
+            service.restoreSubscriptionId(null);
+        }
+        try {
+            service.subscribe(record.mKeepRenew);
+        } catch (final IOException e) {
+            Log.w(e);
+        }
+    }
+
+    @Nullable
+    private ServiceImpl findService(
+            @Nonnull final String udn,
+            @Nonnull final String serviceId) {
+        for (final Device device : getDeviceList()) {
+            final Device target = findDevice(device, udn);
+            if (target != null) {
+                final Service service = target.findServiceById(serviceId);
+                return service instanceof ServiceImpl ? (ServiceImpl) service : null;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Device findDevice(
+            @Nonnull final Device device,
+            @Nonnull final String udn) {
+        if (TextUtils.equals(device.getUdn(), udn)) {
+            return device;
+        }
+        for (final Device embedded : device.getDeviceList()) {
+            final Device result = findDevice(embedded, udn);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private void startLoadPinnedDevice(@Nonnull final String location) {
+        final DeviceImpl.Builder builder = new DeviceImpl.Builder(
+                this, mSubscribeManager, new PinnedSsdpMessage(location))
+                .setCompactModelEnabled(mCompactModelEnabled);
+        mLoadingPinnedDevices.add(builder);
+        if (!mTaskHandler.io(IoTaskType.DESCRIPTION, () -> loadPinnedDevice(builder))) {
+            mLoadingPinnedDevices.remove(builder);
+        }
+    }
+
     @Override
     public void removePinnedDevice(@Nonnull final String location) {
         synchronized (mLoadingPinnedDevices) {
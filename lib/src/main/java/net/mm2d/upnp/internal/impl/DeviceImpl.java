@@ -16,6 +16,7 @@ import net.mm2d.upnp.IconFilter;
 import net.mm2d.upnp.Service;
 import net.mm2d.upnp.SsdpMessage;
 import net.mm2d.upnp.internal.manager.SubscribeManager;
+import net.mm2d.upnp.internal.message.CacheValidator;
 import net.mm2d.upnp.internal.message.PinnedSsdpMessage;
 
 import java.io.IOException;
@@ -23,12 +24,14 @@ import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -39,6 +42,14 @@ import javax.annotation.Nullable;
  * @author <a href="mailto:ryo@mm2d.net">大前良介(OHMAE Ryosuke)</a>
  */
 public class DeviceImpl implements Device {
+    /**
+     * 複数のDeviceで共通の値となりやすいタグ。
+     *
+     * <p>メモリ使用量を抑えたモデルを作成する場合、これらのタグ名と値は同一のインスタンスを使用する。
+     * 任意の文字列を置き換えの対象にしないよう、値の種類が少ないタグに限定する。
+     */
+    private static final Set<String> INTERN_TAGS = new HashSet<>(Arrays.asList(
+            "deviceType", "manufacturer", "manufacturerURL", "modelName", "modelURL", "modelNumber"));
 
     /**
      * DeviceのBuilder。
@@ -76,6 +87,11 @@ public class DeviceImpl implements Device {
         private volatile List<DeviceImpl.Builder> mDeviceBuilderList = Collections.emptyList();
         @Nonnull
         private final Map<String, Map<String, String>> mTagMap;
+        private boolean mCompactModelEnabled;
+        @Nullable
+        private CompressedString mCompressedDescription;
+        @Nullable
+        private CacheValidator mCacheValidator;
 
         /**
          * インスタンスを作成する。
@@ -109,15 +125,37 @@ public class DeviceImpl implements Device {
             final Builder builder = new Builder(mControlPoint, mSubscribeManager, mSsdpMessage);
             builder.setDescription(mDescription);
             builder.setUrlBase(mUrlBase);
+            builder.setCompactModelEnabled(mCompactModelEnabled);
             return builder;
         }
 
+        /**
+         * メモリ使用量を抑えたモデルを作成するか否かを設定する。
+         *
+         * <p>有効にした場合、Description XMLは圧縮して保持し、参照時に展開する。
+         * また、DeviceTypeやManufactureなど複数のDeviceで共通となりやすい文字列は同一のインスタンスを使用する。
+         *
+         * @param enabled メモリ使用量を抑えたモデルを作成する場合true
+         * @return Builder
+         */
+        @Nonnull
+        public Builder setCompactModelEnabled(final boolean enabled) {
+            mCompactModelEnabled = enabled;
+            return this;
+        }
+
+        @Nullable
+        private String intern(@Nullable final String string) {
+            return mCompactModelEnabled && string != null ? StringInterner.intern(string) : string;
+        }
+
         /**
          * Descriptionのダウンロード完了時にダウンロードに使用したHttpClientを渡す。
          *
          * @param client Descriptionのダウンロードに使用したHttpClient
          */
         public void setDownloadInfo(@Nonnull final HttpClient client) {
+            mCacheValidator = client.getCacheValidator();
             if (mSsdpMessage instanceof PinnedSsdpMessage) {
                 final InetAddress address = client.getLocalAddress();
                 if (address != null) {
@@ -190,6 +228,21 @@ public class DeviceImpl implements Device {
             return this;
         }
 
+        /**
+         * Descriptionの再取得時に使用する検証子を登録する。
+         *
+         * <p>通常は{@link #setDownloadInfo(HttpClient)}で登録されるため、
+         * 再取得で変更がなかった場合に以前の検証子を引き継ぐ場合に使用する。
+         *
+         * @param validator 検証子
+         * @return Builder
+         */
+        @Nonnull
+        public Builder setCacheValidator(@Nullable final CacheValidator validator) {
+            mCacheValidator = validator;
+            return this;
+        }
+
         /**
          * UDNの値を登録する。
          *
@@ -202,6 +255,16 @@ public class DeviceImpl implements Device {
             return this;
         }
 
+        /**
+         * 登録されたUDNの値を返す。
+         *
+         * @return UDN、未登録の場合null
+         */
+        @Nullable
+        public String getUdn() {
+            return mUdn;
+        }
+
         /**
          * UPCの値を登録する。
          *
@@ -222,7 +285,7 @@ public class DeviceImpl implements Device {
          */
         @Nonnull
         public Builder setDeviceType(@Nonnull final String deviceType) {
-            mDeviceType = deviceType;
+            mDeviceType = intern(deviceType);
             return this;
         }
 
@@ -246,7 +309,7 @@ public class DeviceImpl implements Device {
          */
         @Nonnull
         public Builder setManufacture(@Nonnull final String manufacture) {
-            mManufacture = manufacture;
+            mManufacture = intern(manufacture);
             return this;
         }
 
@@ -258,7 +321,7 @@ public class DeviceImpl implements Device {
          */
         @Nonnull
         public Builder setManufactureUrl(@Nonnull final String manufactureUrl) {
-            mManufactureUrl = manufactureUrl;
+            mManufactureUrl = intern(manufactureUrl);
             return this;
         }
 
@@ -270,7 +333,7 @@ public class DeviceImpl implements Device {
          */
         @Nonnull
         public Builder setModelName(@Nonnull final String modelName) {
-            mModelName = modelName;
+            mModelName = intern(modelName);
             return this;
         }
 
@@ -282,7 +345,7 @@ public class DeviceImpl implements Device {
          */
         @Nonnull
         public Builder setModelUrl(@Nonnull final String modelUrl) {
-            mModelUrl = modelUrl;
+            mModelUrl = intern(modelUrl);
             return this;
         }
 
@@ -306,7 +369,7 @@ public class DeviceImpl implements Device {
          */
         @Nonnull
         public Builder setModelNumber(@Nonnull final String modelNumber) {
-            mModelNumber = modelNumber;
+            mModelNumber = intern(modelNumber);
             return this;
         }
 
@@ -436,13 +499,17 @@ public class DeviceImpl implements Device {
                 @Nullable final String namespace,
                 @Nonnull final String tag,
                 @Nonnull final String value) {
-            final String namespaceUri = namespace == null ? "" : namespace;
+            final String namespaceUri = namespace == null ? "" : intern(namespace);
             Map<String, String> map = mTagMap.get(namespaceUri);
             if (map == null) {
                 map = new HashMap<>();
                 mTagMap.put(namespaceUri, map);
             }
-            map.put(tag, value);
+            if (INTERN_TAGS.contains(tag)) {
+                map.put(intern(tag), intern(value));
+            } else {
+                map.put(tag, value);
+            }
             return this;
         }
 
@@ -493,6 +560,15 @@ public class DeviceImpl implements Device {
             return new DeviceImpl(parent, this);
         }
 
+        @Nonnull
+        private CompressedString getCompressedDescription() {
+            if (mCompressedDescription == null) {
+                //noinspection ConstantConditions : build時にチェック済み
+                mCompressedDescription = new CompressedString(mDescription);
+            }
+            return mCompressedDescription;
+        }
+
         public String toDumpString() {
             final StringBuilder sb = new StringBuilder()
                     .append("DeviceBuilder")
@@ -516,8 +592,10 @@ public class DeviceImpl implements Device {
     private SsdpMessage mSsdpMessage;
     @Nonnull
     private String mLocation;
-    @Nonnull
+    @Nullable
     private final String mDescription;
+    @Nullable
+    private final CompressedString mCompressedDescription;
     @Nonnull
     private final String mUdn;
     @Nullable
@@ -545,13 +623,15 @@ public class DeviceImpl implements Device {
     @Nullable
     private final String mUrlBase;
     @Nonnull
-    private final Map<String, Map<String, String>> mTagMap;
+    private final TagMap mTagMap;
     @Nonnull
     private final List<Icon> mIconList;
     @Nonnull
     private final List<Service> mServiceList;
     @Nonnull
     private final List<Device> mDeviceList;
+    @Nullable
+    private final CacheValidator mCacheValidator;
 
     /**
      * ControlPointに紐付いたインスタンスを作成。
@@ -579,10 +659,24 @@ public class DeviceImpl implements Device {
         mSerialNumber = builder.mSerialNumber;
         mPresentationUrl = builder.mPresentationUrl;
         mUrlBase = builder.mUrlBase;
-        mDescription = builder.mDescription;
-        mTagMap = builder.mTagMap;
+        mCacheValidator = builder.mCacheValidator;
+        if (builder.mCompactModelEnabled) {
+            mDescription = null;
+            mCompressedDescription = builder.getCompressedDescription();
+            // EmbeddedDeviceは同一のDescription XMLを持つため、圧縮結果を共有する
+            for (final Builder deviceBuilder : builder.mDeviceBuilderList) {
+                if (deviceBuilder.mDescription == builder.mDescription) {
+                    deviceBuilder.mCompressedDescription = mCompressedDescription;
+                }
+            }
+        } else {
+            mDescription = builder.mDescription;
+            mCompressedDescription = null;
+        }
+        mTagMap = new TagMap(builder.mTagMap);
         mIconList = builder.mIconList.isEmpty() ? Collections.emptyList() : new ArrayList<>(builder.mIconList);
-        mServiceList = buildServiceList(this, builder.mSubscribeManager, builder.mServiceBuilderList);
+        mServiceList = buildServiceList(this, builder.mSubscribeManager, builder.mServiceBuilderList,
+                builder.mCompactModelEnabled);
         mDeviceList = buildDeviceList(this, builder.mDeviceBuilderList);
     }
 
@@ -590,12 +684,16 @@ public class DeviceImpl implements Device {
     private static List<Service> buildServiceList(
             @Nonnull final Device device,
             @Nonnull final SubscribeManager manager,
-            @Nonnull final List<ServiceImpl.Builder> builderList) {
+            @Nonnull final List<ServiceImpl.Builder> builderList,
+            final boolean compactModelEnabled) {
         if (builderList.isEmpty()) {
             return Collections.emptyList();
         }
         final List<Service> list = new ArrayList<>(builderList.size());
         for (final ServiceImpl.Builder builder : builderList) {
+            if (compactModelEnabled) {
+                builder.internStrings();
+            }
             final Service service = builder
                     .setDevice(device)
                     .setSubscribeManager(manager)
@@ -679,9 +777,25 @@ public class DeviceImpl implements Device {
     @Override
     @Nonnull
     public String getDescription() {
+        if (mCompressedDescription != null) {
+            return mCompressedDescription.toString();
+        }
+        //noinspection ConstantConditions : 圧縮しない場合はnullではない
         return mDescription;
     }
 
+    /**
+     * Descriptionの取得時のレスポンスに含まれていた検証子を返す。
+     *
+     * <p>Descriptionの再取得時に条件付きリクエストとして使用する。
+     *
+     * @return 検証子、レスポンスに含まれていなかった場合null
+     */
+    @Nullable
+    public CacheValidator getCacheValidator() {
+        return mCacheValidator;
+    }
+
     @Override
     public int getScopeId() {
         return mSsdpMessage.getScopeId();
@@ -690,13 +804,7 @@ public class DeviceImpl implements Device {
     @Override
     @Nullable
     public String getValue(@Nonnull final String name) {
-        for (final Entry<String, Map<String, String>> entry : mTagMap.entrySet()) {
-            final String value = entry.getValue().get(name);
-            if (value != null) {
-                return value;
-            }
-        }
-        return null;
+        return mTagMap.get(name);
     }
 
     @Override
@@ -704,11 +812,7 @@ public class DeviceImpl implements Device {
     public String getValueWithNamespace(
             @Nonnull final String namespace,
             @Nonnull final String name) {
-        final Map<String, String> map = mTagMap.get(namespace);
-        if (map == null) {
-            return null;
-        }
-        return map.get(name);
+        return mTagMap.get(namespace, name);
     }
 
     @Override
@@ -12,6 +12,10 @@ import net.mm2d.upnp.Protocol;
 import net.mm2d.upnp.TaskExecutor;
 import net.mm2d.upnp.internal.manager.DeviceHolder;
 import net.mm2d.upnp.internal.manager.DeviceHolder.ExpireListener;
+import net.mm2d.upnp.internal.manager.DeviceHolder.RefreshListener;
+import net.mm2d.upnp.internal.manager.HostGuardRegistry;
+import net.mm2d.upnp.internal.manager.LoadFailureCache;
+import net.mm2d.upnp.internal.manager.SearchScheduler;
 import net.mm2d.upnp.internal.manager.SubscribeHolder;
 import net.mm2d.upnp.internal.manager.SubscribeManager;
 import net.mm2d.upnp.internal.server.EventReceiver;
@@ -24,8 +28,8 @@ import net.mm2d.upnp.internal.thread.TaskHandler;
 
 import java.net.NetworkInterface;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -42,6 +46,8 @@ public class DiFactory {
     private final TaskExecutor mCallbackExecutor;
     @Nullable
     private final TaskExecutor mIoExecutor;
+    @Nullable
+    private final TaskHandler mTaskHandler;
 
     public DiFactory() {
         this(Protocol.DEFAULT, null, null);
@@ -58,16 +64,52 @@ public class DiFactory {
         mProtocol = protocol;
         mCallbackExecutor = callback;
         mIoExecutor = io;
+        mTaskHandler = null;
+    }
+
+    /**
+     * 共有のTaskHandlerを使用するインスタンスを作成する。
+     *
+     * @param protocol    使用するプロトコルスタック
+     * @param taskHandler 共有のTaskHandler
+     */
+    public DiFactory(
+            @Nonnull final Protocol protocol,
+            @Nonnull final TaskHandler taskHandler) {
+        mProtocol = protocol;
+        mCallbackExecutor = null;
+        mIoExecutor = null;
+        mTaskHandler = taskHandler;
     }
 
     @Nonnull
     public Map<String, DeviceImpl.Builder> createLoadingDeviceMap() {
-        return new HashMap<>();
+        return new ConcurrentHashMap<>();
     }
 
     @Nonnull
-    public DeviceHolder createDeviceHolder(@Nonnull final ExpireListener listener) {
-        return new DeviceHolder(listener);
+    public DeviceHolder createDeviceHolder(
+            @Nonnull final TaskHandler taskHandler,
+            @Nonnull final ExpireListener expireListener,
+            @Nonnull final RefreshListener refreshListener) {
+        return new DeviceHolder(taskHandler.getTimerExecutor(), expireListener, refreshListener);
+    }
+
+    @Nonnull
+    public LoadFailureCache createLoadFailureCache() {
+        return new LoadFailureCache();
+    }
+
+    @Nonnull
+    public HostGuardRegistry createHostGuardRegistry() {
+        return new HostGuardRegistry();
+    }
+
+    @Nonnull
+    public SearchScheduler createSearchScheduler(
+            @Nonnull final TaskHandler taskHandler,
+            @Nonnull final SearchScheduler.Callback callback) {
+        return new SearchScheduler(taskHandler.getTimerExecutor(), callback);
     }
 
     @Nonnull
@@ -92,8 +134,8 @@ public class DiFactory {
     }
 
     @Nonnull
-    public SubscribeHolder createSubscribeHolder() {
-        return new SubscribeHolder();
+    public SubscribeHolder createSubscribeHolder(@Nonnull final TaskHandler taskHandler) {
+        return new SubscribeHolder(taskHandler);
     }
 
     @Nonnull
@@ -103,6 +145,9 @@ public class DiFactory {
 
     @Nonnull
     public TaskHandler createTaskHandler() {
+        if (mTaskHandler != null) {
+            return mTaskHandler;
+        }
         return new TaskHandler(mCallbackExecutor, mIoExecutor);
     }
 }
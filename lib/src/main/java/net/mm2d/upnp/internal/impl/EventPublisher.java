@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import net.mm2d.upnp.EventFlow;
+import net.mm2d.upnp.OverflowStrategy;
+import net.mm2d.upnp.internal.thread.TaskHandler;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 購読者の要求数に従ってイベントを配信する発行元。
+ *
+ * <p>購読毎に未配信のイベントを保持し、その量は{@link OverflowStrategy}で制限する。
+ * 配信はコールバックスレッドで行う。
+ *
+ * @param <T> イベントの型
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class EventPublisher<T> {
+    /**
+     * {@link OverflowStrategy.Type#LATEST_PER_KEY}で使用するキーを選択する。
+     *
+     * @param <T> イベントの型
+     */
+    public interface KeySelector<T> {
+        /**
+         * イベントのキーを返す。
+         *
+         * @param item イベント
+         * @return キー
+         */
+        @Nonnull
+        Object select(@Nonnull T item);
+    }
+
+    @Nonnull
+    private final TaskHandler mTaskHandler;
+    @Nonnull
+    private final KeySelector<T> mKeySelector;
+    @Nonnull
+    private final Set<EventSubscription<T>> mSubscriptions = new CopyOnWriteArraySet<>();
+    private volatile boolean mCompleted;
+
+    /**
+     * インスタンス作成。
+     *
+     * @param taskHandler 配信に使用するTaskHandler
+     * @param keySelector キーを選択するKeySelector
+     */
+    public EventPublisher(
+            @Nonnull final TaskHandler taskHandler,
+            @Nonnull final KeySelector<T> keySelector) {
+        mTaskHandler = taskHandler;
+        mKeySelector = keySelector;
+    }
+
+    /**
+     * 指定したOverflowStrategyで購読を行うPublisherを返す。
+     *
+     * @param strategy OverflowStrategy
+     * @return Publisher
+     */
+    @Nonnull
+    public EventFlow.Publisher<T> create(@Nonnull final OverflowStrategy strategy) {
+        return subscriber -> subscribe(subscriber, strategy);
+    }
+
+    private void subscribe(
+            @Nonnull final EventFlow.Subscriber<? super T> subscriber,
+            @Nonnull final OverflowStrategy strategy) {
+        final EventSubscription<T> subscription = new EventSubscription<>(this, subscriber, strategy);
+        mSubscriptions.add(subscription);
+        subscription.start();
+        if (mCompleted) {
+            mSubscriptions.remove(subscription);
+            subscription.complete();
+        }
+    }
+
+    /**
+     * 購読者がいるか否かを返す。
+     *
+     * @return 購読者がいる場合true
+     */
+    public boolean hasSubscribers() {
+        return !mSubscriptions.isEmpty();
+    }
+
+    /**
+     * イベントを発行する。
+     *
+     * @param item イベント
+     */
+    public void offer(@Nonnull final T item) {
+        if (mSubscriptions.isEmpty()) {
+            return;
+        }
+        final Object key = mKeySelector.select(item);
+        for (final EventSubscription<T> subscription : mSubscriptions) {
+            subscription.offer(item, key);
+        }
+    }
+
+    /**
+     * 発行を終了する。
+     *
+     * <p>未配信のイベントは破棄し、全ての購読者に{@link EventFlow.Subscriber#onComplete()}を通知する。
+     * 以降に開始された購読は即座に終了する。
+     */
+    public void complete() {
+        mCompleted = true;
+        for (final EventSubscription<T> subscription : mSubscriptions) {
+            subscription.complete();
+        }
+        mSubscriptions.clear();
+    }
+
+    void remove(@Nonnull final EventSubscription<T> subscription) {
+        mSubscriptions.remove(subscription);
+    }
+
+    boolean execute(@Nonnull final Runnable task) {
+        return mTaskHandler.callback(task);
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import net.mm2d.log.Log;
+import net.mm2d.upnp.EventFlow;
+import net.mm2d.upnp.OverflowStrategy;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * EventPublisherの購読。
+ *
+ * <p>未配信のイベントをOverflowStrategyに従って保持し、要求数の範囲で配信する。
+ * 配信処理はドレインループとして実装し、同時に一つのスレッドでのみ実行されることで通知を直列化する。
+ * 配信処理の実行待ちは購読毎に最大一つのため、実行キューが際限なく伸びることはない。
+ *
+ * @param <T> イベントの型
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class EventSubscription<T> implements EventFlow.Subscription {
+    @Nonnull
+    private final EventPublisher<T> mPublisher;
+    @Nonnull
+    private final EventFlow.Subscriber<? super T> mSubscriber;
+    @Nonnull
+    private final OverflowStrategy mStrategy;
+    @Nonnull
+    private final ArrayDeque<T> mQueue = new ArrayDeque<>();
+    @Nonnull
+    private final Map<Object, T> mLatestMap = new LinkedHashMap<>();
+    @Nonnull
+    private final AtomicInteger mWip = new AtomicInteger();
+
+    private long mRequested;
+    private long mDroppedCount;
+    private boolean mStarted;
+    private boolean mCancelled;
+    private boolean mCompleted;
+    private boolean mTerminated;
+    @Nullable
+    private Throwable mError;
+
+    EventSubscription(
+            @Nonnull final EventPublisher<T> publisher,
+            @Nonnull final EventFlow.Subscriber<? super T> subscriber,
+            @Nonnull final OverflowStrategy strategy) {
+        mPublisher = publisher;
+        mSubscriber = subscriber;
+        mStrategy = strategy;
+    }
+
+    /**
+     * onSubscribeを通知し、配信を開始する。
+     *
+     * <p>onSubscribeの実行中に要求があっても、onSubscribeが終了するまで配信は行わない。
+     */
+    void start() {
+        try {
+            mSubscriber.onSubscribe(this);
+        } catch (final RuntimeException e) {
+            Log.w(e);
+            cancel();
+            return;
+        }
+        synchronized (this) {
+            mStarted = true;
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * イベントを追加する。
+     *
+     * @param item イベント
+     * @param key  LATEST_PER_KEYで使用するキー
+     */
+    synchronized void offer(
+            @Nonnull final T item,
+            @Nonnull final Object key) {
+        if (mCancelled || mCompleted) {
+            return;
+        }
+        switch (mStrategy.getType()) {
+            case BUFFER:
+                if (mQueue.size() >= mStrategy.getCapacity()) {
+                    mDroppedCount++;
+                    return;
+                }
+                mQueue.addLast(item);
+                break;
+            case DROP_OLDEST:
+                if (mQueue.size() >= mStrategy.getCapacity()) {
+                    mQueue.pollFirst();
+                    mDroppedCount++;
+                }
+                mQueue.addLast(item);
+                break;
+            case LATEST_PER_KEY:
+                if (mLatestMap.remove(key) != null) {
+                    mDroppedCount++;
+                }
+                mLatestMap.put(key, item);
+                break;
+            default:
+                break;
+        }
+        scheduleDrainLocked();
+    }
+
+    @Override
+    public void request(final long n) {
+        synchronized (this) {
+            if (mCancelled || mTerminated) {
+                return;
+            }
+            if (n <= 0) {
+                mError = new IllegalArgumentException("request must be positive: " + n);
+            } else {
+                mRequested = mRequested + n < 0 ? Long.MAX_VALUE : mRequested + n;
+            }
+        }
+        scheduleDrain();
+    }
+
+    @Override
+    public void cancel() {
+        synchronized (this) {
+            mCancelled = true;
+            clearLocked();
+        }
+        mPublisher.remove(this);
+    }
+
+    /**
+     * 発行元の終了を通知する。
+     *
+     * <p>未配信のイベントは破棄する。
+     */
+    void complete() {
+        synchronized (this) {
+            if (mCancelled || mCompleted) {
+                return;
+            }
+            mCompleted = true;
+            clearLocked();
+        }
+        // 終了処理ではコールバックスレッドが停止している可能性があるため、可能であればこのスレッドで配信する
+        if (mWip.getAndIncrement() == 0) {
+            drain();
+        }
+    }
+
+    /**
+     * 破棄したイベントの数を返す。
+     *
+     * @return 破棄したイベントの数
+     */
+    synchronized long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    private void clearLocked() {
+        mQueue.clear();
+        mLatestMap.clear();
+    }
+
+    private boolean isEmptyLocked() {
+        return mQueue.isEmpty() && mLatestMap.isEmpty();
+    }
+
+    @Nullable
+    private T pollLocked() {
+        if (!mQueue.isEmpty()) {
+            return mQueue.pollFirst();
+        }
+        final Iterator<T> iterator = mLatestMap.values().iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        final T item = iterator.next();
+        iterator.remove();
+        return item;
+    }
+
+    private void scheduleDrain() {
+        synchronized (this) {
+            scheduleDrainLocked();
+        }
+    }
+
+    private void scheduleDrainLocked() {
+        if (!mStarted) {
+            return;
+        }
+        if (mWip.getAndIncrement() == 0 && !mPublisher.execute(this::drain)) {
+            mWip.set(0);
+        }
+    }
+
+    // VisibleForTesting
+    void drain() {
+        int missed = 1;
+        while (true) {
+            drainOnce();
+            missed = mWip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private void drainOnce() {
+        while (true) {
+            T item = null;
+            Throwable error = null;
+            boolean complete = false;
+            synchronized (this) {
+                if (mCancelled || mTerminated) {
+                    return;
+                }
+                if (mError != null) {
+                    error = mError;
+                    mTerminated = true;
+                    clearLocked();
+                } else if (mCompleted && isEmptyLocked()) {
+                    complete = true;
+                    mTerminated = true;
+                } else if (mRequested > 0 && !isEmptyLocked()) {
+                    item = pollLocked();
+                    if (mRequested != Long.MAX_VALUE) {
+                        mRequested--;
+                    }
+                } else {
+                    return;
+                }
+            }
+            if (error != null) {
+                mPublisher.remove(this);
+                mSubscriber.onError(error);
+                return;
+            }
+            if (complete) {
+                mSubscriber.onComplete();
+                return;
+            }
+            if (item != null && !deliver(item)) {
+                return;
+            }
+        }
+    }
+
+    private boolean deliver(@Nonnull final T item) {
+        try {
+            mSubscriber.onNext(item);
+            return true;
+        } catch (final RuntimeException e) {
+            Log.w(e);
+            cancel();
+            return false;
+        }
+    }
+}
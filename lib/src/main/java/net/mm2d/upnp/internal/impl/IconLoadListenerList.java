@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import net.mm2d.upnp.ControlPoint.IconLoadListener;
+import net.mm2d.upnp.Device;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 複数のIconLoadListenerをまとめるためのクラス。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class IconLoadListenerList implements IconLoadListener {
+    @Nonnull
+    private final Set<IconLoadListener> mSet = new CopyOnWriteArraySet<>();
+
+    public void add(@Nonnull final IconLoadListener l) {
+        mSet.add(l);
+    }
+
+    public void remove(@Nonnull final IconLoadListener l) {
+        mSet.remove(l);
+    }
+
+    @Override
+    public void onIconLoaded(@Nonnull final Device device) {
+        for (final IconLoadListener l : mSet) {
+            l.onIconLoaded(device);
+        }
+    }
+}
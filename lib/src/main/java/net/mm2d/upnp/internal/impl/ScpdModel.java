@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import net.mm2d.log.Log;
+import net.mm2d.upnp.Argument;
+import net.mm2d.upnp.StateVariable;
+import net.mm2d.util.TextUtils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * SCPDから作成されるServiceの不変部分。
+ *
+ * <p>ActionのArgumentとStateVariable、Description XMLを保持する。
+ * 同一内容のSCPDから作成されたモデルは、Description XMLの内容をキーとして共有され、
+ * 同一機種のDeviceが多数存在する場合でもパース結果は一つだけ保持される。
+ * 制御URLや購読IDなどのDevice毎に異なる情報は{@link ServiceImpl}が保持する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public final class ScpdModel {
+    private static final ScpdModel EMPTY = new ScpdModel("", Collections.emptyMap(), Collections.emptyMap());
+    @Nonnull
+    private static final Map<String, WeakReference<ScpdModel>> sCache = new WeakHashMap<>();
+
+    /**
+     * 同一内容のDescription XMLから作成されたモデルを返す。
+     *
+     * @param description Description XML
+     * @return 共有されているモデル、存在しない場合null
+     */
+    @Nullable
+    public static ScpdModel find(@Nonnull final String description) {
+        synchronized (sCache) {
+            final WeakReference<ScpdModel> reference = sCache.get(description);
+            return reference == null ? null : reference.get();
+        }
+    }
+
+    /**
+     * ServiceのBuilderに登録された内容からモデルを作成し、共有する。
+     *
+     * <p>同一内容のDescription XMLから作成されたモデルが既に存在する場合はそちらを返す。
+     *
+     * @param builder パース結果が登録されたServiceのBuilder
+     * @return 共有されたモデル
+     * @throws IllegalStateException Argumentの関連StateVariableが存在しない場合
+     */
+    @Nonnull
+    public static ScpdModel intern(@Nonnull final ServiceImpl.Builder builder) throws IllegalStateException {
+        final String description = builder.getDescription();
+        if (description == null || description.isEmpty()) {
+            return create(builder);
+        }
+        final ScpdModel cached = find(description);
+        if (cached != null) {
+            return cached;
+        }
+        final ScpdModel model = create(builder);
+        synchronized (sCache) {
+            final WeakReference<ScpdModel> reference = sCache.get(description);
+            final ScpdModel racing = reference == null ? null : reference.get();
+            if (racing != null) {
+                return racing;
+            }
+            sCache.put(model.mDescription, new WeakReference<>(model));
+        }
+        return model;
+    }
+
+    /**
+     * ServiceのBuilderに登録された内容からモデルを作成する。
+     *
+     * <p>作成したモデルは共有されない。
+     *
+     * @param builder パース結果が登録されたServiceのBuilder
+     * @return モデル
+     * @throws IllegalStateException Argumentの関連StateVariableが存在しない場合
+     */
+    @Nonnull
+    static ScpdModel create(@Nonnull final ServiceImpl.Builder builder) throws IllegalStateException {
+        final List<StateVariable> variables = builder.getStateVariableList();
+        final List<ActionImpl.Builder> actionBuilders = builder.getActionBuilderList();
+        final String description = builder.getDescription();
+        if (variables.isEmpty() && actionBuilders.isEmpty() && TextUtils.isEmpty(description)) {
+            return EMPTY;
+        }
+        final Map<String, StateVariable> variableMap = buildStateVariableMap(variables);
+        return new ScpdModel(description != null ? description : "", variableMap,
+                buildArgumentMaps(builder.getServiceId(), variableMap, actionBuilders));
+    }
+
+    @Nonnull
+    private static Map<String, StateVariable> buildStateVariableMap(@Nonnull final List<StateVariable> list) {
+        if (list.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final Map<String, StateVariable> map = new LinkedHashMap<>(list.size());
+        for (final StateVariable variable : list) {
+            map.put(variable.getName(), variable);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    @Nonnull
+    private static Map<String, Map<String, Argument>> buildArgumentMaps(
+            @Nullable final String serviceId,
+            @Nonnull final Map<String, StateVariable> variableMap,
+            @Nonnull final List<ActionImpl.Builder> builderList) {
+        if (builderList.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final Map<String, Map<String, Argument>> map = new LinkedHashMap<>(builderList.size());
+        for (final ActionImpl.Builder actionBuilder : builderList) {
+            final String name = actionBuilder.getName();
+            if (name == null) {
+                throw new IllegalStateException("name must be set.");
+            }
+            for (final ArgumentImpl.Builder argumentBuilder : actionBuilder.getArgumentBuilderList()) {
+                resolveRelatedStateVariable(serviceId, variableMap, argumentBuilder);
+            }
+            map.put(name, ActionImpl.buildArgumentMap(actionBuilder.getArgumentBuilderList()));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static void resolveRelatedStateVariable(
+            @Nullable final String serviceId,
+            @Nonnull final Map<String, StateVariable> variableMap,
+            @Nonnull final ArgumentImpl.Builder argumentBuilder) {
+        final String name = argumentBuilder.getRelatedStateVariableName();
+        if (name == null) {
+            throw new IllegalStateException("relatedStateVariable name is null");
+        }
+        StateVariable variable = variableMap.get(name);
+        if (variable == null) {
+            // for AN-WLTU1
+            final String trimmedName = name.trim();
+            variable = variableMap.get(trimmedName);
+            if (variable == null) {
+                throw new IllegalStateException("There is no StateVariable " + name);
+            }
+            Log.w("Invalid description. relatedStateVariable name has unnecessary blanks ["
+                    + name + "] on " + serviceId);
+            argumentBuilder.setRelatedStateVariableName(trimmedName);
+        }
+        argumentBuilder.setRelatedStateVariable(variable);
+    }
+
+    @Nonnull
+    private final String mDescription;
+    @Nonnull
+    private final Map<String, StateVariable> mStateVariableMap;
+    @Nonnull
+    private final List<StateVariable> mStateVariableList;
+    @Nonnull
+    private final Map<String, Map<String, Argument>> mArgumentMaps;
+
+    private ScpdModel(
+            @Nonnull final String description,
+            @Nonnull final Map<String, StateVariable> stateVariableMap,
+            @Nonnull final Map<String, Map<String, Argument>> argumentMaps) {
+        mDescription = description;
+        mStateVariableMap = stateVariableMap;
+        mStateVariableList = Collections.unmodifiableList(new ArrayList<>(stateVariableMap.values()));
+        mArgumentMaps = argumentMaps;
+    }
+
+    /**
+     * Description XMLを返す。
+     *
+     * @return Description XML
+     */
+    @Nonnull
+    String getDescription() {
+        return mDescription;
+    }
+
+    /**
+     * StateVariableのマップを返す。
+     *
+     * @return StateVariable名をキーとした変更不可のマップ
+     */
+    @Nonnull
+    Map<String, StateVariable> getStateVariableMap() {
+        return mStateVariableMap;
+    }
+
+    /**
+     * StateVariableのリストを返す。
+     *
+     * @return 変更不可のStateVariableのリスト
+     */
+    @Nonnull
+    List<StateVariable> getStateVariableList() {
+        return mStateVariableList;
+    }
+
+    /**
+     * Action毎のArgumentのマップを返す。
+     *
+     * @return Action名をキーとし、Argument名をキーとしたArgumentのマップを値とする変更不可のマップ
+     */
+    @Nonnull
+    Map<String, Map<String, Argument>> getArgumentMaps() {
+        return mArgumentMaps;
+    }
+}
@@ -9,17 +9,22 @@ package net.mm2d.upnp.internal.impl;
 
 import net.mm2d.log.Log;
 import net.mm2d.upnp.Action;
+import net.mm2d.upnp.Argument;
 import net.mm2d.upnp.Device;
 import net.mm2d.upnp.Http;
 import net.mm2d.upnp.HttpClient;
 import net.mm2d.upnp.Service;
 import net.mm2d.upnp.StateVariable;
 import net.mm2d.upnp.internal.manager.SubscribeManager;
+import net.mm2d.upnp.internal.message.CacheValidator;
 import net.mm2d.upnp.internal.message.HttpRequest;
 import net.mm2d.upnp.internal.message.HttpResponse;
+import net.mm2d.upnp.internal.parser.ServiceParser;
 import net.mm2d.util.NetworkUtils;
 import net.mm2d.util.TextUtils;
 
+import org.xml.sax.SAXException;
+
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.MalformedURLException;
@@ -29,10 +34,14 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.xml.parsers.ParserConfigurationException;
 
 /**
  * Serviceの実装
@@ -52,6 +61,10 @@ public class ServiceImpl implements Service {
         private String mControlUrl;
         private String mEventSubUrl;
         private String mDescription;
+        private boolean mLazyLoad;
+        private ScpdModel mScpdModel;
+        @Nullable
+        private CacheValidator mCacheValidator;
         @Nonnull
         private final List<ActionImpl.Builder> mActionBuilderList = new ArrayList<>();
         @Nonnull
@@ -128,6 +141,11 @@ public class ServiceImpl implements Service {
             return mScpdUrl;
         }
 
+        @Nullable
+        public String getServiceId() {
+            return mServiceId;
+        }
+
         /**
          * controlURLを登録する。
          *
@@ -164,6 +182,52 @@ public class ServiceImpl implements Service {
             return this;
         }
 
+        @Nullable
+        public String getDescription() {
+            return mDescription;
+        }
+
+        /**
+         * 共有されたSCPDのモデルを登録する。
+         *
+         * <p>登録された場合、Description XMLやAction/StateVariableのBuilderは使用されない。
+         *
+         * @param model SCPDのモデル
+         * @return Builder
+         * @see ScpdModel#intern(Builder)
+         */
+        @Nonnull
+        public Builder setScpdModel(@Nonnull final ScpdModel model) {
+            mScpdModel = model;
+            return this;
+        }
+
+        /**
+         * Description XMLの再取得時に使用する検証子を登録する。
+         *
+         * @param validator 検証子
+         * @return Builder
+         */
+        @Nonnull
+        public Builder setCacheValidator(@Nullable final CacheValidator validator) {
+            mCacheValidator = validator;
+            return this;
+        }
+
+        /**
+         * Description XMLの読み込みを遅延させるか否かを設定する。
+         *
+         * <p>trueを設定した場合、Description XMLはAction/StateVariableへの初回アクセス時に読み込まれる。
+         *
+         * @param lazyLoad 遅延させる場合true
+         * @return Builder
+         */
+        @Nonnull
+        public Builder setLazyLoad(final boolean lazyLoad) {
+            mLazyLoad = lazyLoad;
+            return this;
+        }
+
         /**
          * ActionのBuilderを登録する。
          *
@@ -176,6 +240,23 @@ public class ServiceImpl implements Service {
             return this;
         }
 
+        /**
+         * 複数のServiceで共通の値となりやすい文字列を同一のインスタンスに置き換える。
+         */
+        void internStrings() {
+            if (mServiceType != null) {
+                mServiceType = StringInterner.intern(mServiceType);
+            }
+            if (mServiceId != null) {
+                mServiceId = StringInterner.intern(mServiceId);
+            }
+        }
+
+        @Nonnull
+        List<ActionImpl.Builder> getActionBuilderList() {
+            return mActionBuilderList;
+        }
+
         /**
          * StateVariableのBuilderを登録する。
          *
@@ -189,6 +270,16 @@ public class ServiceImpl implements Service {
             return this;
         }
 
+        @Nonnull
+        List<StateVariable> getStateVariableList() {
+            return mStateVariables;
+        }
+
+        @Nonnull
+        ScpdModel getScpdModel() throws IllegalStateException {
+            return mScpdModel != null ? mScpdModel : ScpdModel.create(this);
+        }
+
         /**
          * Serviceのインスタンスを作成する。
          *
@@ -238,8 +329,6 @@ public class ServiceImpl implements Service {
     @Nonnull
     private final Device mDevice;
     @Nonnull
-    private final String mDescription;
-    @Nonnull
     private final String mServiceType;
     @Nonnull
     private final String mServiceId;
@@ -252,11 +341,14 @@ public class ServiceImpl implements Service {
     @Nullable
     private List<Action> mActionList;
     @Nonnull
-    private final Map<String, Action> mActionMap;
-    @Nullable
-    private List<StateVariable> mStateVariableList;
+    private volatile Map<String, Action> mActionMap;
+    @Nonnull
+    private volatile ScpdModel mScpdModel;
     @Nonnull
-    private final Map<String, StateVariable> mStateVariableMap;
+    private final AtomicReference<FutureTask<Boolean>> mLoadTask = new AtomicReference<>();
+    private volatile boolean mDescriptionLoaded;
+    @Nullable
+    private volatile CacheValidator mCacheValidator;
     @Nullable
     private String mSubscriptionId;
 
@@ -268,56 +360,90 @@ public class ServiceImpl implements Service {
         mScpdUrl = builder.mScpdUrl;
         mControlUrl = builder.mControlUrl;
         mEventSubUrl = builder.mEventSubUrl;
-        mDescription = builder.mDescription != null ? builder.mDescription : "";
-        mStateVariableMap = buildStateVariableMap(builder.mStateVariables);
-        mActionMap = buildActionMap(this, mStateVariableMap, builder.mActionBuilderList);
+        mScpdModel = builder.getScpdModel();
+        mActionMap = buildActionMap(this, mScpdModel);
+        mDescriptionLoaded = !builder.mLazyLoad;
+        mCacheValidator = builder.mCacheValidator;
     }
 
-    @Nonnull
-    private static Map<String, StateVariable> buildStateVariableMap(@Nonnull final List<StateVariable> list) {
-        if (list.isEmpty()) {
-            return Collections.emptyMap();
+    /**
+     * Description XMLが読み込み済みか否かを返す。
+     *
+     * @return 読み込み済みであればtrue
+     */
+    public boolean isDescriptionLoaded() {
+        return mDescriptionLoaded;
+    }
+
+    /**
+     * Description XMLが未読み込みであれば読み込む。
+     *
+     * <p>複数スレッドから同時に呼び出された場合も読み込みは一度だけ行い、
+     * 後続の呼び出し元はその結果を待ち合わせる。
+     * 読み込みに失敗した場合は次回の呼び出し時に再度読み込みを行う。
+     * 通信を伴うため、コールバックスレッドからはコールしないこと。
+     *
+     * @return 読み込み済みであればtrue
+     */
+    public boolean loadDescriptionIfNeeded() {
+        if (mDescriptionLoaded) {
+            return true;
+        }
+        final FutureTask<Boolean> task = new FutureTask<>(this::loadDescription);
+        if (mLoadTask.compareAndSet(null, task)) {
+            task.run();
+            if (!mDescriptionLoaded) {
+                mLoadTask.compareAndSet(task, null);
+            }
+            return mDescriptionLoaded;
+        }
+        final FutureTask<Boolean> runningTask = mLoadTask.get();
+        if (runningTask == null) {
+            return mDescriptionLoaded;
+        }
+        try {
+            return runningTask.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            Log.w(e);
         }
-        final Map<String, StateVariable> map = new LinkedHashMap<>(list.size());
-        for (final StateVariable variable : list) {
-            map.put(variable.getName(), variable);
+        return false;
+    }
+
+    // VisibleForTesting
+    boolean loadDescription() {
+        final HttpClient client = createHttpClient();
+        try {
+            final Builder builder = new Builder();
+            ServiceParser.loadDescription(client, makeAbsoluteUrl(mScpdUrl), builder);
+            final ScpdModel model = builder.getScpdModel();
+            mActionMap = buildActionMap(this, model);
+            mScpdModel = model;
+            mCacheValidator = builder.mCacheValidator;
+            mDescriptionLoaded = true;
+            return true;
+        } catch (final IOException | SAXException | ParserConfigurationException | RuntimeException e) {
+            Log.w(null, "fail to load:" + mScpdUrl, e);
+        } finally {
+            client.close();
         }
-        return map;
+        return false;
     }
 
     @Nonnull
     private static Map<String, Action> buildActionMap(
             @Nonnull final Service service,
-            @Nonnull final Map<String, StateVariable> variableMap,
-            @Nonnull final List<ActionImpl.Builder> builderList) {
-        if (builderList.isEmpty()) {
+            @Nonnull final ScpdModel model) {
+        final Map<String, Map<String, Argument>> argumentMaps = model.getArgumentMaps();
+        if (argumentMaps.isEmpty()) {
             return Collections.emptyMap();
         }
-        final Map<String, Action> mActionMap = new LinkedHashMap<>(builderList.size());
-        for (final ActionImpl.Builder actionBuilder : builderList) {
-            for (final ArgumentImpl.Builder argumentBuilder : actionBuilder.getArgumentBuilderList()) {
-                final String name = argumentBuilder.getRelatedStateVariableName();
-                if (name == null) {
-                    throw new IllegalStateException("relatedStateVariable name is null");
-                }
-                StateVariable variable = variableMap.get(name);
-                if (variable == null) {
-                    // for AN-WLTU1
-                    final String trimmedName = name.trim();
-                    variable = variableMap.get(trimmedName);
-                    if (variable == null) {
-                        throw new IllegalStateException("There is no StateVariable " + name);
-                    }
-                    Log.w("Invalid description. relatedStateVariable name has unnecessary blanks ["
-                            + name + "] on " + service.getServiceId());
-                    argumentBuilder.setRelatedStateVariableName(trimmedName);
-                }
-                argumentBuilder.setRelatedStateVariable(variable);
-            }
-            final Action action = actionBuilder.setService(service).build();
-            mActionMap.put(action.getName(), action);
+        final Map<String, Action> actionMap = new LinkedHashMap<>(argumentMaps.size());
+        for (final Map.Entry<String, Map<String, Argument>> entry : argumentMaps.entrySet()) {
+            actionMap.put(entry.getKey(), new ActionImpl(service, entry.getKey(), entry.getValue()));
         }
-        return mActionMap;
+        return actionMap;
     }
 
     @Override
@@ -365,12 +491,16 @@ public class ServiceImpl implements Service {
     @Override
     @Nonnull
     public String getDescription() {
-        return mDescription;
+        loadDescriptionIfNeeded();
+        return mScpdModel.getDescription();
     }
 
     @Override
     @Nonnull
     public List<Action> getActionList() {
+        if (!loadDescriptionIfNeeded()) {
+            return Collections.emptyList();
+        }
         if (mActionList == null) {
             final List<Action> list = new ArrayList<>(mActionMap.values());
             mActionList = Collections.unmodifiableList(list);
@@ -381,23 +511,24 @@ public class ServiceImpl implements Service {
     @Override
     @Nullable
     public Action findAction(@Nonnull final String name) {
+        loadDescriptionIfNeeded();
         return mActionMap.get(name);
     }
 
     @Override
     @Nonnull
     public List<StateVariable> getStateVariableList() {
-        if (mStateVariableList == null) {
-            final List<StateVariable> list = new ArrayList<>(mStateVariableMap.values());
-            mStateVariableList = Collections.unmodifiableList(list);
+        if (!loadDescriptionIfNeeded()) {
+            return Collections.emptyList();
         }
-        return mStateVariableList;
+        return mScpdModel.getStateVariableList();
     }
 
     @Override
     @Nullable
     public StateVariable findStateVariable(@Nullable final String name) {
-        return mStateVariableMap.get(name);
+        loadDescriptionIfNeeded();
+        return mScpdModel.getStateVariableMap().get(name);
     }
 
     // VisibleForTesting
@@ -438,7 +569,7 @@ public class ServiceImpl implements Service {
     // VisibleForTesting
     @Nonnull
     HttpClient createHttpClient() {
-        return new HttpClient(false);
+        return ControlPointImpl.createHttpClient(mDevice.getControlPoint(), false);
     }
 
     @Override
@@ -559,6 +690,60 @@ public class ServiceImpl implements Service {
         return mSubscriptionId;
     }
 
+    /**
+     * 読み込み済みのDescription XMLを返す。
+     *
+     * <p>{@link #getDescription()}と異なり、未読み込みの場合に読み込みは行わない。
+     *
+     * @return Description XML、未読み込みの場合null
+     */
+    @Nullable
+    public String getLoadedDescription() {
+        return mDescriptionLoaded ? mScpdModel.getDescription() : null;
+    }
+
+    /**
+     * Description XMLの取得時のレスポンスに含まれていた検証子を返す。
+     *
+     * @return 検証子、未読み込みの場合やレスポンスに含まれていなかった場合null
+     */
+    @Nullable
+    public CacheValidator getCacheValidator() {
+        return mDescriptionLoaded ? mCacheValidator : null;
+    }
+
+    /**
+     * 読み込み済みのDescription XMLとそのパース結果をBuilderに引き継ぐ。
+     *
+     * <p>Description XMLの再取得で変更がなかった場合に、パースを行わずにServiceを再構築するために使用する。
+     *
+     * @param builder 引き継ぎ先のBuilder
+     * @return 引き継いだ場合true、未読み込みの場合false
+     */
+    public boolean copyLoadedDescription(@Nonnull final Builder builder) {
+        if (!mDescriptionLoaded) {
+            return false;
+        }
+        final ScpdModel model = mScpdModel;
+        builder.setDescription(model.getDescription());
+        builder.setScpdModel(model);
+        builder.setCacheValidator(mCacheValidator);
+        return true;
+    }
+
+    /**
+     * 保存した状態から復元したSubscriptionIDを設定する。
+     *
+     * <p>購読リストへの登録は行わない。
+     * 以前のプロセスとはイベントの受信ポートが異なるため、
+     * {@link #unsubscribe()}で破棄した上で改めて購読するために使用する。
+     *
+     * @param subscriptionId SubscriptionID、破棄する場合null
+     */
+    void restoreSubscriptionId(@Nullable final String subscriptionId) {
+        mSubscriptionId = subscriptionId;
+    }
+
     @Override
     public int hashCode() {
         return mDevice.hashCode() + mServiceId.hashCode();
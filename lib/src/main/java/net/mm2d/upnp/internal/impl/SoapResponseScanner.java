@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * SOAP応答のバイト列からAction応答の引数の位置を取り出す。
+ *
+ * <p>DOMを構築せず、タグの境界のみを走査する。
+ * Body要素直下の応答要素について、その子要素の名前と内容の範囲を返す。
+ * 内容のテキストへの展開は{@link XmlTextReader}で行う。
+ *
+ * <p>タグの構造はASCIIの範囲で判定できるため、UTF-8のバイト列をデコードせずに走査する。
+ * 整形式であることの検証は応答要素の終了までしか行わない。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class SoapResponseScanner {
+    private static final String CHARSET = "UTF-8";
+    private static final int START_TAG = 0;
+    private static final int END_TAG = 1;
+    private static final int EMPTY_TAG = 2;
+
+    /**
+     * 引数一つ分の位置情報。
+     */
+    static class Range {
+        @Nonnull
+        final String mName;
+        final int mStart;
+        final int mEnd;
+
+        Range(
+                @Nonnull final String name,
+                final int start,
+                final int end) {
+            mName = name;
+            mStart = start;
+            mEnd = end;
+        }
+    }
+
+    @Nonnull
+    private final byte[] mXml;
+    private int mPosition;
+    private int mType;
+    private int mTagStart;
+    private String mLocalName;
+
+    SoapResponseScanner(@Nonnull final byte[] xml) {
+        mXml = xml;
+    }
+
+    /**
+     * 応答要素の子要素を列挙する。
+     *
+     * @param responseTag 応答要素のローカル名
+     * @return 子要素の位置情報、出現順
+     * @throws IOException 応答要素が見つからない、形式に問題がある場合
+     */
+    @Nonnull
+    List<Range> scan(@Nonnull final String responseTag) throws IOException {
+        if (!nextTag() || mType != START_TAG) {
+            throw new IOException("no envelope tag");
+        }
+        if (!findChild("Body") || mType != START_TAG) {
+            throw new IOException("no body tag");
+        }
+        if (!findChild(responseTag)) {
+            throw new IOException("no response tag");
+        }
+        final List<Range> result = new ArrayList<>();
+        if (mType == EMPTY_TAG) {
+            return result;
+        }
+        while (nextTag()) {
+            if (mType == END_TAG) {
+                return result;
+            }
+            final String name = mLocalName;
+            final int start = mPosition;
+            if (mType == EMPTY_TAG) {
+                result.add(new Range(name, start, start));
+                continue;
+            }
+            result.add(new Range(name, start, skipElement()));
+        }
+        throw new IOException("unexpected end of document");
+    }
+
+    /**
+     * 直前に読んだ開始タグの子要素から指定したローカル名の要素を探す。
+     *
+     * <p>見つかった場合、その開始タグ又は空要素タグの直後に位置する。
+     *
+     * @param localName ローカル名
+     * @return 見つかった場合true
+     * @throws IOException 形式に問題がある場合
+     */
+    private boolean findChild(@Nonnull final String localName) throws IOException {
+        int depth = 0;
+        while (nextTag()) {
+            switch (mType) {
+                case START_TAG:
+                    if (depth == 0 && localName.equals(mLocalName)) {
+                        return true;
+                    }
+                    depth++;
+                    break;
+                case EMPTY_TAG:
+                    if (depth == 0 && localName.equals(mLocalName)) {
+                        return true;
+                    }
+                    break;
+                default:
+                    if (depth == 0) {
+                        return false;
+                    }
+                    depth--;
+                    break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 直前に読んだ開始タグに対応する終了タグまで読み飛ばす。
+     *
+     * @return 終了タグの開始位置
+     * @throws IOException 終了タグが見つからない場合
+     */
+    private int skipElement() throws IOException {
+        int depth = 0;
+        while (nextTag()) {
+            if (mType == START_TAG) {
+                depth++;
+            } else if (mType == END_TAG) {
+                if (depth == 0) {
+                    return mTagStart;
+                }
+                depth--;
+            }
+        }
+        throw new IOException("unexpected end of document");
+    }
+
+    /**
+     * 次のタグまで読み進める。
+     *
+     * <p>処理命令、コメント、CDATAセクション、DOCTYPE宣言は読み飛ばす。
+     *
+     * @return タグがあった場合true、文書の終わりに達した場合false
+     * @throws IOException 形式に問題がある場合
+     */
+    private boolean nextTag() throws IOException {
+        while (true) {
+            final int lt = indexOf('<', mPosition);
+            if (lt < 0) {
+                mPosition = mXml.length;
+                return false;
+            }
+            if (startsWith(lt + 1, "?")) {
+                mPosition = skipPast(lt + 2, "?>");
+                continue;
+            }
+            if (startsWith(lt + 1, "!--")) {
+                mPosition = skipPast(lt + 4, "-->");
+                continue;
+            }
+            if (startsWith(lt + 1, "![CDATA[")) {
+                mPosition = skipPast(lt + 9, "]]>");
+                continue;
+            }
+            if (startsWith(lt + 1, "!")) {
+                mPosition = skipPast(lt + 2, ">");
+                continue;
+            }
+            readTag(lt);
+            return true;
+        }
+    }
+
+    private void readTag(final int lt) throws IOException {
+        int i = lt + 1;
+        final boolean endTag = i < mXml.length && mXml[i] == '/';
+        if (endTag) {
+            i++;
+        }
+        final int nameStart = i;
+        while (i < mXml.length && !isNameEnd(mXml[i])) {
+            i++;
+        }
+        if (i == nameStart) {
+            throw new IOException("illegal tag at " + lt);
+        }
+        mLocalName = toLocalName(nameStart, i);
+        byte quote = 0;
+        for (; i < mXml.length; i++) {
+            final byte c = mXml[i];
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                break;
+            }
+        }
+        if (i >= mXml.length) {
+            throw new IOException("unterminated tag at " + lt);
+        }
+        mTagStart = lt;
+        mPosition = i + 1;
+        if (endTag) {
+            mType = END_TAG;
+        } else {
+            mType = mXml[i - 1] == '/' ? EMPTY_TAG : START_TAG;
+        }
+    }
+
+    @Nonnull
+    private String toLocalName(
+            final int start,
+            final int end) throws UnsupportedEncodingException {
+        int colon = start;
+        for (int i = start; i < end; i++) {
+            if (mXml[i] == ':') {
+                colon = i + 1;
+            }
+        }
+        return new String(mXml, colon, end - colon, CHARSET);
+    }
+
+    private static boolean isNameEnd(final byte c) {
+        return c == '/' || c == '>' || c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private int indexOf(
+            final char c,
+            final int from) {
+        for (int i = from; i < mXml.length; i++) {
+            if (mXml[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean startsWith(
+            final int offset,
+            @Nonnull final String prefix) {
+        if (offset + prefix.length() > mXml.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (mXml[offset + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int skipPast(
+            final int from,
+            @Nonnull final String terminator) throws IOException {
+        for (int i = from; i + terminator.length() <= mXml.length; i++) {
+            if (startsWith(i, terminator)) {
+                return i + terminator.length();
+            }
+        }
+        throw new IOException("unterminated markup at " + from);
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * ControlPointの状態を保存・復元するためのスナップショット。
+ *
+ * <p>形式はマジックナンバーとバージョンに続き、Deflateで圧縮した本体で構成される。
+ * 本体はDataOutputStreamで書き込み、文字列は長さ付きのUTF-8、nullは長さ-1で表現する。
+ * バージョンが異なる場合は読み込みを行わない。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class StateSnapshot {
+    private static final int MAGIC = 0x4d4d5550; // "MMUP"
+    private static final int VERSION = 1;
+    private static final int MAX_LENGTH = 16 * 1024 * 1024;
+
+    // SSDPメッセージの種別
+    static final int KIND_NOTIFY = 0;
+    static final int KIND_RESPONSE = 1;
+    static final int KIND_PINNED = 2;
+
+    /**
+     * ルートDevice一つ分の情報。
+     */
+    static class DeviceRecord {
+        int mKind;
+        @Nullable
+        byte[] mLocalAddress;
+        int mScopeId;
+        long mExpireTime;
+        @Nullable
+        byte[] mMessage;
+        @Nullable
+        String mLocation;
+        @Nonnull
+        String mDescription = "";
+        /**
+         * ルートDeviceから深さ優先で列挙したServiceのDescription、未読み込みのServiceはnull
+         */
+        @Nonnull
+        final List<String> mServiceDescriptions = new ArrayList<>();
+
+        @Nullable
+        InetAddress getLocalAddress() throws IOException {
+            if (mLocalAddress == null) {
+                return null;
+            }
+            if (mLocalAddress.length == 16 && mScopeId != 0) {
+                return Inet6Address.getByAddress(null, mLocalAddress, mScopeId);
+            }
+            return InetAddress.getByAddress(mLocalAddress);
+        }
+
+        void setLocalAddress(@Nullable final InetAddress address) {
+            if (address == null) {
+                mLocalAddress = null;
+                mScopeId = 0;
+                return;
+            }
+            mLocalAddress = address.getAddress();
+            mScopeId = address instanceof Inet6Address ? ((Inet6Address) address).getScopeId() : 0;
+        }
+    }
+
+    /**
+     * 購読一つ分の情報。
+     */
+    static class SubscriptionRecord {
+        @Nonnull
+        String mUdn = "";
+        @Nonnull
+        String mServiceId = "";
+        @Nonnull
+        String mSubscriptionId = "";
+        long mExpiryTime;
+        boolean mKeepRenew;
+    }
+
+    @Nonnull
+    final List<DeviceRecord> mDevices = new ArrayList<>();
+    @Nonnull
+    final List<String> mPinnedLocations = new ArrayList<>();
+    @Nonnull
+    final List<SubscriptionRecord> mSubscriptions = new ArrayList<>();
+
+    /**
+     * 書き出す。
+     *
+     * <p>OutputStreamはcloseしない。
+     *
+     * @param os 出力先
+     * @throws IOException 入出力エラー
+     */
+    void write(@Nonnull final OutputStream os) throws IOException {
+        final DataOutputStream header = new DataOutputStream(os);
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        header.flush();
+        final DeflaterOutputStream deflater = new DeflaterOutputStream(os);
+        final DataOutputStream out = new DataOutputStream(deflater);
+        out.writeInt(mDevices.size());
+        for (final DeviceRecord record : mDevices) {
+            writeDevice(out, record);
+        }
+        out.writeInt(mPinnedLocations.size());
+        for (final String location : mPinnedLocations) {
+            writeString(out, location);
+        }
+        out.writeInt(mSubscriptions.size());
+        for (final SubscriptionRecord record : mSubscriptions) {
+            writeString(out, record.mUdn);
+            writeString(out, record.mServiceId);
+            writeString(out, record.mSubscriptionId);
+            out.writeLong(record.mExpiryTime);
+            out.writeBoolean(record.mKeepRenew);
+        }
+        out.flush();
+        deflater.finish();
+        os.flush();
+    }
+
+    private static void writeDevice(
+            @Nonnull final DataOutputStream out,
+            @Nonnull final DeviceRecord record) throws IOException {
+        out.writeByte(record.mKind);
+        writeBytes(out, record.mLocalAddress);
+        out.writeInt(record.mScopeId);
+        out.writeLong(record.mExpireTime);
+        if (record.mKind == KIND_PINNED) {
+            writeString(out, record.mLocation);
+        } else {
+            writeBytes(out, record.mMessage);
+        }
+        writeString(out, record.mDescription);
+        out.writeInt(record.mServiceDescriptions.size());
+        for (final String description : record.mServiceDescriptions) {
+            writeString(out, description);
+        }
+    }
+
+    /**
+     * 読み込む。
+     *
+     * <p>InputStreamはcloseしない。
+     *
+     * @param is 入力元
+     * @return 読み込んだスナップショット
+     * @throws IOException 入出力エラー、形式が不正な場合
+     */
+    @Nonnull
+    static StateSnapshot read(@Nonnull final InputStream is) throws IOException {
+        final DataInputStream header = new DataInputStream(is);
+        if (header.readInt() != MAGIC) {
+            throw new IOException("illegal format");
+        }
+        final int version = header.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported version: " + version);
+        }
+        final DataInputStream in = new DataInputStream(new InflaterInputStream(is));
+        final StateSnapshot snapshot = new StateSnapshot();
+        final int deviceCount = readCount(in);
+        for (int i = 0; i < deviceCount; i++) {
+            snapshot.mDevices.add(readDevice(in));
+        }
+        final int pinnedCount = readCount(in);
+        for (int i = 0; i < pinnedCount; i++) {
+            snapshot.mPinnedLocations.add(readNonnullString(in));
+        }
+        final int subscriptionCount = readCount(in);
+        for (int i = 0; i < subscriptionCount; i++) {
+            final SubscriptionRecord record = new SubscriptionRecord();
+            record.mUdn = readNonnullString(in);
+            record.mServiceId = readNonnullString(in);
+            record.mSubscriptionId = readNonnullString(in);
+            record.mExpiryTime = in.readLong();
+            record.mKeepRenew = in.readBoolean();
+            snapshot.mSubscriptions.add(record);
+        }
+        return snapshot;
+    }
+
+    @Nonnull
+    private static DeviceRecord readDevice(@Nonnull final DataInputStream in) throws IOException {
+        final DeviceRecord record = new DeviceRecord();
+        record.mKind = in.readByte();
+        if (record.mKind < KIND_NOTIFY || record.mKind > KIND_PINNED) {
+            throw new IOException("illegal message kind: " + record.mKind);
+        }
+        record.mLocalAddress = readBytes(in);
+        record.mScopeId = in.readInt();
+        record.mExpireTime = in.readLong();
+        if (record.mKind == KIND_PINNED) {
+            record.mLocation = readNonnullString(in);
+        } else {
+            record.mMessage = readBytes(in);
+            if (record.mMessage == null) {
+                throw new IOException("message is null");
+            }
+        }
+        record.mDescription = readNonnullString(in);
+        final int serviceCount = readCount(in);
+        for (int i = 0; i < serviceCount; i++) {
+            record.mServiceDescriptions.add(readString(in));
+        }
+        return record;
+    }
+
+    private static int readCount(@Nonnull final DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        if (count < 0 || count > MAX_LENGTH) {
+            throw new IOException("illegal count: " + count);
+        }
+        return count;
+    }
+
+    private static void writeBytes(
+            @Nonnull final DataOutputStream out,
+            @Nullable final byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Nullable
+    private static byte[] readBytes(@Nonnull final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > MAX_LENGTH) {
+            throw new IOException("too large: " + length);
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeString(
+            @Nonnull final DataOutputStream out,
+            @Nullable final String string) throws IOException {
+        writeBytes(out, string == null ? null : string.getBytes("UTF-8"));
+    }
+
+    @Nullable
+    private static String readString(@Nonnull final DataInputStream in) throws IOException {
+        final byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, "UTF-8");
+    }
+
+    @Nonnull
+    private static String readNonnullString(@Nonnull final DataInputStream in) throws IOException {
+        final String string = readString(in);
+        if (string == null) {
+            throw new IOException("unexpected null");
+        }
+        return string;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 同一内容の文字列を同一のインスタンスに置き換える。
+ *
+ * <p>{@link String#intern()}と異なり、弱参照で保持するため参照がなくなれば解放される。
+ * また、保持数に上限を設け、上限に達した場合は置き換えを行わずにそのまま返す。
+ * デバイスから受け取った任意の文字列によってメモリが消費され続けることを防ぐ。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class StringInterner {
+    // VisibleForTesting
+    static final int MAX_SIZE = 1024;
+    private static final Map<String, WeakReference<String>> sMap = new WeakHashMap<>();
+
+    /**
+     * 同一内容の文字列が保持されていればそれを返し、なければ保持してから引数をそのまま返す。
+     *
+     * @param string 文字列
+     * @return 同一内容の文字列
+     */
+    @Nonnull
+    static String intern(@Nonnull final String string) {
+        synchronized (sMap) {
+            final WeakReference<String> reference = sMap.get(string);
+            final String cached = reference == null ? null : reference.get();
+            if (cached != null) {
+                return cached;
+            }
+            if (sMap.size() < MAX_SIZE) {
+                sMap.put(string, new WeakReference<>(string));
+            }
+            return string;
+        }
+    }
+
+    // VisibleForTesting
+    static int size() {
+        synchronized (sMap) {
+            return sMap.size();
+        }
+    }
+
+    // インスタンス化禁止
+    private StringInterner() {
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import net.mm2d.util.TextUtils;
+
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Device Descriptionのタグの値を保持する。
+ *
+ * <p>namespace、タグ名、値の三つ組を一つの配列に格納し、線形探索で値を取得する。
+ * Device Descriptionのタグ数は少ないため、Mapを入れ子にするよりメモリ効率が良い。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+final class TagMap {
+    private static final int STRIDE = 3;
+    private static final int NAMESPACE = 0;
+    private static final int TAG = 1;
+    private static final int VALUE = 2;
+    @Nonnull
+    private final String[] mEntries;
+
+    /**
+     * インスタンス作成。
+     *
+     * <p>namespaceの登録順を維持するため、引数のMapは登録順を維持している必要がある。
+     *
+     * @param map namespaceをキーとし、タグ名をキー、値を値とするMapを値とするMap
+     */
+    TagMap(@Nonnull final Map<String, Map<String, String>> map) {
+        int size = 0;
+        for (final Map<String, String> tags : map.values()) {
+            size += tags.size();
+        }
+        mEntries = new String[size * STRIDE];
+        int i = 0;
+        for (final Entry<String, Map<String, String>> namespaceEntry : map.entrySet()) {
+            for (final Entry<String, String> entry : namespaceEntry.getValue().entrySet()) {
+                mEntries[i + NAMESPACE] = namespaceEntry.getKey();
+                mEntries[i + TAG] = entry.getKey();
+                mEntries[i + VALUE] = entry.getValue();
+                i += STRIDE;
+            }
+        }
+    }
+
+    /**
+     * タグの値を返す。
+     *
+     * <p>複数のnamespaceに同一名のタグが存在する場合、先に登録されたnamespaceの値を返す。
+     *
+     * @param tag タグ名
+     * @return タグの値、存在しない場合null
+     */
+    @Nullable
+    String get(@Nonnull final String tag) {
+        for (int i = 0; i < mEntries.length; i += STRIDE) {
+            if (tag.equals(mEntries[i + TAG])) {
+                return mEntries[i + VALUE];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * namespaceを指定してタグの値を返す。
+     *
+     * @param namespace namespace uri
+     * @param tag       タグ名
+     * @return タグの値、存在しない場合null
+     */
+    @Nullable
+    String get(
+            @Nonnull final String namespace,
+            @Nonnull final String tag) {
+        for (int i = 0; i < mEntries.length; i += STRIDE) {
+            if (tag.equals(mEntries[i + TAG]) && TextUtils.equals(namespace, mEntries[i + NAMESPACE])) {
+                return mEntries[i + VALUE];
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * XML要素の内容となるバイト列からテキストを読み出すReader。
+ *
+ * <p>DOMのgetTextContent()と同様に、子孫要素を含むテキストとCDATAセクションの内容を連結したものを返す。
+ * 文字参照及び定義済み実体参照は展開し、改行はLFに正規化する。
+ * タグ、コメント、処理命令は読み飛ばす。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class XmlTextReader extends Reader {
+    private static final String CHARSET = "UTF-8";
+    private static final int MAX_REFERENCE_LENGTH = 10;
+    @Nonnull
+    private final BufferedReader mReader;
+    private boolean mInCdata;
+    private int mPending = -1;
+
+    /**
+     * インスタンス作成。
+     *
+     * @param xml    UTF-8のXML
+     * @param offset 内容の開始位置
+     * @param length 内容の長さ
+     */
+    XmlTextReader(
+            @Nonnull final byte[] xml,
+            final int offset,
+            final int length) {
+        try {
+            mReader = new BufferedReader(new InputStreamReader(
+                    new ByteArrayInputStream(xml, offset, length), CHARSET));
+        } catch (final UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * 全て読み出して文字列として返す。
+     *
+     * @return 読み出した文字列
+     * @throws IOException 形式に問題がある場合
+     */
+    @Nonnull
+    String readFully() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        final char[] buffer = new char[1024];
+        int size;
+        while ((size = read(buffer, 0, buffer.length)) >= 0) {
+            sb.append(buffer, 0, size);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public int read(
+            @Nonnull final char[] buffer,
+            final int offset,
+            final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int count = 0;
+        while (count < length) {
+            final int c = readChar();
+            if (c < 0) {
+                break;
+            }
+            buffer[offset + count] = (char) c;
+            count++;
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mReader.close();
+    }
+
+    private int readChar() throws IOException {
+        if (mPending >= 0) {
+            final int c = mPending;
+            mPending = -1;
+            return c;
+        }
+        while (true) {
+            final int c = mReader.read();
+            if (c < 0) {
+                if (mInCdata) {
+                    throw new IOException("unterminated CDATA section");
+                }
+                return -1;
+            }
+            if (c == '\r') {
+                mReader.mark(1);
+                if (mReader.read() != '\n') {
+                    mReader.reset();
+                }
+                return '\n';
+            }
+            if (mInCdata) {
+                if (c == ']' && consume("]>")) {
+                    mInCdata = false;
+                    continue;
+                }
+                return c;
+            }
+            if (c == '<') {
+                skipMarkup();
+                continue;
+            }
+            if (c == '&') {
+                return readReference();
+            }
+            return c;
+        }
+    }
+
+    private void skipMarkup() throws IOException {
+        if (consume("!--")) {
+            skipPast("-->");
+        } else if (consume("![CDATA[")) {
+            mInCdata = true;
+        } else if (consume("?")) {
+            skipPast("?>");
+        } else {
+            skipTag();
+        }
+    }
+
+    private void skipTag() throws IOException {
+        int quote = 0;
+        while (true) {
+            final int c = mReader.read();
+            if (c < 0) {
+                throw new IOException("unterminated tag");
+            }
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return;
+            }
+        }
+    }
+
+    private int readReference() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        while (true) {
+            final int c = mReader.read();
+            if (c < 0 || sb.length() > MAX_REFERENCE_LENGTH) {
+                throw new IOException("unterminated reference: &" + sb);
+            }
+            if (c == ';') {
+                break;
+            }
+            sb.append((char) c);
+        }
+        final String name = sb.toString();
+        switch (name) {
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            case "amp":
+                return '&';
+            case "quot":
+                return '"';
+            case "apos":
+                return '\'';
+            default:
+                break;
+        }
+        if (!name.startsWith("#")) {
+            throw new IOException("unknown reference: &" + name + ";");
+        }
+        final int codePoint;
+        try {
+            codePoint = name.startsWith("#x")
+                    ? Integer.parseInt(name.substring(2), 16)
+                    : Integer.parseInt(name.substring(1));
+        } catch (final NumberFormatException e) {
+            throw new IOException("illegal reference: &" + name + ";");
+        }
+        if (!Character.isValidCodePoint(codePoint)) {
+            throw new IOException("illegal reference: &" + name + ";");
+        }
+        if (Character.isSupplementaryCodePoint(codePoint)) {
+            final char[] chars = Character.toChars(codePoint);
+            mPending = chars[1];
+            return chars[0];
+        }
+        return codePoint;
+    }
+
+    /**
+     * 指定した文字列が続く場合は読み進め、そうでなければ位置を戻す。
+     *
+     * @param expected 期待する文字列
+     * @return 読み進めた場合true
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private boolean consume(@Nonnull final String expected) throws IOException {
+        mReader.mark(expected.length());
+        for (int i = 0; i < expected.length(); i++) {
+            if (mReader.read() != expected.charAt(i)) {
+                mReader.reset();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipPast(@Nonnull final String terminator) throws IOException {
+        final char first = terminator.charAt(0);
+        final String rest = terminator.substring(1);
+        while (true) {
+            final int c = mReader.read();
+            if (c < 0) {
+                throw new IOException("unterminated markup");
+            }
+            if (c == first && consume(rest)) {
+                return;
+            }
+        }
+    }
+}
@@ -8,8 +8,11 @@
 package net.mm2d.upnp.internal.manager;
 
 import net.mm2d.upnp.Device;
+import net.mm2d.upnp.internal.thread.TimerExecutor;
+import net.mm2d.upnp.internal.thread.TimerExecutor.Timer;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -24,57 +27,114 @@ import javax.annotation.Nullable;
  *
  * <p>Deviceの有効期限を確認し、有効期限が切れたDeviceをLostとして通知する。
  *
+ * <p>RefreshListenerが指定されている場合、有効期限が切れる前に生存確認を要求する。
+ * 生存確認はUDPによるため、有効期限の30秒前と10秒前の二回要求する。
+ * 応答によりDeviceの有効期限が延長されれば、次の有効期限に対して同様に要求を行う。
+ *
+ * <p>有効期限の確認は専用のスレッドを持たず、{@link TimerExecutor}で必要な時刻にのみ実行する。
+ *
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
  */
-public class DeviceHolder implements Runnable {
+public class DeviceHolder {
     private static final long MARGIN_TIME = TimeUnit.SECONDS.toMillis(10);
+    private static final long[] REFRESH_LEAD_TIMES = {
+            TimeUnit.SECONDS.toMillis(30),
+            TimeUnit.SECONDS.toMillis(10),
+    };
 
     public interface ExpireListener {
         void onExpire(@Nonnull Device device);
     }
 
+    /**
+     * 有効期限が切れる前に生存確認を要求するリスナー。
+     */
+    public interface RefreshListener {
+        /**
+         * 生存確認を要求する。
+         *
+         * <p>DeviceHolderのロックを保持した状態でコールされるため、時間のかかる処理は別スレッドで行うこと。
+         *
+         * @param device 生存確認を行うDevice
+         */
+        void onRefresh(@Nonnull Device device);
+    }
+
+    private static class RefreshState {
+        private final long mExpireTime;
+        private final int mCount;
+
+        RefreshState(
+                final long expireTime,
+                final int count) {
+            mExpireTime = expireTime;
+            mCount = count;
+        }
+    }
+
     @Nonnull
-    private final Object mThreadLock = new Object();
-    private volatile boolean mShutdownRequest = false;
+    private final TimerExecutor mTimerExecutor;
     @Nullable
-    private Thread mThread;
+    private Timer mTimer;
 
     @Nonnull
     private final ExpireListener mExpireListener;
+    @Nullable
+    private final RefreshListener mRefreshListener;
     @Nonnull
     private final Map<String, Device> mDeviceMap;
+    @Nonnull
+    private final Map<String, RefreshState> mRefreshStateMap = new HashMap<>();
+    @Nonnull
+    private final DeviceIndex mDeviceIndex = new DeviceIndex();
 
     /**
      * インスタンス作成。
      *
-     * @param listener 期限切れの通知を受け取るリスナー
+     * @param timerExecutor 有効期限の確認を実行するTimerExecutor
+     * @param listener      期限切れの通知を受け取るリスナー
      */
-    public DeviceHolder(@Nonnull final ExpireListener listener) {
+    public DeviceHolder(
+            @Nonnull final TimerExecutor timerExecutor,
+            @Nonnull final ExpireListener listener) {
+        this(timerExecutor, listener, null);
+    }
+
+    /**
+     * インスタンス作成。
+     *
+     * @param timerExecutor   有効期限の確認を実行するTimerExecutor
+     * @param expireListener  期限切れの通知を受け取るリスナー
+     * @param refreshListener 生存確認の要求を受け取るリスナー、nullの場合は生存確認を行わない
+     */
+    public DeviceHolder(
+            @Nonnull final TimerExecutor timerExecutor,
+            @Nonnull final ExpireListener expireListener,
+            @Nullable final RefreshListener refreshListener) {
+        mTimerExecutor = timerExecutor;
         mDeviceMap = new LinkedHashMap<>();
-        mExpireListener = listener;
+        mExpireListener = expireListener;
+        mRefreshListener = refreshListener;
     }
 
     /**
-     * スレッドを開始する。
+     * 有効期限の確認を開始する。
      */
-    public void start() {
-        mShutdownRequest = false;
-        synchronized (mThreadLock) {
-            mThread = new Thread(this, getClass().getSimpleName());
-            mThread.start();
+    public synchronized void start() {
+        if (mTimer != null) {
+            mTimer.cancel();
         }
+        mTimer = mTimerExecutor.create(this::onTimer);
+        mTimer.wakeUp();
     }
 
     /**
-     * スレッドに割り込みをかけ終了させる。
+     * 有効期限の確認を終了させる。
      */
-    public void shutdownRequest() {
-        mShutdownRequest = true;
-        synchronized (mThreadLock) {
-            if (mThread != null) {
-                mThread.interrupt();
-                mThread = null;
-            }
+    public synchronized void shutdownRequest() {
+        if (mTimer != null) {
+            mTimer.cancel();
+            mTimer = null;
         }
     }
 
@@ -84,8 +144,28 @@ public class DeviceHolder implements Runnable {
      * @param device 追加されるDevice
      */
     public synchronized void add(@Nonnull final Device device) {
-        mDeviceMap.put(device.getUdn(), device);
-        notifyAll();
+        final Device oldDevice = mDeviceMap.put(device.getUdn(), device);
+        if (oldDevice != null) {
+            mDeviceIndex.remove(oldDevice);
+        }
+        mDeviceIndex.add(device);
+        if (mTimer != null) {
+            mTimer.wakeUp();
+        }
+    }
+
+    /**
+     * Deviceのインデックスを更新する。
+     *
+     * <p>SSDPメッセージの更新により、IPアドレスが変化した可能性がある場合にコールする。
+     *
+     * @param device 更新されたDevice
+     */
+    public synchronized void updateIndex(@Nonnull final Device device) {
+        if (mDeviceMap.get(device.getUdn()) != device) {
+            return;
+        }
+        mDeviceIndex.updateIpAddress(device);
     }
 
     @Nullable
@@ -96,11 +176,17 @@ public class DeviceHolder implements Runnable {
     /**
      * Device削除。
      *
+     * <p>同一UDNで別のインスタンスが登録されている場合は削除しない。
+     *
      * @param device 削除されるDevice。
-     * @return 削除されたDevice
+     * @return 削除されたDevice、削除されなかった場合null
      */
+    @Nullable
     public synchronized Device remove(@Nonnull final Device device) {
-        return mDeviceMap.remove(device.getUdn());
+        if (mDeviceMap.get(device.getUdn()) != device) {
+            return null;
+        }
+        return remove(device.getUdn());
     }
 
     /**
@@ -110,7 +196,12 @@ public class DeviceHolder implements Runnable {
      * @return 削除されたDevice
      */
     public synchronized Device remove(@Nonnull final String udn) {
-        return mDeviceMap.remove(udn);
+        mRefreshStateMap.remove(udn);
+        final Device device = mDeviceMap.remove(udn);
+        if (device != null) {
+            mDeviceIndex.remove(device);
+        }
+        return device;
     }
 
     /**
@@ -118,6 +209,8 @@ public class DeviceHolder implements Runnable {
      */
     public synchronized void clear() {
         mDeviceMap.clear();
+        mRefreshStateMap.clear();
+        mDeviceIndex.clear();
     }
 
     /**
@@ -130,6 +223,58 @@ public class DeviceHolder implements Runnable {
         return new ArrayList<>(mDeviceMap.values());
     }
 
+    /**
+     * 指定したDeviceTypeのDeviceのリストを返す。
+     *
+     * <p>埋め込みDeviceも対象となる。
+     *
+     * @param deviceType DeviceType
+     * @return 該当するDeviceのリスト
+     */
+    @Nonnull
+    public synchronized List<Device> getDeviceListByType(@Nonnull final String deviceType) {
+        return mDeviceIndex.findByDeviceType(deviceType);
+    }
+
+    /**
+     * 指定したServiceTypeのServiceを持つDeviceのリストを返す。
+     *
+     * <p>埋め込みDeviceも対象となる。
+     *
+     * @param serviceType ServiceType
+     * @return 該当するDeviceのリスト
+     */
+    @Nonnull
+    public synchronized List<Device> getDeviceListByServiceType(@Nonnull final String serviceType) {
+        return mDeviceIndex.findByServiceType(serviceType);
+    }
+
+    /**
+     * 指定したManufactureのDeviceのリストを返す。
+     *
+     * <p>埋め込みDeviceも対象となる。
+     *
+     * @param manufacture Manufacture
+     * @return 該当するDeviceのリスト
+     */
+    @Nonnull
+    public synchronized List<Device> getDeviceListByManufacture(@Nonnull final String manufacture) {
+        return mDeviceIndex.findByManufacture(manufacture);
+    }
+
+    /**
+     * 指定したIPアドレスのDeviceのリストを返す。
+     *
+     * <p>ルートDeviceのみが対象となる。
+     *
+     * @param ipAddress IPアドレス
+     * @return 該当するDeviceのリスト
+     */
+    @Nonnull
+    public synchronized List<Device> getDeviceListByIpAddress(@Nonnull final String ipAddress) {
+        return mDeviceIndex.findByIpAddress(ipAddress);
+    }
+
     /**
      * 保持しているDeviceの数を返す。
      *
@@ -139,18 +284,19 @@ public class DeviceHolder implements Runnable {
         return mDeviceMap.size();
     }
 
-    @Override
-    public synchronized void run() {
-        try {
-            while (!mShutdownRequest) {
-                while (mDeviceMap.size() == 0) {
-                    wait();
-                }
-                expireDevice();
-                waitNextExpireTime();
-            }
-        } catch (final InterruptedException ignored) {
+    /**
+     * 有効期限の確認と生存確認の要求を行い、次回の確認時刻を返す。
+     *
+     * @return 次回の確認時刻、保持しているDeviceがない場合{@link Long#MAX_VALUE}
+     */
+    // VisibleForTesting
+    synchronized long onTimer() {
+        if (mDeviceMap.size() == 0) {
+            return Long.MAX_VALUE;
         }
+        expireDevice();
+        refreshDevice();
+        return calculateNextTime();
     }
 
     private void expireDevice() {
@@ -160,17 +306,69 @@ public class DeviceHolder implements Runnable {
             final Device device = i.next();
             if (device.getExpireTime() < now) {
                 i.remove();
+                mRefreshStateMap.remove(device.getUdn());
+                mDeviceIndex.remove(device);
                 mExpireListener.onExpire(device);
             }
         }
     }
 
-    private void waitNextExpireTime() throws InterruptedException {
-        if (mDeviceMap.size() == 0) {
+    // VisibleForTesting
+    void refreshDevice() {
+        if (mRefreshListener == null) {
             return;
         }
-        final long sleep = findMostRecentExpireTime() - System.currentTimeMillis() + MARGIN_TIME;
-        wait(Math.max(sleep, MARGIN_TIME)); // 負の値となる可能性を排除
+        final long now = System.currentTimeMillis();
+        for (final Device device : mDeviceMap.values()) {
+            final long expireTime = device.getExpireTime();
+            final int count = getRefreshCount(device);
+            int next = count;
+            while (next < REFRESH_LEAD_TIMES.length && expireTime - REFRESH_LEAD_TIMES[next] <= now) {
+                next++;
+            }
+            if (next == count) {
+                continue;
+            }
+            // 複数の要求時刻を過ぎていても要求は一度にまとめる
+            mRefreshStateMap.put(device.getUdn(), new RefreshState(expireTime, next));
+            mRefreshListener.onRefresh(device);
+        }
+    }
+
+    private int getRefreshCount(@Nonnull final Device device) {
+        final RefreshState state = mRefreshStateMap.get(device.getUdn());
+        if (state == null || state.mExpireTime != device.getExpireTime()) {
+            return 0;
+        }
+        return state.mCount;
+    }
+
+    private long calculateNextTime() {
+        if (mDeviceMap.size() == 0) {
+            return Long.MAX_VALUE;
+        }
+        final long now = System.currentTimeMillis();
+        final long expireTime = findMostRecentExpireTime() + MARGIN_TIME;
+        final long refreshTime = findMostRecentRefreshTime();
+        return Math.max(Math.min(expireTime, refreshTime), now + 1); // 過去の時刻となる可能性を排除
+    }
+
+    private long findMostRecentRefreshTime() {
+        if (mRefreshListener == null) {
+            return Long.MAX_VALUE;
+        }
+        long recent = Long.MAX_VALUE;
+        for (final Device device : mDeviceMap.values()) {
+            final int count = getRefreshCount(device);
+            if (count >= REFRESH_LEAD_TIMES.length) {
+                continue;
+            }
+            final long refreshTime = device.getExpireTime() - REFRESH_LEAD_TIMES[count];
+            if (recent > refreshTime) {
+                recent = refreshTime;
+            }
+        }
+        return recent;
     }
 
     private long findMostRecentExpireTime() {
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.manager;
+
+import net.mm2d.upnp.Device;
+import net.mm2d.upnp.Service;
+import net.mm2d.util.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Deviceを属性から検索するためのインデックス。
+ *
+ * <p>DeviceType、ServiceType、Manufactureは埋め込みDeviceも含めて登録し、該当するDeviceそのものを返す。
+ * IPアドレスはルートDeviceのみを登録する。
+ *
+ * <p>スレッドセーフではないため、DeviceHolderのロックを保持した状態で使用する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class DeviceIndex {
+    @Nonnull
+    private final Map<String, Set<Device>> mDeviceTypeMap = new HashMap<>();
+    @Nonnull
+    private final Map<String, Set<Device>> mServiceTypeMap = new HashMap<>();
+    @Nonnull
+    private final Map<String, Set<Device>> mManufactureMap = new HashMap<>();
+    @Nonnull
+    private final Map<String, Set<Device>> mIpAddressMap = new HashMap<>();
+    @Nonnull
+    private final Map<String, String> mIndexedIpAddressMap = new HashMap<>();
+
+    /**
+     * ルートDeviceとその埋め込みDeviceを登録する。
+     *
+     * @param device ルートDevice
+     */
+    void add(@Nonnull final Device device) {
+        addRecursively(device);
+        final String ipAddress = device.getIpAddress();
+        mIndexedIpAddressMap.put(device.getUdn(), ipAddress);
+        put(mIpAddressMap, ipAddress, device);
+    }
+
+    private void addRecursively(@Nonnull final Device device) {
+        put(mDeviceTypeMap, device.getDeviceType(), device);
+        put(mManufactureMap, device.getManufacture(), device);
+        for (final Service service : device.getServiceList()) {
+            put(mServiceTypeMap, service.getServiceType(), device);
+        }
+        for (final Device embedded : device.getDeviceList()) {
+            addRecursively(embedded);
+        }
+    }
+
+    /**
+     * ルートDeviceとその埋め込みDeviceの登録を削除する。
+     *
+     * @param device ルートDevice
+     */
+    void remove(@Nonnull final Device device) {
+        removeRecursively(device);
+        delete(mIpAddressMap, mIndexedIpAddressMap.remove(device.getUdn()), device);
+    }
+
+    private void removeRecursively(@Nonnull final Device device) {
+        delete(mDeviceTypeMap, device.getDeviceType(), device);
+        delete(mManufactureMap, device.getManufacture(), device);
+        for (final Service service : device.getServiceList()) {
+            delete(mServiceTypeMap, service.getServiceType(), device);
+        }
+        for (final Device embedded : device.getDeviceList()) {
+            removeRecursively(embedded);
+        }
+    }
+
+    /**
+     * ルートDeviceのIPアドレスの登録を更新する。
+     *
+     * <p>SSDPメッセージの更新によりLocationが変化した場合に反映させる。
+     *
+     * @param device ルートDevice
+     */
+    void updateIpAddress(@Nonnull final Device device) {
+        final String udn = device.getUdn();
+        if (!mIndexedIpAddressMap.containsKey(udn)) {
+            return;
+        }
+        final String ipAddress = device.getIpAddress();
+        final String oldIpAddress = mIndexedIpAddressMap.put(udn, ipAddress);
+        if (TextUtils.equals(ipAddress, oldIpAddress)) {
+            return;
+        }
+        delete(mIpAddressMap, oldIpAddress, device);
+        put(mIpAddressMap, ipAddress, device);
+    }
+
+    /**
+     * 全ての登録を削除する。
+     */
+    void clear() {
+        mDeviceTypeMap.clear();
+        mServiceTypeMap.clear();
+        mManufactureMap.clear();
+        mIpAddressMap.clear();
+        mIndexedIpAddressMap.clear();
+    }
+
+    @Nonnull
+    List<Device> findByDeviceType(@Nonnull final String deviceType) {
+        return find(mDeviceTypeMap, deviceType);
+    }
+
+    @Nonnull
+    List<Device> findByServiceType(@Nonnull final String serviceType) {
+        return find(mServiceTypeMap, serviceType);
+    }
+
+    @Nonnull
+    List<Device> findByManufacture(@Nonnull final String manufacture) {
+        return find(mManufactureMap, manufacture);
+    }
+
+    @Nonnull
+    List<Device> findByIpAddress(@Nonnull final String ipAddress) {
+        return find(mIpAddressMap, ipAddress);
+    }
+
+    @Nonnull
+    private static List<Device> find(
+            @Nonnull final Map<String, Set<Device>> map,
+            @Nonnull final String key) {
+        final Set<Device> set = map.get(key);
+        if (set == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(set);
+    }
+
+    private static void put(
+            @Nonnull final Map<String, Set<Device>> map,
+            @Nullable final String key,
+            @Nonnull final Device device) {
+        if (key == null) {
+            return;
+        }
+        Set<Device> set = map.get(key);
+        if (set == null) {
+            set = new LinkedHashSet<>();
+            map.put(key, set);
+        }
+        set.add(device);
+    }
+
+    private static void delete(
+            @Nonnull final Map<String, Set<Device>> map,
+            @Nullable final String key,
+            @Nonnull final Device device) {
+        if (key == null) {
+            return;
+        }
+        final Set<Device> set = map.get(key);
+        if (set == null) {
+            return;
+        }
+        set.remove(device);
+        if (set.isEmpty()) {
+            map.remove(key);
+        }
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.manager;
+
+import net.mm2d.upnp.Property;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * ホスト毎のHTTP通信の同時実行数の制限とサーキットブレーカー。
+ *
+ * <p>一つのホストに対して同時に実行できるリクエスト数を制限し、
+ * 上限に達している場合は短時間だけ待機する。待機しているリクエスト数も上限を超えた場合は即座に失敗させる。
+ * これにより、応答しないホストへのリクエストがIOスレッドを占有し続けることを防ぐ。
+ *
+ * <p>タイムアウトが連続して発生した場合はサーキットを開き、以降のリクエストを即座に失敗させる。
+ * そのホストからSSDP aliveを受信するか、一定時間経過すると半開状態となり、
+ * 一つのリクエストだけを試行として通過させる。
+ * 試行が成功すればサーキットを閉じ、失敗すれば再び開く。
+ *
+ * <p>また、ホスト毎の接続時間の統計から接続のタイムアウト時間を算出する。
+ * 直近の接続時間のパーセンタイル値に係数をかけたものを、下限と上限の範囲に収めて使用する。
+ * タイムアウトが発生した場合は、成功するまでタイムアウト時間を倍々に延長する。
+ * 十分なサンプルがない場合は上限値を使用する。
+ * 読み出しのタイムアウト時間は常に上限値とする。
+ * 応答時間はBrowse等のリクエストの種類によって大きく異なるため、
+ * 短時間で完了するリクエストの統計から算出すると、正常な応答までタイムアウトさせてしまう。
+ *
+ * <p>加えて、ホストがgzipで符号化されたリクエストを受け入れるか否かを保持する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class HostGuard {
+    /**
+     * サーキットの状態。
+     */
+    public enum State {
+        /**
+         * 閉じている。リクエストは通常通り実行される。
+         */
+        CLOSED,
+        /**
+         * 開いている。リクエストは即座に失敗する。
+         */
+        OPEN,
+        /**
+         * 半開。試行として一つのリクエストだけが実行される。
+         */
+        HALF_OPEN,
+    }
+
+    static final int DEFAULT_MAX_IN_FLIGHT = 4;
+    static final int DEFAULT_MAX_WAITING = 8;
+    static final long DEFAULT_WAIT_TIMEOUT = TimeUnit.SECONDS.toMillis(3);
+    static final int DEFAULT_TIMEOUT_THRESHOLD = 3;
+    static final long DEFAULT_OPEN_DURATION = TimeUnit.MINUTES.toMillis(1);
+    static final long DEFAULT_TIMEOUT_FLOOR = 500;
+    static final long DEFAULT_TIMEOUT_CEILING = Property.DEFAULT_TIMEOUT;
+    private static final int MIN_SAMPLES = 3;
+    private static final int PERCENTILE = 95;
+    private static final int TIMEOUT_FACTOR = 4;
+    private static final int MAX_BACKOFF = 16;
+
+    /**
+     * タイムアウト時間の下限と上限が正しい範囲か検査する。
+     *
+     * @param floor   下限[ms]
+     * @param ceiling 上限[ms]
+     * @throws IllegalArgumentException 不正な範囲の場合
+     */
+    static void checkTimeoutRange(
+            final long floor,
+            final long ceiling) {
+        if (floor <= 0 || ceiling < floor || ceiling > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("invalid range: " + floor + "-" + ceiling);
+        }
+    }
+
+    @Nonnull
+    private final String mHost;
+    @Nonnull
+    private final Semaphore mPermits;
+    @Nonnull
+    private final AtomicInteger mWaiting = new AtomicInteger();
+    private final int mMaxWaiting;
+    private final long mWaitTimeout;
+    private final int mTimeoutThreshold;
+    private final long mOpenDuration;
+
+    @Nonnull
+    private final Object mLock = new Object();
+    @Nonnull
+    private volatile State mState = State.CLOSED;
+    @Nullable
+    private AtomicInteger mOpenCounter;
+    private int mTimeoutCount;
+    private long mOpenedTime;
+    private boolean mTrialInFlight;
+    @Nonnull
+    private final LatencyStats mConnectStats = new LatencyStats();
+    private volatile int mBackoff = 1;
+    private volatile long mTimeoutFloor = DEFAULT_TIMEOUT_FLOOR;
+    private volatile long mTimeoutCeiling = DEFAULT_TIMEOUT_CEILING;
+    private volatile boolean mGzipRequestAccepted;
+
+    HostGuard(@Nonnull final String host) {
+        this(host, DEFAULT_MAX_IN_FLIGHT, DEFAULT_MAX_WAITING, DEFAULT_WAIT_TIMEOUT,
+                DEFAULT_TIMEOUT_THRESHOLD, DEFAULT_OPEN_DURATION);
+    }
+
+    /**
+     * インスタンス作成。
+     *
+     * @param host             ホスト名、エラーメッセージに使用する
+     * @param maxInFlight      同時に実行できるリクエスト数
+     * @param maxWaiting       実行待ちにできるリクエスト数
+     * @param waitTimeout      実行待ちの最大時間[ms]
+     * @param timeoutThreshold サーキットを開くまでの連続タイムアウト回数
+     * @param openDuration     サーキットを開いてから半開状態にするまでの時間[ms]
+     */
+    // VisibleForTesting
+    HostGuard(
+            @Nonnull final String host,
+            final int maxInFlight,
+            final int maxWaiting,
+            final long waitTimeout,
+            final int timeoutThreshold,
+            final long openDuration) {
+        mHost = host;
+        mPermits = new Semaphore(maxInFlight, true);
+        mMaxWaiting = maxWaiting;
+        mWaitTimeout = waitTimeout;
+        mTimeoutThreshold = timeoutThreshold;
+        mOpenDuration = openDuration;
+    }
+
+    /**
+     * サーキットが開いているホストの数を集計するカウンタを設定する。
+     *
+     * <p>サーキットの開閉に合わせて増減する。nullを指定すると、開いている場合は減じてから集計をやめる。
+     *
+     * @param counter カウンタ
+     */
+    void setOpenCounter(@Nullable final AtomicInteger counter) {
+        synchronized (mLock) {
+            if (mState == State.OPEN) {
+                if (mOpenCounter != null) {
+                    mOpenCounter.decrementAndGet();
+                }
+                if (counter != null) {
+                    counter.incrementAndGet();
+                }
+            }
+            mOpenCounter = counter;
+        }
+    }
+
+    /**
+     * タイムアウト時間の下限と上限を設定する。
+     *
+     * @param floor   下限[ms]
+     * @param ceiling 上限[ms]
+     * @throws IllegalArgumentException 不正な範囲の場合
+     */
+    void setTimeoutRange(
+            final long floor,
+            final long ceiling) {
+        checkTimeoutRange(floor, ceiling);
+        mTimeoutFloor = floor;
+        mTimeoutCeiling = ceiling;
+    }
+
+    // mLockを保持してコールすること
+    private void setState(@Nonnull final State state) {
+        final AtomicInteger counter = mOpenCounter;
+        if (counter != null && mState != state) {
+            if (state == State.OPEN) {
+                counter.incrementAndGet();
+            } else if (mState == State.OPEN) {
+                counter.decrementAndGet();
+            }
+        }
+        mState = state;
+    }
+
+    /**
+     * サーキットの状態を返す。
+     *
+     * @return サーキットの状態
+     */
+    @Nonnull
+    public State getState() {
+        return mState;
+    }
+
+    /**
+     * リクエストの実行権を取得する。
+     *
+     * <p>取得に成功した場合は、リクエスト終了後に必ず{@link #release()}をコールすること。
+     *
+     * @throws IOException サーキットが開いている、もしくは実行待ちが上限を超えた場合
+     */
+    public void acquire() throws IOException {
+        checkCircuit();
+        try {
+            acquirePermit();
+        } catch (final IOException e) {
+            synchronized (mLock) {
+                mTrialInFlight = false;
+            }
+            throw e;
+        }
+    }
+
+    private void checkCircuit() throws IOException {
+        if (mState == State.CLOSED) {
+            return;
+        }
+        synchronized (mLock) {
+            if (mState == State.OPEN && System.currentTimeMillis() - mOpenedTime >= mOpenDuration) {
+                setState(State.HALF_OPEN);
+            }
+            switch (mState) {
+                case OPEN:
+                    throw new IOException("circuit is open: " + mHost);
+                case HALF_OPEN:
+                    if (mTrialInFlight) {
+                        throw new IOException("circuit is half-open: " + mHost);
+                    }
+                    mTrialInFlight = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void acquirePermit() throws IOException {
+        if (mPermits.tryAcquire()) {
+            return;
+        }
+        if (mWaiting.incrementAndGet() > mMaxWaiting) {
+            mWaiting.decrementAndGet();
+            throw new IOException("too many requests: " + mHost);
+        }
+        try {
+            if (!mPermits.tryAcquire(mWaitTimeout, TimeUnit.MILLISECONDS)) {
+                throw new IOException("request wait timeout: " + mHost);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            mWaiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * リクエストの実行権を返却する。
+     */
+    public void release() {
+        mPermits.release();
+    }
+
+    /**
+     * リクエストが成功したことを通知する。
+     */
+    public void onSuccess() {
+        mBackoff = 1;
+        synchronized (mLock) {
+            mTimeoutCount = 0;
+            mTrialInFlight = false;
+            setState(State.CLOSED);
+        }
+    }
+
+    /**
+     * リクエストがタイムアウトしたことを通知する。
+     */
+    public void onTimeout() {
+        synchronized (mLock) {
+            mBackoff = Math.min(mBackoff * 2, MAX_BACKOFF);
+            mTimeoutCount++;
+            if (mState == State.HALF_OPEN || mTimeoutCount >= mTimeoutThreshold) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * リクエストがタイムアウト以外の理由で失敗したことを通知する。
+     *
+     * <p>半開状態での試行が失敗した場合はサーキットを開く。
+     */
+    public void onFailure() {
+        synchronized (mLock) {
+            if (mState == State.HALF_OPEN) {
+                open();
+            }
+        }
+    }
+
+    private void open() {
+        setState(State.OPEN);
+        mOpenedTime = System.currentTimeMillis();
+        mTrialInFlight = false;
+    }
+
+    /**
+     * ホストからSSDP aliveを受信したことを通知する。
+     *
+     * <p>サーキットが開いている場合は半開状態にする。
+     */
+    public void onAlive() {
+        if (mState != State.OPEN) {
+            return;
+        }
+        synchronized (mLock) {
+            if (mState == State.OPEN) {
+                setState(State.HALF_OPEN);
+                mTrialInFlight = false;
+            }
+        }
+    }
+
+    /**
+     * ホストがgzipで符号化されたリクエストを受け入れるか否かを設定する。
+     *
+     * <p>レスポンスのAccept-Encoding(RFC 7694)、もしくは符号化したリクエストへの
+     * 415 Unsupported Media Typeの応答から判断する。
+     *
+     * @param accepted 受け入れる場合true
+     */
+    public void setGzipRequestAccepted(final boolean accepted) {
+        mGzipRequestAccepted = accepted;
+    }
+
+    /**
+     * ホストがgzipで符号化されたリクエストを受け入れるか否かを返す。
+     *
+     * @return 受け入れることが分かっている場合true
+     */
+    public boolean isGzipRequestAccepted() {
+        return mGzipRequestAccepted;
+    }
+
+    /**
+     * 接続に要した時間を記録する。
+     *
+     * @param millis 接続に要した時間[ms]
+     */
+    public void recordConnectTime(final long millis) {
+        mConnectStats.add(millis);
+    }
+
+    /**
+     * 接続のタイムアウト時間を返す。
+     *
+     * @return 接続のタイムアウト時間[ms]
+     */
+    public int getConnectTimeout() {
+        return calculateTimeout(mConnectStats);
+    }
+
+    /**
+     * 読み出しのタイムアウト時間を返す。
+     *
+     * <p>リクエストの種類によらず、上限値を返す。
+     *
+     * @return 読み出しのタイムアウト時間[ms]
+     */
+    public int getReadTimeout() {
+        return (int) mTimeoutCeiling;
+    }
+
+    private int calculateTimeout(@Nonnull final LatencyStats stats) {
+        final long floor = mTimeoutFloor;
+        final long ceiling = mTimeoutCeiling;
+        if (stats.getCount() < MIN_SAMPLES) {
+            return (int) ceiling;
+        }
+        final long timeout = stats.getPercentile(PERCENTILE) * TIMEOUT_FACTOR * mBackoff;
+        return (int) Math.min(Math.max(timeout, floor), ceiling);
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.manager;
+
+import net.mm2d.util.TextUtils;
+
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * ホスト毎の{@link HostGuard}とHTTP通信の設定を管理する。
+ *
+ * <p>HttpClientは通信毎に作成されるため、ホスト毎の状態はこのインスタンスで保持し、ControlPoint毎に一つ作成する。
+ * 同一のホストであってもControlPoint間では状態も設定も共有しない。
+ * 保持するホスト数には上限があり、上限を超えた場合は最も長く使用されていないホストの状態を破棄する。
+ * 破棄されたホストは、次回の通信時に初期状態から作り直される。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public final class HostGuardRegistry {
+    // VisibleForTesting
+    static final int MAX_HOSTS = 256;
+    /**
+     * タイムアウト時間の下限のデフォルト値[ms]。
+     */
+    public static final long DEFAULT_TIMEOUT_FLOOR = HostGuard.DEFAULT_TIMEOUT_FLOOR;
+    /**
+     * タイムアウト時間の上限のデフォルト値[ms]。
+     */
+    public static final long DEFAULT_TIMEOUT_CEILING = HostGuard.DEFAULT_TIMEOUT_CEILING;
+    @Nonnull
+    private static final HostGuardRegistry DEFAULT = new HostGuardRegistry();
+
+    /**
+     * ControlPointに属さないHttpClientが使用するインスタンスを返す。
+     *
+     * @return デフォルトのインスタンス
+     */
+    @Nonnull
+    public static HostGuardRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    @Nonnull
+    private final AtomicInteger mOpenCount = new AtomicInteger();
+    @Nonnull
+    private final Map<InetAddress, HostGuard> mGuardMap =
+            new LinkedHashMap<InetAddress, HostGuard>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<InetAddress, HostGuard> eldest) {
+                    if (size() <= MAX_HOSTS) {
+                        return false;
+                    }
+                    eldest.getValue().setOpenCounter(null);
+                    return true;
+                }
+            };
+    // mGuardMapのロックで保護する
+    private long mTimeoutFloor = DEFAULT_TIMEOUT_FLOOR;
+    private long mTimeoutCeiling = DEFAULT_TIMEOUT_CEILING;
+    private volatile boolean mCompressionEnabled;
+    private volatile int mRequestCompressionThreshold;
+
+    /**
+     * ホストに対応する{@link HostGuard}を返す。
+     *
+     * @param address ホストのアドレス
+     * @return HostGuard
+     */
+    @Nonnull
+    public HostGuard get(@Nonnull final InetAddress address) {
+        synchronized (mGuardMap) {
+            final HostGuard guard = mGuardMap.get(address);
+            if (guard != null) {
+                return guard;
+            }
+            final HostGuard newGuard = new HostGuard(address.getHostAddress());
+            newGuard.setOpenCounter(mOpenCount);
+            newGuard.setTimeoutRange(mTimeoutFloor, mTimeoutCeiling);
+            mGuardMap.put(address, newGuard);
+            return newGuard;
+        }
+    }
+
+    /**
+     * SSDP aliveを受信したことを通知する。
+     *
+     * <p>LocationのホストのサーキットがOPENであれば半開状態にする。
+     * SSDPの受信処理を止めないよう名前解決は行わず、ホストがIPアドレスで記述されている場合のみ対象とする。
+     *
+     * @param location SSDPメッセージのLocation
+     */
+    public void onAlive(@Nullable final String location) {
+        if (TextUtils.isEmpty(location) || mOpenCount.get() <= 0) {
+            return;
+        }
+        final InetAddress address = toAddress(location);
+        if (address == null) {
+            return;
+        }
+        final HostGuard guard;
+        synchronized (mGuardMap) {
+            guard = mGuardMap.get(address);
+        }
+        if (guard != null) {
+            guard.onAlive();
+        }
+    }
+
+    /**
+     * タイムアウト時間の下限と上限を設定する。
+     *
+     * <p>接続のタイムアウト時間はホスト毎の接続時間の統計から算出され、この範囲に収められる。
+     * 統計が十分でないホストに対しては上限値が使用される。
+     * 読み出しのタイムアウト時間には常に上限値が使用される。
+     * 保持している全てのホストに適用される。
+     * デフォルトは下限{@link #DEFAULT_TIMEOUT_FLOOR}、上限{@link #DEFAULT_TIMEOUT_CEILING}。
+     *
+     * @param floor   下限[ms]
+     * @param ceiling 上限[ms]
+     * @throws IllegalArgumentException 不正な範囲の場合
+     */
+    public void setTimeoutRange(
+            final long floor,
+            final long ceiling) {
+        HostGuard.checkTimeoutRange(floor, ceiling);
+        synchronized (mGuardMap) {
+            mTimeoutFloor = floor;
+            mTimeoutCeiling = ceiling;
+            for (final HostGuard guard : mGuardMap.values()) {
+                guard.setTimeoutRange(floor, ceiling);
+            }
+        }
+    }
+
+    /**
+     * 符号化されたレスポンスを受け付けるか否かを設定する。
+     *
+     * <p>trueを指定した場合、リクエストにAccept-Encodingとしてgzip及びdeflateを指定する。
+     * デフォルトはfalse。
+     *
+     * @param enabled 符号化されたレスポンスを受け付ける場合true
+     */
+    public void setCompressionEnabled(final boolean enabled) {
+        mCompressionEnabled = enabled;
+    }
+
+    /**
+     * 符号化されたレスポンスを受け付ける設定か否かを返す。
+     *
+     * @return 符号化されたレスポンスを受け付ける場合true
+     */
+    public boolean isCompressionEnabled() {
+        return mCompressionEnabled;
+    }
+
+    /**
+     * リクエストのボディをgzipで符号化する閾値を設定する。
+     *
+     * <p>ボディがこのサイズ以上であり、送信先のホストが以前のレスポンスのAccept-Encodingで
+     * gzipを受け付けることを示していた場合に符号化する。
+     * デフォルトは0で符号化は行わない。
+     *
+     * @param size 閾値[byte]、0以下の場合は符号化しない
+     */
+    public void setRequestCompressionThreshold(final int size) {
+        mRequestCompressionThreshold = size;
+    }
+
+    /**
+     * リクエストのボディをgzipで符号化する閾値を返す。
+     *
+     * @return 閾値[byte]
+     */
+    public int getRequestCompressionThreshold() {
+        return mRequestCompressionThreshold;
+    }
+
+    @Nullable
+    private static InetAddress toAddress(@Nonnull final String location) {
+        try {
+            final String host = new URL(location).getHost();
+            if (!isIpAddressLiteral(host)) {
+                return null;
+            }
+            // IPアドレスの文字列であれば名前解決は行われない
+            return InetAddress.getByName(host);
+        } catch (final MalformedURLException | UnknownHostException ignored) {
+            return null;
+        }
+    }
+
+    // VisibleForTesting
+    static boolean isIpAddressLiteral(@Nonnull final String host) {
+        if (host.isEmpty()) {
+            return false;
+        }
+        if (host.charAt(0) == '[') {
+            return host.charAt(host.length() - 1) == ']';
+        }
+        for (int i = 0; i < host.length(); i++) {
+            final char c = host.charAt(i);
+            if ((c < '0' || c > '9') && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * サーキットが開いているホストの数を返す。
+     *
+     * @return サーキットが開いているホストの数
+     */
+    // VisibleForTesting
+    int getOpenCount() {
+        return mOpenCount.get();
+    }
+
+    /**
+     * 保持しているホストの数を返す。
+     *
+     * @return 保持しているホストの数
+     */
+    // VisibleForTesting
+    int size() {
+        synchronized (mGuardMap) {
+            return mGuardMap.size();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.manager;
+
+import java.util.Arrays;
+
+/**
+ * 直近の応答時間の統計。
+ *
+ * <p>直近の一定数のサンプルをリングバッファに保持し、パーセンタイル値を算出する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+class LatencyStats {
+    private static final int DEFAULT_CAPACITY = 32;
+    private final long[] mSamples;
+    private int mCount;
+    private int mNext;
+
+    LatencyStats() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    LatencyStats(final int capacity) {
+        mSamples = new long[capacity];
+    }
+
+    /**
+     * サンプルを追加する。
+     *
+     * <p>保持数を超えた場合は最も古いサンプルを破棄する。
+     *
+     * @param value 応答時間[ms]
+     */
+    synchronized void add(final long value) {
+        mSamples[mNext] = value;
+        mNext = (mNext + 1) % mSamples.length;
+        if (mCount < mSamples.length) {
+            mCount++;
+        }
+    }
+
+    /**
+     * 保持しているサンプル数を返す。
+     *
+     * @return サンプル数
+     */
+    synchronized int getCount() {
+        return mCount;
+    }
+
+    /**
+     * パーセンタイル値を返す。
+     *
+     * @param percentile パーセンタイル(0-100)
+     * @return パーセンタイル値[ms]、サンプルがない場合0
+     */
+    long getPercentile(final int percentile) {
+        final long[] samples;
+        synchronized (this) {
+            if (mCount == 0) {
+                return 0;
+            }
+            samples = Arrays.copyOf(mSamples, mCount);
+        }
+        Arrays.sort(samples);
+        // nearest-rank method
+        final int rank = (percentile * samples.length + 99) / 100;
+        return samples[Math.min(Math.max(rank, 1), samples.length) - 1];
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.manager;
+
+import net.mm2d.upnp.ControlPoint.LoadFailure;
+import net.mm2d.util.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Deviceの読み込みに失敗した情報を保持するネガティブキャッシュ。
+ *
+ * <p>UUIDとLocationの組み合わせ毎に失敗回数を保持し、
+ * 失敗する度に再試行までの間隔を倍にする。間隔には上限がある。
+ * 間隔が経過するまでは同一UUID、同一LocationのSSDPメッセージを受信しても読み込みを行わない。
+ * Locationが変化した場合は別のエントリとして扱うため、すぐに読み込みを行う。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class LoadFailureCache {
+    private static final long DEFAULT_INITIAL_BACKOFF = TimeUnit.SECONDS.toMillis(10);
+    private static final long DEFAULT_MAX_BACKOFF = TimeUnit.MINUTES.toMillis(30);
+
+    private static class Entry implements LoadFailure {
+        @Nonnull
+        private final String mUuid;
+        @Nonnull
+        private final String mLocation;
+        private final int mFailureCount;
+        private final long mRetryTime;
+        @Nonnull
+        private final String mReason;
+
+        Entry(
+                @Nonnull final String uuid,
+                @Nonnull final String location,
+                final int failureCount,
+                final long retryTime,
+                @Nonnull final String reason) {
+            mUuid = uuid;
+            mLocation = location;
+            mFailureCount = failureCount;
+            mRetryTime = retryTime;
+            mReason = reason;
+        }
+
+        @Nonnull
+        @Override
+        public String getUuid() {
+            return mUuid;
+        }
+
+        @Nonnull
+        @Override
+        public String getLocation() {
+            return mLocation;
+        }
+
+        @Override
+        public int getFailureCount() {
+            return mFailureCount;
+        }
+
+        @Override
+        public long getRetryTime() {
+            return mRetryTime;
+        }
+
+        @Nonnull
+        @Override
+        public String getReason() {
+            return mReason;
+        }
+
+        @Nonnull
+        @Override
+        public String toString() {
+            return mUuid + " " + mLocation + " count=" + mFailureCount + " reason=" + mReason;
+        }
+    }
+
+    private final long mInitialBackoff;
+    private final long mMaxBackoff;
+    @Nonnull
+    private final Map<String, Entry> mEntryMap = new LinkedHashMap<>();
+
+    public LoadFailureCache() {
+        this(DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF);
+    }
+
+    /**
+     * インスタンス作成。
+     *
+     * @param initialBackoff 初回失敗時の再試行までの間隔[ms]
+     * @param maxBackoff     再試行までの間隔の上限[ms]
+     */
+    // VisibleForTesting
+    LoadFailureCache(
+            final long initialBackoff,
+            final long maxBackoff) {
+        mInitialBackoff = initialBackoff;
+        mMaxBackoff = maxBackoff;
+    }
+
+    @Nonnull
+    private static String makeKey(
+            @Nonnull final String uuid,
+            @Nonnull final String location) {
+        return uuid + "\n" + location;
+    }
+
+    /**
+     * 読み込みを見合わせるべきか否かを返す。
+     *
+     * @param uuid     UUID
+     * @param location Location
+     * @return 再試行までの間隔が経過していない場合true
+     */
+    public synchronized boolean isBackingOff(
+            @Nonnull final String uuid,
+            @Nullable final String location) {
+        if (TextUtils.isEmpty(location)) {
+            return false;
+        }
+        final Entry entry = mEntryMap.get(makeKey(uuid, location));
+        return entry != null && System.currentTimeMillis() < entry.mRetryTime;
+    }
+
+    /**
+     * 読み込みに失敗したことを記録する。
+     *
+     * @param uuid     UUID
+     * @param location Location
+     * @param reason   失敗の理由
+     */
+    public synchronized void onFailure(
+            @Nonnull final String uuid,
+            @Nullable final String location,
+            @Nonnull final String reason) {
+        if (TextUtils.isEmpty(location)) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        removeExpiredEntries(now);
+        final String key = makeKey(uuid, location);
+        final Entry entry = mEntryMap.remove(key);
+        final int count = entry == null ? 1 : entry.mFailureCount + 1;
+        mEntryMap.put(key, new Entry(uuid, location, count, now + calculateBackoff(count), reason));
+    }
+
+    private long calculateBackoff(final int count) {
+        long backoff = mInitialBackoff;
+        for (int i = 1; i < count && backoff < mMaxBackoff; i++) {
+            backoff *= 2;
+        }
+        return Math.min(backoff, mMaxBackoff);
+    }
+
+    // 再試行可能になってから更に上限時間経過したエントリは、機器がいなくなったものとして削除する
+    private void removeExpiredEntries(final long now) {
+        final Iterator<Entry> iterator = mEntryMap.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().mRetryTime + mMaxBackoff < now) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 指定したUUIDの失敗情報を削除する。
+     *
+     * <p>読み込みに成功した場合や、byebyeを受信した場合にコールする。
+     *
+     * @param uuid UUID
+     */
+    public synchronized void remove(@Nonnull final String uuid) {
+        final Iterator<Entry> iterator = mEntryMap.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().mUuid.equals(uuid)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 全ての失敗情報を削除する。
+     */
+    public synchronized void clear() {
+        mEntryMap.clear();
+    }
+
+    /**
+     * 失敗情報のリストを返す。
+     *
+     * @return 失敗情報のリスト
+     */
+    @Nonnull
+    public synchronized List<LoadFailure> getList() {
+        return new ArrayList<>(mEntryMap.values());
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.manager;
+
+import net.mm2d.upnp.SearchPolicy;
+import net.mm2d.upnp.internal.thread.TimerExecutor;
+import net.mm2d.upnp.internal.thread.TimerExecutor.Timer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * M-SEARCHの送信をスケジュールするクラス。
+ *
+ * <p>{@link SearchPolicy}に従い、一回の検索で複数回の送信を一定間隔で行う。
+ * 送信頻度の上限を超える送信は遅延させ、定期検索では発見済みの機器に変化がなければ間隔を延長する。
+ *
+ * <p>専用のスレッドは持たず、{@link TimerExecutor}で送信時刻にのみ実行する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class SearchScheduler {
+    /**
+     * 送信処理と発見済み機器の取得を行うコールバック。
+     */
+    public interface Callback {
+        /**
+         * M-SEARCHを送信する。
+         *
+         * @param st STの値
+         * @param mx MXの値
+         */
+        void send(
+                @Nonnull String st,
+                int mx);
+
+        /**
+         * 発見済み機器の数を返す。
+         *
+         * <p>送信毎にMXの算出に使用する。
+         *
+         * @return 発見済み機器の数
+         */
+        int getDeviceCount();
+
+        /**
+         * 発見済み機器のUDNのセットを返す。
+         *
+         * <p>定期検索の間隔の決定時にのみ使用する。
+         *
+         * @return 発見済み機器のUDNのセット
+         */
+        @Nonnull
+        Set<String> getDeviceUdnSet();
+    }
+
+    private static class Packet implements Comparable<Packet> {
+        private final long mTime;
+        private final long mSequence;
+        @Nonnull
+        private final String mSt;
+
+        Packet(
+                final long time,
+                final long sequence,
+                @Nonnull final String st) {
+            mTime = time;
+            mSequence = sequence;
+            mSt = st;
+        }
+
+        @Override
+        public int compareTo(@Nonnull final Packet o) {
+            if (mTime != o.mTime) {
+                return mTime < o.mTime ? -1 : 1;
+            }
+            return mSequence < o.mSequence ? -1 : mSequence == o.mSequence ? 0 : 1;
+        }
+    }
+
+    @Nonnull
+    private final TimerExecutor mTimerExecutor;
+    @Nullable
+    private Timer mTimer;
+
+    @Nonnull
+    private final Callback mCallback;
+    @Nonnull
+    private SearchPolicy mPolicy = SearchPolicy.DEFAULT;
+    @Nonnull
+    private final PriorityQueue<Packet> mQueue = new PriorityQueue<>();
+    private long mSequence;
+    private long mLastSendTime;
+
+    @Nonnull
+    private List<String> mPeriodicStList = Collections.emptyList();
+    private long mPeriodicInterval;
+    private long mNextPeriodicTime;
+    @Nullable
+    private Set<String> mLastUdnSet;
+
+    /**
+     * インスタンス作成。
+     *
+     * @param timerExecutor 送信処理を実行するTimerExecutor
+     * @param callback      送信処理を行うコールバック
+     */
+    public SearchScheduler(
+            @Nonnull final TimerExecutor timerExecutor,
+            @Nonnull final Callback callback) {
+        mTimerExecutor = timerExecutor;
+        mCallback = callback;
+    }
+
+    /**
+     * 送信処理を開始する。
+     */
+    public synchronized void start() {
+        if (mTimer != null) {
+            mTimer.cancel();
+        }
+        mTimer = mTimerExecutor.create(this::onTimer);
+        mTimer.wakeUp();
+    }
+
+    /**
+     * 送信処理を終了させる。
+     *
+     * <p>送信待ちの検索及び定期検索は破棄される。
+     */
+    public synchronized void shutdownRequest() {
+        if (mTimer != null) {
+            mTimer.cancel();
+            mTimer = null;
+        }
+        mQueue.clear();
+        mPeriodicStList = Collections.emptyList();
+    }
+
+    // ロックを保持してコールすること
+    private void wakeUp() {
+        if (mTimer != null) {
+            mTimer.wakeUp();
+        }
+    }
+
+    /**
+     * ポリシーを設定する。
+     *
+     * @param policy ポリシー
+     */
+    public synchronized void setPolicy(@Nonnull final SearchPolicy policy) {
+        mPolicy = policy;
+        wakeUp();
+    }
+
+    /**
+     * 検索を行う。
+     *
+     * <p>各STについて、ポリシーで定められた回数の送信を予約する。
+     *
+     * @param stList STのリスト
+     */
+    public synchronized void search(@Nonnull final Collection<String> stList) {
+        enqueue(new LinkedHashSet<>(stList), System.currentTimeMillis());
+        wakeUp();
+    }
+
+    private void enqueue(
+            @Nonnull final Collection<String> stList,
+            final long now) {
+        for (int i = 0; i < mPolicy.getBurstCount(); i++) {
+            final long time = now + i * mPolicy.getBurstInterval();
+            for (final String st : stList) {
+                mQueue.add(new Packet(time, mSequence++, st));
+            }
+        }
+    }
+
+    /**
+     * 定期検索を開始する。
+     *
+     * <p>すぐに一回目の検索を行う。既に定期検索中の場合はSTを置き換え、間隔を初期値に戻す。
+     *
+     * @param stList STのリスト
+     */
+    public synchronized void startPeriodicSearch(@Nonnull final Collection<String> stList) {
+        mPeriodicStList = new ArrayList<>(new LinkedHashSet<>(stList));
+        mPeriodicInterval = 0;
+        mNextPeriodicTime = System.currentTimeMillis();
+        mLastUdnSet = null;
+        wakeUp();
+    }
+
+    /**
+     * 定期検索を停止する。
+     */
+    public synchronized void stopPeriodicSearch() {
+        mPeriodicStList = Collections.emptyList();
+    }
+
+    /**
+     * 定期検索中か否かを返す。
+     *
+     * @return 定期検索中であればtrue
+     */
+    public synchronized boolean isPeriodicSearching() {
+        return !mPeriodicStList.isEmpty();
+    }
+
+    /**
+     * 現在の定期検索の間隔を返す。
+     *
+     * @return 定期検索の間隔[ms]、一回目の検索前は0
+     */
+    // VisibleForTesting
+    synchronized long getPeriodicInterval() {
+        return mPeriodicInterval;
+    }
+
+    /**
+     * 送信待ちの数を返す。
+     *
+     * @return 送信待ちの数
+     */
+    // VisibleForTesting
+    synchronized int getPendingCount() {
+        return mQueue.size();
+    }
+
+    /**
+     * 送信時刻に実行され、送信処理を行う。
+     *
+     * <p>送信するパケットの決定と時刻の計算のみをロックを保持して行い、
+     * 発見済み機器の取得と送信はロックを解放してから行う。
+     * これにより、送信中も{@link #search(Collection)}等の呼び出し元が待たされない。
+     *
+     * @return 次回の実行時刻
+     */
+    // VisibleForTesting
+    long onTimer() {
+        schedulePeriodicSearch(System.currentTimeMillis());
+        final Packet packet;
+        final SearchPolicy policy;
+        synchronized (this) {
+            final long now = System.currentTimeMillis();
+            final Packet head = mQueue.peek();
+            if (head == null || head.mTime > now
+                    || now - mLastSendTime < mPolicy.getMinSearchInterval()) {
+                return calculateNextTime(head);
+            }
+            mQueue.poll();
+            mLastSendTime = now;
+            packet = head;
+            policy = mPolicy;
+        }
+        send(packet, policy);
+        synchronized (this) {
+            return calculateNextTime(mQueue.peek());
+        }
+    }
+
+    private void send(
+            @Nonnull final Packet packet,
+            @Nonnull final SearchPolicy policy) {
+        final int mx = policy.calculateMx(mCallback.getDeviceCount());
+        mCallback.send(packet.mSt, mx);
+    }
+
+    private long calculateNextTime(@Nullable final Packet packet) {
+        long next = Long.MAX_VALUE;
+        if (packet != null) {
+            next = Math.max(packet.mTime, mLastSendTime + mPolicy.getMinSearchInterval());
+        }
+        if (!mPeriodicStList.isEmpty()) {
+            next = Math.min(next, mNextPeriodicTime);
+        }
+        return next;
+    }
+
+    private boolean isPeriodicSearchDue(final long now) {
+        return !mPeriodicStList.isEmpty() && now >= mNextPeriodicTime;
+    }
+
+    /**
+     * 定期検索の時刻であれば、検索を予約し次回の時刻を決定する。
+     *
+     * <p>発見済み機器の取得はロックを保持せずに行う。
+     *
+     * @param now 現在時刻
+     */
+    // VisibleForTesting
+    void schedulePeriodicSearch(final long now) {
+        synchronized (this) {
+            if (!isPeriodicSearchDue(now)) {
+                return;
+            }
+        }
+        final Set<String> udnSet = mCallback.getDeviceUdnSet();
+        synchronized (this) {
+            if (!isPeriodicSearchDue(now)) {
+                return;
+            }
+            if (mPeriodicInterval == 0 || mLastUdnSet == null || !mLastUdnSet.equals(udnSet)) {
+                mPeriodicInterval = mPolicy.getPeriodicInterval();
+            } else {
+                mPeriodicInterval = Math.min(mPeriodicInterval * 2, mPolicy.getMaxPeriodicInterval());
+            }
+            mLastUdnSet = udnSet;
+            mNextPeriodicTime = now + mPeriodicInterval;
+            enqueue(mPeriodicStList, now);
+        }
+    }
+}
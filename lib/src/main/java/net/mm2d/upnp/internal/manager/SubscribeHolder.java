@@ -8,6 +8,10 @@
 package net.mm2d.upnp.internal.manager;
 
 import net.mm2d.upnp.Service;
+import net.mm2d.upnp.internal.thread.IoTaskType;
+import net.mm2d.upnp.internal.thread.TaskHandler;
+import net.mm2d.upnp.internal.thread.TimerExecutor;
+import net.mm2d.upnp.internal.thread.TimerExecutor.Timer;
 import net.mm2d.util.TextUtils;
 
 import java.io.IOException;
@@ -28,40 +32,59 @@ import javax.annotation.Nullable;
  * <p>指定すればSubscribeの期限が切れないように定期的にrenewを実行する。
  * また、期限が切れたサービスは削除される。
  *
+ * <p>専用のスレッドは持たず、{@link TimerExecutor}で必要な時刻に確認を行い、
+ * 通信を伴うrenew及びunsubscribeはIOスレッドで実行する。
+ *
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
  */
-public class SubscribeHolder implements Runnable {
+public class SubscribeHolder {
     private static final long MIN_INTERVAL = TimeUnit.SECONDS.toMillis(1);
 
-    private volatile boolean mShutdownRequest = false;
     @Nonnull
-    private final Object mThreadLock = new Object();
+    private final TaskHandler mTaskHandler;
     @Nullable
-    private Thread mThread;
+    private Timer mTimer;
+    // renew処理をIOスレッドで実行中か否か
+    private boolean mRenewing;
     @Nonnull
     private final Map<String, SubscribeService> mSubscriptionMap = new HashMap<>();
 
     /**
-     * スレッドを開始する。
+     * インスタンス作成。
+     *
+     * @param taskHandler タイマー及びIO処理を実行するTaskHandler
+     */
+    public SubscribeHolder(@Nonnull final TaskHandler taskHandler) {
+        mTaskHandler = taskHandler;
+    }
+
+    /**
+     * renewの確認を開始する。
      */
-    void start() {
-        mShutdownRequest = false;
-        synchronized (mThreadLock) {
-            mThread = new Thread(this, getClass().getSimpleName());
-            mThread.start();
+    synchronized void start() {
+        if (mTimer != null) {
+            mTimer.cancel();
         }
+        mTimer = mTaskHandler.getTimerExecutor().create(this::onTimer);
+        mTimer.wakeUp();
     }
 
     /**
-     * スレッドの停止を要求する。
+     * renewの確認を停止する。
+     *
+     * <p>実行中のrenew処理は完了まで実行される。
      */
-    void shutdownRequest() {
-        mShutdownRequest = true;
-        synchronized (mThreadLock) {
-            if (mThread != null) {
-                mThread.interrupt();
-                mThread = null;
-            }
+    synchronized void shutdownRequest() {
+        if (mTimer != null) {
+            mTimer.cancel();
+            mTimer = null;
+        }
+    }
+
+    // ロックを保持してコールすること
+    private void wakeUp() {
+        if (mTimer != null) {
+            mTimer.wakeUp();
         }
     }
 
@@ -81,7 +104,7 @@ public class SubscribeHolder implements Runnable {
         }
         final SubscribeService subscribeService = new SubscribeService(service, timeout, keepRenew);
         mSubscriptionMap.put(id, subscribeService);
-        notifyAll();
+        wakeUp();
     }
 
     synchronized void renew(
@@ -100,7 +123,7 @@ public class SubscribeHolder implements Runnable {
         if (subscribing != null) {
             subscribing.setKeepRenew(keep);
         }
-        notifyAll();
+        wakeUp();
     }
 
     /**
@@ -109,9 +132,7 @@ public class SubscribeHolder implements Runnable {
      * @param service 削除するサービス
      */
     synchronized void remove(@Nonnull final Service service) {
-        if (mSubscriptionMap.remove(service.getSubscriptionId()) != null) {
-            notifyAll();
-        }
+        mSubscriptionMap.remove(service.getSubscriptionId());
     }
 
     /**
@@ -131,6 +152,23 @@ public class SubscribeHolder implements Runnable {
         return list;
     }
 
+    /**
+     * 保持しているServiceの購読状態を含むListを返す。
+     *
+     * @return 購読状態のリスト
+     */
+    @Nonnull
+    synchronized List<SubscriptionInfo> getSubscriptionList() {
+        if (mSubscriptionMap.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<SubscriptionInfo> list = new ArrayList<>();
+        for (final Map.Entry<String, SubscribeService> entry : mSubscriptionMap.entrySet()) {
+            list.add(entry.getValue().toSubscriptionInfo(entry.getKey()));
+        }
+        return list;
+    }
+
     /**
      * Subscription IDに該当するServiceを返す。
      *
@@ -153,34 +191,51 @@ public class SubscribeHolder implements Runnable {
         mSubscriptionMap.clear();
     }
 
-    @Override
-    public void run() {
-        try {
-            while (!mShutdownRequest) {
-                renewSubscribe(waitEntry());
-                removeExpiredService();
-                waitNextRenewTime();
+    /**
+     * renewの確認時刻に実行され、renew処理をIOスレッドに依頼する。
+     *
+     * <p>renew処理の実行中は新たに依頼せず、renew処理の完了後に次回の確認時刻を設定する。
+     *
+     * @return 次回の確認時刻
+     */
+    private long onTimer() {
+        final Collection<SubscribeService> serviceList;
+        synchronized (this) {
+            if (mRenewing || mSubscriptionMap.isEmpty()) {
+                return Long.MAX_VALUE;
             }
-        } catch (final InterruptedException ignored) {
+            mRenewing = true;
+            // 操作をロックしないようにコピーに対して処理を行う。
+            serviceList = new ArrayList<>(mSubscriptionMap.values());
         }
+        if (mTaskHandler.io(IoTaskType.SUBSCRIPTION, () -> renew(serviceList))) {
+            return Long.MAX_VALUE;
+        }
+        synchronized (this) {
+            mRenewing = false;
+        }
+        return System.currentTimeMillis() + MIN_INTERVAL;
     }
 
     /**
-     * ServiceListに何らかのエントリーが追加されるまで待機する。
-     *
-     * <p>戻り値としてrenewのトリガをかけるServiceのコレクションを返す。
-     * renew処理は排他を行わず実行するため、排他する必要が無いように、他に影響のないコピーを返す。
+     * renewと期限切れのServiceの削除を行い、次回の確認時刻を設定する。
      *
-     * @return renewのトリガをかけるServiceのコレクション
-     * @throws InterruptedException 割り込みが発生した
+     * @param serviceList renewのトリガをかけるServiceのコレクション
      */
-    @Nonnull
-    private synchronized Collection<SubscribeService> waitEntry() throws InterruptedException {
-        while (mSubscriptionMap.size() == 0) {
-            wait();
+    // VisibleForTesting
+    void renew(@Nonnull final Collection<SubscribeService> serviceList) {
+        try {
+            renewSubscribe(serviceList);
+            removeExpiredService();
+        } finally {
+            synchronized (this) {
+                mRenewing = false;
+                if (mTimer != null && !mSubscriptionMap.isEmpty()) {
+                    // ビジーループを回避するため最小値を設ける
+                    mTimer.schedule(Math.max(findMostRecentTime(), System.currentTimeMillis() + MIN_INTERVAL));
+                }
+            }
         }
-        // 操作をロックしないようにコピーに対して処理を行う。
-        return new ArrayList<>(mSubscriptionMap.values());
     }
 
     /**
@@ -201,33 +256,27 @@ public class SubscribeHolder implements Runnable {
 
     /**
      * 期限切れのServiceを削除する。
+     *
+     * <p>unsubscribeはネットワーク通信を含むため、ロックを解放してから行う。
      */
-    private synchronized void removeExpiredService() {
-        final long now = System.currentTimeMillis();
-        final List<SubscribeService> list = new ArrayList<>(mSubscriptionMap.values());
-        for (final SubscribeService s : list) {
-            if (s.isExpired(now)) {
-                final Service service = s.getService();
-                remove(service);
-                try {
-                    service.unsubscribe();
-                } catch (final IOException ignored) {
+    private void removeExpiredService() {
+        final List<Service> expiredList = new ArrayList<>();
+        synchronized (this) {
+            final long now = System.currentTimeMillis();
+            for (final SubscribeService s : new ArrayList<>(mSubscriptionMap.values())) {
+                if (s.isExpired(now)) {
+                    final Service service = s.getService();
+                    remove(service);
+                    expiredList.add(service);
                 }
             }
         }
-    }
-
-    /**
-     * 直近のRenew実行時間まで待機する。
-     *
-     * @throws InterruptedException 割り込みが発生した
-     */
-    private synchronized void waitNextRenewTime() throws InterruptedException {
-        if (mSubscriptionMap.size() == 0) {
-            return;
+        for (final Service service : expiredList) {
+            try {
+                service.unsubscribe();
+            } catch (final IOException ignored) {
+            }
         }
-        final long sleep = findMostRecentTime() - System.currentTimeMillis();
-        wait(Math.max(sleep, MIN_INTERVAL));// ビジーループを回避するため最小値を設ける
     }
 
     /**
@@ -12,8 +12,10 @@ import net.mm2d.upnp.ControlPoint.NotifyEventListener;
 import net.mm2d.upnp.Service;
 import net.mm2d.upnp.StateVariable;
 import net.mm2d.upnp.internal.impl.DiFactory;
+import net.mm2d.upnp.internal.impl.ServiceImpl;
 import net.mm2d.upnp.internal.server.EventReceiver;
 import net.mm2d.upnp.internal.server.EventReceiver.EventMessageListener;
+import net.mm2d.upnp.internal.thread.IoTaskType;
 import net.mm2d.upnp.internal.thread.TaskHandler;
 import net.mm2d.util.StringPair;
 
@@ -39,7 +41,7 @@ public class SubscribeManager implements EventMessageListener {
             @Nonnull final DiFactory factory) {
         mTaskHandler = taskHandler;
         mNotifyEventListener = listener;
-        mSubscribeHolder = factory.createSubscribeHolder();
+        mSubscribeHolder = factory.createSubscribeHolder(taskHandler);
         mEventReceiver = factory.createEventReceiver(this);
     }
 
@@ -53,11 +55,46 @@ public class SubscribeManager implements EventMessageListener {
         if (service == null) {
             Log.e("service is null");
         }
-        return service != null && mTaskHandler.callback(() -> {
-            for (final StringPair pair : properties) {
-                notifyEvent(service, seq, pair.getKey(), pair.getValue());
-            }
-        });
+        return service != null && dispatchEvent(service, seq, properties);
+    }
+
+    /**
+     * 受信したイベントをコールバックスレッドで通知する。
+     *
+     * <p>Description XMLが未読み込みのServiceの場合、
+     * 読み込みは通信を伴いコールバックスレッドを停滞させるため、IOスレッドで読み込んでから通知する。
+     * 読み込みはイベント毎に一度だけ試行し、失敗した場合はそのイベントを破棄する。
+     * 読み込みを待つ間に受信したイベントとは通知の順序が入れ替わる可能性がある。
+     *
+     * @param service    イベントを受信したService
+     * @param seq        SEQヘッダの値
+     * @param properties プロパティ
+     * @return 受け付けた場合true
+     */
+    private boolean dispatchEvent(
+            @Nonnull final Service service,
+            final long seq,
+            @Nonnull final List<StringPair> properties) {
+        if (service instanceof ServiceImpl && !((ServiceImpl) service).isDescriptionLoaded()) {
+            final ServiceImpl serviceImpl = (ServiceImpl) service;
+            return mTaskHandler.io(IoTaskType.SUBSCRIPTION, () -> {
+                if (!serviceImpl.loadDescriptionIfNeeded()) {
+                    Log.w("drop event, fail to load description:" + serviceImpl.getScpdUrl());
+                    return;
+                }
+                mTaskHandler.callback(() -> notifyEvents(service, seq, properties));
+            });
+        }
+        return mTaskHandler.callback(() -> notifyEvents(service, seq, properties));
+    }
+
+    private void notifyEvents(
+            @Nonnull final Service service,
+            final long seq,
+            @Nonnull final List<StringPair> properties) {
+        for (final StringPair pair : properties) {
+            notifyEvent(service, seq, pair.getKey(), pair.getValue());
+        }
     }
 
     private void notifyEvent(
@@ -88,7 +125,7 @@ public class SubscribeManager implements EventMessageListener {
     public void stop() {
         final List<Service> serviceList = mSubscribeHolder.getServiceList();
         for (final Service service : serviceList) {
-            mTaskHandler.io(() -> {
+            mTaskHandler.io(IoTaskType.SUBSCRIPTION, () -> {
                 try {
                     service.unsubscribe();
                 } catch (final IOException e) {
@@ -128,6 +165,16 @@ public class SubscribeManager implements EventMessageListener {
         return mSubscribeHolder.getService(subscriptionId);
     }
 
+    /**
+     * 購読中のServiceの状態のリストを返す。
+     *
+     * @return 購読状態のリスト
+     */
+    @Nonnull
+    public List<SubscriptionInfo> getSubscriptionList() {
+        return mSubscribeHolder.getSubscriptionList();
+    }
+
     /**
      * SubscriptionIDが確定したServiceを購読リストに登録する
      *
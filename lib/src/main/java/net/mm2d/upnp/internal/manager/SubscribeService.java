@@ -69,6 +69,17 @@ class SubscribeService {
         return mService;
     }
 
+    /**
+     * 現在の状態をSubscriptionInfoとして返す。
+     *
+     * @param subscriptionId SubscriptionID
+     * @return SubscriptionInfo
+     */
+    @Nonnull
+    SubscriptionInfo toSubscriptionInfo(@Nonnull final String subscriptionId) {
+        return new SubscriptionInfo(mService, subscriptionId, mSubscriptionExpiryTime, mKeepRenew);
+    }
+
     /**
      * リトライ回数の上限を超えて失敗した状態かを返す。
      *
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.manager;
+
+import net.mm2d.upnp.Service;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 購読中のServiceの状態を表すスナップショット。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public final class SubscriptionInfo {
+    @Nonnull
+    private final Service mService;
+    @Nonnull
+    private final String mSubscriptionId;
+    private final long mExpiryTime;
+    private final boolean mKeepRenew;
+
+    SubscriptionInfo(
+            @Nonnull final Service service,
+            @Nonnull final String subscriptionId,
+            final long expiryTime,
+            final boolean keepRenew) {
+        mService = service;
+        mSubscriptionId = subscriptionId;
+        mExpiryTime = expiryTime;
+        mKeepRenew = keepRenew;
+    }
+
+    /**
+     * 購読中のServiceを返す。
+     *
+     * @return Service
+     */
+    @Nonnull
+    public Service getService() {
+        return mService;
+    }
+
+    /**
+     * SubscriptionIDを返す。
+     *
+     * @return SubscriptionID
+     */
+    @Nonnull
+    public String getSubscriptionId() {
+        return mSubscriptionId;
+    }
+
+    /**
+     * 購読の有効期限を返す。
+     *
+     * @return 有効期限(UTC[ms])
+     */
+    public long getExpiryTime() {
+        return mExpiryTime;
+    }
+
+    /**
+     * 期限が切れる前にrenewを続けるか否かを返す。
+     *
+     * @return renewを続ける場合true
+     */
+    public boolean isKeepRenew() {
+        return mKeepRenew;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.message;
+
+import net.mm2d.upnp.Http;
+import net.mm2d.util.TextUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * 条件付きリクエストに使用する検証子。
+ *
+ * <p>レスポンスのETag及びLast-Modifiedを保持し、
+ * 再取得時にIf-None-Match及びIf-Modified-Sinceとして送信する。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public final class CacheValidator {
+    @Nullable
+    private final String mETag;
+    @Nullable
+    private final String mLastModified;
+
+    /**
+     * インスタンス作成。
+     *
+     * @param eTag         ETag
+     * @param lastModified Last-Modified
+     */
+    public CacheValidator(
+            @Nullable final String eTag,
+            @Nullable final String lastModified) {
+        mETag = eTag;
+        mLastModified = lastModified;
+    }
+
+    /**
+     * レスポンスから検証子を取り出す。
+     *
+     * @param response レスポンス
+     * @return 検証子、ETagとLast-Modifiedのいずれも含まれない場合null
+     */
+    @Nullable
+    public static CacheValidator from(@Nonnull final HttpResponse response) {
+        final String eTag = response.getHeader(Http.ETAG);
+        final String lastModified = response.getHeader(Http.LAST_MODIFIED);
+        if (TextUtils.isEmpty(eTag) && TextUtils.isEmpty(lastModified)) {
+            return null;
+        }
+        return new CacheValidator(eTag, lastModified);
+    }
+
+    /**
+     * ETagを返す。
+     *
+     * @return ETag
+     */
+    @Nullable
+    public String getETag() {
+        return mETag;
+    }
+
+    /**
+     * Last-Modifiedを返す。
+     *
+     * @return Last-Modified
+     */
+    @Nullable
+    public String getLastModified() {
+        return mLastModified;
+    }
+
+    /**
+     * リクエストに条件ヘッダを設定する。
+     *
+     * @param request リクエスト
+     */
+    public void apply(@Nonnull final HttpRequest request) {
+        if (!TextUtils.isEmpty(mETag)) {
+            request.setHeader(Http.IF_NONE_MATCH, mETag);
+        }
+        if (!TextUtils.isEmpty(mLastModified)) {
+            request.setHeader(Http.IF_MODIFIED_SINCE, mLastModified);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return (mETag == null ? 0 : mETag.hashCode()) * 31
+                + (mLastModified == null ? 0 : mLastModified.hashCode());
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CacheValidator)) {
+            return false;
+        }
+        final CacheValidator other = (CacheValidator) obj;
+        return TextUtils.equals(mETag, other.mETag) && TextUtils.equals(mLastModified, other.mLastModified);
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return "ETag:" + mETag + " Last-Modified:" + mLastModified;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.message;
+
+import net.mm2d.upnp.Http;
+import net.mm2d.util.TextUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * HTTPのContent-Encodingの符号化・復号を行う。
+ *
+ * <p>gzipとdeflateに対応する。
+ * deflateはzlib形式が正しいが、zlibヘッダのない生のdeflateを返す実装も存在するため、両方を受け付ける。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public final class ContentCoding {
+    /**
+     * リクエストのAccept-Encodingに設定する値。
+     */
+    public static final String ACCEPT_ENCODING_VALUE = Http.GZIP + ", " + Http.DEFLATE;
+    /**
+     * 復号後のボディの最大サイズ。
+     *
+     * <p>高圧縮率のデータによってメモリを使い果たすことを防ぐため、これを超える場合は復号を中断する。
+     */
+    public static final int MAX_DECODED_SIZE = 16 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * 復号可能なContent-Encodingか否かを返す。
+     *
+     * @param encoding Content-Encodingの値
+     * @return 復号可能な場合true
+     */
+    public static boolean isSupported(@Nullable final String encoding) {
+        if (encoding == null) {
+            return false;
+        }
+        final String value = encoding.trim().toLowerCase(Locale.US);
+        return Http.GZIP.equals(value) || "x-gzip".equals(value) || Http.DEFLATE.equals(value);
+    }
+
+    /**
+     * Content-Encodingに従ってボディを復号する。
+     *
+     * <p>復号後のサイズが{@link #MAX_DECODED_SIZE}を超える場合はIOExceptionとする。
+     *
+     * @param encoding Content-Encodingの値
+     * @param data     符号化されたボディ
+     * @return 復号したボディ
+     * @throws IOException 対応していない形式、復号に失敗した場合、もしくは復号後のサイズが上限を超える場合
+     */
+    @Nonnull
+    public static byte[] decode(
+            @Nonnull final String encoding,
+            @Nonnull final byte[] data) throws IOException {
+        return decode(encoding, data, MAX_DECODED_SIZE);
+    }
+
+    // VisibleForTesting
+    @Nonnull
+    static byte[] decode(
+            @Nonnull final String encoding,
+            @Nonnull final byte[] data,
+            final int maxSize) throws IOException {
+        if (!isSupported(encoding)) {
+            throw new IOException("unsupported encoding: " + encoding);
+        }
+        if (data.length == 0) {
+            return data;
+        }
+        final InputStream is;
+        if (Http.DEFLATE.equals(encoding.trim().toLowerCase(Locale.US))) {
+            is = new InflaterInputStream(new ByteArrayInputStream(data), new Inflater(!isZlibHeader(data)));
+        } else {
+            is = new GZIPInputStream(new ByteArrayInputStream(data), BUFFER_SIZE);
+        }
+        try {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream((int) Math.min(data.length * 4L, maxSize));
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int size;
+            while ((size = is.read(buffer)) >= 0) {
+                if (size > maxSize - baos.size()) {
+                    throw new IOException("decoded body exceeds " + maxSize + " bytes");
+                }
+                baos.write(buffer, 0, size);
+            }
+            return baos.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+
+    private static boolean isZlibHeader(@Nonnull final byte[] data) {
+        if (data.length < 2) {
+            return false;
+        }
+        final int cmf = data[0] & 0xff;
+        final int flg = data[1] & 0xff;
+        return (cmf & 0x0f) == 8 && ((cmf << 8) | flg) % 31 == 0;
+    }
+
+    /**
+     * gzipで符号化する。
+     *
+     * @param data 符号化するボディ
+     * @return 符号化したボディ
+     * @throws IOException 符号化に失敗した場合
+     */
+    @Nonnull
+    public static byte[] encodeGzip(@Nonnull final byte[] data) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(data.length / 4 + 32);
+        final GZIPOutputStream gzip = new GZIPOutputStream(baos);
+        try {
+            gzip.write(data);
+        } finally {
+            gzip.close();
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * Accept-Encodingの値がgzipを受け入れるものか否かを返す。
+     *
+     * <p>q値が0のものは受け入れないものとして扱う。
+     *
+     * @param acceptEncoding Accept-Encodingの値
+     * @return gzipを受け入れる場合true
+     */
+    public static boolean acceptsGzip(@Nullable final String acceptEncoding) {
+        if (TextUtils.isEmpty(acceptEncoding)) {
+            return false;
+        }
+        for (final String element : acceptEncoding.split(",")) {
+            final String[] params = element.split(";");
+            final String coding = params[0].trim().toLowerCase(Locale.US);
+            if (!Http.GZIP.equals(coding) && !"x-gzip".equals(coding)) {
+                continue;
+            }
+            return !isZeroQuality(params);
+        }
+        return false;
+    }
+
+    private static boolean isZeroQuality(@Nonnull final String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            final String param = params[i].trim();
+            if (!param.startsWith("q=")) {
+                continue;
+            }
+            try {
+                return Float.parseFloat(param.substring(2).trim()) <= 0f;
+            } catch (final NumberFormatException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // インスタンス化禁止
+    private ContentCoding() {
+    }
+}
@@ -7,11 +7,10 @@
 
 package net.mm2d.upnp.internal.message;
 
-import net.mm2d.util.TextUtils;
-
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.List;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -22,28 +21,84 @@ import javax.annotation.Nullable;
  * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
  */
 class HttpHeaders {
+    private static final int INITIAL_CAPACITY = 8;
+
     /**
-     * 名前をもとにKeyとして使用できる文字列を作成して返す。
+     * 大文字小文字の区別を行わないハッシュ値を返す。
+     *
+     * <p>文字列を変換せずに計算するため、アロケーションは発生しない。
      *
      * @param name 名前
-     * @return Key
+     * @return ハッシュ値
      */
-    @Nonnull
-    private static String toKey(@Nonnull final String name) {
-        return TextUtils.toLowerCase(name);
+    // VisibleForTesting
+    static int hashIgnoreCase(@Nonnull final String name) {
+        int hash = 0;
+        final int length = name.length();
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + Character.toLowerCase(name.charAt(i));
+        }
+        return hash;
+    }
+
+    /**
+     * 大文字小文字の区別を行わずに一致するかを返す。
+     *
+     * @param a 比較対象
+     * @param b 比較対象
+     * @return 一致する場合true
+     */
+    // VisibleForTesting
+    static boolean equalsIgnoreCase(
+            @Nonnull final String a,
+            @Nonnull final String b) {
+        return a.length() == b.length() && regionMatchesIgnoreCase(a, 0, b);
+    }
+
+    private static boolean regionMatchesIgnoreCase(
+            @Nonnull final String string,
+            final int offset,
+            @Nonnull final String other) {
+        final int length = other.length();
+        for (int i = 0; i < length; i++) {
+            if (Character.toLowerCase(string.charAt(offset + i)) != Character.toLowerCase(other.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 大文字小文字の区別を行わずに文字列が含まれるかを返す。
+     *
+     * @param string 検索対象
+     * @param target 検索する文字列
+     * @return 含まれる場合true
+     */
+    // VisibleForTesting
+    static boolean containsIgnoreCase(
+            @Nonnull final String string,
+            @Nonnull final String target) {
+        final int last = string.length() - target.length();
+        for (int i = 0; i <= last; i++) {
+            if (regionMatchesIgnoreCase(string, i, target)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
      * ヘッダのエントリー情報。
      *
-     * <p>name/valueともにsetterがあるが、
-     * nameは大文字小文字の差異のみがある場合に限る
+     * <p>{@link HttpHeaders#values()}で返されるコピーとして使用する。
+     * nameのsetterがあるが、大文字小文字の差異のみがある場合に限る
      */
     public static class Entry {
         @Nonnull
         private String mName;
         @Nonnull
-        private String mValue;
+        private final String mValue;
 
         /**
          * インスタンス作成。
@@ -76,7 +131,7 @@ class HttpHeaders {
          */
         // VisibleForTesting
         void setName(@Nonnull final String name) {
-            if (!toKey(mName).equals(toKey(name))) {
+            if (!equalsIgnoreCase(mName, name)) {
                 throw new IllegalArgumentException();
             }
             mName = name;
@@ -92,15 +147,6 @@ class HttpHeaders {
             return mName;
         }
 
-        /**
-         * 値を設定する。
-         *
-         * @param value 値
-         */
-        private void setValue(@Nonnull final String value) {
-            mValue = value;
-        }
-
         /**
          * 値を返す。
          *
@@ -135,13 +181,22 @@ class HttpHeaders {
         }
     }
 
-    private final Map<String, Entry> mMap;
+    // ヘッダ名、値、ハッシュ値をそれぞれ並列の配列で保持する
+    @Nonnull
+    private String[] mNames;
+    @Nonnull
+    private String[] mValues;
+    @Nonnull
+    private int[] mHashes;
+    private int mSize;
 
     /**
      * インスタンス初期化。
      */
     public HttpHeaders() {
-        mMap = new LinkedHashMap<>();
+        mNames = new String[INITIAL_CAPACITY];
+        mValues = new String[INITIAL_CAPACITY];
+        mHashes = new int[INITIAL_CAPACITY];
     }
 
     /**
@@ -150,12 +205,11 @@ class HttpHeaders {
      * @param original コピー元
      */
     public HttpHeaders(@Nonnull final HttpHeaders original) {
-        // EntryはmutableなのでDeep copyが必要
-        mMap = new LinkedHashMap<>();
-        for (final Entry entry : original.mMap.values()) {
-            final String key = toKey(entry.getName());
-            mMap.put(key, new Entry(entry.getName(), entry.getValue()));
-        }
+        final int capacity = Math.max(original.mSize, INITIAL_CAPACITY);
+        mNames = Arrays.copyOf(original.mNames, capacity);
+        mValues = Arrays.copyOf(original.mValues, capacity);
+        mHashes = Arrays.copyOf(original.mHashes, capacity);
+        mSize = original.mSize;
     }
 
     /**
@@ -164,7 +218,7 @@ class HttpHeaders {
      * @return ヘッダエントリー数
      */
     public int size() {
-        return mMap.size();
+        return mSize;
     }
 
     /**
@@ -173,7 +227,17 @@ class HttpHeaders {
      * @return ヘッダが空のときtrue
      */
     public boolean isEmpty() {
-        return mMap.isEmpty();
+        return mSize == 0;
+    }
+
+    private int indexOf(@Nonnull final String name) {
+        final int hash = hashIgnoreCase(name);
+        for (int i = 0; i < mSize; i++) {
+            if (mHashes[i] == hash && equalsIgnoreCase(mNames[i], name)) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     /**
@@ -186,8 +250,36 @@ class HttpHeaders {
      */
     @Nullable
     public String get(@Nonnull final String name) {
-        final Entry entry = mMap.get(toKey(name));
-        return entry != null ? entry.getValue() : null;
+        final int index = indexOf(name);
+        return index >= 0 ? mValues[index] : null;
+    }
+
+    /**
+     * 指定位置のヘッダ名を返す。
+     *
+     * @param index 登録順のインデックス
+     * @return ヘッダ名
+     */
+    @Nonnull
+    public String getName(final int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException();
+        }
+        return mNames[index];
+    }
+
+    /**
+     * 指定位置のヘッダの値を返す。
+     *
+     * @param index 登録順のインデックス
+     * @return ヘッダの値
+     */
+    @Nonnull
+    public String getValue(final int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException();
+        }
+        return mValues[index];
     }
 
     /**
@@ -200,8 +292,21 @@ class HttpHeaders {
      */
     @Nullable
     public String remove(@Nonnull final String name) {
-        final Entry entry = mMap.remove(toKey(name));
-        return entry != null ? entry.getValue() : null;
+        final int index = indexOf(name);
+        if (index < 0) {
+            return null;
+        }
+        final String value = mValues[index];
+        final int moved = mSize - index - 1;
+        if (moved > 0) {
+            System.arraycopy(mNames, index + 1, mNames, index, moved);
+            System.arraycopy(mValues, index + 1, mValues, index, moved);
+            System.arraycopy(mHashes, index + 1, mHashes, index, moved);
+        }
+        mSize--;
+        mNames[mSize] = null;
+        mValues[mSize] = null;
+        return value;
     }
 
     /**
@@ -220,15 +325,23 @@ class HttpHeaders {
     public String put(
             @Nonnull final String name,
             @Nonnull final String value) {
-        final String key = toKey(name);
-        final Entry entry = mMap.get(key);
-        if (entry != null) {
-            final String oldValue = entry.getValue();
-            entry.setName(name);
-            entry.setValue(value);
+        final int index = indexOf(name);
+        if (index >= 0) {
+            final String oldValue = mValues[index];
+            mNames[index] = name;
+            mValues[index] = value;
             return oldValue;
         }
-        mMap.put(key, new Entry(name, value));
+        if (mSize == mNames.length) {
+            final int capacity = mSize * 2;
+            mNames = Arrays.copyOf(mNames, capacity);
+            mValues = Arrays.copyOf(mValues, capacity);
+            mHashes = Arrays.copyOf(mHashes, capacity);
+        }
+        mNames[mSize] = name;
+        mValues[mSize] = value;
+        mHashes[mSize] = hashIgnoreCase(name);
+        mSize++;
         return null;
     }
 
@@ -244,35 +357,44 @@ class HttpHeaders {
     public boolean containsValue(
             @Nonnull final String name,
             @Nonnull final String value) {
-        final String v = TextUtils.toLowerCase(get(name));
-        return v != null && v.contains(TextUtils.toLowerCase(value));
+        final String v = get(name);
+        return v != null && containsIgnoreCase(v, value);
     }
 
     /**
      * 登録情報のクリアを行う。
      */
     public void clear() {
-        mMap.clear();
+        Arrays.fill(mNames, 0, mSize, null);
+        Arrays.fill(mValues, 0, mSize, null);
+        mSize = 0;
     }
 
     /**
-     * 登録されているヘッダ情報へのCollectionビューを返す。
+     * 登録されているヘッダ情報のコピーを返す。
+     *
+     * <p>呼び出し毎にEntryを作成するため、
+     * 頻繁に呼び出される箇所では{@link #getName(int)}/{@link #getValue(int)}を使用すること。
      *
-     * @return 登録されているヘッダ情報へのCollectionビュー
+     * @return 登録されているヘッダ情報のコピー
      */
     @Nonnull
     public Collection<Entry> values() {
-        return mMap.values();
+        final List<Entry> list = new ArrayList<>(mSize);
+        for (int i = 0; i < mSize; i++) {
+            list.add(new Entry(mNames[i], mValues[i]));
+        }
+        return list;
     }
 
     @Override
     @Nonnull
     public String toString() {
         final StringBuilder sb = new StringBuilder();
-        for (final Entry entry : mMap.values()) {
-            sb.append(entry.getName());
+        for (int i = 0; i < mSize; i++) {
+            sb.append(mNames[i]);
             sb.append(": ");
-            sb.append(entry.getValue());
+            sb.append(mValues[i]);
             sb.append("\r\n");
         }
         return sb.toString();
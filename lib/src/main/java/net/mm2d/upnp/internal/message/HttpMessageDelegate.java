@@ -250,10 +250,11 @@ class HttpMessageDelegate implements HttpMessage {
         final StringBuilder sb = new StringBuilder();
         sb.append(getStartLine());
         sb.append(EOL);
-        for (final HttpHeaders.Entry entry : mHeaders.values()) {
-            sb.append(entry.getName());
+        final int size = mHeaders.size();
+        for (int i = 0; i < size; i++) {
+            sb.append(mHeaders.getName(i));
             sb.append(": ");
-            sb.append(entry.getValue());
+            sb.append(mHeaders.getValue(i));
             sb.append(EOL);
         }
         sb.append(EOL);
@@ -330,6 +331,28 @@ class HttpMessageDelegate implements HttpMessage {
         return this;
     }
 
+    /**
+     * Content-Encodingで符号化されたボディを復号する。
+     *
+     * <p>{@link #readData(InputStream)}では復号しないため、
+     * Accept-Encodingを送信したリクエストに対するレスポンスについてのみコールすること。
+     * 復号後はContent-Encodingを削除し、復号後のボディに合わせてContent-Lengthを更新する。
+     * 対応していない形式の場合はそのままとする。
+     *
+     * @throws IOException 復号に失敗した場合、もしくは復号後のサイズが上限を超える場合
+     * @see ContentCoding#MAX_DECODED_SIZE
+     */
+    public void decodeBody() throws IOException {
+        final String encoding = mHeaders.get(Http.CONTENT_ENCODING);
+        if (mBodyBinary == null || !ContentCoding.isSupported(encoding)) {
+            return;
+        }
+        //noinspection ConstantConditions : isSupportedでチェック済み
+        final byte[] decoded = ContentCoding.decode(encoding, mBodyBinary);
+        mHeaders.remove(Http.CONTENT_ENCODING);
+        setBodyBinary(decoded, !isChunked());
+    }
+
     private void readStartLine(@Nonnull final InputStream inputStream) throws IOException {
         final String startLine = readLine(inputStream);
         if (TextUtils.isEmpty(startLine)) {
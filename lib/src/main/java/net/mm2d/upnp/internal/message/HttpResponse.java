@@ -313,6 +313,22 @@ public class HttpResponse implements HttpMessage {
         return this;
     }
 
+    /**
+     * Content-Encodingで符号化されたボディを復号する。
+     *
+     * <p>{@link #readData(InputStream)}では復号しないため、
+     * Accept-Encodingを送信したリクエストに対するレスポンスについてのみコールすること。
+     * 復号後はContent-Encodingを削除し、復号後のボディに合わせてContent-Lengthを更新する。
+     *
+     * @return HttpResponse
+     * @throws IOException 復号に失敗した場合、もしくは復号後のサイズが上限を超える場合
+     */
+    @Nonnull
+    public HttpResponse decodeBody() throws IOException {
+        mDelegate.decodeBody();
+        return this;
+    }
+
     @Override
     public String toString() {
         return mDelegate.toString();
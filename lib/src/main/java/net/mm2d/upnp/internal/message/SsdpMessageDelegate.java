@@ -59,6 +59,20 @@ class SsdpMessageDelegate implements SsdpMessage {
     public SsdpMessageDelegate(
             @Nonnull final HttpMessage message,
             @Nonnull final InetAddress address) {
+        this(message, address, -1);
+    }
+
+    /**
+     * 有効期限を指定してインスタンス作成。
+     *
+     * @param message    メッセージ
+     * @param address    受信したインターフェースのアドレス
+     * @param expireTime 有効期限、負の値の場合は現在時刻とmax-ageから計算する
+     */
+    public SsdpMessageDelegate(
+            @Nonnull final HttpMessage message,
+            @Nonnull final InetAddress address,
+            final long expireTime) {
         mMessage = message;
         mLocalAddress = address;
         mMaxAge = parseCacheControl(mMessage);
@@ -67,7 +81,8 @@ class SsdpMessageDelegate implements SsdpMessage {
         mType = result[1];
         mLocation = mMessage.getHeader(Http.LOCATION);
         mNts = mMessage.getHeader(Http.NTS);
-        mExpireTime = TimeUnit.SECONDS.toMillis(mMaxAge) + System.currentTimeMillis();
+        mExpireTime = expireTime >= 0 ? expireTime
+                : TimeUnit.SECONDS.toMillis(mMaxAge) + System.currentTimeMillis();
     }
 
     // VisibleForTesting
@@ -43,9 +43,27 @@ public class SsdpResponse implements SsdpMessage {
             @Nonnull final byte[] data,
             final int length)
             throws IOException {
+        this(address, data, length, -1);
+    }
+
+    /**
+     * 保存した情報から有効期限を指定してインスタンス作成。
+     *
+     * @param address    受信したインターフェースのアドレス
+     * @param data       受信したデータ
+     * @param length     受信したデータの長さ
+     * @param expireTime 有効期限、負の値の場合は現在時刻とmax-ageから計算する
+     * @throws IOException 入出力エラー
+     */
+    public SsdpResponse(
+            @Nonnull final InetAddress address,
+            @Nonnull final byte[] data,
+            final int length,
+            final long expireTime)
+            throws IOException {
         mHttpResponse = new HttpResponse()
                 .readData(new ByteArrayInputStream(data, 0, length));
-        mDelegate = new SsdpMessageDelegate(mHttpResponse, address);
+        mDelegate = new SsdpMessageDelegate(mHttpResponse, address, expireTime);
     }
 
     // VisibleForTesting
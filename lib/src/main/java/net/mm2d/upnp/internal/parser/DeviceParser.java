@@ -8,8 +8,10 @@
 package net.mm2d.upnp.internal.parser;
 
 import net.mm2d.upnp.Http;
+import net.mm2d.upnp.Device;
 import net.mm2d.upnp.HttpClient;
 import net.mm2d.upnp.Icon;
+import net.mm2d.upnp.Service;
 import net.mm2d.upnp.internal.impl.DeviceImpl;
 import net.mm2d.upnp.internal.impl.IconImpl;
 import net.mm2d.upnp.internal.impl.ServiceImpl;
@@ -54,6 +56,27 @@ public final class DeviceParser {
             @Nonnull final HttpClient client,
             @Nonnull final DeviceImpl.Builder builder)
             throws IOException, SAXException, ParserConfigurationException {
+        loadDescription(client, builder, false);
+    }
+
+    /**
+     * DeviceDescriptionを読み込む。
+     *
+     * <p>lazyServiceLoadがtrueの場合はserviceのDescriptionの取得を行わず、
+     * Serviceの初回のAction/StateVariable参照時まで読み込みを遅延させる。
+     *
+     * @param client          通信に使用するHttpClient
+     * @param builder         DeviceのBuilder
+     * @param lazyServiceLoad serviceのDescriptionを遅延して読み込む場合true
+     * @throws IOException                  通信上での何らかの問題
+     * @throws SAXException                 XMLのパースに失敗
+     * @throws ParserConfigurationException XMLパーサが利用できない場合
+     */
+    public static void loadDescription(
+            @Nonnull final HttpClient client,
+            @Nonnull final DeviceImpl.Builder builder,
+            final boolean lazyServiceLoad)
+            throws IOException, SAXException, ParserConfigurationException {
         final URL url = Http.makeUrlWithScopeId(builder.getLocation(), builder.getSsdpMessage().getScopeId());
         final String description = client.downloadString(url);
         if (TextUtils.isEmpty(description)) {
@@ -61,7 +84,20 @@ public final class DeviceParser {
         }
         builder.setDownloadInfo(client);
         parseDescription(builder, description);
-        loadServices(client, builder);
+        if (lazyServiceLoad) {
+            setLazyServiceLoad(builder);
+        } else {
+            loadServices(client, builder);
+        }
+    }
+
+    private static void setLazyServiceLoad(@Nonnull final DeviceImpl.Builder builder) {
+        for (final ServiceImpl.Builder serviceBuilder : builder.getServiceBuilderList()) {
+            serviceBuilder.setLazyLoad(true);
+        }
+        for (final DeviceImpl.Builder deviceBuilder : builder.getEmbeddedDeviceBuilderList()) {
+            setLazyServiceLoad(deviceBuilder);
+        }
     }
 
     private static void loadServices(
@@ -76,8 +112,124 @@ public final class DeviceParser {
         }
     }
 
-    // VisibleForTesting
-    static void parseDescription(
+    /**
+     * 構築済みのDeviceのDescriptionを条件付きリクエストで再取得し、Builderに登録する。
+     *
+     * <p>DeviceDescription及び読み込み済みのServiceのDescriptionについて、
+     * 前回取得時の検証子をIf-None-Match/If-Modified-Sinceとして送信する。
+     * 変更がなかったDescriptionは以前の内容を引き継ぎ、SCPDのパースは行わない。
+     * 未読み込みのServiceは、lazyServiceLoadがtrueの場合は遅延読み込みのまま、falseの場合は新たに読み込む。
+     *
+     * <p>DeviceDescriptionに変更がない場合も、SCPDのURLを解決するために保持していた内容をパースする。
+     *
+     * @param client          通信に使用するHttpClient
+     * @param builder         DeviceのBuilder、新しいLocationのSSDPメッセージで作成したもの
+     * @param device          構築済みのDevice
+     * @param lazyServiceLoad serviceのDescriptionを遅延して読み込む場合true
+     * @return いずれかのDescriptionに変更があった場合true
+     * @throws IOException                  通信上での何らかの問題
+     * @throws SAXException                 XMLのパースに失敗
+     * @throws ParserConfigurationException XMLパーサが利用できない場合
+     */
+    public static boolean revalidateDescription(
+            @Nonnull final HttpClient client,
+            @Nonnull final DeviceImpl.Builder builder,
+            @Nonnull final DeviceImpl device,
+            final boolean lazyServiceLoad)
+            throws IOException, SAXException, ParserConfigurationException {
+        final URL url = Http.makeUrlWithScopeId(builder.getLocation(), builder.getSsdpMessage().getScopeId());
+        final String description = client.downloadStringIfModified(url, device.getCacheValidator());
+        final boolean modified;
+        if (description == null) {
+            builder.setCacheValidator(device.getCacheValidator());
+            parseDescription(builder, device.getDescription());
+            modified = false;
+        } else {
+            if (TextUtils.isEmpty(description)) {
+                throw new IOException("download error");
+            }
+            builder.setDownloadInfo(client);
+            parseDescription(builder, description);
+            modified = !description.equals(device.getDescription());
+        }
+        final boolean serviceModified = revalidateServices(client, builder, device, lazyServiceLoad);
+        return modified || serviceModified;
+    }
+
+    private static boolean revalidateServices(
+            @Nonnull final HttpClient client,
+            @Nonnull final DeviceImpl.Builder builder,
+            @Nullable final Device device,
+            final boolean lazyServiceLoad)
+            throws IOException, SAXException, ParserConfigurationException {
+        boolean modified = false;
+        for (final ServiceImpl.Builder serviceBuilder : builder.getServiceBuilderList()) {
+            final ServiceImpl service = findService(device, serviceBuilder.getServiceId());
+            final String loadedDescription = service == null ? null : service.getLoadedDescription();
+            if (service != null && loadedDescription != null) {
+                final String scpdUrl = serviceBuilder.getScpdUrl();
+                if (scpdUrl == null) {
+                    throw new IOException("scpdUrl is null");
+                }
+                final URL url = Http.makeAbsoluteUrl(builder.getBaseUrl(), scpdUrl, builder.getSsdpMessage().getScopeId());
+                if (ServiceParser.revalidateDescription(client, url, serviceBuilder, service.getCacheValidator())) {
+                    modified |= !loadedDescription.equals(serviceBuilder.getDescription());
+                } else {
+                    service.copyLoadedDescription(serviceBuilder);
+                }
+            } else if (lazyServiceLoad) {
+                serviceBuilder.setLazyLoad(true);
+            } else {
+                ServiceParser.loadDescription(client, builder, serviceBuilder);
+                modified = true;
+            }
+        }
+        for (final DeviceImpl.Builder deviceBuilder : builder.getEmbeddedDeviceBuilderList()) {
+            final Device embedded = findEmbeddedDevice(device, deviceBuilder.getUdn());
+            modified |= revalidateServices(client, deviceBuilder, embedded, lazyServiceLoad);
+        }
+        return modified;
+    }
+
+    @Nullable
+    private static ServiceImpl findService(
+            @Nullable final Device device,
+            @Nullable final String serviceId) {
+        if (device == null || serviceId == null) {
+            return null;
+        }
+        final Service service = device.findServiceById(serviceId);
+        return service instanceof ServiceImpl ? (ServiceImpl) service : null;
+    }
+
+    @Nullable
+    private static Device findEmbeddedDevice(
+            @Nullable final Device device,
+            @Nullable final String udn) {
+        if (device == null || udn == null) {
+            return null;
+        }
+        for (final Device embedded : device.getDeviceList()) {
+            if (udn.equals(embedded.getUdn())) {
+                return embedded;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 取得済みのDescriptionをパースし、Builderに登録する。
+     *
+     * <p>icon/serviceのDescriptionの取得は行わない。
+     * 保存した状態から復元する場合など、通信を行わずにDeviceを構築する場合に使用する。
+     *
+     * @param builder     DeviceのBuilder
+     * @param description DeviceDescription XML
+     * @throws IOException                  Descriptionの内容が不正
+     * @throws SAXException                 XMLのパースに失敗
+     * @throws ParserConfigurationException XMLパーサが利用できない場合
+     */
+    public static void parseDescription(
             @Nonnull final DeviceImpl.Builder builder,
             @Nonnull final String description)
             throws IOException, SAXException, ParserConfigurationException {
@@ -13,8 +13,10 @@ import net.mm2d.upnp.StateVariable;
 import net.mm2d.upnp.internal.impl.ActionImpl;
 import net.mm2d.upnp.internal.impl.ArgumentImpl;
 import net.mm2d.upnp.internal.impl.DeviceImpl;
+import net.mm2d.upnp.internal.impl.ScpdModel;
 import net.mm2d.upnp.internal.impl.ServiceImpl;
 import net.mm2d.upnp.internal.impl.StateVariableImpl;
+import net.mm2d.upnp.internal.message.CacheValidator;
 import net.mm2d.util.TextUtils;
 import net.mm2d.util.XmlUtils;
 
@@ -63,15 +65,90 @@ public final class ServiceParser {
         final String baseUrl = deviceBuilder.getBaseUrl();
         final int scopeId = deviceBuilder.getSsdpMessage().getScopeId();
         final URL url = Http.makeAbsoluteUrl(baseUrl, scpdUrl, scopeId);
+        loadDescription(client, url, builder);
+    }
+
+    /**
+     * 指定URLからDescriptionを取得し、パースする。
+     *
+     * <p>Deviceの構築後に遅延してSCPDを読み込む場合に使用する。
+     *
+     * @param client  通信に使用するHttpClient
+     * @param url     SCPDのURL
+     * @param builder ServiceのBuilder
+     * @throws IOException                  通信エラー
+     * @throws SAXException                 XMLパースエラー
+     * @throws ParserConfigurationException 実装が使用できないかインスタンス化できない
+     */
+    public static void loadDescription(
+            @Nonnull final HttpClient client,
+            @Nonnull final URL url,
+            @Nonnull final ServiceImpl.Builder builder)
+            throws IOException, SAXException, ParserConfigurationException {
         final String description = client.downloadString(url);
+        builder.setCacheValidator(client.getCacheValidator());
+        parseDescription(builder, description);
+    }
+
+    /**
+     * 条件付きリクエストで指定URLからDescriptionを再取得し、変更があればパースする。
+     *
+     * <p>変更がなかった場合はBuilderへの登録は行わない。
+     *
+     * @param client    通信に使用するHttpClient
+     * @param url       SCPDのURL
+     * @param builder   ServiceのBuilder
+     * @param validator 前回取得時の検証子
+     * @return 取得してパースした場合true、変更がなかった場合false
+     * @throws IOException                  通信エラー
+     * @throws SAXException                 XMLパースエラー
+     * @throws ParserConfigurationException 実装が使用できないかインスタンス化できない
+     */
+    public static boolean revalidateDescription(
+            @Nonnull final HttpClient client,
+            @Nonnull final URL url,
+            @Nonnull final ServiceImpl.Builder builder,
+            @Nullable final CacheValidator validator)
+            throws IOException, SAXException, ParserConfigurationException {
+        final String description = client.downloadStringIfModified(url, validator);
+        if (description == null) {
+            return false;
+        }
+        builder.setCacheValidator(client.getCacheValidator());
+        parseDescription(builder, description);
+        return true;
+    }
+
+    /**
+     * 取得済みのDescriptionをパースする。
+     *
+     * <p>保存した状態から復元する場合など、通信を行わずにServiceを構築する場合に使用する。
+     *
+     * @param builder     ServiceのBuilder
+     * @param description SCPDのDescription XML
+     * @throws IOException                  入出力エラー
+     * @throws SAXException                 XMLパースエラー
+     * @throws ParserConfigurationException 実装が使用できないかインスタンス化できない
+     */
+    public static void parseDescription(
+            @Nonnull final ServiceImpl.Builder builder,
+            @Nullable final String description)
+            throws IOException, SAXException, ParserConfigurationException {
         if (TextUtils.isEmpty(description)) {
             // 空であっても必須パラメータはそろっているため正常として扱う。
             return;
         }
         builder.setDescription(description);
+        final ScpdModel model = ScpdModel.find(description);
+        if (model != null) {
+            // 同一内容のSCPDのパース結果を共有する
+            builder.setScpdModel(model);
+            return;
+        }
         final Document doc = XmlUtils.newDocument(true, description);
         parseActionList(builder, doc.getElementsByTagName("action"));
         parseStateVariableList(builder, doc.getElementsByTagName("stateVariable"));
+        builder.setScpdModel(ScpdModel.intern(builder));
     }
 
     private static void parseActionList(
@@ -7,15 +7,22 @@
 
 package net.mm2d.upnp.internal.server;
 
+import net.mm2d.log.Log;
 import net.mm2d.upnp.Http;
 import net.mm2d.upnp.SsdpMessage;
 import net.mm2d.upnp.internal.message.SsdpRequest;
 import net.mm2d.upnp.internal.message.SsdpResponse;
+import net.mm2d.util.NetworkUtils;
 import net.mm2d.util.TextUtils;
 
 import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.NetworkInterface;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -47,10 +54,58 @@ public class SsdpSearchServer implements SsdpServer {
         void onReceiveResponse(@Nonnull SsdpMessage message);
     }
 
+    private static final int MESSAGE_CACHE_SIZE = 16;
+
+    /**
+     * エンコード済みのM-SEARCHのキャッシュのkey。
+     */
+    private static class SearchKey {
+        @Nonnull
+        private final String mSt;
+        private final int mMx;
+
+        SearchKey(
+                @Nonnull final String st,
+                final int mx) {
+            mSt = st;
+            mMx = mx;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SearchKey)) {
+                return false;
+            }
+            final SearchKey key = (SearchKey) o;
+            return mMx == key.mMx && mSt.equals(key.mSt);
+        }
+
+        @Override
+        public int hashCode() {
+            return mSt.hashCode() * 31 + mMx;
+        }
+    }
+
     @Nonnull
     private final SsdpServerDelegate mDelegate;
     @Nullable
     private ResponseListener mListener;
+    /**
+     * STとMXの組をkeyとしたエンコード済みのM-SEARCH。
+     *
+     * <p>アドレスファミリーはインスタンス毎に固定のため、STとMXが一致すれば同一のメッセージとなる。
+     * MXは発見済み機器の数により変化するため、STとMXの組毎に保持し、上限を超えた場合は最も古く使用されたものから破棄する。
+     */
+    @Nonnull
+    private final Map<SearchKey, byte[]> mMessageCache = new LinkedHashMap<SearchKey, byte[]>(MESSAGE_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<SearchKey, byte[]> eldest) {
+            return size() > MESSAGE_CACHE_SIZE;
+        }
+    };
 
     /**
      * インスタンス作成。
@@ -92,17 +147,94 @@ public class SsdpSearchServer implements SsdpServer {
      * @param st STの値
      */
     void search(@Nullable final String st) {
-        send(makeSearchMessage(TextUtils.isEmpty(st) ? ST_ALL : st));
+        search(st, 1);
+    }
+
+    /**
+     * MXを指定してM-SEARCHを実行する。
+     *
+     * @param st STの値
+     * @param mx MXの値
+     */
+    void search(
+            @Nullable final String st,
+            final int mx) {
+        try {
+            mDelegate.send(getSearchMessage(TextUtils.isEmpty(st) ? ST_ALL : st, mx));
+        } catch (final IOException e) {
+            Log.w(e);
+        }
+    }
+
+    /**
+     * エンコード済みのM-SEARCHを返す。
+     *
+     * <p>同一のST/MXであれば前回エンコードしたものを返す。
+     *
+     * @param st STの値
+     * @param mx MXの値
+     * @return エンコード済みのM-SEARCH
+     * @throws IOException エンコードに失敗した場合
+     */
+    // VisibleForTesting
+    @Nonnull
+    byte[] getSearchMessage(
+            @Nonnull final String st,
+            final int mx) throws IOException {
+        final SearchKey key = new SearchKey(st, mx);
+        synchronized (mMessageCache) {
+            final byte[] cache = mMessageCache.get(key);
+            if (cache != null) {
+                return cache;
+            }
+            final byte[] data = SsdpServerDelegate.toByteArray(makeSearchMessage(st, mx));
+            mMessageCache.put(key, data);
+            return data;
+        }
+    }
+
+    /**
+     * 指定したアドレスに対してユニキャストでM-SEARCHを実行する。
+     *
+     * <p>マルチキャストアドレスとアドレスファミリーが異なる場合は送信しない。
+     *
+     * @param st      STの値
+     * @param address 宛先
+     * @return 送信した場合true
+     */
+    boolean searchUnicast(
+            @Nonnull final String st,
+            @Nonnull final InetSocketAddress address) {
+        if (!isSameFamily(address.getAddress())) {
+            return false;
+        }
+        final SsdpRequest message = new SsdpRequest();
+        message.setMethod(SsdpMessage.M_SEARCH);
+        message.setUri("*");
+        message.setHeader(Http.HOST, NetworkUtils.getAddressString(address));
+        message.setHeader(Http.MAN, SsdpMessage.SSDP_DISCOVER);
+        message.setHeader(Http.ST, st);
+        mDelegate.send(message, address);
+        return true;
+    }
+
+    private boolean isSameFamily(@Nullable final InetAddress address) {
+        if (mDelegate.getAddress() == Address.IP_V4) {
+            return address instanceof Inet4Address;
+        }
+        return address instanceof Inet6Address;
     }
 
     @Nonnull
-    private SsdpRequest makeSearchMessage(@Nonnull final String st) {
+    private SsdpRequest makeSearchMessage(
+            @Nonnull final String st,
+            final int mx) {
         final SsdpRequest message = new SsdpRequest();
         message.setMethod(SsdpMessage.M_SEARCH);
         message.setUri("*");
         message.setHeader(Http.HOST, mDelegate.getSsdpAddressString());
         message.setHeader(Http.MAN, SsdpMessage.SSDP_DISCOVER);
-        message.setHeader(Http.MX, "1");
+        message.setHeader(Http.MX, String.valueOf(mx));
         message.setHeader(Http.ST, st);
         return message;
     }
@@ -14,6 +14,7 @@ import net.mm2d.upnp.internal.server.SsdpServer.Address;
 import net.mm2d.util.NetworkUtils;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.NetworkInterface;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -98,4 +99,30 @@ public class SsdpSearchServerList {
             server.search(st);
         }
     }
+
+    public void search(
+            @Nullable final String st,
+            final int mx) {
+        for (final SsdpSearchServer server : mList) {
+            server.search(st, mx);
+        }
+    }
+
+    /**
+     * 指定したアドレスに対してユニキャストでM-SEARCHを実行する。
+     *
+     * <p>アドレスファミリーが一致するインターフェースのうち、最初の一つから送信する。
+     *
+     * @param st      STの値
+     * @param address 宛先
+     */
+    public void searchUnicast(
+            @Nonnull final String st,
+            @Nonnull final InetSocketAddress address) {
+        for (final SsdpSearchServer server : mList) {
+            if (server.searchUnicast(st, address)) {
+                return;
+            }
+        }
+    }
 }
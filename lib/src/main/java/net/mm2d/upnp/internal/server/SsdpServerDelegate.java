@@ -66,6 +66,11 @@ class SsdpServerDelegate implements SsdpServer {
     private MulticastSocket mSocket;
     @Nullable
     private ReceiveTask mReceiveTask;
+    /**
+     * 送信用のDatagramPacket、送信毎に宛先とデータを差し替えて使い回す。
+     */
+    @Nonnull
+    private final DatagramPacket mSendPacket = new DatagramPacket(new byte[0], 0);
 
     /**
      * 使用するインターフェースを指定してインスタンス作成。
@@ -239,19 +244,78 @@ class SsdpServerDelegate implements SsdpServer {
 
     @Override
     public void send(@Nonnull final SsdpMessage message) {
+        send(message, getSsdpSocketAddress());
+    }
+
+    /**
+     * 宛先を指定してメッセージを送信する。
+     *
+     * @param message 送信するメッセージ
+     * @param address 宛先
+     */
+    void send(
+            @Nonnull final SsdpMessage message,
+            @Nonnull final InetSocketAddress address) {
         if (mSocket == null) {
             return;
         }
         try {
-            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            message.writeData(baos);
-            final byte[] data = baos.toByteArray();
-            mSocket.send(new DatagramPacket(data, data.length, getSsdpSocketAddress()));
+            send(toByteArray(message), address);
         } catch (final IOException e) {
             Log.w(e);
         }
     }
 
+    /**
+     * エンコード済みのメッセージをマルチキャストで送信する。
+     *
+     * @param data 送信するデータ
+     */
+    void send(@Nonnull final byte[] data) {
+        try {
+            send(data, getSsdpSocketAddress());
+        } catch (final IOException e) {
+            Log.w(e);
+        }
+    }
+
+    /**
+     * エンコード済みのメッセージを宛先を指定して送信する。
+     *
+     * <p>DatagramPacketは使い回すため、送信毎のインスタンス作成は行わない。
+     *
+     * @param data    送信するデータ
+     * @param address 宛先
+     * @throws IOException 送信に失敗した場合
+     */
+    private void send(
+            @Nonnull final byte[] data,
+            @Nonnull final InetSocketAddress address) throws IOException {
+        final MulticastSocket socket = mSocket;
+        if (socket == null) {
+            return;
+        }
+        synchronized (mSendPacket) {
+            mSendPacket.setData(data);
+            mSendPacket.setSocketAddress(address);
+            socket.send(mSendPacket);
+        }
+    }
+
+    /**
+     * メッセージを送信するバイト列に変換する。
+     *
+     * @param message メッセージ
+     * @return バイト列
+     * @throws IOException 変換に失敗した場合
+     */
+    @Nonnull
+    static byte[] toByteArray(@Nonnull final SsdpMessage message) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        message.writeData(baos);
+        return baos.toByteArray();
+    }
+
     /**
      * SsdpMessageのLocationに正常なURLが記述されており、
      * 記述のアドレスとパケットの送信元アドレスに不一致がないか検査する。
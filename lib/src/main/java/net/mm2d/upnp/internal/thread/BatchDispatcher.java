@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.thread;
+
+import net.mm2d.log.Log;
+import net.mm2d.upnp.ControlPoint.SsdpReceiveStats;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 複数のスレッドから投入された要素を、単一の消費タスクでまとめて処理するクラス。
+ *
+ * <p>投入された要素は{@link MpscRingBuffer}に格納し、消費タスクが未実行であれば一つだけ実行を依頼する。
+ * 消費タスクは一回の実行で最大バッチサイズまでの要素を投入順に処理し、
+ * 残りがあれば改めて実行を依頼する。
+ * 要素毎にタスクを作成・投入する場合と比べ、スレッドプールへの投入回数とオブジェクトの生成を削減できる。
+ *
+ * <p>リングバッファが満杯の場合、投入された要素は破棄される。
+ *
+ * @param <T> 要素の型
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class BatchDispatcher<T> {
+    /**
+     * 要素を処理するインターフェース。
+     *
+     * @param <T> 要素の型
+     */
+    public interface Handler<T> {
+        /**
+         * 要素を処理する。
+         *
+         * <p>消費タスクのスレッドから投入順にコールされる。
+         *
+         * @param element 要素
+         */
+        void handle(@Nonnull T element);
+    }
+
+    /**
+     * 消費タスクを実行するインターフェース。
+     */
+    public interface Scheduler {
+        /**
+         * 消費タスクの実行を依頼する。
+         *
+         * @param task 消費タスク
+         * @return 依頼できた場合true
+         */
+        boolean schedule(@Nonnull Runnable task);
+    }
+
+    /**
+     * デフォルトのリングバッファの容量。
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+    /**
+     * デフォルトの一回の消費タスクで処理する最大数。
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+    @Nonnull
+    private final MpscRingBuffer<T> mRingBuffer;
+    private final int mMaxBatchSize;
+    @Nonnull
+    private final Scheduler mScheduler;
+    @Nonnull
+    private final Handler<T> mHandler;
+    @Nonnull
+    private final Runnable mDrainTask = this::drain;
+    @Nonnull
+    private final AtomicBoolean mScheduled = new AtomicBoolean();
+    @Nonnull
+    private final AtomicLong mReceivedCount = new AtomicLong();
+    @Nonnull
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    // 以下は消費タスクからのみ書き込む
+    private volatile long mBatchCount;
+    private volatile long mDeliveredCount;
+    private volatile int mMaxBatchSizeObserved;
+    private volatile int mMaxOccupancy;
+
+    /**
+     * デフォルトの容量とバッチサイズでインスタンス作成。
+     *
+     * @param scheduler 消費タスクを実行するScheduler
+     * @param handler   要素を処理するHandler
+     */
+    public BatchDispatcher(
+            @Nonnull final Scheduler scheduler,
+            @Nonnull final Handler<T> handler) {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_BATCH_SIZE, scheduler, handler);
+    }
+
+    /**
+     * インスタンス作成。
+     *
+     * @param capacity     リングバッファの容量、2のべき乗に切り上げられる
+     * @param maxBatchSize 一回の消費タスクで処理する最大数
+     * @param scheduler    消費タスクを実行するScheduler
+     * @param handler      要素を処理するHandler
+     */
+    public BatchDispatcher(
+            final int capacity,
+            final int maxBatchSize,
+            @Nonnull final Scheduler scheduler,
+            @Nonnull final Handler<T> handler) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive.");
+        }
+        mRingBuffer = new MpscRingBuffer<>(capacity);
+        mMaxBatchSize = maxBatchSize;
+        mScheduler = scheduler;
+        mHandler = handler;
+    }
+
+    /**
+     * 要素を投入する。
+     *
+     * <p>複数のスレッドから同時にコールすることができる。
+     *
+     * @param element 要素
+     * @return 投入できた場合true、満杯で破棄した場合false
+     */
+    public boolean offer(@Nonnull final T element) {
+        mReceivedCount.incrementAndGet();
+        if (!mRingBuffer.offer(element)) {
+            mDroppedCount.incrementAndGet();
+            return false;
+        }
+        scheduleDrain();
+        return true;
+    }
+
+    private void scheduleDrain() {
+        if (mScheduled.compareAndSet(false, true) && !mScheduler.schedule(mDrainTask)) {
+            mScheduled.set(false);
+        }
+    }
+
+    // VisibleForTesting
+    void drain() {
+        final int occupancy = mRingBuffer.size();
+        if (occupancy > mMaxOccupancy) {
+            mMaxOccupancy = occupancy;
+        }
+        int count = 0;
+        try {
+            while (count < mMaxBatchSize) {
+                final T element = mRingBuffer.poll();
+                if (element == null) {
+                    break;
+                }
+                count++;
+                try {
+                    mHandler.handle(element);
+                } catch (final RuntimeException e) {
+                    Log.w(e);
+                }
+            }
+        } finally {
+            if (count > 0) {
+                mBatchCount++;
+                mDeliveredCount += count;
+                if (count > mMaxBatchSizeObserved) {
+                    mMaxBatchSizeObserved = count;
+                }
+            }
+            mScheduled.set(false);
+            // フラグを戻す前に投入された要素は投入側で実行依頼されないため、ここで依頼する
+            if (!mRingBuffer.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    /**
+     * 現時点の統計情報を返す。
+     *
+     * @return 統計情報
+     */
+    @Nonnull
+    public SsdpReceiveStats getStats() {
+        return new Stats(
+                mRingBuffer.capacity(),
+                mRingBuffer.size(),
+                mMaxOccupancy,
+                mReceivedCount.get(),
+                mDroppedCount.get(),
+                mBatchCount,
+                mDeliveredCount,
+                mMaxBatchSizeObserved);
+    }
+
+    /**
+     * 複数のBatchDispatcherの統計情報を合算して返す。
+     *
+     * <p>容量や件数は合計し、最大値は各BatchDispatcherの最大値とする。
+     *
+     * @param dispatchers BatchDispatcherのリスト
+     * @return 合算した統計情報
+     */
+    @Nonnull
+    static SsdpReceiveStats getStats(@Nonnull final List<? extends BatchDispatcher<?>> dispatchers) {
+        int capacity = 0;
+        int occupancy = 0;
+        int maxOccupancy = 0;
+        long receivedCount = 0;
+        long droppedCount = 0;
+        long batchCount = 0;
+        long deliveredCount = 0;
+        int maxBatchSize = 0;
+        for (final BatchDispatcher<?> dispatcher : dispatchers) {
+            capacity += dispatcher.mRingBuffer.capacity();
+            occupancy += dispatcher.mRingBuffer.size();
+            maxOccupancy = Math.max(maxOccupancy, dispatcher.mMaxOccupancy);
+            receivedCount += dispatcher.mReceivedCount.get();
+            droppedCount += dispatcher.mDroppedCount.get();
+            batchCount += dispatcher.mBatchCount;
+            deliveredCount += dispatcher.mDeliveredCount;
+            maxBatchSize = Math.max(maxBatchSize, dispatcher.mMaxBatchSizeObserved);
+        }
+        return new Stats(capacity, occupancy, maxOccupancy, receivedCount, droppedCount,
+                batchCount, deliveredCount, maxBatchSize);
+    }
+
+    private static class Stats implements SsdpReceiveStats {
+        private final int mCapacity;
+        private final int mOccupancy;
+        private final int mMaxOccupancy;
+        private final long mReceivedCount;
+        private final long mDroppedCount;
+        private final long mBatchCount;
+        private final long mDeliveredCount;
+        private final int mMaxBatchSize;
+
+        Stats(
+                final int capacity,
+                final int occupancy,
+                final int maxOccupancy,
+                final long receivedCount,
+                final long droppedCount,
+                final long batchCount,
+                final long deliveredCount,
+                final int maxBatchSize) {
+            mCapacity = capacity;
+            mOccupancy = occupancy;
+            mMaxOccupancy = maxOccupancy;
+            mReceivedCount = receivedCount;
+            mDroppedCount = droppedCount;
+            mBatchCount = batchCount;
+            mDeliveredCount = deliveredCount;
+            mMaxBatchSize = maxBatchSize;
+        }
+
+        @Override
+        public int getCapacity() {
+            return mCapacity;
+        }
+
+        @Override
+        public int getOccupancy() {
+            return mOccupancy;
+        }
+
+        @Override
+        public int getMaxOccupancy() {
+            return mMaxOccupancy;
+        }
+
+        @Override
+        public long getReceivedCount() {
+            return mReceivedCount;
+        }
+
+        @Override
+        public long getDroppedCount() {
+            return mDroppedCount;
+        }
+
+        @Override
+        public long getBatchCount() {
+            return mBatchCount;
+        }
+
+        @Override
+        public int getMaxBatchSize() {
+            return mMaxBatchSize;
+        }
+
+        @Override
+        public double getAverageBatchSize() {
+            return mBatchCount == 0 ? 0.0 : (double) mDeliveredCount / mBatchCount;
+        }
+
+        @Override
+        public String toString() {
+            return "capacity=" + mCapacity
+                    + " occupancy=" + mOccupancy + "/" + mMaxOccupancy
+                    + " received=" + mReceivedCount
+                    + " dropped=" + mDroppedCount
+                    + " batch=" + mBatchCount + " avg=" + getAverageBatchSize() + " max=" + mMaxBatchSize;
+        }
+    }
+}
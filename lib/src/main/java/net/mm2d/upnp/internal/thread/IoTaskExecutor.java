@@ -10,8 +10,12 @@ package net.mm2d.upnp.internal.thread;
 import net.mm2d.log.Log;
 import net.mm2d.upnp.TaskExecutor;
 
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -23,7 +27,11 @@ public class IoTaskExecutor implements TaskExecutor {
     private ExecutorService mExecutor;
 
     IoTaskExecutor() {
-        this(createExecutor());
+        this(Thread.NORM_PRIORITY);
+    }
+
+    IoTaskExecutor(final int priority) {
+        this(createExecutor(priority));
     }
 
     IoTaskExecutor(@Nonnull final ExecutorService executor) {
@@ -31,10 +39,29 @@ public class IoTaskExecutor implements TaskExecutor {
     }
 
     @Nonnull
-    private static ExecutorService createExecutor() {
-        final ThreadWorkQueue queue = new ThreadWorkQueue();
+    private static ExecutorService createExecutor(final int priority) {
+        return createExecutor(priority, new LinkedBlockingQueue<>());
+    }
+
+    /**
+     * IO処理用のスレッドプールを作成する。
+     *
+     * @param priority スレッドの優先度
+     * @param delegate 実行待ちタスクを保持するキュー
+     * @return スレッドプール
+     */
+    @Nonnull
+    static ExecutorService createExecutor(
+            final int priority,
+            @Nonnull final BlockingQueue<Runnable> delegate) {
+        final ThreadWorkQueue queue = new ThreadWorkQueue(delegate);
+        final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
         return new ThreadPoolExecutor(0, calculateMaximumPoolSize(),
-                1L, TimeUnit.MINUTES, queue, queue);
+                1L, TimeUnit.MINUTES, queue, runnable -> {
+            final Thread thread = defaultFactory.newThread(runnable);
+            thread.setPriority(priority);
+            return thread;
+        }, queue);
     }
 
     private static int calculateMaximumPoolSize() {
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.thread;
+
+import javax.annotation.Nonnull;
+
+/**
+ * IO処理の種別毎の実行ポリシー。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public final class IoTaskPolicy {
+    /**
+     * キューの上限を超えた場合の扱い。
+     */
+    public enum Rejection {
+        /**
+         * 新しいタスクを受け付けない。
+         */
+        REJECT,
+        /**
+         * 同一種別のうち最も古い待機中のタスクを破棄し、新しいタスクを受け付ける。
+         */
+        DISCARD_OLDEST,
+    }
+
+    private final int mPriority;
+    private final int mCapacity;
+    @Nonnull
+    private final Rejection mRejection;
+
+    /**
+     * インスタンス作成。
+     *
+     * @param priority  優先度、値が大きいほど先に実行される
+     * @param capacity  実行待ちにできるタスクの上限
+     * @param rejection 上限を超えた場合の扱い
+     */
+    public IoTaskPolicy(
+            final int priority,
+            final int capacity,
+            @Nonnull final Rejection rejection) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive.");
+        }
+        mPriority = priority;
+        mCapacity = capacity;
+        mRejection = rejection;
+    }
+
+    /**
+     * 優先度を返す。
+     *
+     * @return 優先度、値が大きいほど先に実行される
+     */
+    public int getPriority() {
+        return mPriority;
+    }
+
+    /**
+     * 実行待ちにできるタスクの上限を返す。
+     *
+     * @return 実行待ちにできるタスクの上限
+     */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * 上限を超えた場合の扱いを返す。
+     *
+     * @return 上限を超えた場合の扱い
+     */
+    @Nonnull
+    public Rejection getRejection() {
+        return mRejection;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.thread;
+
+import net.mm2d.upnp.internal.thread.IoTaskPolicy.Rejection;
+
+import javax.annotation.Nonnull;
+
+/**
+ * IO処理の種別。
+ *
+ * <p>種別毎に実行の優先度とキューの上限、上限を超えた場合の扱いが定められている。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public enum IoTaskType {
+    /**
+     * SSDPメッセージの処理。
+     *
+     * <p>大量に受信した場合は古いメッセージから破棄する。
+     * 同一機器からは定期的に再送されるため、破棄しても問題にならない。
+     */
+    SSDP(new IoTaskPolicy(0, 1024, Rejection.DISCARD_OLDEST)),
+    /**
+     * 受信したSSDPメッセージをまとめて処理する消費タスク。
+     *
+     * <p>{@link BatchDispatcher}毎に同時に実行待ちになるのは一つだけであり、
+     * 実行待ちの数はExecutorを共有するControlPointの数と{@link StripedBatchDispatcher}の分割数で決まるため、上限は設けない。
+     * 破棄されると以降のメッセージが処理されなくなるため、{@link #SSDP}とは別の種別とし、古いものから破棄しない。
+     */
+    SSDP_DISPATCH(new IoTaskPolicy(0, Integer.MAX_VALUE, Rejection.REJECT)),
+    /**
+     * Device/Service Descriptionの読み込み。
+     */
+    DESCRIPTION(new IoTaskPolicy(1, 256, Rejection.REJECT)),
+    /**
+     * イベント購読に関する処理。
+     */
+    SUBSCRIPTION(new IoTaskPolicy(2, 256, Rejection.REJECT)),
+    /**
+     * ユーザー操作に起因する処理。
+     */
+    USER_INVOKE(new IoTaskPolicy(3, 64, Rejection.REJECT)),
+    ;
+
+    @Nonnull
+    private final IoTaskPolicy mDefaultPolicy;
+
+    IoTaskType(@Nonnull final IoTaskPolicy policy) {
+        mDefaultPolicy = policy;
+    }
+
+    /**
+     * デフォルトのポリシーを返す。
+     *
+     * @return デフォルトのポリシー
+     */
+    @Nonnull
+    public IoTaskPolicy getDefaultPolicy() {
+        return mDefaultPolicy;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.thread;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * 複数の生産者と単一の消費者で使用する固定長のロックフリーリングバッファ。
+ *
+ * <p>各スロットにシーケンス番号を持たせ、生産者はCASで書き込み位置を確保してから要素を格納し、
+ * シーケンス番号を更新して消費者に公開する。
+ * 生産者同士の競合はCASのリトライのみで解決され、ロックは使用しない。
+ * 満杯の場合は待たずに{@link #offer(Object)}がfalseを返す。
+ *
+ * <p>{@link #poll()}は単一のスレッドからのみコールすること。
+ *
+ * @param <E> 要素の型
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class MpscRingBuffer<E> {
+    private final int mCapacity;
+    private final int mMask;
+    @Nonnull
+    private final AtomicReferenceArray<E> mElements;
+    @Nonnull
+    private final AtomicLongArray mSequences;
+    @Nonnull
+    private final AtomicLong mTail = new AtomicLong();
+    private volatile long mHead;
+
+    /**
+     * インスタンス作成。
+     *
+     * @param capacity 容量、2のべき乗に切り上げられる
+     */
+    public MpscRingBuffer(final int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("invalid capacity: " + capacity);
+        }
+        mCapacity = roundUpToPowerOfTwo(capacity);
+        mMask = mCapacity - 1;
+        mElements = new AtomicReferenceArray<>(mCapacity);
+        mSequences = new AtomicLongArray(mCapacity);
+        for (int i = 0; i < mCapacity; i++) {
+            mSequences.set(i, i);
+        }
+    }
+
+    private static int roundUpToPowerOfTwo(final int value) {
+        final int highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+
+    /**
+     * 容量を返す。
+     *
+     * @return 容量
+     */
+    public int capacity() {
+        return mCapacity;
+    }
+
+    /**
+     * 格納されている要素数を返す。
+     *
+     * <p>並行して操作されている場合は概算値となる。
+     *
+     * @return 要素数
+     */
+    public int size() {
+        final long size = mTail.get() - mHead;
+        if (size < 0) {
+            return 0;
+        }
+        return (int) Math.min(size, mCapacity);
+    }
+
+    /**
+     * 要素が格納されていないかを返す。
+     *
+     * @return 要素が格納されていない場合true
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * 要素を追加する。
+     *
+     * <p>複数のスレッドから同時にコールすることができる。
+     *
+     * @param element 追加する要素
+     * @return 追加できた場合true、満杯の場合false
+     */
+    public boolean offer(@Nonnull final E element) {
+        while (true) {
+            final long tail = mTail.get();
+            final int index = (int) tail & mMask;
+            final long diff = mSequences.get(index) - tail;
+            if (diff == 0) {
+                if (mTail.compareAndSet(tail, tail + 1)) {
+                    mElements.lazySet(index, element);
+                    mSequences.set(index, tail + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+            // 他の生産者が先に確保したため、最新の位置で再試行する
+        }
+    }
+
+    /**
+     * 先頭の要素を取り出す。
+     *
+     * <p>単一のスレッドからのみコールすること。
+     * 生産者が位置を確保したが格納が完了していない要素がある場合は、その要素以降は取り出せない。
+     *
+     * @return 先頭の要素、取り出せる要素がない場合null
+     */
+    @Nullable
+    public E poll() {
+        final long head = mHead;
+        final int index = (int) head & mMask;
+        if (mSequences.get(index) != head + 1) {
+            return null;
+        }
+        final E element = mElements.get(index);
+        mElements.lazySet(index, null);
+        mSequences.set(index, head + mCapacity);
+        mHead = head + 1;
+        return element;
+    }
+}
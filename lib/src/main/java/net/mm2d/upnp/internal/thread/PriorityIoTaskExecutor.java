@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.thread;
+
+import net.mm2d.log.Log;
+import net.mm2d.upnp.TaskExecutor;
+import net.mm2d.upnp.internal.thread.IoTaskPolicy.Rejection;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 種別毎の優先度とキューの上限を持つIO処理の実行を行う。
+ *
+ * <p>実行待ちのタスクは種別の優先度の高い順、同一優先度であれば登録順に実行される。
+ * 種別毎に実行待ちにできるタスク数の上限があり、
+ * 上限を超えた場合は{@link IoTaskPolicy.Rejection}に従い処理される。
+ * これにより、SSDPメッセージを大量に受信した場合でもユーザー操作に起因する処理が待たされない。
+ *
+ * <p>優先度キューには種別と順序のみを持つ実行権を登録し、タスク本体は種別毎のFIFOに保持する。
+ * 実行権が取り出されると、その種別のFIFOの先頭のタスクを実行する。
+ * 最も古いタスクの破棄はFIFOの先頭を取り除くだけで行えるため、優先度キューを走査する必要がない。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class PriorityIoTaskExecutor implements TaskExecutor {
+    private static final class Counter {
+        private final AtomicInteger mQueued = new AtomicInteger();
+        private final AtomicLong mRejected = new AtomicLong();
+        private final Queue<Runnable> mTasks = new ConcurrentLinkedQueue<>();
+    }
+
+    private static final class PriorityTask implements Runnable, Comparable<PriorityTask> {
+        @Nonnull
+        private final Counter mCounter;
+        private final int mPriority;
+        private final long mSequence;
+
+        PriorityTask(
+                @Nonnull final Counter counter,
+                final int priority,
+                final long sequence) {
+            mCounter = counter;
+            mPriority = priority;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            mCounter.mQueued.decrementAndGet();
+            final Runnable task = mCounter.mTasks.poll();
+            if (task != null) {
+                task.run();
+            }
+        }
+
+        @Override
+        public int compareTo(@Nonnull final PriorityTask o) {
+            if (mPriority != o.mPriority) {
+                return mPriority > o.mPriority ? -1 : 1;
+            }
+            return mSequence < o.mSequence ? -1 : mSequence == o.mSequence ? 0 : 1;
+        }
+    }
+
+    @Nonnull
+    private final Map<IoTaskType, IoTaskPolicy> mPolicies;
+    @Nonnull
+    private final Map<IoTaskType, Counter> mCounters = new EnumMap<>(IoTaskType.class);
+    @Nonnull
+    private final AtomicLong mSequence = new AtomicLong();
+    @Nonnull
+    private final IoTaskExecutor mExecutor;
+
+    PriorityIoTaskExecutor() {
+        this(new EnumMap<>(IoTaskType.class));
+    }
+
+    /**
+     * インスタンス作成。
+     *
+     * @param policies 種別毎のポリシー、指定のない種別はデフォルトのポリシーを使用する
+     */
+    PriorityIoTaskExecutor(@Nonnull final Map<IoTaskType, IoTaskPolicy> policies) {
+        mPolicies = new EnumMap<>(IoTaskType.class);
+        for (final IoTaskType type : IoTaskType.values()) {
+            final IoTaskPolicy policy = policies.get(type);
+            mPolicies.put(type, policy != null ? policy : type.getDefaultPolicy());
+            mCounters.put(type, new Counter());
+        }
+        mExecutor = new IoTaskExecutor(
+                IoTaskExecutor.createExecutor(Thread.NORM_PRIORITY, new PriorityBlockingQueue<>()));
+    }
+
+    /**
+     * {@link IoTaskType#USER_INVOKE}としてタスクを実行する。
+     *
+     * @param task 実行するタスク
+     * @return 実行を受け付けた場合true
+     */
+    @Override
+    public boolean execute(@Nonnull final Runnable task) {
+        return execute(IoTaskType.USER_INVOKE, task);
+    }
+
+    /**
+     * 種別を指定してタスクを実行する。
+     *
+     * @param type 種別
+     * @param task 実行するタスク
+     * @return 実行を受け付けた場合true、上限を超え拒否された場合false
+     */
+    public boolean execute(
+            @Nonnull final IoTaskType type,
+            @Nonnull final Runnable task) {
+        final IoTaskPolicy policy = mPolicies.get(type);
+        final Counter counter = mCounters.get(type);
+        if (counter.mQueued.incrementAndGet() > policy.getCapacity()) {
+            counter.mRejected.incrementAndGet();
+            counter.mQueued.decrementAndGet();
+            if (policy.getRejection() == Rejection.REJECT) {
+                Log.w("io task rejected:" + type);
+                return false;
+            }
+            return replaceOldest(type, counter, task);
+        }
+        counter.mTasks.offer(task);
+        final PriorityTask priorityTask =
+                new PriorityTask(counter, policy.getPriority(), mSequence.getAndIncrement());
+        if (!mExecutor.execute(priorityTask)) {
+            counter.mTasks.remove(task);
+            counter.mQueued.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * FIFOの先頭の最も古いタスクを破棄し、新しいタスクを末尾に追加する。
+     *
+     * <p>実行権の数は変わらないため、優先度キューへの登録は行わない。
+     * 追加してから取り除くことで、並行して実行権が取り出された場合もFIFOと実行権の数の対応が保たれる。
+     *
+     * @param type    種別
+     * @param counter 種別のCounter
+     * @param task    追加するタスク
+     * @return 追加したタスクが破棄されなかった場合true
+     */
+    private boolean replaceOldest(
+            @Nonnull final IoTaskType type,
+            @Nonnull final Counter counter,
+            @Nonnull final Runnable task) {
+        counter.mTasks.offer(task);
+        final Runnable discarded = counter.mTasks.poll();
+        if (discarded == null) {
+            return true;
+        }
+        Log.w("io task discarded:" + type);
+        return discarded != task;
+    }
+
+    /**
+     * 実行待ちのタスク数を返す。
+     *
+     * @param type 種別
+     * @return 実行待ちのタスク数
+     */
+    public int getQueueDepth(@Nonnull final IoTaskType type) {
+        return Math.max(0, mCounters.get(type).mQueued.get());
+    }
+
+    /**
+     * 上限を超えたため拒否もしくは破棄されたタスク数を返す。
+     *
+     * @param type 種別
+     * @return 拒否もしくは破棄されたタスク数
+     */
+    public long getRejectedCount(@Nonnull final IoTaskType type) {
+        return mCounters.get(type).mRejected.get();
+    }
+
+    @Override
+    public void terminate() {
+        mExecutor.terminate();
+    }
+}
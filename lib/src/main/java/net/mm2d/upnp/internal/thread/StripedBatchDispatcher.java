@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.thread;
+
+import net.mm2d.upnp.ControlPoint.SsdpReceiveStats;
+import net.mm2d.upnp.internal.thread.BatchDispatcher.Handler;
+import net.mm2d.upnp.internal.thread.BatchDispatcher.Scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 要素のキー毎に分割した{@link BatchDispatcher}で処理するクラス。
+ *
+ * <p>同一のキーの要素は常に同一のBatchDispatcherに投入されるため投入順に処理され、
+ * 異なるキーの要素はそれぞれの消費タスクで並列に処理される。
+ * 分割は{@link StripedLock}と同じハッシュで決定するため、
+ * 分割数がStripedLockの分割数の約数であれば、異なる消費タスクが同一のロックを取り合うことはない。
+ *
+ * @param <T> 要素の型
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class StripedBatchDispatcher<T> {
+    /**
+     * 要素のキーを返すインターフェース。
+     *
+     * @param <T> 要素の型
+     */
+    public interface KeySelector<T> {
+        /**
+         * 要素のキーを返す。
+         *
+         * @param element 要素
+         * @return キー
+         */
+        @Nonnull
+        Object getKey(@Nonnull T element);
+    }
+
+    /**
+     * デフォルトの分割数。
+     */
+    public static final int DEFAULT_STRIPES = 4;
+
+    @Nonnull
+    private final List<BatchDispatcher<T>> mDispatchers;
+    @Nonnull
+    private final KeySelector<T> mKeySelector;
+
+    /**
+     * デフォルトの分割数でインスタンス作成。
+     *
+     * <p>リングバッファの容量は分割したBatchDispatcherの合計がデフォルトの容量となるように決定する。
+     *
+     * @param keySelector 要素のキーを返すKeySelector
+     * @param scheduler   消費タスクを実行するScheduler
+     * @param handler     要素を処理するHandler
+     */
+    public StripedBatchDispatcher(
+            @Nonnull final KeySelector<T> keySelector,
+            @Nonnull final Scheduler scheduler,
+            @Nonnull final Handler<T> handler) {
+        this(DEFAULT_STRIPES, BatchDispatcher.DEFAULT_CAPACITY / DEFAULT_STRIPES,
+                BatchDispatcher.DEFAULT_MAX_BATCH_SIZE, keySelector, scheduler, handler);
+    }
+
+    /**
+     * インスタンス作成。
+     *
+     * @param stripes      分割数
+     * @param capacity     分割したBatchDispatcher毎のリングバッファの容量
+     * @param maxBatchSize 一回の消費タスクで処理する最大数
+     * @param keySelector  要素のキーを返すKeySelector
+     * @param scheduler    消費タスクを実行するScheduler
+     * @param handler      要素を処理するHandler
+     */
+    public StripedBatchDispatcher(
+            final int stripes,
+            final int capacity,
+            final int maxBatchSize,
+            @Nonnull final KeySelector<T> keySelector,
+            @Nonnull final Scheduler scheduler,
+            @Nonnull final Handler<T> handler) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be positive.");
+        }
+        final List<BatchDispatcher<T>> dispatchers = new ArrayList<>(stripes);
+        for (int i = 0; i < stripes; i++) {
+            dispatchers.add(new BatchDispatcher<>(capacity, maxBatchSize, scheduler, handler));
+        }
+        mDispatchers = Collections.unmodifiableList(dispatchers);
+        mKeySelector = keySelector;
+    }
+
+    /**
+     * 要素を投入する。
+     *
+     * <p>複数のスレッドから同時にコールすることができる。
+     *
+     * @param element 要素
+     * @return 投入できた場合true、満杯で破棄した場合false
+     */
+    public boolean offer(@Nonnull final T element) {
+        final int index = StripedLock.indexOf(mKeySelector.getKey(element), mDispatchers.size());
+        return mDispatchers.get(index).offer(element);
+    }
+
+    /**
+     * 分割した全てのBatchDispatcherの統計情報を合算して返す。
+     *
+     * @return 統計情報
+     */
+    @Nonnull
+    public SsdpReceiveStats getStats() {
+        return BatchDispatcher.getStats(mDispatchers);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.thread;
+
+import javax.annotation.Nonnull;
+
+/**
+ * キー毎に排他制御を行うためのロックオブジェクトを提供するクラス。
+ *
+ * <p>キーのハッシュ値によって固定数のロックオブジェクトのいずれかを返す。
+ * 同一のキーには常に同一のロックオブジェクトが返るため、キー単位の排他制御が行える。
+ * 異なるキーが同一のロックオブジェクトを共有することはあるが、その場合も正しさは損なわれず、並列度が下がるのみである。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class StripedLock {
+    private static final int DEFAULT_STRIPES = 32;
+    @Nonnull
+    private final Object[] mLocks;
+
+    /**
+     * デフォルトの分割数でインスタンス作成。
+     */
+    public StripedLock() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * 分割数を指定してインスタンス作成。
+     *
+     * @param stripes 分割数
+     */
+    public StripedLock(final int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be positive.");
+        }
+        mLocks = new Object[stripes];
+        for (int i = 0; i < stripes; i++) {
+            mLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * キーに対応するロックオブジェクトを返す。
+     *
+     * @param key キー
+     * @return ロックオブジェクト
+     */
+    @Nonnull
+    public Object get(@Nonnull final Object key) {
+        return mLocks[indexOf(key, mLocks.length)];
+    }
+
+    /**
+     * キーに対応する分割のインデックスを返す。
+     *
+     * <p>分割数が倍数の関係にあれば、少ない方で異なるインデックスとなるキーは多い方でも異なるインデックスとなる。
+     *
+     * @param key     キー
+     * @param stripes 分割数
+     * @return インデックス
+     */
+    static int indexOf(
+            @Nonnull final Object key,
+            final int stripes) {
+        final int hash = key.hashCode();
+        // 下位ビットの偏りを緩和する
+        final int spread = hash ^ (hash >>> 16);
+        return (spread & Integer.MAX_VALUE) % stripes;
+    }
+}
@@ -14,7 +14,14 @@ import javax.annotation.Nullable;
 
 public class TaskHandler {
     private final TaskExecutor mCallbackTaskExecutor;
+    @Nullable
     private final TaskExecutor mIoTaskExecutor;
+    @Nullable
+    private final PriorityIoTaskExecutor mPriorityIoTaskExecutor;
+    private final TaskExecutor mLowPriorityIoTaskExecutor;
+    @Nonnull
+    private final TimerExecutor mTimerExecutor;
+    private final boolean mShared;
 
     public TaskHandler() {
         this(null, null);
@@ -24,19 +31,145 @@ public class TaskHandler {
             @Nullable final TaskExecutor callback,
             @Nullable final TaskExecutor io) {
         mCallbackTaskExecutor = callback != null ? callback : new CallbackTaskExecutor();
-        mIoTaskExecutor = io != null ? io : new IoTaskExecutor();
+        // IO処理のTaskExecutorが指定されている場合は種別によらずそちらで実行する
+        mIoTaskExecutor = io;
+        mPriorityIoTaskExecutor = io != null ? null : new PriorityIoTaskExecutor();
+        mLowPriorityIoTaskExecutor = new IoTaskExecutor(Thread.MIN_PRIORITY);
+        mTimerExecutor = new TimerExecutor();
+        mShared = false;
+    }
+
+    private TaskHandler(@Nonnull final TaskHandler source) {
+        mCallbackTaskExecutor = source.mCallbackTaskExecutor;
+        mIoTaskExecutor = source.mIoTaskExecutor;
+        mPriorityIoTaskExecutor = source.mPriorityIoTaskExecutor;
+        mLowPriorityIoTaskExecutor = source.mLowPriorityIoTaskExecutor;
+        mTimerExecutor = source.mTimerExecutor;
+        mShared = true;
+    }
+
+    /**
+     * このインスタンスとExecutorを共有するTaskHandlerを作成する。
+     *
+     * <p>作成したTaskHandlerの{@link #terminate()}はExecutorを終了させない。
+     * Executorはこのインスタンスの{@link #terminate()}で終了させる。
+     *
+     * @return Executorを共有するTaskHandler
+     */
+    @Nonnull
+    public TaskHandler createSharedHandler() {
+        return new TaskHandler(this);
+    }
+
+    /**
+     * Executorを他のTaskHandlerと共有しているか否かを返す。
+     *
+     * @return {@link #createSharedHandler()}で作成されたインスタンスの場合true
+     */
+    public boolean isShared() {
+        return mShared;
     }
 
     public boolean callback(@Nonnull final Runnable task) {
         return mCallbackTaskExecutor.execute(task);
     }
 
+    /**
+     * ユーザー操作に起因するIO処理を実行する。
+     *
+     * @param task 実行するタスク
+     * @return 実行を受け付けた場合true
+     * @see #io(IoTaskType, Runnable)
+     */
     public boolean io(@Nonnull final Runnable task) {
-        return mIoTaskExecutor.execute(task);
+        return io(IoTaskType.USER_INVOKE, task);
+    }
+
+    /**
+     * 種別を指定してIO処理を実行する。
+     *
+     * <p>種別毎の優先度の高い順に実行される。
+     * 種別毎の実行待ちのタスク数が上限を超えた場合は、種別毎のポリシーに従い処理される。
+     *
+     * @param type 種別
+     * @param task 実行するタスク
+     * @return 実行を受け付けた場合true
+     */
+    public boolean io(
+            @Nonnull final IoTaskType type,
+            @Nonnull final Runnable task) {
+        if (mPriorityIoTaskExecutor != null) {
+            return mPriorityIoTaskExecutor.execute(type, task);
+        }
+        return mIoTaskExecutor != null && mIoTaskExecutor.execute(task);
+    }
+
+    /**
+     * 実行待ちのIO処理の数を返す。
+     *
+     * <p>IO処理のTaskExecutorが外部から指定されている場合は常に0を返す。
+     *
+     * @param type 種別
+     * @return 実行待ちのIO処理の数
+     */
+    public int getIoQueueDepth(@Nonnull final IoTaskType type) {
+        return mPriorityIoTaskExecutor == null ? 0 : mPriorityIoTaskExecutor.getQueueDepth(type);
+    }
+
+    /**
+     * 上限を超えたため拒否もしくは破棄されたIO処理の数を返す。
+     *
+     * <p>IO処理のTaskExecutorが外部から指定されている場合は常に0を返す。
+     *
+     * @param type 種別
+     * @return 拒否もしくは破棄されたIO処理の数
+     */
+    public long getIoRejectedCount(@Nonnull final IoTaskType type) {
+        return mPriorityIoTaskExecutor == null ? 0 : mPriorityIoTaskExecutor.getRejectedCount(type);
+    }
+
+    /**
+     * 優先度の低いIO処理を実行する。
+     *
+     * <p>Iconのダウンロードなど、機器発見の通知を遅延させるべきではない処理に使用する。
+     * 通常のIO処理とは別のスレッドプールで実行されるため、通常のIO処理を待たせることはない。
+     *
+     * @param task 実行するタスク
+     * @return 実行を受け付けた場合true
+     */
+    public boolean lowPriorityIo(@Nonnull final Runnable task) {
+        return mLowPriorityIoTaskExecutor.execute(task);
+    }
+
+    /**
+     * 時刻を指定した処理を実行するTimerExecutorを返す。
+     *
+     * <p>Executorを共有するTaskHandler間では同一のインスタンスを返す。
+     *
+     * @return TimerExecutor
+     */
+    @Nonnull
+    public TimerExecutor getTimerExecutor() {
+        return mTimerExecutor;
     }
 
+    /**
+     * Executorを終了させる。
+     *
+     * <p>Executorを共有している場合は何もしない。
+     */
     public void terminate() {
+        if (mShared) {
+            return;
+        }
         mCallbackTaskExecutor.terminate();
-        mIoTaskExecutor.terminate();
+        if (mIoTaskExecutor != null) {
+            mIoTaskExecutor.terminate();
+        }
+        if (mPriorityIoTaskExecutor != null) {
+            mPriorityIoTaskExecutor.terminate();
+        }
+        mLowPriorityIoTaskExecutor.terminate();
+        mTimerExecutor.terminate();
     }
 }
@@ -54,7 +54,6 @@ class ThreadWorkQueue implements BlockingQueue<Runnable>, RejectedExecutionHandl
         this(new LinkedBlockingQueue<>());
     }
 
-    // VisibleForTesting
     ThreadWorkQueue(@Nonnull final BlockingQueue<Runnable> delegate) {
         mDelegate = delegate;
     }
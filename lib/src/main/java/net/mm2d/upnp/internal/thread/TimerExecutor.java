@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.thread;
+
+import net.mm2d.log.Log;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * 時刻を指定した処理を単一のスレッドで実行する。
+ *
+ * <p>Deviceの有効期限やSubscribeの更新、M-SEARCHの送信など、
+ * 待機時間の長い定期処理をそれぞれのスレッドで待機させず、一つのスレッドで実行する。
+ * TaskHandlerを共有する複数のControlPoint間でも共有される。
+ * 全ての処理が同一のスレッドで実行されるため、処理の中でHTTP通信等の応答を待つ処理を行ってはならない。
+ *
+ * @author <a href="mailto:ryo@mm2d.net">大前良介 (OHMAE Ryosuke)</a>
+ */
+public class TimerExecutor {
+    /**
+     * タイマーで実行する処理。
+     */
+    public interface Task {
+        /**
+         * 処理を実行し、次回の実行時刻を返す。
+         *
+         * @return 次回の実行時刻、次回の予定がない場合{@link Long#MAX_VALUE}
+         */
+        long run();
+    }
+
+    /**
+     * 一つの処理の実行予定を管理する。
+     *
+     * <p>同一のTimerの処理が並行して実行されることはない。
+     * 処理の実行中に要求された実行予定は、処理の終了後に反映される。
+     */
+    public class Timer {
+        @Nonnull
+        private final Task mTask;
+        @Nullable
+        private ScheduledFuture<?> mFuture;
+        private long mScheduledTime = Long.MAX_VALUE;
+        private boolean mCancelled;
+
+        private Timer(@Nonnull final Task task) {
+            mTask = task;
+        }
+
+        /**
+         * 指定時刻に処理を実行する。
+         *
+         * <p>既にそれより前の時刻に実行予定がある場合は何もしない。
+         *
+         * @param time 実行時刻
+         */
+        public synchronized void schedule(final long time) {
+            if (mCancelled || time == Long.MAX_VALUE || time >= mScheduledTime) {
+                return;
+            }
+            if (mFuture != null) {
+                mFuture.cancel(false);
+            }
+            final long delay = Math.max(time - System.currentTimeMillis(), 0);
+            try {
+                mFuture = mExecutor.schedule(this::execute, delay, TimeUnit.MILLISECONDS);
+                mScheduledTime = time;
+            } catch (final RejectedExecutionException ignored) {
+                mFuture = null;
+                mScheduledTime = Long.MAX_VALUE;
+            }
+        }
+
+        /**
+         * すぐに処理を実行する。
+         */
+        public void wakeUp() {
+            schedule(System.currentTimeMillis());
+        }
+
+        /**
+         * 実行予定を破棄し、以降の実行を停止する。
+         */
+        public synchronized void cancel() {
+            mCancelled = true;
+            if (mFuture != null) {
+                mFuture.cancel(false);
+                mFuture = null;
+            }
+            mScheduledTime = Long.MAX_VALUE;
+        }
+
+        private void execute() {
+            synchronized (this) {
+                if (mCancelled) {
+                    return;
+                }
+                mFuture = null;
+                mScheduledTime = Long.MAX_VALUE;
+            }
+            long next = Long.MAX_VALUE;
+            try {
+                next = mTask.run();
+            } catch (final RuntimeException e) {
+                Log.w(e);
+            }
+            schedule(next);
+        }
+    }
+
+    @Nonnull
+    private final ScheduledThreadPoolExecutor mExecutor;
+
+    public TimerExecutor() {
+        final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+        mExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = defaultFactory.newThread(runnable);
+            thread.setName("TimerExecutor");
+            return thread;
+        });
+        mExecutor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * 処理を実行するTimerを作成する。
+     *
+     * <p>作成時点では実行予定はない。{@link Timer#schedule(long)}もしくは{@link Timer#wakeUp()}で実行する。
+     *
+     * @param task 実行する処理
+     * @return Timer
+     */
+    @Nonnull
+    public Timer create(@Nonnull final Task task) {
+        return new Timer(task);
+    }
+
+    /**
+     * スレッドを終了させる。
+     *
+     * <p>全ての実行予定は破棄される。
+     */
+    public void terminate() {
+        mExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import net.mm2d.upnp.ContentDirectoryBrowser.Cursor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class ContentDirectoryBrowserTest {
+    private static ActionResult createResult(
+            final int start,
+            final int count,
+            final int total) {
+        final StringBuilder sb = new StringBuilder("<DIDL-Lite>");
+        final int end = Math.min(start + count, total);
+        for (int i = start; i < end; i++) {
+            sb.append("<item id=\"").append(i).append("\" parentID=\"0\"><dc:title>").append(i)
+                    .append("</dc:title></item>");
+        }
+        sb.append("</DIDL-Lite>");
+        final Map<String, String> values = new HashMap<>();
+        values.put("NumberReturned", String.valueOf(Math.max(end - start, 0)));
+        values.put("TotalMatches", String.valueOf(total));
+        final ActionResult result = mock(ActionResult.class);
+        doReturn(values).when(result).getValues();
+        doAnswer(invocation -> new StringReader(sb.toString())).when(result).openReader("Result");
+        return result;
+    }
+
+    private static Action createAction(
+            final int total,
+            final List<Map<String, String>> requests) throws IOException {
+        final Action action = mock(Action.class);
+        doAnswer(invocation -> {
+            final Map<String, String> argument = invocation.getArgument(0);
+            synchronized (requests) {
+                requests.add(argument);
+            }
+            final int start = Integer.parseInt(argument.get("StartingIndex"));
+            final int count = Integer.parseInt(argument.get("RequestedCount"));
+            return createResult(start, count, total);
+        }).when(action).invokeStreaming(anyMap(), anyCollection());
+        return action;
+    }
+
+    @Test
+    public void browseChildren_全ての子要素を順に取得できる() throws Exception {
+        final List<Map<String, String>> requests = new ArrayList<>();
+        final ContentDirectoryBrowser browser = new ContentDirectoryBrowser.Builder()
+                .setAction(createAction(25, requests))
+                .setPageSize(10, 10, 10)
+                .build();
+        final Cursor cursor = browser.browseChildren("0");
+        final List<String> ids = new ArrayList<>();
+        while (cursor.hasNext()) {
+            ids.add(cursor.next().getId());
+        }
+        assertThat(ids.size(), is(25));
+        for (int i = 0; i < ids.size(); i++) {
+            assertThat(ids.get(i), is(String.valueOf(i)));
+        }
+        assertThat(cursor.getTotalMatches(), is(25));
+        assertThat(requests.size(), is(3));
+        assertThat(requests.get(0).get("ObjectID"), is("0"));
+        assertThat(requests.get(0).get("BrowseFlag"), is("BrowseDirectChildren"));
+        assertThat(requests.get(0).get("Filter"), is("*"));
+        assertThat(requests.get(0).get("StartingIndex"), is("0"));
+        assertThat(requests.get(1).get("StartingIndex"), is("10"));
+        assertThat(requests.get(2).get("StartingIndex"), is("20"));
+    }
+
+    @Test
+    public void browseChildren_子要素がない() throws Exception {
+        final ContentDirectoryBrowser browser = new ContentDirectoryBrowser.Builder()
+                .setAction(createAction(0, new ArrayList<>()))
+                .build();
+        final Cursor cursor = browser.browseChildren("0");
+        assertThat(cursor.hasNext(), is(false));
+        try {
+            cursor.next();
+            fail();
+        } catch (final NoSuchElementException ignored) {
+        }
+    }
+
+    @Test
+    public void browseChildren_TotalMatchesが0でもNumberReturnedが0になるまで取得する() throws Exception {
+        final Action action = mock(Action.class);
+        doAnswer(invocation -> {
+            final Map<String, String> argument = invocation.getArgument(0);
+            final int start = Integer.parseInt(argument.get("StartingIndex"));
+            final ActionResult result = createResult(start, 10, 15);
+            final Map<String, String> values = new HashMap<>(result.getValues());
+            values.put("TotalMatches", "0");
+            doReturn(values).when(result).getValues();
+            return result;
+        }).when(action).invokeStreaming(anyMap(), anyCollection());
+        final Cursor cursor = new ContentDirectoryBrowser.Builder()
+                .setAction(action)
+                .setPageSize(10, 10, 10)
+                .build()
+                .browseChildren("0");
+        int count = 0;
+        while (cursor.hasNext()) {
+            cursor.next();
+            count++;
+        }
+        assertThat(count, is(15));
+        verify(action, times(3)).invokeStreaming(anyMap(), anyCollection());
+    }
+
+    @Test(expected = IOException.class)
+    public void hasNext_Browseの失敗が通知される() throws Exception {
+        final Action action = mock(Action.class);
+        doThrow(new IOException()).when(action).invokeStreaming(anyMap(), anyCollection());
+        new ContentDirectoryBrowser.Builder()
+                .setAction(action)
+                .build()
+                .browseChildren("0")
+                .hasNext();
+    }
+
+    @Test
+    public void hasNext_現在のページを読んでいる間に次のページを取得する() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(2);
+        final Action action = mock(Action.class);
+        doAnswer(invocation -> {
+            final Map<String, String> argument = invocation.getArgument(0);
+            latch.countDown();
+            return createResult(Integer.parseInt(argument.get("StartingIndex")), 10, 30);
+        }).when(action).invokeStreaming(anyMap(), anyCollection());
+        final Cursor cursor = new ContentDirectoryBrowser.Builder()
+                .setAction(action)
+                .setPageSize(10, 10, 10)
+                .build()
+                .browseChildren("0");
+        cursor.next();
+        assertThat(latch.await(1, TimeUnit.SECONDS), is(true));
+        cursor.close();
+        assertThat(cursor.hasNext(), is(false));
+    }
+
+    @Test
+    public void setMaxConcurrency_同時実行数が制限される() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger max = new AtomicInteger();
+        final Action action = mock(Action.class);
+        doAnswer(invocation -> {
+            final int current = running.incrementAndGet();
+            max.accumulateAndGet(current, Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return createResult(0, 10, 5);
+        }).when(action).invokeStreaming(anyMap(), anyCollection());
+        final ContentDirectoryBrowser browser = new ContentDirectoryBrowser.Builder()
+                .setAction(action)
+                .setMaxConcurrency(1)
+                .build();
+        final List<Cursor> cursors = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            cursors.add(browser.browseChildren(String.valueOf(i)));
+        }
+        for (final Cursor cursor : cursors) {
+            while (cursor.hasNext()) {
+                cursor.next();
+            }
+        }
+        assertThat(max.get(), is(1));
+    }
+
+    @Test
+    public void setExecutor_未指定の場合スレッド数が制限される() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger max = new AtomicInteger();
+        final Action action = mock(Action.class);
+        doAnswer(invocation -> {
+            final int current = running.incrementAndGet();
+            max.accumulateAndGet(current, Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return createResult(0, 10, 5);
+        }).when(action).invokeStreaming(anyMap(), anyCollection());
+        final ContentDirectoryBrowser browser = new ContentDirectoryBrowser.Builder()
+                .setAction(action)
+                .build();
+        final List<Cursor> cursors = new ArrayList<>();
+        for (int i = 0; i < ContentDirectoryBrowser.DEFAULT_THREAD_COUNT * 3; i++) {
+            cursors.add(browser.browseChildren(String.valueOf(i)));
+        }
+        for (final Cursor cursor : cursors) {
+            while (cursor.hasNext()) {
+                cursor.next();
+            }
+        }
+        assertThat(max.get(), is(lessThanOrEqualTo(ContentDirectoryBrowser.DEFAULT_THREAD_COUNT)));
+    }
+
+    @Test
+    public void calculatePageSize_応答時間に応じて増減する() {
+        assertThat(ContentDirectoryBrowser.calculatePageSize(100, 500, 1000, 10, 1000), is(200));
+        assertThat(ContentDirectoryBrowser.calculatePageSize(100, 800, 1000, 10, 1000), is(125));
+        assertThat(ContentDirectoryBrowser.calculatePageSize(100, 2000, 1000, 10, 1000), is(50));
+        assertThat(ContentDirectoryBrowser.calculatePageSize(100, 0, 1000, 10, 1000), is(200));
+    }
+
+    @Test
+    public void calculatePageSize_変化は倍又は半分まで() {
+        assertThat(ContentDirectoryBrowser.calculatePageSize(100, 10, 1000, 10, 1000), is(200));
+        assertThat(ContentDirectoryBrowser.calculatePageSize(100, 100000, 1000, 10, 1000), is(50));
+    }
+
+    @Test
+    public void calculatePageSize_最小最大の範囲に収まる() {
+        assertThat(ContentDirectoryBrowser.calculatePageSize(800, 10, 1000, 10, 1000), is(1000));
+        assertThat(ContentDirectoryBrowser.calculatePageSize(15, 100000, 1000, 10, 1000), is(10));
+    }
+
+    @Test
+    public void getPageSize_Browse後に更新される() throws Exception {
+        final ContentDirectoryBrowser browser = new ContentDirectoryBrowser.Builder()
+                .setAction(createAction(5, new ArrayList<>()))
+                .setPageSize(100, 10, 1000)
+                .setTargetResponseTime(60000)
+                .build();
+        final Cursor cursor = browser.browseChildren("0");
+        assertThat(cursor.hasNext(), is(true));
+        assertThat(browser.getPageSize(), is(200));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setPageSize_範囲が不正() {
+        new ContentDirectoryBrowser.Builder().setPageSize(5, 10, 100);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void build_Action未指定() {
+        new ContentDirectoryBrowser.Builder().build();
+    }
+}
@@ -8,14 +8,20 @@
 package net.mm2d.upnp;
 
 import net.mm2d.upnp.ControlPointFactory.Params;
+import net.mm2d.upnp.internal.impl.ControlPointImpl;
+import net.mm2d.upnp.internal.manager.HostGuardRegistry;
 import net.mm2d.util.NetworkUtils;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.net.InetAddress;
 import java.util.Collections;
 
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
 @SuppressWarnings("NonAsciiCharacters")
 @RunWith(JUnit4.class)
 public class ControlPointFactoryTest {
@@ -50,6 +56,68 @@ public class ControlPointFactoryTest {
                 .setProtocol(Protocol.DEFAULT)
                 .setInterfaces(NetworkUtils.getNetworkInterfaceList())
                 .setNotifySegmentCheckEnabled(true)
+                .setAsyncIconLoadEnabled(true)
+                .setProgressiveDiscoveryEnabled(true)
+                .setCompactModelEnabled(true)
         );
     }
+
+    @Test
+    public void create_Runtime指定() throws Exception {
+        final UpnpRuntime runtime = new UpnpRuntime();
+        final ControlPoint cp1 = ControlPointFactory.create(new Params()
+                .setInterfaces(NetworkUtils.getNetworkInterfaceList())
+                .setRuntime(runtime));
+        final ControlPoint cp2 = ControlPointFactory.create(new Params()
+                .setInterfaces(NetworkUtils.getNetworkInterfaceList())
+                .setRuntime(runtime));
+        cp1.initialize();
+        cp2.initialize();
+        cp1.terminate();
+        cp2.terminate();
+        runtime.shutdown();
+    }
+
+    @Test
+    public void create_HTTP通信の設定はControlPoint毎に適用される() throws Exception {
+        final UpnpRuntime runtime = new UpnpRuntime();
+        final ControlPointImpl cp1 = (ControlPointImpl) ControlPointFactory.create(new Params()
+                .setInterfaces(NetworkUtils.getNetworkInterfaceList())
+                .setRuntime(runtime)
+                .setHttpTimeoutRange(100, 2000)
+                .setHttpCompressionEnabled(true)
+                .setHttpRequestCompressionThreshold(1024));
+        final ControlPointImpl cp2 = (ControlPointImpl) ControlPointFactory.create(new Params()
+                .setInterfaces(NetworkUtils.getNetworkInterfaceList())
+                .setRuntime(runtime));
+        final HostGuardRegistry registry1 = cp1.getHostGuardRegistry();
+        final HostGuardRegistry registry2 = cp2.getHostGuardRegistry();
+        final InetAddress address = InetAddress.getByName("192.0.2.2");
+
+        assertThat(registry1, is(not(sameInstance(registry2))));
+        assertThat(registry1.get(address), is(not(sameInstance(registry2.get(address)))));
+        assertThat(registry1.get(address).getReadTimeout(), is(2000));
+        assertThat(registry1.isCompressionEnabled(), is(true));
+        assertThat(registry1.getRequestCompressionThreshold(), is(1024));
+        assertThat(registry2.get(address).getReadTimeout(), is((int) HostGuardRegistry.DEFAULT_TIMEOUT_CEILING));
+        assertThat(registry2.isCompressionEnabled(), is(false));
+        assertThat(registry2.getRequestCompressionThreshold(), is(0));
+        runtime.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_HTTP通信のタイムアウト範囲が不正ならException() throws Exception {
+        ControlPointFactory.create(new Params()
+                .setInterfaces(NetworkUtils.getNetworkInterfaceList())
+                .setHttpTimeoutRange(2000, 1000));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void create_shutdown済みのRuntime指定() throws Exception {
+        final UpnpRuntime runtime = new UpnpRuntime();
+        runtime.shutdown();
+        ControlPointFactory.create(new Params()
+                .setInterfaces(NetworkUtils.getNetworkInterfaceList())
+                .setRuntime(runtime));
+    }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import net.mm2d.upnp.DidlLiteParser.DidlObject;
+import net.mm2d.util.TestUtils;
+import net.mm2d.util.XmlUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class DidlLiteParserTest {
+    private static final String DIDL_START = "<DIDL-Lite xmlns=\"urn:schemas-upnp-org:metadata-1-0/DIDL-Lite/\""
+            + " xmlns:dc=\"http://purl.org/dc/elements/1.1/\""
+            + " xmlns:upnp=\"urn:schemas-upnp-org:metadata-1-0/upnp/\">";
+    private static final String DIDL_END = "</DIDL-Lite>";
+
+    private static List<DidlObject> parse(final String xml) throws IOException {
+        final List<DidlObject> list = new ArrayList<>();
+        DidlLiteParser.parse(xml, list::add);
+        return list;
+    }
+
+    @Test
+    public void parse_Browse結果のcontainerを取得できる() throws Exception {
+        final Document doc = XmlUtils.newDocument(true, TestUtils.getResourceAsString("browse-result.xml"));
+        final Element result = (Element) doc.getElementsByTagName("Result").item(0);
+        final List<DidlObject> list = parse(result.getTextContent());
+
+        assertThat(list.size(), is(3));
+        assertThat(list.get(0).isContainer(), is(true));
+        assertThat(list.get(0).getId(), is("21"));
+        assertThat(list.get(0).getParentId(), is("0"));
+        assertThat(list.get(0).isRestricted(), is(true));
+        assertThat(list.get(0).getTitle(), is("Music"));
+        assertThat(list.get(0).getUpnpClass(), is("object.container"));
+        assertThat(list.get(1).getTitle(), is("Photo"));
+        assertThat(list.get(1).getUpnpClass(), is("object.container.storageFolder"));
+        assertThat(list.get(2).getId(), is("33"));
+        assertThat(list.get(2).getTitle(), is("Video"));
+    }
+
+    @Test
+    public void parse_itemのresを取得できる() throws Exception {
+        final List<DidlObject> list = parse(DIDL_START
+                + "<item id=\"i1\" parentID=\"c1\" restricted=\"0\">"
+                + "<dc:title>A &amp; B</dc:title>"
+                + "<upnp:class>object.item.videoItem</upnp:class>"
+                + "<res protocolInfo=\"http-get:*:video/mp4:*\" size=\"100\">http://192.0.2.1/a.mp4</res>"
+                + "<res protocolInfo=\"http-get:*:image/jpeg:*\">http://192.0.2.1/a.jpg</res>"
+                + "</item>"
+                + DIDL_END);
+
+        assertThat(list.size(), is(1));
+        final DidlObject item = list.get(0);
+        assertThat(item.isItem(), is(true));
+        assertThat(item.isRestricted(), is(false));
+        assertThat(item.getTitle(), is("A & B"));
+        assertThat(item.getResources().size(), is(2));
+        assertThat(item.getResources().get(0).getUri(), is("http://192.0.2.1/a.mp4"));
+        assertThat(item.getResources().get(0).getProtocolInfo(), is("http-get:*:video/mp4:*"));
+        assertThat(item.getResources().get(1).getUri(), is("http://192.0.2.1/a.jpg"));
+    }
+
+    @Test
+    public void parse_出現順に通知される() throws Exception {
+        final List<DidlObject> list = parse(DIDL_START
+                + "<container id=\"c1\" parentID=\"0\"><dc:title>c</dc:title></container>"
+                + "<item id=\"i1\" parentID=\"0\"><dc:title>i</dc:title></item>"
+                + DIDL_END);
+
+        assertThat(list.size(), is(2));
+        assertThat(list.get(0).isContainer(), is(true));
+        assertThat(list.get(1).isItem(), is(true));
+        assertThat(list.get(1).getResources(), is(empty()));
+    }
+
+    @Test
+    public void parse_namespace宣言がなくても読み込める() throws Exception {
+        final List<DidlObject> list = parse("<DIDL-Lite>"
+                + "<item id=\"i1\"><dc:title>t</dc:title><upnp:class>object.item</upnp:class></item>"
+                + DIDL_END);
+
+        assertThat(list.size(), is(1));
+        assertThat(list.get(0).getTitle(), is("t"));
+        assertThat(list.get(0).getUpnpClass(), is("object.item"));
+        assertThat(list.get(0).getParentId(), is(""));
+    }
+
+    @Test
+    public void parse_子孫要素のtitleは無視する() throws Exception {
+        final List<DidlObject> list = parse(DIDL_START
+                + "<item id=\"i1\"><dc:title>t</dc:title><desc><dc:title>x</dc:title></desc></item>"
+                + DIDL_END);
+
+        assertThat(list.get(0).getTitle(), is("t"));
+    }
+
+    @Test
+    public void parse_失敗箇所までは通知される() throws Exception {
+        final List<DidlObject> list = new ArrayList<>();
+        try {
+            DidlLiteParser.parse(DIDL_START + "<item id=\"i1\"></item><item>", list::add);
+            fail();
+        } catch (final IOException ignored) {
+        }
+        assertThat(list.size(), is(1));
+    }
+}
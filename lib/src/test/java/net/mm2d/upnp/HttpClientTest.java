@@ -8,19 +8,30 @@
 package net.mm2d.upnp;
 
 import net.mm2d.upnp.Http.Status;
+import net.mm2d.upnp.internal.manager.HostGuardRegistry;
+import net.mm2d.upnp.internal.message.CacheValidator;
+import net.mm2d.upnp.internal.message.ContentCoding;
 import net.mm2d.upnp.internal.message.HttpRequest;
 import net.mm2d.upnp.internal.message.HttpResponse;
+import net.mm2d.util.TestUtils;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.ArgumentMatchers;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnull;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
@@ -100,6 +111,264 @@ public class HttpClientTest {
         }
     }
 
+    @Test
+    public void downloadStringIfModified_検証子が一致すればnullを返す() throws Exception {
+        final String responseBody = "responseBody";
+
+        final HttpServerMock server = new HttpServerMock();
+        server.setServerCore((socket, is, os) -> {
+            final HttpRequest request = new HttpRequest().readData(is);
+            final HttpResponse response = new HttpResponse();
+            if ("\"v1\"".equals(request.getHeader(Http.IF_NONE_MATCH))) {
+                response.setStatusLine("HTTP/1.1 304 Not Modified");
+                response.setHeader(Http.CONTENT_LENGTH, "0");
+            } else {
+                response.setStatusLine("HTTP/1.1 200 OK");
+                response.setHeader(Http.ETAG, "\"v1\"");
+                response.setHeader(Http.LAST_MODIFIED, "Sun, 01 Jan 2017 00:00:00 GMT");
+                response.setBody(responseBody, true);
+            }
+            response.setHeader(Http.CONNECTION, Http.KEEP_ALIVE);
+            response.writeData(os);
+            return true;
+        });
+        server.open();
+        final int port = server.getLocalPort();
+
+        try {
+            final HttpClient client = new HttpClient(true);
+            final URL url = new URL("http://127.0.0.1:" + port + "/");
+            assertThat(client.downloadStringIfModified(url, null), is(responseBody));
+            final CacheValidator validator = client.getCacheValidator();
+            assertThat(validator, is(new CacheValidator("\"v1\"", "Sun, 01 Jan 2017 00:00:00 GMT")));
+
+            assertThat(client.downloadStringIfModified(url, validator), is(nullValue()));
+            assertThat(client.getCacheValidator(), is(validator));
+
+            assertThat(client.downloadStringIfModified(url, new CacheValidator("\"v0\"", null)), is(responseBody));
+            client.close();
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void downloadStringIfModified_検証子がなければ304はエラー() throws Exception {
+        final HttpServerMock server = new HttpServerMock();
+        server.setServerCore((socket, is, os) -> {
+            new HttpRequest().readData(is);
+            final HttpResponse response = new HttpResponse();
+            response.setStatusLine("HTTP/1.1 304 Not Modified");
+            response.setHeader(Http.CONTENT_LENGTH, "0");
+            response.setHeader(Http.CONNECTION, Http.CLOSE);
+            response.writeData(os);
+            return false;
+        });
+        server.open();
+        final int port = server.getLocalPort();
+
+        final HttpClient client = new HttpClient(false);
+        try {
+            client.downloadStringIfModified(new URL("http://127.0.0.1:" + port + "/"), null);
+        } finally {
+            client.close();
+            server.close();
+        }
+    }
+
+    @Test
+    public void downloadString_圧縮を有効にするとAccept_Encodingを送信し復号する() throws Exception {
+        final String responseBody = TestUtils.getResourceAsString("cds.xml");
+
+        final HttpServerMock server = new HttpServerMock();
+        server.setServerCore((socket, is, os) -> {
+            final HttpRequest request = new HttpRequest().readData(is);
+            final HttpResponse response = new HttpResponse();
+            response.setStatusLine("HTTP/1.1 200 OK");
+            if (ContentCoding.acceptsGzip(request.getHeader(Http.ACCEPT_ENCODING))) {
+                response.setHeader(Http.CONTENT_ENCODING, Http.GZIP);
+                response.setBodyBinary(ContentCoding.encodeGzip(responseBody.getBytes("utf-8")), true);
+            } else {
+                response.setBody(responseBody, true);
+            }
+            response.setHeader(Http.CONNECTION, Http.CLOSE);
+            response.writeData(os);
+            return false;
+        });
+        server.open();
+        final int port = server.getLocalPort();
+
+        try {
+            final HostGuardRegistry registry = new HostGuardRegistry();
+            registry.setCompressionEnabled(true);
+            final HttpClient client = new HttpClient(false, registry);
+            final HttpResponse response = client.download(new URL("http://127.0.0.1:" + port + "/"));
+            assertThat(response.getBody(), is(responseBody));
+            assertThat(response.getHeader(Http.CONTENT_ENCODING), is(nullValue()));
+            client.close();
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void downloadString_Accept_Encodingを送信していなければ復号しない() throws Exception {
+        final byte[] encoded = ContentCoding.encodeGzip(TestUtils.getResourceAsString("cds.xml").getBytes("utf-8"));
+
+        final HttpServerMock server = new HttpServerMock();
+        server.setServerCore((socket, is, os) -> {
+            final HttpRequest request = new HttpRequest().readData(is);
+            assertThat(request.getHeader(Http.ACCEPT_ENCODING), is(nullValue()));
+            final HttpResponse response = new HttpResponse();
+            response.setStatusLine("HTTP/1.1 200 OK");
+            response.setHeader(Http.CONTENT_ENCODING, Http.GZIP);
+            response.setBodyBinary(encoded, true);
+            response.setHeader(Http.CONNECTION, Http.CLOSE);
+            response.writeData(os);
+            return false;
+        });
+        server.open();
+        final int port = server.getLocalPort();
+
+        final HttpClient client = new HttpClient(false);
+        try {
+            final HttpResponse response = client.download(new URL("http://127.0.0.1:" + port + "/"));
+            assertThat(response.getBodyBinary(), is(encoded));
+            assertThat(response.getHeader(Http.CONTENT_ENCODING), is(Http.GZIP));
+        } finally {
+            client.close();
+            server.close();
+        }
+    }
+
+    @Test
+    public void post_Accept_Encodingでgzipを示したホストには閾値以上のボディを符号化して送信する() throws Exception {
+        final String requestBody = TestUtils.getResourceAsString("cds.xml");
+        final List<Integer> receivedSizes = new ArrayList<>();
+        final List<String> receivedBodies = new ArrayList<>();
+
+        final HttpServerMock server = new HttpServerMock();
+        server.setServerCore((socket, is, os) -> {
+            final CountingInputStream cis = new CountingInputStream(is);
+            final HttpRequest request = new HttpRequest().readData(cis);
+            // 受信側では復号しないため、ここで復号する
+            final String encoding = request.getHeader(Http.CONTENT_ENCODING);
+            final byte[] body = encoding == null
+                    ? request.getBodyBinary()
+                    : ContentCoding.decode(encoding, request.getBodyBinary());
+            synchronized (receivedSizes) {
+                receivedSizes.add(cis.getCount());
+                receivedBodies.add(new String(body, "utf-8"));
+            }
+            final HttpResponse response = new HttpResponse();
+            response.setStatusLine("HTTP/1.1 200 OK");
+            response.setHeader(Http.ACCEPT_ENCODING, Http.GZIP);
+            response.setBody("", true);
+            response.setHeader(Http.CONNECTION, Http.CLOSE);
+            response.writeData(os);
+            return false;
+        });
+        server.open();
+        final int port = server.getLocalPort();
+
+        final InetAddress address = InetAddress.getByName("127.0.0.1");
+        final HostGuardRegistry registry = new HostGuardRegistry();
+        try {
+            registry.setRequestCompressionThreshold(1024);
+            final HttpClient client = new HttpClient(false, registry);
+            final HttpRequest request = new HttpRequest()
+                    .setMethod(Http.POST)
+                    .setUrl(new URL("http://127.0.0.1:" + port + "/"), true)
+                    .setBody(requestBody, true);
+            client.post(request);
+            assertThat(registry.get(address).isGzipRequestAccepted(), is(true));
+            client.post(request);
+            assertThat(request.getHeader(Http.CONTENT_ENCODING), is(nullValue()));
+            client.close();
+
+            final int length = requestBody.getBytes("utf-8").length;
+            assertThat(receivedBodies, is(Arrays.asList(requestBody, requestBody)));
+            assertThat(receivedSizes.get(0), is(greaterThan(length)));
+            assertThat(receivedSizes.get(1), is(lessThan(length)));
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void post_符号化したリクエストが415の場合は符号化せずに再送する() throws Exception {
+        final String requestBody = TestUtils.getResourceAsString("cds.xml");
+        final int length = requestBody.getBytes("utf-8").length;
+
+        final HttpServerMock server = new HttpServerMock();
+        server.setServerCore((socket, is, os) -> {
+            final CountingInputStream cis = new CountingInputStream(is);
+            new HttpRequest().readData(cis);
+            final HttpResponse response = new HttpResponse();
+            if (cis.getCount() < length) {
+                response.setStatus(Status.HTTP_UNSUPPORTED_TYPE);
+            } else {
+                response.setStatus(Status.HTTP_OK);
+            }
+            response.setBody("", true);
+            response.setHeader(Http.CONNECTION, Http.CLOSE);
+            response.writeData(os);
+            return false;
+        });
+        server.open();
+        final int port = server.getLocalPort();
+
+        final InetAddress address = InetAddress.getByName("127.0.0.1");
+        final HostGuardRegistry registry = new HostGuardRegistry();
+        try {
+            registry.setRequestCompressionThreshold(1024);
+            registry.get(address).setGzipRequestAccepted(true);
+            final HttpClient client = new HttpClient(false, registry);
+            final HttpRequest request = new HttpRequest()
+                    .setMethod(Http.POST)
+                    .setUrl(new URL("http://127.0.0.1:" + port + "/"), true)
+                    .setBody(requestBody, true);
+            assertThat(client.post(request).getStatus(), is(Status.HTTP_OK));
+            assertThat(registry.get(address).isGzipRequestAccepted(), is(false));
+            client.close();
+        } finally {
+            server.close();
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private int mCount;
+
+        CountingInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0) {
+                mCount++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(
+                @Nonnull final byte[] b,
+                final int off,
+                final int len) throws IOException {
+            final int size = super.read(b, off, len);
+            if (size > 0) {
+                mCount += size;
+            }
+            return size;
+        }
+
+        int getCount() {
+            return mCount;
+        }
+    }
+
     @Test
     public void download_KeepAliveなのに切断されても取得にいく() throws Exception {
         final String responseBody = "responseBody";
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ * 日付文字列の変換の並列実行時の性能を計測する。
+ *
+ * <p>通常のテストでは実行されない。{@code ./gradlew test -Dbenchmark=true} で実行する。
+ * 従来のsynchronizedなSimpleDateFormatによる実装と比較し、スレッド数毎の処理数を出力する。
+ */
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class HttpDateFormatBenchmarkTest {
+    private static final long WARM_UP_MILLIS = 1000;
+    private static final long MEASURE_MILLIS = 2000;
+    private static final String DATE = "Sun, 28 Jan 2018 13:45:55 GMT";
+
+    private interface Task {
+        void run(long time);
+    }
+
+    private static final DateFormat LEGACY_FORMAT;
+
+    static {
+        LEGACY_FORMAT = new SimpleDateFormat("E, dd MMM yyyy HH:mm:ss z", Locale.US);
+        LEGACY_FORMAT.setTimeZone(TimeZone.getTimeZone("GMT"));
+    }
+
+    private static synchronized String legacyFormat(final long time) {
+        return LEGACY_FORMAT.format(new Date(time));
+    }
+
+    private static synchronized Date legacyParse(final String string) {
+        try {
+            return LEGACY_FORMAT.parse(string);
+        } catch (final Exception e) {
+            return null;
+        }
+    }
+
+    private static volatile Object sBlackHole;
+
+    private int mThreads;
+
+    @Before
+    public void setUp() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        mThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Test
+    public void formatDate_並列実行時に従来実装より処理数が多い() throws Exception {
+        final long legacy = report("legacy formatDate", time -> sBlackHole = legacyFormat(time));
+        final long current = report("formatDate", time -> sBlackHole = Http.formatDate(time));
+        assertThat(current, is(greaterThan(legacy)));
+    }
+
+    @Test
+    public void getCurrentDate_並列実行時に従来実装より処理数が多い() throws Exception {
+        final long legacy = report("legacy getCurrentDate", time -> sBlackHole = legacyFormat(System.currentTimeMillis()));
+        final long current = report("getCurrentDate", time -> sBlackHole = Http.getCurrentDate());
+        assertThat(current, is(greaterThan(legacy)));
+    }
+
+    @Test
+    public void parseDate_並列実行時に従来実装より処理数が多い() throws Exception {
+        final long legacy = report("legacy parseDate", time -> sBlackHole = legacyParse(DATE));
+        final long current = report("parseDate", time -> sBlackHole = Http.parseDate(DATE));
+        assertThat(current, is(greaterThan(legacy)));
+    }
+
+    private long report(
+            final String name,
+            final Task task) throws Exception {
+        measure(mThreads, WARM_UP_MILLIS, task);
+        final long count = measure(mThreads, MEASURE_MILLIS, task);
+        final long opsPerSecond = count * 1000 / MEASURE_MILLIS;
+        System.out.println(String.format(Locale.US, "%-24s %3d threads %,14d ops/s", name, mThreads, opsPerSecond));
+        return opsPerSecond;
+    }
+
+    private static long measure(
+            final int threads,
+            final long millis,
+            final Task task) throws Exception {
+        final AtomicLong total = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch end = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                } catch (final InterruptedException e) {
+                    return;
+                }
+                final long limit = System.currentTimeMillis() + millis;
+                long count = 0;
+                long time = 1517147155000L;
+                while (System.currentTimeMillis() < limit) {
+                    for (int j = 0; j < 100; j++) {
+                        task.run(time);
+                        time += 1000;
+                    }
+                    count += 100;
+                }
+                total.addAndGet(count);
+                end.countDown();
+            }).start();
+        }
+        start.countDown();
+        end.await(millis * 2 + 1000, TimeUnit.MILLISECONDS);
+        return total.get();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class HttpDateFormatTest {
+    private static DateFormat createRfc1123Format() {
+        final DateFormat format = new SimpleDateFormat("E, dd MMM yyyy HH:mm:ss z", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format;
+    }
+
+    @Test
+    public void format_SimpleDateFormatと同一の結果になる() {
+        final DateFormat expected = createRfc1123Format();
+        final Random random = new Random(0);
+        // 1900年から2100年の範囲
+        final long min = -2208988800000L;
+        final long max = 4102444800000L;
+        for (int i = 0; i < 10000; i++) {
+            final long date = min + (long) (random.nextDouble() * (max - min));
+            assertThat(HttpDateFormat.format(date), is(expected.format(new Date(date))));
+        }
+    }
+
+    @Test
+    public void format_境界値() {
+        final DateFormat expected = createRfc1123Format();
+        final long[] dates = {
+                0L, -1L, 999L, 1000L,
+                951782400000L, // 2000-02-29
+                951868799999L, // 2000-02-29 23:59:59.999
+                4107542400000L, // 2100-03-01
+                -2203891200000L, // 1900-03-01
+                253402300799000L, // 9999-12-31 23:59:59
+        };
+        for (final long date : dates) {
+            assertThat(HttpDateFormat.format(date), is(expected.format(new Date(date))));
+        }
+    }
+
+    @Test
+    public void format_RFC1123形式() {
+        assertThat(HttpDateFormat.format(1517147155000L), is("Sun, 28 Jan 2018 13:45:55 GMT"));
+    }
+
+    @Test
+    public void formatCurrent_同一秒内はキャッシュされる() {
+        final String date1 = HttpDateFormat.formatCurrent(1517147155000L);
+        final String date2 = HttpDateFormat.formatCurrent(1517147155999L);
+        final String date3 = HttpDateFormat.formatCurrent(1517147156000L);
+        assertThat(date1, is("Sun, 28 Jan 2018 13:45:55 GMT"));
+        assertThat(date2, is(sameInstance(date1)));
+        assertThat(date3, is("Sun, 28 Jan 2018 13:45:56 GMT"));
+    }
+
+    @Test
+    public void parse_各形式をパースできる() {
+        final Date date = new Date(1517147155000L);
+        assertThat(HttpDateFormat.parse("Sun, 28 Jan 2018 13:45:55 GMT"), is(date));
+        assertThat(HttpDateFormat.parse("Sunday, 28-Jan-18 13:45:55 GMT"), is(date));
+        assertThat(HttpDateFormat.parse("Sun Jan 28 13:45:55 2018"), is(date));
+        assertThat(HttpDateFormat.parse("2018-01-28 13:45:55"), is(nullValue()));
+    }
+
+    @Test
+    public void parse_表記揺れを許容する() {
+        assertThat(HttpDateFormat.parse("Mon, 8 Jan 2018 13:45:55 GMT"), is(new Date(1515419155000L)));
+        assertThat(HttpDateFormat.parse("Sun, 28 Jan 2018 22:45:55 +0900"), is(new Date(1517147155000L)));
+        assertThat(HttpDateFormat.parse("Mon Jan  8 13:45:55 2018"), is(new Date(1515419155000L)));
+    }
+
+    @Test
+    public void parse_複数スレッドから同時に呼び出せる() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final long offset = i * 1000L;
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    final long date = 1517147155000L + offset + j * 60000L;
+                    final Date result = HttpDateFormat.parse(HttpDateFormat.format(date));
+                    if (result == null || result.getTime() != date) {
+                        return false;
+                    }
+                }
+                return true;
+            }));
+        }
+        for (final Future<Boolean> future : futures) {
+            assertThat(future.get(), is(true));
+        }
+        executor.shutdown();
+    }
+}
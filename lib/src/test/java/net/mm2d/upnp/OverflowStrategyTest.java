@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import net.mm2d.upnp.OverflowStrategy.Type;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class OverflowStrategyTest {
+    @Test
+    public void buffer() {
+        final OverflowStrategy strategy = OverflowStrategy.buffer(10);
+        assertThat(strategy.getType(), is(Type.BUFFER));
+        assertThat(strategy.getCapacity(), is(10));
+    }
+
+    @Test
+    public void dropOldest() {
+        final OverflowStrategy strategy = OverflowStrategy.dropOldest(5);
+        assertThat(strategy.getType(), is(Type.DROP_OLDEST));
+        assertThat(strategy.getCapacity(), is(5));
+    }
+
+    @Test
+    public void latestPerKey() {
+        final OverflowStrategy strategy = OverflowStrategy.latestPerKey();
+        assertThat(strategy.getType(), is(Type.LATEST_PER_KEY));
+        assertThat(strategy.getCapacity(), is(Integer.MAX_VALUE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void buffer_0以下はException() {
+        OverflowStrategy.buffer(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void dropOldest_0以下はException() {
+        OverflowStrategy.dropOldest(-1);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class SearchPolicyTest {
+    @Test
+    public void build_設定した値が反映される() {
+        final SearchPolicy policy = new SearchPolicy.Builder()
+                .setBurstCount(2)
+                .setBurstInterval(200)
+                .setMaxSearchPerSecond(10)
+                .setPeriodicInterval(1000, 4000)
+                .build();
+        assertThat(policy.getBurstCount(), is(2));
+        assertThat(policy.getBurstInterval(), is(200L));
+        assertThat(policy.getMinSearchInterval(), is(100L));
+        assertThat(policy.getPeriodicInterval(), is(1000L));
+        assertThat(policy.getMaxPeriodicInterval(), is(4000L));
+    }
+
+    @Test
+    public void calculateMx_機器数に応じて範囲内の値を返す() {
+        final SearchPolicy policy = new SearchPolicy.Builder()
+                .setMxRange(2, 4, 10)
+                .build();
+        assertThat(policy.calculateMx(0), is(2));
+        assertThat(policy.calculateMx(9), is(2));
+        assertThat(policy.calculateMx(10), is(3));
+        assertThat(policy.calculateMx(25), is(4));
+        assertThat(policy.calculateMx(100), is(4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setBurstCount_0以下ならException() {
+        new SearchPolicy.Builder().setBurstCount(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setMxRange_不正な範囲ならException() {
+        new SearchPolicy.Builder().setMxRange(3, 2, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setPeriodicInterval_不正な範囲ならException() {
+        new SearchPolicy.Builder().setPeriodicInterval(1000, 500);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp;
+
+import net.mm2d.upnp.internal.thread.TaskHandler;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class UpnpRuntimeTest {
+    @Test
+    public void createTaskHandler_Executorを共有するTaskHandlerを返す() {
+        final TaskExecutor callback = mock(TaskExecutor.class);
+        final TaskExecutor io = mock(TaskExecutor.class);
+        final UpnpRuntime runtime = new UpnpRuntime(callback, io);
+        final TaskHandler handler1 = runtime.createTaskHandler();
+        final TaskHandler handler2 = runtime.createTaskHandler();
+
+        assertThat(handler1, not(sameInstance(handler2)));
+        assertThat(handler1.isShared(), is(true));
+        final Runnable task1 = mock(Runnable.class);
+        final Runnable task2 = mock(Runnable.class);
+        handler1.io(task1);
+        handler2.io(task2);
+        verify(io).execute(task1);
+        verify(io).execute(task2);
+
+        handler1.terminate();
+        verify(io, never()).terminate();
+        verify(callback, never()).terminate();
+    }
+
+    @Test
+    public void shutdown_Executorが終了する() {
+        final TaskExecutor callback = mock(TaskExecutor.class);
+        final TaskExecutor io = mock(TaskExecutor.class);
+        final UpnpRuntime runtime = new UpnpRuntime(callback, io);
+        assertThat(runtime.isShutdown(), is(false));
+        runtime.shutdown();
+        runtime.shutdown();
+
+        assertThat(runtime.isShutdown(), is(true));
+        verify(io, times(1)).terminate();
+        verify(callback, times(1)).terminate();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void createTaskHandler_shutdown後はException() {
+        final UpnpRuntime runtime = new UpnpRuntime();
+        runtime.shutdown();
+        runtime.createTaskHandler();
+    }
+}
@@ -70,4 +70,22 @@ public class EmptyActionTest {
         final Action action = new EmptyAction();
         action.invoke(Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), false);
     }
+
+    @Test(expected = IOException.class)
+    public void invokeStreaming() throws Exception {
+        final Action action = new EmptyAction();
+        action.invokeStreaming(Collections.emptyMap(), Collections.emptySet());
+    }
+
+    @Test
+    public void prepare() {
+        final Action action = new EmptyAction();
+        assertThat(action.prepare().getAction(), is(action));
+    }
+
+    @Test(expected = IOException.class)
+    public void prepare_invoke() throws Exception {
+        final Action action = new EmptyAction();
+        action.prepare().invoke(Collections.emptyMap());
+    }
 }
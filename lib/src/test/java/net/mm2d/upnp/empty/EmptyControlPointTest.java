@@ -9,8 +9,13 @@ package net.mm2d.upnp.empty;
 
 import net.mm2d.upnp.ControlPoint;
 import net.mm2d.upnp.ControlPoint.DiscoveryListener;
+import net.mm2d.upnp.ControlPoint.IconLoadListener;
 import net.mm2d.upnp.ControlPoint.NotifyEventListener;
+import net.mm2d.upnp.DiscoveryEvent;
+import net.mm2d.upnp.EventFlow;
 import net.mm2d.upnp.IconFilter;
+import net.mm2d.upnp.NotifyEvent;
+import net.mm2d.upnp.OverflowStrategy;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -96,6 +101,18 @@ public class EmptyControlPointTest {
         controlPoint.removeNotifyEventListener(mock(NotifyEventListener.class));
     }
 
+    @Test
+    public void addIconLoadListener() {
+        final ControlPoint controlPoint = new EmptyControlPoint();
+        controlPoint.addIconLoadListener(mock(IconLoadListener.class));
+    }
+
+    @Test
+    public void removeIconLoadListener() {
+        final ControlPoint controlPoint = new EmptyControlPoint();
+        controlPoint.removeIconLoadListener(mock(IconLoadListener.class));
+    }
+
     @Test
     public void getDeviceListSize() {
         final ControlPoint controlPoint = new EmptyControlPoint();
@@ -114,6 +131,34 @@ public class EmptyControlPointTest {
         assertThat(controlPoint.getDevice(""), is(nullValue()));
     }
 
+    @Test
+    public void getDeviceListByXxx() {
+        final ControlPoint controlPoint = new EmptyControlPoint();
+        assertThat(controlPoint.getDeviceListByType(""), is(empty()));
+        assertThat(controlPoint.getDeviceListByServiceType(""), is(empty()));
+        assertThat(controlPoint.getDeviceListByManufacture(""), is(empty()));
+        assertThat(controlPoint.getDeviceListByIpAddress(""), is(empty()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> EventFlow.Subscriber<T> mockSubscriber() {
+        return mock(EventFlow.Subscriber.class);
+    }
+
+    @Test
+    public void getXxxEventPublisher_即座に終了する() {
+        final ControlPoint controlPoint = new EmptyControlPoint();
+        final EventFlow.Subscriber<DiscoveryEvent> discoverySubscriber = mockSubscriber();
+        controlPoint.getDiscoveryEventPublisher(OverflowStrategy.latestPerKey()).subscribe(discoverySubscriber);
+        verify(discoverySubscriber).onSubscribe(any());
+        verify(discoverySubscriber).onComplete();
+
+        final EventFlow.Subscriber<NotifyEvent> notifySubscriber = mockSubscriber();
+        controlPoint.getNotifyEventPublisher(OverflowStrategy.buffer(1)).subscribe(notifySubscriber);
+        verify(notifySubscriber).onSubscribe(any());
+        verify(notifySubscriber).onComplete();
+    }
+
     @Test
     public void addPinnedDevice() {
         final ControlPoint controlPoint = new EmptyControlPoint();
@@ -125,4 +170,18 @@ public class EmptyControlPointTest {
         final ControlPoint controlPoint = new EmptyControlPoint();
         controlPoint.removePinnedDevice("");
     }
+
+    @Test
+    public void getSsdpReceiveStats() {
+        final ControlPoint controlPoint = new EmptyControlPoint();
+        final ControlPoint.SsdpReceiveStats stats = controlPoint.getSsdpReceiveStats();
+        assertThat(stats.getCapacity(), is(0));
+        assertThat(stats.getOccupancy(), is(0));
+        assertThat(stats.getMaxOccupancy(), is(0));
+        assertThat(stats.getReceivedCount(), is(0L));
+        assertThat(stats.getDroppedCount(), is(0L));
+        assertThat(stats.getBatchCount(), is(0L));
+        assertThat(stats.getMaxBatchSize(), is(0));
+        assertThat(stats.getAverageBatchSize(), is(0.0));
+    }
 }
@@ -8,6 +8,7 @@
 package net.mm2d.upnp.internal.impl;
 
 import net.mm2d.upnp.Action;
+import net.mm2d.upnp.ActionResult;
 import net.mm2d.upnp.Http;
 import net.mm2d.upnp.HttpClient;
 import net.mm2d.upnp.internal.message.HttpRequest;
@@ -26,6 +27,7 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -524,4 +526,61 @@ public class ActionInvokeTest {
         doThrow(new TransformerException("")).when(mAction).formatXmlString(ArgumentMatchers.any(Document.class));
         mAction.makeSoap(null, Collections.emptyList());
     }
+
+    @Test
+    public void invokeStreaming_実行結果を文字列とReaderで取得できる() throws Exception {
+        mHttpResponse.setBody("<s:Envelope xmlns:s=\"http://schemas.xmlsoap.org/soap/envelope/\""
+                + " s:encodingStyle=\"http://schemas.xmlsoap.org/soap/encoding/\">\n"
+                + "<s:Body>\n"
+                + "<u:" + ACTION_NAME + "Response xmlns:u=\"" + SERVICE_TYPE + "\">\n"
+                + "<" + OUT_ARG_NAME1 + ">" + OUT_ARG_VALUE1 + "</" + OUT_ARG_NAME1 + ">\n"
+                + "<Result>&lt;DIDL-Lite&gt;&amp;&lt;/DIDL-Lite&gt;</Result>\n"
+                + "</u:" + ACTION_NAME + "Response>\n"
+                + "</s:Body>\n"
+                + "</s:Envelope>");
+        doReturn(mHttpResponse).when(mMockHttpClient).post(ArgumentMatchers.any(HttpRequest.class));
+        final ActionResult result = mAction.invokeStreaming(Collections.emptyMap(), Collections.singleton("Result"));
+
+        assertThat(result.getValues().size(), is(1));
+        assertThat(result.getValues().get(OUT_ARG_NAME1), is(OUT_ARG_VALUE1));
+        assertThat(result.contains("Result"), is(true));
+        assertThat(result.getValue("Result"), is("<DIDL-Lite>&</DIDL-Lite>"));
+        final Reader reader = result.openReader("Result");
+        assertThat(reader, is(notNullValue()));
+        final char[] buffer = new char[64];
+        final int size = reader.read(buffer);
+        assertThat(new String(buffer, 0, size), is("<DIDL-Lite>&</DIDL-Lite>"));
+        assertThat(result.openReader("Unknown"), is(nullValue()));
+    }
+
+    @Test
+    public void invokeStreaming_invokeと同一の結果が得られる() throws Exception {
+        doReturn(mHttpResponse).when(mMockHttpClient).post(ArgumentMatchers.any(HttpRequest.class));
+        final Map<String, String> expected = mAction.invoke(Collections.emptyMap());
+        final ActionResult result = mAction.invokeStreaming(Collections.emptyMap(), Collections.emptySet());
+        assertThat(result.getValues(), is(expected));
+    }
+
+    @Test(expected = IOException.class)
+    public void invokeStreaming_エラーレスポンスのときIOExceptionが発生() throws Exception {
+        mHttpResponse.setStatus(Http.Status.HTTP_INTERNAL_ERROR);
+        mHttpResponse.setBody(ERROR_RESPONSE);
+        doReturn(mHttpResponse).when(mMockHttpClient).post(ArgumentMatchers.any(HttpRequest.class));
+        mAction.invokeStreaming(Collections.emptyMap(), Collections.emptySet());
+    }
+
+    @Test(expected = IOException.class)
+    public void invokeStreaming_ActionタグがないとIOExceptionが発生() throws Exception {
+        mHttpResponse.setBody("<s:Envelope xmlns:s=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+                + "<s:Body></s:Body></s:Envelope>");
+        doReturn(mHttpResponse).when(mMockHttpClient).post(ArgumentMatchers.any(HttpRequest.class));
+        mAction.invokeStreaming(Collections.emptyMap(), Collections.emptySet());
+    }
+
+    @Test(expected = IOException.class)
+    public void invokeStreaming_ステータスコードがOKで中身が空のときIOExceptionが発生() throws Exception {
+        mHttpResponse.setBody("");
+        doReturn(mHttpResponse).when(mMockHttpClient).post(ArgumentMatchers.any(HttpRequest.class));
+        mAction.invokeStreaming(Collections.emptyMap(), Collections.emptySet());
+    }
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import net.mm2d.upnp.ActionInvoker;
+import net.mm2d.upnp.ActionResult;
+import net.mm2d.upnp.Device;
+import net.mm2d.upnp.Http;
+import net.mm2d.upnp.HttpClient;
+import net.mm2d.upnp.internal.message.HttpRequest;
+import net.mm2d.upnp.internal.message.HttpResponse;
+import net.mm2d.util.StringPair;
+import net.mm2d.util.XmlUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class ActionInvokerTest {
+    private static final String SOAP_NS = "http://schemas.xmlsoap.org/soap/envelope/";
+    private static final String SOAP_STYLE = "http://schemas.xmlsoap.org/soap/encoding/";
+    private static final String ACTION_NAME = "TestAction";
+    private static final String SERVICE_TYPE = "urn:schemas-upnp-org:service:TestServiceType:1";
+    private static final String IN_ARG_NAME = "InArgName";
+    private static final String OUT_ARG_NAME = "OutArgName";
+    private static final String OUT_ARG_VALUE = "OutArgValue";
+    private Device mDevice;
+    private ActionImpl mAction;
+    private HttpClient mHttpClient;
+    private HttpResponse mHttpResponse;
+
+    @Before
+    public void setUp() throws Exception {
+        mDevice = mock(Device.class);
+        doReturn("http://127.0.0.1:8888/device.xml").when(mDevice).getBaseUrl();
+        final ServiceImpl service = mock(ServiceImpl.class);
+        doReturn(SERVICE_TYPE).when(service).getServiceType();
+        doReturn("/control").when(service).getControlUrl();
+        doReturn(mDevice).when(service).getDevice();
+        mAction = spy((ActionImpl) new ActionImpl.Builder()
+                .setService(service)
+                .setName(ACTION_NAME)
+                .addArgumentBuilder(new ArgumentImpl.Builder()
+                        .setName(IN_ARG_NAME)
+                        .setDirection("in")
+                        .setRelatedStateVariableName("1")
+                        .setRelatedStateVariable(
+                                new StateVariableImpl.Builder()
+                                        .setDataType("string")
+                                        .setName("1")
+                                        .build()))
+                .build());
+        mHttpResponse = new HttpResponse();
+        mHttpResponse.setStatus(Http.Status.HTTP_OK);
+        mHttpResponse.setBody("<s:Envelope xmlns:s=\"" + SOAP_NS + "\" s:encodingStyle=\"" + SOAP_STYLE + "\">"
+                + "<s:Body>"
+                + "<u:" + ACTION_NAME + "Response xmlns:u=\"" + SERVICE_TYPE + "\">"
+                + "<" + OUT_ARG_NAME + ">" + OUT_ARG_VALUE + "</" + OUT_ARG_NAME + ">"
+                + "</u:" + ACTION_NAME + "Response>"
+                + "</s:Body>"
+                + "</s:Envelope>");
+        mHttpClient = mock(HttpClient.class);
+        doReturn(mHttpResponse).when(mHttpClient).post(any());
+        doReturn(mHttpClient).when(mAction).createHttpClient();
+    }
+
+    @Test
+    public void makeSoap_DOMで作成したものと同一の内容になる() throws Exception {
+        final ActionInvokerImpl invoker = (ActionInvokerImpl) mAction.prepare();
+        final List<StringPair> arguments = Arrays.asList(
+                new StringPair("a", "<&>\"'日本語"),
+                new StringPair("b", ""),
+                new StringPair("c", null));
+        final Document expected = XmlUtils.newDocument(true, mAction.makeSoap(null, arguments));
+        final Document actual = XmlUtils.newDocument(true, invoker.makeSoap(arguments));
+        expected.normalizeDocument();
+        actual.normalizeDocument();
+        assertThat(actual.getDocumentElement().isEqualNode(expected.getDocumentElement()), is(true));
+    }
+
+    @Test
+    public void makeSoap_改行が保持される() throws Exception {
+        final ActionInvokerImpl invoker = (ActionInvokerImpl) mAction.prepare();
+        final String soap = invoker.makeSoap(Collections.singletonList(new StringPair("a", "1\r\n2")));
+        final Document doc = XmlUtils.newDocument(true, soap);
+        final Element body = XmlUtils.findChildElementByLocalName(doc.getDocumentElement(), "Body");
+        final Element action = XmlUtils.findChildElementByLocalName(body, ACTION_NAME);
+        final Element a = XmlUtils.findChildElementByLocalName(action, "a");
+        assertThat(a.getTextContent(), is("1\r\n2"));
+    }
+
+    @Test
+    public void invoke_実行結果を返す() throws Exception {
+        final ActionInvoker invoker = mAction.prepare();
+        final Map<String, String> argument = new HashMap<>();
+        argument.put(IN_ARG_NAME, "value");
+        final Map<String, String> result = invoker.invoke(argument);
+        assertThat(result.get(OUT_ARG_NAME), is(OUT_ARG_VALUE));
+        assertThat(invoker.getAction(), is(sameInstance(mAction)));
+
+        final ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(mHttpClient).post(captor.capture());
+        final HttpRequest request = captor.getValue();
+        assertThat(request.getMethod(), is(Http.POST));
+        assertThat(request.getUri(), is("/control"));
+        assertThat(request.getHeader(Http.HOST), is("127.0.0.1:8888"));
+        assertThat(request.getHeader(Http.SOAPACTION), is("\"" + SERVICE_TYPE + "#" + ACTION_NAME + "\""));
+        assertThat(request.getHeader(Http.CONTENT_LENGTH), is(String.valueOf(request.getBodyBinary().length)));
+        final Document doc = XmlUtils.newDocument(true, request.getBody());
+        final Element body = XmlUtils.findChildElementByLocalName(doc.getDocumentElement(), "Body");
+        final Element action = XmlUtils.findChildElementByLocalName(body, ACTION_NAME);
+        assertThat(action.getNamespaceURI(), is(SERVICE_TYPE));
+        assertThat(XmlUtils.findChildElementByLocalName(action, IN_ARG_NAME).getTextContent(), is("value"));
+    }
+
+    @Test
+    public void invoke_URLの解決は一度だけ行う() throws Exception {
+        final ActionInvoker invoker = mAction.prepare();
+        invoker.invoke(Collections.emptyMap());
+        invoker.invoke(Collections.emptyMap());
+        invoker.invokeStreaming(Collections.emptyMap(), Collections.emptySet());
+        verify(mAction, times(1)).makeAbsoluteControlUrl();
+        verify(mHttpClient, times(3)).post(any());
+    }
+
+    @Test
+    public void invoke_BaseURLが変化したら解決し直す() throws Exception {
+        final ActionInvoker invoker = mAction.prepare();
+        invoker.invoke(Collections.emptyMap());
+        doReturn("http://127.0.0.2:8888/device.xml").when(mDevice).getBaseUrl();
+        invoker.invoke(Collections.emptyMap());
+        verify(mAction, times(2)).makeAbsoluteControlUrl();
+
+        final ArgumentCaptor<HttpRequest> captor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(mHttpClient, times(2)).post(captor.capture());
+        assertThat(captor.getAllValues().get(0).getHeader(Http.HOST), is("127.0.0.1:8888"));
+        assertThat(captor.getAllValues().get(1).getHeader(Http.HOST), is("127.0.0.2:8888"));
+    }
+
+    @Test
+    public void invokeStreaming_実行結果を返す() throws Exception {
+        final ActionResult result = mAction.prepare()
+                .invokeStreaming(Collections.emptyMap(), Collections.singleton(OUT_ARG_NAME));
+        assertThat(result.getValues().isEmpty(), is(true));
+        assertThat(result.getValue(OUT_ARG_NAME), is(OUT_ARG_VALUE));
+    }
+
+    @Test(expected = IOException.class)
+    public void invoke_エラーレスポンスのときIOExceptionが発生() throws Exception {
+        mHttpResponse.setStatus(Http.Status.HTTP_INTERNAL_ERROR);
+        mHttpResponse.setBody("<s:Envelope xmlns:s=\"" + SOAP_NS + "\" s:encodingStyle=\"" + SOAP_STYLE + "\">"
+                + "<s:Body>"
+                + "<s:Fault>"
+                + "<faultcode>s:Client</faultcode>"
+                + "<faultstring>UPnPError</faultstring>"
+                + "<detail>"
+                + "<UPnPError xmlns=\"urn:schemas-upnp-org:control-1-0\">"
+                + "<errorCode>711</errorCode>"
+                + "</UPnPError>"
+                + "</detail>"
+                + "</s:Fault>"
+                + "</s:Body>"
+                + "</s:Envelope>");
+        mAction.prepare().invoke(Collections.emptyMap());
+    }
+}
@@ -9,6 +9,7 @@ package net.mm2d.upnp.internal.impl;
 
 import net.mm2d.upnp.Action;
 import net.mm2d.upnp.Argument;
+import net.mm2d.upnp.Device;
 import net.mm2d.upnp.HttpClient;
 import net.mm2d.upnp.Service;
 import net.mm2d.upnp.StateVariable;
@@ -129,6 +130,7 @@ public class ActionTest {
     @Test
     public void createHttpClient() {
         final Service service = mock(Service.class);
+        doReturn(mock(Device.class)).when(service).getDevice();
         final String name = "name";
         final ActionImpl action = (ActionImpl) new ActionImpl.Builder()
                 .setService(service)
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import net.mm2d.util.TestUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class CompressedStringTest {
+    @Test
+    public void toString_圧縮前の文字列に戻る() throws Exception {
+        final String description = TestUtils.getResourceAsString("cds.xml");
+        final CompressedString compressed = new CompressedString(description);
+        assertThat(compressed.toString(), is(description));
+        assertThat(compressed.getCompressedSize(), is(lessThan(description.length())));
+    }
+
+    @Test
+    public void toString_マルチバイト文字を含む文字列も戻る() {
+        final String string = "日本語を含む文字列😀";
+        assertThat(new CompressedString(string).toString(), is(string));
+    }
+
+    @Test
+    public void toString_空文字() {
+        assertThat(new CompressedString("").toString(), is(""));
+    }
+}
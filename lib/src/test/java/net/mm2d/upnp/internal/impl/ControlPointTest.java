@@ -9,32 +9,41 @@ package net.mm2d.upnp.internal.impl;
 
 import net.mm2d.upnp.ControlPoint;
 import net.mm2d.upnp.ControlPoint.DiscoveryListener;
+import net.mm2d.upnp.ControlPoint.IconLoadListener;
+import net.mm2d.upnp.ControlPoint.LoadFailure;
 import net.mm2d.upnp.ControlPoint.NotifyEventListener;
 import net.mm2d.upnp.ControlPointFactory;
 import net.mm2d.upnp.Device;
+import net.mm2d.upnp.Http;
 import net.mm2d.upnp.HttpClient;
 import net.mm2d.upnp.Icon;
 import net.mm2d.upnp.IconFilter;
 import net.mm2d.upnp.Protocol;
+import net.mm2d.upnp.SearchPolicy;
 import net.mm2d.upnp.Service;
 import net.mm2d.upnp.SsdpMessage;
 import net.mm2d.upnp.SsdpMessageFilter;
 import net.mm2d.upnp.StateVariable;
 import net.mm2d.upnp.internal.manager.DeviceHolder;
 import net.mm2d.upnp.internal.manager.DeviceHolder.ExpireListener;
+import net.mm2d.upnp.internal.manager.DeviceHolder.RefreshListener;
 import net.mm2d.upnp.internal.manager.SubscribeManager;
 import net.mm2d.upnp.internal.message.HttpResponse;
+import net.mm2d.upnp.internal.parser.DeviceParser;
 import net.mm2d.upnp.internal.message.SsdpRequest;
 import net.mm2d.upnp.internal.message.SsdpResponse;
 import net.mm2d.upnp.internal.server.SsdpNotifyReceiver.NotifyListener;
 import net.mm2d.upnp.internal.server.SsdpNotifyReceiverList;
 import net.mm2d.upnp.internal.server.SsdpSearchServer.ResponseListener;
 import net.mm2d.upnp.internal.server.SsdpSearchServerList;
+import net.mm2d.upnp.internal.thread.IoTaskType;
 import net.mm2d.upnp.internal.thread.TaskHandler;
+import net.mm2d.upnp.internal.thread.TimerExecutor;
 import net.mm2d.util.NetworkUtils;
 import net.mm2d.util.StringPair;
 import net.mm2d.util.TestUtils;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
@@ -43,17 +52,24 @@ import org.junit.runners.JUnit4;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.NetworkInterface;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
@@ -155,12 +171,124 @@ public class ControlPointTest {
                     });
             cp.initialize();
             cp.start();
+            cp.setSearchPolicy(new SearchPolicy.Builder()
+                    .setBurstCount(1)
+                    .build());
             cp.search();
-            verify(list).search(null);
+            cp.search("upnp:rootdevice");
+            verify(list, timeout(1000)).search("ssdp:all", 1);
+            verify(list, timeout(1000)).search("upnp:rootdevice", 1);
+            verify(list, never()).search(ArgumentMatchers.any());
             cp.stop();
             cp.terminate();
         }
 
+        @Test(expected = IllegalStateException.class)
+        public void searchTargets_not_started() throws Exception {
+            final ControlPoint cp = ControlPointFactory.create();
+            cp.searchTargets(Collections.singletonList("upnp:rootdevice"));
+        }
+
+        @Test(expected = IllegalStateException.class)
+        public void startPeriodicSearch_not_started() throws Exception {
+            final ControlPoint cp = ControlPointFactory.create();
+            cp.startPeriodicSearch(Collections.singletonList("upnp:rootdevice"));
+        }
+
+        @Test
+        public void searchTargets() throws Exception {
+            final SsdpSearchServerList list = mock(SsdpSearchServerList.class);
+            final ControlPoint cp = new ControlPointImpl(Protocol.DEFAULT,
+                    NetworkUtils.getAvailableInet4Interfaces(),
+                    false,
+                    new DiFactory(Protocol.DEFAULT) {
+                        @Nonnull
+                        @Override
+                        public SsdpSearchServerList createSsdpSearchServerList(
+                                @Nonnull final Collection<NetworkInterface> interfaces,
+                                @Nonnull final ResponseListener listener) {
+                            return list;
+                        }
+                    });
+            cp.initialize();
+            cp.start();
+            cp.setSearchPolicy(new SearchPolicy.Builder()
+                    .setBurstCount(2)
+                    .setBurstInterval(10)
+                    .build());
+            cp.searchTargets(Arrays.asList("upnp:rootdevice", "urn:schemas-upnp-org:device:MediaServer:1"));
+            Thread.sleep(200);
+            verify(list, times(2)).search("upnp:rootdevice", 1);
+            verify(list, times(2)).search("urn:schemas-upnp-org:device:MediaServer:1", 1);
+            cp.stop();
+            cp.terminate();
+        }
+
+        @Test
+        public void refreshDevice_ユニキャストでサーチする() throws Exception {
+            final SsdpSearchServerList list = mock(SsdpSearchServerList.class);
+            final ControlPointImpl cp = new ControlPointImpl(Protocol.DEFAULT,
+                    NetworkUtils.getAvailableInet4Interfaces(),
+                    false,
+                    new DiFactory(Protocol.DEFAULT) {
+                        @Nonnull
+                        @Override
+                        public SsdpSearchServerList createSsdpSearchServerList(
+                                @Nonnull final Collection<NetworkInterface> interfaces,
+                                @Nonnull final ResponseListener listener) {
+                            return list;
+                        }
+                    });
+            final String udn = "uuid:01234567-89ab-cdef-0123-456789abcdef";
+            final SsdpMessage message = mock(SsdpMessage.class);
+            doReturn("http://192.0.2.2:12345/device.xml").when(message).getLocation();
+            doReturn("50000").when(message).getHeader(Http.SEARCHPORT_UPNP_ORG);
+            final Device device = mock(Device.class);
+            doReturn(udn).when(device).getUdn();
+            doReturn(message).when(device).getSsdpMessage();
+            cp.initialize();
+            cp.refreshDevice(device);
+            Thread.sleep(100);
+            verify(list).searchUnicast(udn, new InetSocketAddress(InetAddress.getByName("192.0.2.2"), 50000));
+            cp.terminate();
+        }
+
+        @Test
+        public void refreshDevice_Pinnedデバイスは何もしない() throws Exception {
+            final SsdpSearchServerList list = mock(SsdpSearchServerList.class);
+            final ControlPointImpl cp = new ControlPointImpl(Protocol.DEFAULT,
+                    NetworkUtils.getAvailableInet4Interfaces(),
+                    false,
+                    new DiFactory(Protocol.DEFAULT) {
+                        @Nonnull
+                        @Override
+                        public SsdpSearchServerList createSsdpSearchServerList(
+                                @Nonnull final Collection<NetworkInterface> interfaces,
+                                @Nonnull final ResponseListener listener) {
+                            return list;
+                        }
+                    });
+            final Device device = mock(Device.class);
+            doReturn(true).when(device).isPinned();
+            cp.initialize();
+            cp.refreshDevice(device);
+            Thread.sleep(100);
+            verify(list, never()).searchUnicast(anyString(), any(InetSocketAddress.class));
+            cp.terminate();
+        }
+
+        @Test
+        public void getSearchPort() throws Exception {
+            final SsdpMessage message = mock(SsdpMessage.class);
+            assertThat(ControlPointImpl.getSearchPort(message), is(1900));
+            doReturn("49152").when(message).getHeader(Http.SEARCHPORT_UPNP_ORG);
+            assertThat(ControlPointImpl.getSearchPort(message), is(49152));
+            doReturn("1901").when(message).getHeader(Http.SEARCHPORT_UPNP_ORG);
+            assertThat(ControlPointImpl.getSearchPort(message), is(1900));
+            doReturn("port").when(message).getHeader(Http.SEARCHPORT_UPNP_ORG);
+            assertThat(ControlPointImpl.getSearchPort(message), is(1900));
+        }
+
         @Test
         public void createHttpClient() throws Exception {
             final ControlPointImpl cp = (ControlPointImpl) ControlPointFactory.create();
@@ -230,12 +358,14 @@ public class ControlPointTest {
         private final SsdpSearchServerList mSsdpSearchServerList = mock(SsdpSearchServerList.class);
         private final SsdpNotifyReceiverList mSsdpNotifyReceiverList = mock(SsdpNotifyReceiverList.class);
         private final TaskHandler mTaskHandler = mock(TaskHandler.class);
+        private final TimerExecutor mTimerExecutor = new TimerExecutor();
         private final NotifyEventListener mNotifyEventListener = mock(NotifyEventListener.class);
         private final DiFactory mDiFactory = spy(new DiFactory());
         private final SubscribeManager mSubscribeManager = spy(new SubscribeManager(mTaskHandler, mNotifyEventListener, mDiFactory));
 
         @Before
         public void setUp() throws Exception {
+            doReturn(mTimerExecutor).when(mTaskHandler).getTimerExecutor();
             mCp = spy(new ControlPointImpl(Protocol.DEFAULT,
                     NetworkUtils.getAvailableInet4Interfaces(), false,
                     new DiFactory(Protocol.DEFAULT) {
@@ -265,6 +395,11 @@ public class ControlPointTest {
                     }));
         }
 
+        @After
+        public void tearDown() throws Exception {
+            mTimerExecutor.terminate();
+        }
+
         @Test
         public void discoverDevice_onDiscoverが通知される() throws Exception {
             final DiscoveryListener l = mock(DiscoveryListener.class);
@@ -421,9 +556,12 @@ public class ControlPointTest {
 
                         @Nonnull
                         @Override
-                        public DeviceHolder createDeviceHolder(@Nonnull final ExpireListener listener) {
+                        public DeviceHolder createDeviceHolder(
+                                @Nonnull final TaskHandler taskHandler,
+                                @Nonnull final ExpireListener expireListener,
+                                @Nonnull final RefreshListener refreshListener) {
                             if (mDeviceHolder == null) {
-                                mDeviceHolder = spy(new DeviceHolder(listener));
+                                mDeviceHolder = spy(new DeviceHolder(taskHandler.getTimerExecutor(), expireListener, refreshListener));
                             }
                             return mDeviceHolder;
                         }
@@ -477,6 +615,37 @@ public class ControlPointTest {
             assertThat(mDeviceHolder.size(), is(0));
         }
 
+        @Test
+        public void onReceiveSsdp_読み込み失敗後は再試行まで読み込まない() throws Exception {
+            final byte[] data = TestUtils.getResourceAsByteArray("ssdp-notify-alive0.bin");
+            final InetAddress addr = InetAddress.getByName("192.0.2.3");
+            final SsdpMessage message = new SsdpRequest(addr, data, data.length);
+            final String udn = "uuid:01234567-89ab-cdef-0123-456789abcdef";
+            final HttpClient httpClient = mock(HttpClient.class);
+            doThrow(new IOException()).when(httpClient).downloadString(any());
+            doReturn(httpClient).when(mCp).createHttpClient();
+            mCp.onAcceptSsdpMessage(message);
+            Thread.sleep(500); // Exception発生を待つ
+
+            final List<LoadFailure> failures = mCp.getLoadFailureList();
+            assertThat(failures, hasSize(1));
+            assertThat(failures.get(0).getUuid(), is(udn));
+            assertThat(failures.get(0).getLocation(), is("http://192.0.2.2:12345/device.xml"));
+            assertThat(failures.get(0).getFailureCount(), is(1));
+
+            mCp.onAcceptSsdpMessage(message);
+            assertThat(mLoadingDeviceMap, not(hasKey(udn)));
+
+            mCp.clearLoadFailure(udn);
+            assertThat(mCp.getLoadFailureList(), is(empty()));
+            mCp.onAcceptSsdpMessage(message);
+            Thread.sleep(500);
+            verify(httpClient, times(2)).downloadString(any());
+            assertThat(mCp.getLoadFailureList(), hasSize(1));
+            mCp.clearLoadFailureList();
+            assertThat(mCp.getLoadFailureList(), is(empty()));
+        }
+
         @Test
         public void onReceiveSsdp_alive受信後成功() throws Exception {
             final HttpClient httpClient = mock(HttpClient.class);
@@ -513,6 +682,9 @@ public class ControlPointTest {
             Thread.sleep(1000); // 読み込みを待つ
             final Device device = mCp.getDevice(udn);
             verify(iconFilter).filter(ArgumentMatchers.anyList());
+            assertThat(mCp.getDeviceListByType("urn:schemas-upnp-org:device:MediaServer:1"), contains(device));
+            assertThat(mCp.getDeviceListByServiceType("urn:schemas-upnp-org:service:ContentDirectory:1"), contains(device));
+            assertThat(mCp.getDeviceListByIpAddress("192.0.2.2"), contains(device));
             assertThat(device.getIconList(), hasSize(4));
             assertThat(device.getIconList().get(0).getBinary(), is(not(nullValue())));
             assertThat(device.getIconList().get(1).getBinary(), is(nullValue()));
@@ -548,6 +720,95 @@ public class ControlPointTest {
         }
     }
 
+    @RunWith(JUnit4.class)
+    public static class AsyncIconLoad {
+        private ControlPointImpl mCp;
+        private HttpClient mHttpClient;
+
+        @Before
+        public void setUp() throws Exception {
+            mCp = spy(new ControlPointImpl(Protocol.DEFAULT,
+                    NetworkUtils.getAvailableInet4Interfaces(), false, true, false, false,
+                    new DiFactory(Protocol.DEFAULT)));
+            mHttpClient = mock(HttpClient.class);
+            doReturn(TestUtils.getResourceAsString("device.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/device.xml"));
+            doReturn(TestUtils.getResourceAsString("cds.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/cds.xml"));
+            doReturn(TestUtils.getResourceAsString("cms.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/cms.xml"));
+            doReturn(TestUtils.getResourceAsString("mmupnp.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/mmupnp.xml"));
+            doReturn(TestUtils.getResourceAsByteArray("icon/icon120.jpg"))
+                    .when(mHttpClient).downloadBinary(new URL("http://192.0.2.2:12345/icon/icon120.jpg"));
+            doReturn(mHttpClient).when(mCp).createHttpClient();
+        }
+
+        @Test
+        public void onReceiveSsdp_Icon読み込み前にonDiscoverが通知されその後onIconLoadedが通知される() throws Exception {
+            final DiscoveryListener discoveryListener = mock(DiscoveryListener.class);
+            final IconLoadListener iconLoadListener = mock(IconLoadListener.class);
+            mCp.addDiscoveryListener(discoveryListener);
+            mCp.addIconLoadListener(iconLoadListener);
+            mCp.setIconFilter(list -> Collections.singletonList(list.get(0)));
+            final byte[] data = TestUtils.getResourceAsByteArray("ssdp-notify-alive0.bin");
+            final InetAddress address = InetAddress.getByName("192.0.2.3");
+            final SsdpMessage message = new SsdpRequest(address, data, data.length);
+            final String udn = "uuid:01234567-89ab-cdef-0123-456789abcdef";
+            mCp.onAcceptSsdpMessage(message);
+            Thread.sleep(1000); // 読み込みを待つ
+            final Device device = mCp.getDevice(udn);
+            assertThat(device, is(not(nullValue())));
+            verify(discoveryListener).onDiscover(device);
+            verify(iconLoadListener).onIconLoaded(device);
+            assertThat(device.getIconList().get(0).getBinary(), is(not(nullValue())));
+            assertThat(device.getIconList().get(1).getBinary(), is(nullValue()));
+            mCp.terminate();
+        }
+
+        @Test
+        public void loadIconBinaryAsync_読み込み対象がなければ通知されない() throws Exception {
+            final IconLoadListener iconLoadListener = mock(IconLoadListener.class);
+            mCp.addIconLoadListener(iconLoadListener);
+            final Device device = mock(Device.class);
+            doReturn("uuid").when(device).getUdn();
+            doReturn(Collections.singletonList(mock(Icon.class))).when(device).getIconList();
+            mCp.discoverDevice(device);
+            mCp.loadIconBinaryAsync(device);
+            Thread.sleep(100);
+            verify(device, never()).loadIconBinary(any(), any());
+            verify(iconLoadListener, never()).onIconLoaded(device);
+            mCp.terminate();
+        }
+    }
+
+    @RunWith(JUnit4.class)
+    public static class ProgressiveDiscovery {
+        @Test
+        public void onReceiveSsdp_SCPDを読み込まずにonDiscoverが通知される() throws Exception {
+            final ControlPointImpl cp = spy(new ControlPointImpl(Protocol.DEFAULT,
+                    NetworkUtils.getAvailableInet4Interfaces(), false, false, true, false,
+                    new DiFactory(Protocol.DEFAULT)));
+            final HttpClient httpClient = mock(HttpClient.class);
+            doReturn(TestUtils.getResourceAsString("device.xml"))
+                    .when(httpClient).downloadString(new URL("http://192.0.2.2:12345/device.xml"));
+            doReturn(httpClient).when(cp).createHttpClient();
+            final DiscoveryListener discoveryListener = mock(DiscoveryListener.class);
+            cp.addDiscoveryListener(discoveryListener);
+            final byte[] data = TestUtils.getResourceAsByteArray("ssdp-notify-alive0.bin");
+            final InetAddress address = InetAddress.getByName("192.0.2.3");
+            final SsdpMessage message = new SsdpRequest(address, data, data.length);
+            cp.onAcceptSsdpMessage(message);
+            Thread.sleep(1000); // 読み込みを待つ
+            final Device device = cp.getDevice("uuid:01234567-89ab-cdef-0123-456789abcdef");
+            assertThat(device, is(not(nullValue())));
+            verify(discoveryListener).onDiscover(device);
+            verify(httpClient, never()).downloadString(new URL("http://192.0.2.2:12345/cds.xml"));
+            assertThat(device.getServiceList(), hasSize(3));
+            cp.terminate();
+        }
+    }
+
     @RunWith(JUnit4.class)
     public static class PinnedDevice {
         private ControlPointImpl mCp;
@@ -581,6 +842,26 @@ public class ControlPointTest {
             assertThat(device.isPinned(), is(true));
         }
 
+        @Test
+        public void addPinnedDevice_実行が拒否された場合は読み込み中として残らない() throws Exception {
+            final TaskHandler taskHandler = mock(TaskHandler.class);
+            doReturn(false).when(taskHandler).io(any(IoTaskType.class), any(Runnable.class));
+            final ControlPointImpl cp = new ControlPointImpl(Protocol.DEFAULT,
+                    NetworkUtils.getAvailableInet4Interfaces(), false,
+                    new DiFactory(Protocol.DEFAULT) {
+                        @Nonnull
+                        @Override
+                        public TaskHandler createTaskHandler() {
+                            return taskHandler;
+                        }
+                    });
+            cp.addPinnedDevice("http://192.0.2.2:12345/device.xml");
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            cp.exportState(baos);
+            final StateSnapshot snapshot = StateSnapshot.read(new ByteArrayInputStream(baos.toByteArray()));
+            assertThat(snapshot.mPinnedLocations, is(empty()));
+        }
+
         @Test
         public void addPinnedDevice2回目() throws Exception {
             mCp.addPinnedDevice("http://192.0.2.2:12345/device.xml");
@@ -675,9 +956,12 @@ public class ControlPointTest {
 
                         @Nonnull
                         @Override
-                        public DeviceHolder createDeviceHolder(@Nonnull final ExpireListener listener) {
+                        public DeviceHolder createDeviceHolder(
+                                @Nonnull final TaskHandler taskHandler,
+                                @Nonnull final ExpireListener expireListener,
+                                @Nonnull final RefreshListener refreshListener) {
                             if (mDeviceHolder == null) {
-                                mDeviceHolder = spy(new DeviceHolder(listener));
+                                mDeviceHolder = spy(new DeviceHolder(taskHandler.getTimerExecutor(), expireListener, refreshListener));
                             }
                             return mDeviceHolder;
                         }
@@ -764,6 +1048,91 @@ public class ControlPointTest {
             Thread.sleep(100);
             verify(mDeviceHolder).get(udn);
         }
+
+        @Test
+        public void getSsdpReceiveStats_受信したメッセージが集計される() throws Exception {
+            final byte[] response = TestUtils.getResourceAsByteArray("ssdp-search-response0.bin");
+            final byte[] notify = TestUtils.getResourceAsByteArray("ssdp-notify-byebye0.bin");
+            mResponseListener.onReceiveResponse(new SsdpResponse(mock(InetAddress.class), response, response.length));
+            mNotifyListener.onReceiveNotify(new SsdpRequest(mock(InetAddress.class), notify, notify.length));
+            Thread.sleep(100);
+            final ControlPoint.SsdpReceiveStats stats = mCp.getSsdpReceiveStats();
+            assertThat(stats.getReceivedCount(), is(2L));
+            assertThat(stats.getDroppedCount(), is(0L));
+            assertThat(stats.getOccupancy(), is(0));
+            assertThat(stats.getBatchCount(), greaterThanOrEqualTo(1L));
+            assertThat(stats.getCapacity(), greaterThan(0));
+        }
+    }
+
+    @RunWith(JUnit4.class)
+    public static class 実行環境の共有 {
+        private final TaskHandler mTaskHandler = new TaskHandler();
+        private final List<ControlPointImpl> mCpList = new ArrayList<>();
+        private final List<ResponseListener> mResponseListenerList = new ArrayList<>();
+
+        @Before
+        public void setUp() throws Exception {
+            for (int i = 0; i < 2; i++) {
+                mCpList.add(new ControlPointImpl(Protocol.DEFAULT,
+                        NetworkUtils.getAvailableInet4Interfaces(), false,
+                        new DiFactory(Protocol.DEFAULT, mTaskHandler.createSharedHandler()) {
+                            @Nonnull
+                            @Override
+                            public SsdpSearchServerList createSsdpSearchServerList(
+                                    @Nonnull final Collection<NetworkInterface> interfaces,
+                                    @Nonnull final ResponseListener listener) {
+                                mResponseListenerList.add(listener);
+                                return mock(SsdpSearchServerList.class);
+                            }
+
+                            @Nonnull
+                            @Override
+                            public SsdpNotifyReceiverList createSsdpNotifyReceiverList(
+                                    @Nonnull final Collection<NetworkInterface> interfaces,
+                                    @Nonnull final NotifyListener listener) {
+                                return mock(SsdpNotifyReceiverList.class);
+                            }
+                        }));
+            }
+        }
+
+        @After
+        public void tearDown() throws Exception {
+            for (final ControlPointImpl cp : mCpList) {
+                cp.terminate();
+            }
+            mTaskHandler.terminate();
+        }
+
+        @Test(timeout = 10000L)
+        public void onReceiveSsdp_他のControlPointの消費タスクが実行待ちでも拒否されない() throws Exception {
+            final CountDownLatch latch = new CountDownLatch(1);
+            // 全てのIOスレッドを塞ぎ、消費タスクを実行待ちにする
+            final int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+            for (int i = 0; i < threads; i++) {
+                mTaskHandler.io(IoTaskType.USER_INVOKE, () -> {
+                    try {
+                        latch.await();
+                    } catch (final InterruptedException ignored) {
+                    }
+                });
+            }
+            final byte[] data = TestUtils.getResourceAsByteArray("ssdp-search-response0.bin");
+            for (final ResponseListener listener : mResponseListenerList) {
+                listener.onReceiveResponse(new SsdpResponse(mock(InetAddress.class), data, data.length));
+            }
+            assertThat(mTaskHandler.getIoQueueDepth(IoTaskType.SSDP_DISPATCH), is(2));
+            assertThat(mTaskHandler.getIoRejectedCount(IoTaskType.SSDP_DISPATCH), is(0L));
+
+            latch.countDown();
+            for (final ControlPointImpl cp : mCpList) {
+                while (cp.getSsdpReceiveStats().getBatchCount() == 0) {
+                    Thread.sleep(10);
+                }
+                assertThat(cp.getSsdpReceiveStats().getOccupancy(), is(0));
+            }
+        }
     }
 
     @RunWith(JUnit4.class)
@@ -922,4 +1291,299 @@ public class ControlPointTest {
             verify(mCp).onAcceptSsdpMessage(mSsdpMessage);
         }
     }
+
+    @RunWith(JUnit4.class)
+    public static class 状態の保存と復元 {
+        private static final String UDN = "uuid:01234567-89ab-cdef-0123-456789abcdef";
+        private HttpClient mHttpClient;
+        private SubscribeManager mSubscribeManager;
+
+        @Before
+        public void setUp() throws Exception {
+            mHttpClient = mock(HttpClient.class);
+            doReturn(TestUtils.getResourceAsString("device.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/device.xml"));
+            doReturn(TestUtils.getResourceAsString("cds.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/cds.xml"));
+            doReturn(TestUtils.getResourceAsString("cms.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/cms.xml"));
+            doReturn(TestUtils.getResourceAsString("mmupnp.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/mmupnp.xml"));
+        }
+
+        private ControlPointImpl createControlPoint(@Nonnull final SsdpSearchServerList searchServerList) {
+            return spy(new ControlPointImpl(Protocol.DEFAULT,
+                    NetworkUtils.getAvailableInet4Interfaces(), false,
+                    new DiFactory(Protocol.DEFAULT) {
+                        @Nonnull
+                        @Override
+                        public SsdpSearchServerList createSsdpSearchServerList(
+                                @Nonnull final Collection<NetworkInterface> interfaces,
+                                @Nonnull final ResponseListener listener) {
+                            return searchServerList;
+                        }
+
+                        @Nonnull
+                        @Override
+                        public SsdpNotifyReceiverList createSsdpNotifyReceiverList(
+                                @Nonnull final Collection<NetworkInterface> interfaces,
+                                @Nonnull final NotifyListener listener) {
+                            return mock(SsdpNotifyReceiverList.class);
+                        }
+
+                        @Nonnull
+                        @Override
+                        public SubscribeManager createSubscribeManager(
+                                @Nonnull final TaskHandler taskHandler,
+                                @Nonnull final NotifyEventListener listener) {
+                            mSubscribeManager = new SubscribeManager(taskHandler, listener, this);
+                            return mSubscribeManager;
+                        }
+                    }));
+        }
+
+        private Device loadDevice(
+                @Nonnull final ControlPointImpl cp,
+                @Nonnull final SsdpMessage message) throws Exception {
+            final DeviceImpl.Builder builder = new DeviceImpl.Builder(cp, mock(SubscribeManager.class), message);
+            DeviceParser.loadDescription(mHttpClient, builder);
+            final Device device = builder.build();
+            cp.discoverDevice(device);
+            return device;
+        }
+
+        private static SsdpMessage createMessage(@Nonnull final String location) throws Exception {
+            return createMessage(location, null);
+        }
+
+        private static SsdpMessage createMessage(
+                @Nonnull final String location,
+                @Nullable final String bootId) throws Exception {
+            String data = TestUtils.getResourceAsString("ssdp-notify-alive0.bin")
+                    .replace("http://192.0.2.2:12345/device.xml", location);
+            if (bootId != null) {
+                data = data.replace("NTS: ssdp:alive\r\n", "NTS: ssdp:alive\r\nBOOTID.UPNP.ORG: " + bootId + "\r\n");
+            }
+            final byte[] bytes = data.getBytes("UTF-8");
+            return new SsdpRequest(InetAddress.getByName("192.0.2.3"), bytes, bytes.length);
+        }
+
+        @Test
+        public void importState_通信を行わずにデバイスが復元される() throws Exception {
+            final ControlPointImpl cp1 = createControlPoint(mock(SsdpSearchServerList.class));
+            cp1.initialize();
+            final Device device = loadDevice(cp1, createMessage("http://192.0.2.2:12345/device.xml"));
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            cp1.exportState(baos);
+            cp1.terminate();
+
+            final ControlPointImpl cp2 = createControlPoint(mock(SsdpSearchServerList.class));
+            final DiscoveryListener listener = mock(DiscoveryListener.class);
+            cp2.addDiscoveryListener(listener);
+            cp2.importState(new ByteArrayInputStream(baos.toByteArray()));
+            verify(cp2, never()).createHttpClient();
+
+            final Device restored = cp2.getDevice(UDN);
+            assertThat(restored, is(not(nullValue())));
+            assertThat(restored.getFriendlyName(), is(device.getFriendlyName()));
+            assertThat(restored.getExpireTime(), is(device.getExpireTime()));
+            assertThat(restored.getSsdpMessage().getLocalAddress(), is(device.getSsdpMessage().getLocalAddress()));
+            assertThat(restored.getServiceList(), hasSize(device.getServiceList().size()));
+            final Service cds = restored.findServiceByType("urn:schemas-upnp-org:service:ContentDirectory:1");
+            assertThat(cds.findAction("Browse"), is(not(nullValue())));
+            assertThat(cp2.getDeviceListByServiceType("urn:schemas-upnp-org:service:ContentDirectory:1"),
+                    contains(restored));
+            verify(listener, timeout(1000)).onDiscover(restored);
+            cp2.terminate();
+        }
+
+        @Test
+        public void importState_有効期限切れのデバイスは復元しない() throws Exception {
+            final ControlPointImpl cp1 = createControlPoint(mock(SsdpSearchServerList.class));
+            cp1.initialize();
+            final String data = TestUtils.getResourceAsString("ssdp-notify-alive0.bin")
+                    .replace("max-age=300", "max-age=0");
+            final byte[] bytes = data.getBytes("UTF-8");
+            loadDevice(cp1, new SsdpRequest(InetAddress.getByName("192.0.2.3"), bytes, bytes.length));
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            cp1.exportState(baos);
+            cp1.terminate();
+
+            Thread.sleep(10);
+            final ControlPointImpl cp2 = createControlPoint(mock(SsdpSearchServerList.class));
+            cp2.importState(new ByteArrayInputStream(baos.toByteArray()));
+            assertThat(cp2.getDeviceListSize(), is(0));
+            cp2.terminate();
+        }
+
+        @Test
+        public void revalidateRestoredState_ユニキャストで生存確認を行う() throws Exception {
+            final ControlPointImpl cp1 = createControlPoint(mock(SsdpSearchServerList.class));
+            cp1.initialize();
+            loadDevice(cp1, createMessage("http://192.0.2.2:12345/device.xml"));
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            cp1.exportState(baos);
+            cp1.terminate();
+
+            final SsdpSearchServerList searchServerList = mock(SsdpSearchServerList.class);
+            final ControlPointImpl cp2 = createControlPoint(searchServerList);
+            cp2.importState(new ByteArrayInputStream(baos.toByteArray()));
+            cp2.revalidateRestoredState();
+            verify(searchServerList, timeout(1000))
+                    .searchUnicast(UDN, new InetSocketAddress(InetAddress.getByName("192.0.2.2"), 1900));
+            cp2.terminate();
+        }
+
+        @Test
+        public void onAcceptSsdpMessage_Locationが変化してもDescriptionに変更がなければDeviceを維持する() throws Exception {
+            final ControlPointImpl cp1 = createControlPoint(mock(SsdpSearchServerList.class));
+            cp1.initialize();
+            loadDevice(cp1, createMessage("http://192.0.2.2:12345/device.xml"));
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            cp1.exportState(baos);
+            cp1.terminate();
+
+            final ControlPointImpl cp2 = createControlPoint(mock(SsdpSearchServerList.class));
+            doReturn(mHttpClient).when(cp2).createHttpClient();
+            cp2.importState(new ByteArrayInputStream(baos.toByteArray()));
+            final Device restored = cp2.getDevice(UDN);
+            final SsdpMessage message = createMessage("http://192.0.2.2:12346/device.xml");
+            cp2.onAcceptSsdpMessage(message);
+            verify(mHttpClient, timeout(1000)).close();
+            verify(mHttpClient).downloadStringIfModified(
+                    ArgumentMatchers.eq(new URL("http://192.0.2.2:12346/device.xml")), ArgumentMatchers.any());
+            assertThat(cp2.getDevice(UDN), is(sameInstance(restored)));
+            assertThat(restored.getSsdpMessage(), is(message));
+            cp2.terminate();
+        }
+
+        @Test
+        public void onAcceptSsdpMessage_Locationが変化しDescriptionに変更があればDeviceを置き換える() throws Exception {
+            final ControlPointImpl cp1 = createControlPoint(mock(SsdpSearchServerList.class));
+            cp1.initialize();
+            loadDevice(cp1, createMessage("http://192.0.2.2:12345/device.xml"));
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            cp1.exportState(baos);
+            cp1.terminate();
+
+            final ControlPointImpl cp2 = createControlPoint(mock(SsdpSearchServerList.class));
+            doReturn(mHttpClient).when(cp2).createHttpClient();
+            doReturn(TestUtils.getResourceAsString("device.xml").replace("<friendlyName>mmupnp</friendlyName>",
+                    "<friendlyName>renamed</friendlyName>"))
+                    .when(mHttpClient).downloadStringIfModified(
+                    ArgumentMatchers.eq(new URL("http://192.0.2.2:12346/device.xml")), ArgumentMatchers.any());
+            cp2.importState(new ByteArrayInputStream(baos.toByteArray()));
+            final Device restored = cp2.getDevice(UDN);
+            cp2.onAcceptSsdpMessage(createMessage("http://192.0.2.2:12346/device.xml"));
+            verify(mHttpClient, timeout(1000)).close();
+            final Device device = cp2.getDevice(UDN);
+            assertThat(device, is(not(sameInstance(restored))));
+            assertThat(device.getFriendlyName(), is("renamed"));
+            assertThat(device.getLocation(), is("http://192.0.2.2:12346/device.xml"));
+            // SCPDは変更がないため以前のパース結果を引き継ぐ
+            final Service cds = device.findServiceByType("urn:schemas-upnp-org:service:ContentDirectory:1");
+            assertThat(cds.findAction("Browse"), is(not(nullValue())));
+            verify(mHttpClient).downloadStringIfModified(
+                    ArgumentMatchers.eq(new URL("http://192.0.2.2:12346/cds.xml")), ArgumentMatchers.any());
+            verify(mHttpClient, never()).downloadString(new URL("http://192.0.2.2:12346/cds.xml"));
+            cp2.terminate();
+        }
+
+        @Test
+        public void onAcceptSsdpMessage_BOOTIDが変化していれば再検証する() throws Exception {
+            final ControlPointImpl cp = createControlPoint(mock(SsdpSearchServerList.class));
+            cp.initialize();
+            final Device device = loadDevice(cp, createMessage("http://192.0.2.2:12345/device.xml", "1"));
+            doReturn(mHttpClient).when(cp).createHttpClient();
+            cp.onAcceptSsdpMessage(createMessage("http://192.0.2.2:12345/device.xml", "1"));
+            verify(cp, never()).createHttpClient();
+
+            final SsdpMessage message = createMessage("http://192.0.2.2:12345/device.xml", "2");
+            cp.onAcceptSsdpMessage(message);
+            verify(mHttpClient, timeout(1000)).close();
+            verify(mHttpClient).downloadStringIfModified(
+                    ArgumentMatchers.eq(new URL("http://192.0.2.2:12345/device.xml")), ArgumentMatchers.any());
+            assertThat(cp.getDevice(UDN), is(sameInstance(device)));
+            assertThat(device.getSsdpMessage(), is(message));
+            cp.terminate();
+        }
+
+        @Test
+        public void onAcceptSsdpMessage_BOOTIDが変化しDescriptionに変更がなければ購読をやり直す() throws Exception {
+            final ControlPointImpl cp = createControlPoint(mock(SsdpSearchServerList.class));
+            cp.initialize();
+            final Device device = loadDevice(cp, createMessage("http://192.0.2.2:12345/device.xml", "1"));
+            doReturn(mHttpClient).when(cp).createHttpClient();
+            doNothing().when(cp).resubscribeAfterReboot(any(), anyBoolean());
+            final ServiceImpl service = (ServiceImpl) device.findServiceByType(
+                    "urn:schemas-upnp-org:service:ContentDirectory:1");
+            service.restoreSubscriptionId("uuid:old-sid");
+            mSubscribeManager.register(service, 300000L, true);
+
+            cp.onAcceptSsdpMessage(createMessage("http://192.0.2.2:12345/device.xml", "2"));
+            verify(cp, timeout(1000)).resubscribeAfterReboot(service, true);
+            assertThat(cp.getDevice(UDN), is(sameInstance(device)));
+            assertThat(service.getSubscriptionId(), is(nullValue()));
+            assertThat(mSubscribeManager.getSubscriptionList(), is(empty()));
+            cp.terminate();
+        }
+
+        @Test
+        public void needToRevalidate_LocationかBOOTIDが変化した場合true() throws Exception {
+            final SsdpMessage message = createMessage("http://192.0.2.2:12345/device.xml");
+            assertThat(ControlPointImpl.needToRevalidate(message,
+                    createMessage("http://192.0.2.2:12345/device.xml")), is(false));
+            assertThat(ControlPointImpl.needToRevalidate(message,
+                    createMessage("http://192.0.2.2:12346/device.xml")), is(true));
+            assertThat(ControlPointImpl.needToRevalidate(message,
+                    createMessage("http://192.0.2.2:12345/device.xml", "1")), is(false));
+            assertThat(ControlPointImpl.needToRevalidate(
+                    createMessage("http://192.0.2.2:12345/device.xml", "1"),
+                    createMessage("http://192.0.2.2:12345/device.xml", "1")), is(false));
+            assertThat(ControlPointImpl.needToRevalidate(
+                    createMessage("http://192.0.2.2:12345/device.xml", "1"),
+                    createMessage("http://192.0.2.2:12345/device.xml", "2")), is(true));
+        }
+
+        @Test
+        public void onAcceptSsdpMessage_復元後にLocationが同一であれば読み直さない() throws Exception {
+            final ControlPointImpl cp1 = createControlPoint(mock(SsdpSearchServerList.class));
+            cp1.initialize();
+            loadDevice(cp1, createMessage("http://192.0.2.2:12345/device.xml"));
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            cp1.exportState(baos);
+            cp1.terminate();
+
+            final ControlPointImpl cp2 = createControlPoint(mock(SsdpSearchServerList.class));
+            cp2.importState(new ByteArrayInputStream(baos.toByteArray()));
+            final Device restored = cp2.getDevice(UDN);
+            final SsdpMessage message = createMessage("http://192.0.2.2:12345/device.xml");
+            cp2.onAcceptSsdpMessage(message);
+            assertThat(cp2.getDevice(UDN), is(restored));
+            assertThat(restored.getSsdpMessage(), is(message));
+            verify(cp2, never()).createHttpClient();
+            cp2.terminate();
+        }
+
+        @Test
+        public void exportState_購読状態が保存される() throws Exception {
+            final ControlPointImpl cp = createControlPoint(mock(SsdpSearchServerList.class));
+            cp.initialize();
+            final Device device = loadDevice(cp, createMessage("http://192.0.2.2:12345/device.xml"));
+            final ServiceImpl service = (ServiceImpl) device.getServiceList().get(0);
+            service.restoreSubscriptionId("uuid:sid");
+            mSubscribeManager.register(service, 300000L, true);
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            cp.exportState(baos);
+            cp.terminate();
+
+            final StateSnapshot snapshot = StateSnapshot.read(new ByteArrayInputStream(baos.toByteArray()));
+            assertThat(snapshot.mSubscriptions, hasSize(1));
+            final StateSnapshot.SubscriptionRecord record = snapshot.mSubscriptions.get(0);
+            assertThat(record.mUdn, is(UDN));
+            assertThat(record.mServiceId, is(service.getServiceId()));
+            assertThat(record.mSubscriptionId, is("uuid:sid"));
+            assertThat(record.mKeepRenew, is(true));
+        }
+    }
 }
@@ -20,6 +20,7 @@ import net.mm2d.upnp.internal.manager.SubscribeManager;
 import net.mm2d.upnp.internal.message.PinnedSsdpMessage;
 import net.mm2d.upnp.internal.message.SsdpRequest;
 import net.mm2d.upnp.internal.parser.DeviceParser;
+import net.mm2d.util.Reflection;
 import net.mm2d.util.TestUtils;
 
 import org.junit.Before;
@@ -33,6 +34,8 @@ import java.net.InetAddress;
 import java.net.URL;
 import java.util.List;
 
+import javax.annotation.Nonnull;
+
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -396,6 +399,72 @@ public class DeviceTest {
         }
     }
 
+    @RunWith(JUnit4.class)
+    public static class CompactModelのテスト {
+        private HttpClient mHttpClient;
+        private SsdpMessage mSsdpMessage;
+
+        @Before
+        public void setUp() throws Exception {
+            mHttpClient = mock(HttpClient.class);
+            doReturn(TestUtils.getResourceAsString("device.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/device.xml"));
+            doReturn(TestUtils.getResourceAsString("cds.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/cds.xml"));
+            doReturn(TestUtils.getResourceAsString("cms.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/cms.xml"));
+            doReturn(TestUtils.getResourceAsString("mmupnp.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/mmupnp.xml"));
+            final byte[] data = TestUtils.getResourceAsByteArray("ssdp-notify-alive0.bin");
+            mSsdpMessage = new SsdpRequest(mock(InetAddress.class), data, data.length);
+        }
+
+        @Nonnull
+        private Device loadDevice() throws Exception {
+            final DeviceImpl.Builder builder = new DeviceImpl.Builder(
+                    mock(ControlPoint.class), mock(SubscribeManager.class), mSsdpMessage)
+                    .setCompactModelEnabled(true);
+            DeviceParser.loadDescription(mHttpClient, builder);
+            return builder.build();
+        }
+
+        @Test
+        public void getDescription_圧縮しても同一の値が取得できる() throws Exception {
+            final Device device = loadDevice();
+            assertThat(device.getDescription(), is(TestUtils.getResourceAsString("device.xml")));
+        }
+
+        @Test
+        public void getValue_圧縮しても値が取得できる() throws Exception {
+            final Device device = loadDevice();
+            assertThat(device.getValue("deviceType"), is("urn:schemas-upnp-org:device:MediaServer:1"));
+            assertThat(device.getValueWithNamespace("urn:schemas-upnp-org:device-1-0", "deviceType"),
+                    is("urn:schemas-upnp-org:device:MediaServer:1"));
+        }
+
+        @Test
+        public void build_共通の文字列は同一インスタンスを使用する() throws Exception {
+            final Device device1 = loadDevice();
+            final Device device2 = loadDevice();
+            assertThat(device1.getDeviceType(), is(sameInstance(device2.getDeviceType())));
+            assertThat(device1.getManufacture(), is(sameInstance(device2.getManufacture())));
+            assertThat(device1.getValue("deviceType"), is(sameInstance(device1.getDeviceType())));
+            assertThat(device1.getServiceList().get(0).getServiceType(),
+                    is(sameInstance(device2.getServiceList().get(0).getServiceType())));
+        }
+
+        @Test
+        public void build_EmbeddedDeviceと圧縮結果を共有する() throws Exception {
+            doReturn(TestUtils.getResourceAsString("device-with-embedded-device.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/device.xml"));
+            final Device device = loadDevice();
+            final Device embedded = device.getDeviceList().get(0);
+            assertThat(embedded.getDescription(), is(device.getDescription()));
+            assertThat(Reflection.getFieldValue(embedded, "mCompressedDescription"),
+                    is(sameInstance(Reflection.getFieldValue(device, "mCompressedDescription"))));
+        }
+    }
+
     @RunWith(JUnit4.class)
     public static class DeviceBuilderによる生成からのテスト {
         @Test
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import net.mm2d.upnp.EventFlow;
+import net.mm2d.upnp.OverflowStrategy;
+import net.mm2d.upnp.TaskExecutor;
+import net.mm2d.upnp.internal.thread.TaskHandler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class EventPublisherTest {
+    private TaskHandler mTaskHandler;
+    private EventPublisher<String> mPublisher;
+
+    @Before
+    public void setUp() {
+        final TaskExecutor executor = new TaskExecutor() {
+            @Override
+            public boolean execute(@Nonnull final Runnable task) {
+                task.run();
+                return true;
+            }
+
+            @Override
+            public void terminate() {
+            }
+        };
+        mTaskHandler = new TaskHandler(executor, executor);
+        // 先頭1文字をキーとする
+        mPublisher = new EventPublisher<>(mTaskHandler, item -> item.substring(0, 1));
+    }
+
+    private static class TestSubscriber implements EventFlow.Subscriber<String> {
+        final List<String> mItems = new ArrayList<>();
+        EventFlow.Subscription mSubscription;
+        Throwable mError;
+        boolean mCompleted;
+        long mInitialRequest;
+
+        TestSubscriber(final long initialRequest) {
+            mInitialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(@Nonnull final EventFlow.Subscription subscription) {
+            mSubscription = subscription;
+            if (mInitialRequest > 0) {
+                subscription.request(mInitialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(@Nonnull final String item) {
+            mItems.add(item);
+        }
+
+        @Override
+        public void onError(@Nonnull final Throwable throwable) {
+            mError = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            mCompleted = true;
+        }
+    }
+
+    @Test
+    public void offer_要求数だけ配信される() {
+        final TestSubscriber subscriber = new TestSubscriber(2);
+        mPublisher.create(OverflowStrategy.buffer(10)).subscribe(subscriber);
+        mPublisher.offer("a1");
+        mPublisher.offer("b1");
+        mPublisher.offer("c1");
+        assertThat(subscriber.mItems, contains("a1", "b1"));
+
+        subscriber.mSubscription.request(1);
+        assertThat(subscriber.mItems, contains("a1", "b1", "c1"));
+    }
+
+    @Test
+    public void offer_購読者がいなければ何もしない() {
+        assertThat(mPublisher.hasSubscribers(), is(false));
+        mPublisher.offer("a1");
+    }
+
+    @Test
+    public void request_MAX_VALUEで無制限に配信される() {
+        final TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+        mPublisher.create(OverflowStrategy.buffer(1)).subscribe(subscriber);
+        subscriber.mSubscription.request(Long.MAX_VALUE);
+        for (int i = 0; i < 100; i++) {
+            mPublisher.offer("a" + i);
+        }
+        assertThat(subscriber.mItems, hasSize(100));
+    }
+
+    @Test
+    public void buffer_容量を超えた新しいイベントは破棄される() {
+        final TestSubscriber subscriber = new TestSubscriber(0);
+        mPublisher.create(OverflowStrategy.buffer(2)).subscribe(subscriber);
+        mPublisher.offer("a1");
+        mPublisher.offer("b1");
+        mPublisher.offer("c1");
+        subscriber.mSubscription.request(10);
+        assertThat(subscriber.mItems, contains("a1", "b1"));
+    }
+
+    @Test
+    public void dropOldest_容量を超えた場合古いイベントが破棄される() {
+        final TestSubscriber subscriber = new TestSubscriber(0);
+        mPublisher.create(OverflowStrategy.dropOldest(2)).subscribe(subscriber);
+        mPublisher.offer("a1");
+        mPublisher.offer("b1");
+        mPublisher.offer("c1");
+        subscriber.mSubscription.request(10);
+        assertThat(subscriber.mItems, contains("b1", "c1"));
+    }
+
+    @Test
+    public void latestPerKey_キー毎に最新のみ保持される() {
+        final TestSubscriber subscriber = new TestSubscriber(0);
+        mPublisher.create(OverflowStrategy.latestPerKey()).subscribe(subscriber);
+        mPublisher.offer("a1");
+        mPublisher.offer("b1");
+        mPublisher.offer("a2");
+        mPublisher.offer("c1");
+        mPublisher.offer("b2");
+        subscriber.mSubscription.request(10);
+        assertThat(subscriber.mItems, contains("a2", "c1", "b2"));
+    }
+
+    @Test
+    public void 購読毎に独立して保持される() {
+        final TestSubscriber subscriber1 = new TestSubscriber(1);
+        final TestSubscriber subscriber2 = new TestSubscriber(0);
+        final EventFlow.Publisher<String> publisher = mPublisher.create(OverflowStrategy.buffer(10));
+        publisher.subscribe(subscriber1);
+        publisher.subscribe(subscriber2);
+        mPublisher.offer("a1");
+        mPublisher.offer("b1");
+        assertThat(subscriber1.mItems, is(Collections.singletonList("a1")));
+        assertThat(subscriber2.mItems, is(empty()));
+        subscriber2.mSubscription.request(2);
+        assertThat(subscriber2.mItems, contains("a1", "b1"));
+    }
+
+    @Test
+    public void cancel_以降通知されない() {
+        final TestSubscriber subscriber = new TestSubscriber(0);
+        mPublisher.create(OverflowStrategy.buffer(10)).subscribe(subscriber);
+        mPublisher.offer("a1");
+        subscriber.mSubscription.cancel();
+        assertThat(mPublisher.hasSubscribers(), is(false));
+        subscriber.mSubscription.request(10);
+        mPublisher.offer("b1");
+        mPublisher.complete();
+        assertThat(subscriber.mItems, is(empty()));
+        assertThat(subscriber.mCompleted, is(false));
+    }
+
+    @Test
+    public void request_0以下はonErrorが通知される() {
+        final TestSubscriber subscriber = new TestSubscriber(0);
+        mPublisher.create(OverflowStrategy.buffer(10)).subscribe(subscriber);
+        subscriber.mSubscription.request(0);
+        assertThat(subscriber.mError, is(instanceOf(IllegalArgumentException.class)));
+        assertThat(mPublisher.hasSubscribers(), is(false));
+        mPublisher.offer("a1");
+        assertThat(subscriber.mItems, is(empty()));
+    }
+
+    @Test
+    public void complete_未配信のイベントを破棄してonCompleteが通知される() {
+        final TestSubscriber subscriber = new TestSubscriber(0);
+        mPublisher.create(OverflowStrategy.buffer(10)).subscribe(subscriber);
+        mPublisher.offer("a1");
+        mPublisher.complete();
+        assertThat(subscriber.mCompleted, is(true));
+        assertThat(subscriber.mItems, is(empty()));
+        assertThat(mPublisher.hasSubscribers(), is(false));
+    }
+
+    @Test
+    public void complete_以降の購読は即座に終了する() {
+        mPublisher.complete();
+        final TestSubscriber subscriber = new TestSubscriber(1);
+        mPublisher.create(OverflowStrategy.buffer(10)).subscribe(subscriber);
+        assertThat(subscriber.mCompleted, is(true));
+        assertThat(mPublisher.hasSubscribers(), is(false));
+    }
+
+    @Test
+    public void onNextで例外が発生すると購読は終了する() {
+        final TestSubscriber subscriber = spy(new TestSubscriber(10));
+        doThrow(new RuntimeException()).when(subscriber).onNext("a1");
+        mPublisher.create(OverflowStrategy.buffer(10)).subscribe(subscriber);
+        mPublisher.offer("a1");
+        assertThat(mPublisher.hasSubscribers(), is(false));
+    }
+
+    @Test
+    public void onNext中のrequestで再帰せずに配信される() {
+        final List<String> items = new ArrayList<>();
+        mPublisher.create(OverflowStrategy.buffer(10)).subscribe(new TestSubscriber(1) {
+            @Override
+            public void onNext(@Nonnull final String item) {
+                items.add(item);
+                mSubscription.request(1);
+            }
+        });
+        mPublisher.offer("a1");
+        mPublisher.offer("b1");
+        assertThat(items, contains("a1", "b1"));
+    }
+}
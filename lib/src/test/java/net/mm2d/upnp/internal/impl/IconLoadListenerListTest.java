@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import net.mm2d.upnp.ControlPoint.IconLoadListener;
+import net.mm2d.upnp.Device;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.annotation.Nonnull;
+
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class IconLoadListenerListTest {
+    @Test
+    public void onIconLoaded() {
+        final Device device = mock(Device.class);
+        final IconLoadListenerList list = new IconLoadListenerList();
+        final IconLoadListener listener = mock(IconLoadListener.class);
+        list.add(listener);
+        list.onIconLoaded(device);
+        verify(listener).onIconLoaded(device);
+    }
+
+    @Test
+    public void remove_削除したリスナーには通知されない() {
+        final Device device = mock(Device.class);
+        final IconLoadListenerList list = new IconLoadListenerList();
+        final IconLoadListener listener = mock(IconLoadListener.class);
+        list.add(listener);
+        list.remove(listener);
+        list.onIconLoaded(device);
+        verify(listener, never()).onIconLoaded(device);
+    }
+
+    @Test
+    public void removeOnIconLoaded() {
+        final Device device = mock(Device.class);
+        final IconLoadListenerList list = new IconLoadListenerList();
+        list.add(new IconLoadListener() {
+            @Override
+            public void onIconLoaded(@Nonnull final Device device) {
+                list.remove(this);
+            }
+        });
+        list.add(new IconLoadListener() {
+            @Override
+            public void onIconLoaded(@Nonnull final Device device) {
+                list.remove(this);
+            }
+        });
+        list.onIconLoaded(device);
+    }
+}
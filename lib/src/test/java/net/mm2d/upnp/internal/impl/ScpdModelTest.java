@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import net.mm2d.upnp.Action;
+import net.mm2d.upnp.ControlPoint;
+import net.mm2d.upnp.Device;
+import net.mm2d.upnp.HttpClient;
+import net.mm2d.upnp.Service;
+import net.mm2d.upnp.SsdpMessage;
+import net.mm2d.upnp.StateVariable;
+import net.mm2d.upnp.internal.manager.SubscribeManager;
+import net.mm2d.upnp.internal.message.SsdpRequest;
+import net.mm2d.upnp.internal.parser.DeviceParser;
+import net.mm2d.util.TestUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.InetAddress;
+import java.net.URL;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class ScpdModelTest {
+    private static final String DESCRIPTION = "<scpd id=\"" + ScpdModelTest.class.getName() + "\"/>";
+
+    @Test
+    public void intern_同一内容のDescriptionであれば同一インスタンスを返す() {
+        final ScpdModel model1 = ScpdModel.intern(new ServiceImpl.Builder()
+                .setDescription(new String(DESCRIPTION.toCharArray())));
+        final ScpdModel model2 = ScpdModel.intern(new ServiceImpl.Builder()
+                .setDescription(new String(DESCRIPTION.toCharArray())));
+        assertThat(model1, is(sameInstance(model2)));
+        assertThat(ScpdModel.find(DESCRIPTION), is(sameInstance(model1)));
+    }
+
+    @Test
+    public void intern_Descriptionが空であれば共有しない() {
+        final ScpdModel model = ScpdModel.intern(new ServiceImpl.Builder()
+                .addStateVariable(new StateVariableImpl.Builder()
+                        .setName("name")
+                        .setDataType("string")
+                        .build()));
+        assertThat(model.getStateVariableList(), hasSize(1));
+        assertThat(ScpdModel.find(""), is(nullValue()));
+    }
+
+    @Test
+    public void find_登録がなければnull() {
+        assertThat(ScpdModel.find("<scpd id=\"not registered\"/>"), is(nullValue()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void create_関連StateVariableがなければException() {
+        ScpdModel.create(new ServiceImpl.Builder()
+                .setDescription("description")
+                .addActionBuilder(new ActionImpl.Builder()
+                        .setName("action")
+                        .addArgumentBuilder(new ArgumentImpl.Builder()
+                                .setName("argument")
+                                .setDirection("in")
+                                .setRelatedStateVariableName("name"))));
+    }
+
+    @Test
+    public void loadDescription_同一SCPDを持つDeviceでモデルを共有する() throws Exception {
+        final Device device1 = loadDevice();
+        final Device device2 = loadDevice();
+        final Service cds1 = device1.findServiceById("urn:upnp-org:serviceId:ContentDirectory");
+        final Service cds2 = device2.findServiceById("urn:upnp-org:serviceId:ContentDirectory");
+        assertThat(cds1, is(not(sameInstance(cds2))));
+        assertThat(cds1.getDescription(), is(sameInstance(cds2.getDescription())));
+        assertThat(cds1.getStateVariableList(), is(sameInstance(cds2.getStateVariableList())));
+        final StateVariable variable1 = cds1.findStateVariable("A_ARG_TYPE_BrowseFlag");
+        final StateVariable variable2 = cds2.findStateVariable("A_ARG_TYPE_BrowseFlag");
+        assertThat(variable1, is(notNullValue()));
+        assertThat(variable1, is(sameInstance(variable2)));
+
+        final Action browse1 = cds1.findAction("Browse");
+        final Action browse2 = cds2.findAction("Browse");
+        assertThat(browse1.getService(), is(cds1));
+        assertThat(browse2.getService(), is(cds2));
+        assertThat(browse1.findArgument("ObjectID"), is(sameInstance(browse2.findArgument("ObjectID"))));
+    }
+
+    private static Device loadDevice() throws Exception {
+        final HttpClient httpClient = mock(HttpClient.class);
+        doReturn(TestUtils.getResourceAsString("device.xml"))
+                .when(httpClient).downloadString(new URL("http://192.0.2.2:12345/device.xml"));
+        doReturn(TestUtils.getResourceAsString("cds.xml"))
+                .when(httpClient).downloadString(new URL("http://192.0.2.2:12345/cds.xml"));
+        doReturn(TestUtils.getResourceAsString("cms.xml"))
+                .when(httpClient).downloadString(new URL("http://192.0.2.2:12345/cms.xml"));
+        doReturn(TestUtils.getResourceAsString("mmupnp.xml"))
+                .when(httpClient).downloadString(new URL("http://192.0.2.2:12345/mmupnp.xml"));
+        final byte[] data = TestUtils.getResourceAsByteArray("ssdp-notify-alive0.bin");
+        final SsdpMessage ssdpMessage = new SsdpRequest(InetAddress.getByName("192.0.2.3"), data, data.length);
+        final DeviceImpl.Builder builder = new DeviceImpl.Builder(
+                mock(ControlPoint.class), mock(SubscribeManager.class), ssdpMessage);
+        DeviceParser.loadDescription(httpClient, builder);
+        return builder.build();
+    }
+}
@@ -7,6 +7,7 @@
 
 package net.mm2d.upnp.internal.impl;
 
+import net.mm2d.upnp.Action;
 import net.mm2d.upnp.ControlPoint;
 import net.mm2d.upnp.Device;
 import net.mm2d.upnp.Http;
@@ -30,8 +31,14 @@ import org.junit.runners.JUnit4;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.Matchers.*;
@@ -678,6 +685,81 @@ public class ServiceTest {
         }
     }
 
+    @RunWith(JUnit4.class)
+    public static class 遅延読み込みのテスト {
+        private HttpClient mHttpClient;
+        private URL mCdsUrl;
+        private Device mDevice;
+
+        @Before
+        public void setUp() throws Exception {
+            mHttpClient = mock(HttpClient.class);
+            mCdsUrl = new URL("http://192.0.2.2:12345/cds.xml");
+            doReturn(TestUtils.getResourceAsString("device.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/device.xml"));
+            doReturn(TestUtils.getResourceAsString("cds.xml"))
+                    .when(mHttpClient).downloadString(mCdsUrl);
+            final byte[] data = TestUtils.getResourceAsByteArray("ssdp-notify-alive0.bin");
+            final SsdpMessage ssdpMessage = new SsdpRequest(InetAddress.getByName("192.0.2.3"), data, data.length);
+            final DeviceImpl.Builder builder = new DeviceImpl.Builder(
+                    mock(ControlPoint.class), mock(SubscribeManager.class), ssdpMessage);
+            DeviceParser.loadDescription(mHttpClient, builder, true);
+            mDevice = builder.build();
+        }
+
+        @Test
+        public void loadDescription_Device読み込み時にはSCPDを読み込まない() throws Exception {
+            verify(mHttpClient, never()).downloadString(mCdsUrl);
+        }
+
+        @Test
+        public void getActionList_初回アクセス時に読み込まれる() throws Exception {
+            final ServiceImpl cds = (ServiceImpl) spy(mDevice.findServiceById("urn:upnp-org:serviceId:ContentDirectory"));
+            doReturn(mHttpClient).when(cds).createHttpClient();
+
+            assertThat(cds.getActionList(), hasSize(4));
+            assertThat(cds.findAction("Browse"), is(notNullValue()));
+            assertThat(cds.getStateVariableList(), is(not(empty())));
+            assertThat(cds.getDescription(), is(TestUtils.getResourceAsString("cds.xml")));
+            verify(mHttpClient, times(1)).downloadString(mCdsUrl);
+        }
+
+        @Test
+        public void findAction_同時に呼び出されても読み込みは一度() throws Exception {
+            final ServiceImpl cds = (ServiceImpl) spy(mDevice.findServiceById("urn:upnp-org:serviceId:ContentDirectory"));
+            final String description = TestUtils.getResourceAsString("cds.xml");
+            doAnswer(invocation -> {
+                Thread.sleep(100);
+                return description;
+            }).when(mHttpClient).downloadString(mCdsUrl);
+            doReturn(mHttpClient).when(cds).createHttpClient();
+
+            final ExecutorService executor = Executors.newFixedThreadPool(4);
+            final List<Future<Action>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> cds.findAction("Browse")));
+            }
+            for (final Future<Action> future : futures) {
+                assertThat(future.get(), is(notNullValue()));
+            }
+            executor.shutdown();
+            verify(mHttpClient, times(1)).downloadString(mCdsUrl);
+        }
+
+        @Test
+        public void getActionList_読み込みに失敗した場合は次回アクセス時に再読み込みする() throws Exception {
+            final ServiceImpl cds = (ServiceImpl) spy(mDevice.findServiceById("urn:upnp-org:serviceId:ContentDirectory"));
+            doThrow(new IOException())
+                    .doReturn(TestUtils.getResourceAsString("cds.xml"))
+                    .when(mHttpClient).downloadString(mCdsUrl);
+            doReturn(mHttpClient).when(cds).createHttpClient();
+
+            assertThat(cds.getActionList(), is(empty()));
+            assertThat(cds.getActionList(), hasSize(4));
+            verify(mHttpClient, times(2)).downloadString(mCdsUrl);
+        }
+    }
+
     @RunWith(JUnit4.class)
     public static class subscribe_パーサー機能のテスト {
         private static final long DEFAULT_SUBSCRIPTION_TIMEOUT = TimeUnit.SECONDS.toMillis(300);
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import net.mm2d.upnp.internal.impl.SoapResponseScanner.Range;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class SoapResponseScannerTest {
+    private static String content(
+            final byte[] xml,
+            final Range range) throws Exception {
+        return new String(xml, range.mStart, range.mEnd - range.mStart, "UTF-8");
+    }
+
+    @Test
+    public void scan_応答要素の子要素の範囲を返す() throws Exception {
+        final byte[] xml = ("<?xml version=\"1.0\"?>\n"
+                + "<!-- <s:Body> -->"
+                + "<s:Envelope xmlns:s=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+                + "<s:Header><s:Body/></s:Header>"
+                + "<s:Body>"
+                + "<u:BrowseResponse xmlns:u=\"urn:schemas-upnp-org:service:ContentDirectory:1\">"
+                + "<Result attr=\"a>b\">&lt;DIDL-Lite/&gt;</Result>"
+                + "<NumberReturned>1</NumberReturned>"
+                + "<Empty/>"
+                + "<Nested><a><b>x</b></a><![CDATA[</Nested>]]></Nested>"
+                + "</u:BrowseResponse>"
+                + "</s:Body>"
+                + "</s:Envelope>").getBytes("UTF-8");
+        final List<Range> ranges = new SoapResponseScanner(xml).scan("BrowseResponse");
+        assertThat(ranges.size(), is(4));
+        assertThat(ranges.get(0).mName, is("Result"));
+        assertThat(content(xml, ranges.get(0)), is("&lt;DIDL-Lite/&gt;"));
+        assertThat(ranges.get(1).mName, is("NumberReturned"));
+        assertThat(content(xml, ranges.get(1)), is("1"));
+        assertThat(ranges.get(2).mName, is("Empty"));
+        assertThat(content(xml, ranges.get(2)), is(""));
+        assertThat(ranges.get(3).mName, is("Nested"));
+        assertThat(content(xml, ranges.get(3)), is("<a><b>x</b></a><![CDATA[</Nested>]]>"));
+    }
+
+    @Test
+    public void scan_空の応答要素() throws Exception {
+        final byte[] xml = "<s:Envelope><s:Body><u:StopResponse/></s:Body></s:Envelope>".getBytes("UTF-8");
+        assertThat(new SoapResponseScanner(xml).scan("StopResponse"), is(empty()));
+    }
+
+    @Test(expected = IOException.class)
+    public void scan_Bodyがない() throws Exception {
+        final byte[] xml = "<s:Envelope><u:StopResponse/></s:Envelope>".getBytes("UTF-8");
+        new SoapResponseScanner(xml).scan("StopResponse");
+    }
+
+    @Test(expected = IOException.class)
+    public void scan_応答要素がない() throws Exception {
+        final byte[] xml = "<s:Envelope><s:Body><s:Fault/></s:Body></s:Envelope>".getBytes("UTF-8");
+        new SoapResponseScanner(xml).scan("StopResponse");
+    }
+
+    @Test(expected = IOException.class)
+    public void scan_孫要素の応答要素は対象外() throws Exception {
+        final byte[] xml = "<s:Envelope><s:Body><a><u:StopResponse/></a></s:Body></s:Envelope>".getBytes("UTF-8");
+        new SoapResponseScanner(xml).scan("StopResponse");
+    }
+
+    @Test(expected = IOException.class)
+    public void scan_途中で終わっている() throws Exception {
+        final byte[] xml = "<s:Envelope><s:Body><u:StopResponse><a>".getBytes("UTF-8");
+        new SoapResponseScanner(xml).scan("StopResponse");
+    }
+
+    @Test(expected = IOException.class)
+    public void scan_タグが閉じていない() throws Exception {
+        final byte[] xml = "<s:Envelope><s:Body".getBytes("UTF-8");
+        new SoapResponseScanner(xml).scan("StopResponse");
+    }
+
+    @Test(expected = IOException.class)
+    public void scan_XMLではない() throws Exception {
+        new SoapResponseScanner("<>".getBytes("UTF-8")).scan("StopResponse");
+    }
+}
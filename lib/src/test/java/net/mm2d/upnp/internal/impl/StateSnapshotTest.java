@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class StateSnapshotTest {
+    private static StateSnapshot writeAndRead(final StateSnapshot snapshot) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        snapshot.write(baos);
+        return StateSnapshot.read(new ByteArrayInputStream(baos.toByteArray()));
+    }
+
+    @Test
+    public void write_read_内容が復元される() throws Exception {
+        final StateSnapshot snapshot = new StateSnapshot();
+        final StateSnapshot.DeviceRecord device = new StateSnapshot.DeviceRecord();
+        device.mKind = StateSnapshot.KIND_RESPONSE;
+        device.setLocalAddress(InetAddress.getByName("192.0.2.3"));
+        device.mExpireTime = 1234L;
+        device.mMessage = new byte[]{1, 2, 3};
+        device.mDescription = "<root>日本語</root>";
+        device.mServiceDescriptions.add("<scpd/>");
+        device.mServiceDescriptions.add(null);
+        snapshot.mDevices.add(device);
+        final StateSnapshot.DeviceRecord pinned = new StateSnapshot.DeviceRecord();
+        pinned.mKind = StateSnapshot.KIND_PINNED;
+        pinned.mLocation = "http://192.0.2.2/device.xml";
+        pinned.mDescription = "<root/>";
+        snapshot.mDevices.add(pinned);
+        snapshot.mPinnedLocations.add("http://192.0.2.4/device.xml");
+        final StateSnapshot.SubscriptionRecord subscription = new StateSnapshot.SubscriptionRecord();
+        subscription.mUdn = "uuid:udn";
+        subscription.mServiceId = "serviceId";
+        subscription.mSubscriptionId = "uuid:sid";
+        subscription.mExpiryTime = 5678L;
+        subscription.mKeepRenew = true;
+        snapshot.mSubscriptions.add(subscription);
+
+        final StateSnapshot result = writeAndRead(snapshot);
+
+        assertThat(result.mDevices, hasSize(2));
+        final StateSnapshot.DeviceRecord d = result.mDevices.get(0);
+        assertThat(d.mKind, is(StateSnapshot.KIND_RESPONSE));
+        assertThat(d.getLocalAddress(), is(InetAddress.getByName("192.0.2.3")));
+        assertThat(d.mExpireTime, is(1234L));
+        assertThat(d.mMessage, is(new byte[]{1, 2, 3}));
+        assertThat(d.mDescription, is("<root>日本語</root>"));
+        assertThat(d.mServiceDescriptions, contains("<scpd/>", null));
+        final StateSnapshot.DeviceRecord p = result.mDevices.get(1);
+        assertThat(p.mKind, is(StateSnapshot.KIND_PINNED));
+        assertThat(p.getLocalAddress(), is(nullValue()));
+        assertThat(p.mLocation, is("http://192.0.2.2/device.xml"));
+        assertThat(result.mPinnedLocations, contains("http://192.0.2.4/device.xml"));
+        assertThat(result.mSubscriptions, hasSize(1));
+        final StateSnapshot.SubscriptionRecord s = result.mSubscriptions.get(0);
+        assertThat(s.mUdn, is("uuid:udn"));
+        assertThat(s.mServiceId, is("serviceId"));
+        assertThat(s.mSubscriptionId, is("uuid:sid"));
+        assertThat(s.mExpiryTime, is(5678L));
+        assertThat(s.mKeepRenew, is(true));
+    }
+
+    @Test
+    public void write_read_空の状態() throws Exception {
+        final StateSnapshot result = writeAndRead(new StateSnapshot());
+        assertThat(result.mDevices, is(empty()));
+        assertThat(result.mPinnedLocations, is(empty()));
+        assertThat(result.mSubscriptions, is(empty()));
+    }
+
+    @Test
+    public void getLocalAddress_IPv6のScopeIdが復元される() throws Exception {
+        final StateSnapshot.DeviceRecord device = new StateSnapshot.DeviceRecord();
+        final byte[] address = InetAddress.getByName("fe80::1").getAddress();
+        device.setLocalAddress(Inet6Address.getByAddress(null, address, 3));
+        final InetAddress result = device.getLocalAddress();
+        assertThat(result, is(instanceOf(Inet6Address.class)));
+        assertThat(((Inet6Address) result).getScopeId(), is(3));
+    }
+
+    @Test(expected = IOException.class)
+    public void read_マジックナンバーが異なればException() throws Exception {
+        StateSnapshot.read(new ByteArrayInputStream(new byte[]{0, 0, 0, 0, 0, 0, 0, 1}));
+    }
+
+    @Test(expected = IOException.class)
+    public void read_バージョンが異なればException() throws Exception {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new StateSnapshot().write(baos);
+        final byte[] data = baos.toByteArray();
+        data[7] = 99;
+        StateSnapshot.read(new ByteArrayInputStream(data));
+    }
+
+    @Test(expected = IOException.class)
+    public void read_途中で終わっていればException() throws Exception {
+        final StateSnapshot snapshot = new StateSnapshot();
+        snapshot.mPinnedLocations.add("http://192.0.2.4/device.xml");
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        snapshot.write(baos);
+        final byte[] data = baos.toByteArray();
+        StateSnapshot.read(new ByteArrayInputStream(data, 0, 12));
+    }
+}
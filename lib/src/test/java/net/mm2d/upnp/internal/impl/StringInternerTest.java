@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class StringInternerTest {
+    @Test
+    public void intern_同一内容なら同一インスタンスを返す() {
+        final String s1 = new String("urn:schemas-upnp-org:device:MediaServer:1");
+        final String s2 = new String("urn:schemas-upnp-org:device:MediaServer:1");
+        assertThat(StringInterner.intern(s1), sameInstance(StringInterner.intern(s2)));
+    }
+
+    @Test
+    public void intern_上限を超えて保持しない() {
+        final List<String> holder = new ArrayList<>();
+        for (int i = 0; i < StringInterner.MAX_SIZE * 2; i++) {
+            final String s = "StringInternerTest:" + i;
+            holder.add(s);
+            assertThat(StringInterner.intern(s), is(s));
+        }
+        assertThat(StringInterner.size(), lessThanOrEqualTo(StringInterner.MAX_SIZE));
+        assertThat(holder, hasSize(StringInterner.MAX_SIZE * 2));
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class TagMapTest {
+    private static TagMap createTagMap() {
+        final Map<String, Map<String, String>> map = new LinkedHashMap<>();
+        final Map<String, String> defaultTags = new HashMap<>();
+        defaultTags.put("tag1", "value1");
+        defaultTags.put("tag2", "value2");
+        map.put("", defaultTags);
+        final Map<String, String> extraTags = new HashMap<>();
+        extraTags.put("tag2", "extra2");
+        extraTags.put("tag3", "extra3");
+        map.put("urn:extra", extraTags);
+        return new TagMap(map);
+    }
+
+    @Test
+    public void get_タグ名で値が取得できる() {
+        final TagMap tagMap = createTagMap();
+        assertThat(tagMap.get("tag1"), is("value1"));
+        assertThat(tagMap.get("tag3"), is("extra3"));
+    }
+
+    @Test
+    public void get_複数のnamespaceに存在する場合は先に登録された値() {
+        final TagMap tagMap = createTagMap();
+        assertThat(tagMap.get("tag2"), is("value2"));
+    }
+
+    @Test
+    public void get_存在しないタグはnull() {
+        final TagMap tagMap = createTagMap();
+        assertThat(tagMap.get("tag4"), is(nullValue()));
+    }
+
+    @Test
+    public void get_namespaceを指定して値が取得できる() {
+        final TagMap tagMap = createTagMap();
+        assertThat(tagMap.get("", "tag2"), is("value2"));
+        assertThat(tagMap.get("urn:extra", "tag2"), is("extra2"));
+        assertThat(tagMap.get("urn:extra", "tag1"), is(nullValue()));
+        assertThat(tagMap.get("urn:none", "tag1"), is(nullValue()));
+    }
+
+    @Test
+    public void get_空のMapから作成した場合はnull() {
+        final TagMap tagMap = new TagMap(Collections.emptyMap());
+        assertThat(tagMap.get("tag1"), is(nullValue()));
+        assertThat(tagMap.get("", "tag1"), is(nullValue()));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.impl;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class XmlTextReaderTest {
+    private static String read(final String xml) throws Exception {
+        final byte[] bytes = xml.getBytes("UTF-8");
+        return new XmlTextReader(bytes, 0, bytes.length).readFully();
+    }
+
+    @Test
+    public void readFully_実体参照を展開する() throws Exception {
+        assertThat(read("&lt;&gt;&amp;&quot;&apos;"), is("<>&\"'"));
+    }
+
+    @Test
+    public void readFully_文字参照を展開する() throws Exception {
+        assertThat(read("&#65;&#x42;&#x1F600;"), is("AB😀"));
+    }
+
+    @Test
+    public void readFully_マルチバイト文字() throws Exception {
+        assertThat(read("日本語😀"), is("日本語😀"));
+    }
+
+    @Test
+    public void readFully_子孫要素のテキストを連結する() throws Exception {
+        assertThat(read("a<b x=\"1>2\">b<c/>c</b>d"), is("abcd"));
+    }
+
+    @Test
+    public void readFully_CDATAは内容をそのまま返す() throws Exception {
+        assertThat(read("a<![CDATA[<b>&amp;]]]]>c"), is("a<b>&amp;]]c"));
+    }
+
+    @Test
+    public void readFully_コメントと処理命令は読み飛ばす() throws Exception {
+        assertThat(read("a<!-- <b> -- -->b<?pi x?>c"), is("abc"));
+    }
+
+    @Test
+    public void readFully_改行を正規化する() throws Exception {
+        assertThat(read("a\r\nb\rc\n"), is("a\nb\nc\n"));
+    }
+
+    @Test
+    public void readFully_範囲を指定できる() throws Exception {
+        final byte[] bytes = "<a>value</a>".getBytes("UTF-8");
+        assertThat(new XmlTextReader(bytes, 3, 5).readFully(), is("value"));
+    }
+
+    @Test
+    public void read_1文字ずつ読み出せる() throws Exception {
+        final byte[] bytes = "&#x1F600;a".getBytes("UTF-8");
+        final XmlTextReader reader = new XmlTextReader(bytes, 0, bytes.length);
+        assertThat(reader.read(), is(0xD83D));
+        assertThat(reader.read(), is(0xDE00));
+        assertThat(reader.read(), is((int) 'a'));
+        assertThat(reader.read(), is(-1));
+        reader.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void readFully_未知の実体参照() throws Exception {
+        read("&nbsp;");
+    }
+
+    @Test(expected = IOException.class)
+    public void readFully_閉じていない実体参照() throws Exception {
+        read("&amp");
+    }
+
+    @Test(expected = IOException.class)
+    public void readFully_不正な文字参照() throws Exception {
+        read("&#xZZ;");
+    }
+
+    @Test(expected = IOException.class)
+    public void readFully_閉じていないCDATA() throws Exception {
+        read("<![CDATA[abc");
+    }
+}
@@ -8,12 +8,19 @@
 package net.mm2d.upnp.internal.manager;
 
 import net.mm2d.upnp.Device;
+import net.mm2d.upnp.Service;
 import net.mm2d.upnp.internal.manager.DeviceHolder.ExpireListener;
+import net.mm2d.upnp.internal.manager.DeviceHolder.RefreshListener;
+import net.mm2d.upnp.internal.thread.TimerExecutor;
 
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.util.Collections;
+
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -22,10 +29,21 @@ import static org.mockito.Mockito.*;
 @RunWith(JUnit4.class)
 public class DeviceHolderTest {
     private static final String UDN = "uuid:01234567-89ab-cdef-0123-456789abcdef";
+    private TimerExecutor mTimerExecutor;
+
+    @Before
+    public void setUp() throws Exception {
+        mTimerExecutor = new TimerExecutor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mTimerExecutor.terminate();
+    }
 
     @Test(timeout = 1000L)
     public void start_shutdown_デッドロックしない() throws Exception {
-        final DeviceHolder holder = new DeviceHolder(mock(ExpireListener.class));
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, mock(ExpireListener.class));
         holder.start();
         Thread.sleep(1);
         holder.shutdownRequest();
@@ -34,7 +52,7 @@ public class DeviceHolderTest {
 
     @Test
     public void add() throws Exception {
-        final DeviceHolder holder = new DeviceHolder(mock(ExpireListener.class));
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, mock(ExpireListener.class));
         final Device device = mock(Device.class);
         doReturn(UDN).when(device).getUdn();
         holder.add(device);
@@ -44,7 +62,7 @@ public class DeviceHolderTest {
 
     @Test
     public void remove_device() throws Exception {
-        final DeviceHolder holder = new DeviceHolder(mock(ExpireListener.class));
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, mock(ExpireListener.class));
         final Device device = mock(Device.class);
         doReturn(UDN).when(device).getUdn();
         holder.add(device);
@@ -55,9 +73,22 @@ public class DeviceHolderTest {
         assertThat(holder.get(UDN), is(nullValue()));
     }
 
+    @Test
+    public void remove_device_別インスタンスは削除しない() throws Exception {
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, mock(ExpireListener.class));
+        final Device device1 = mock(Device.class);
+        doReturn(UDN).when(device1).getUdn();
+        final Device device2 = mock(Device.class);
+        doReturn(UDN).when(device2).getUdn();
+        holder.add(device2);
+
+        assertThat(holder.remove(device1), is(nullValue()));
+        assertThat(holder.get(UDN), sameInstance(device2));
+    }
+
     @Test
     public void remove_udn() throws Exception {
-        final DeviceHolder holder = new DeviceHolder(mock(ExpireListener.class));
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, mock(ExpireListener.class));
         final Device device = mock(Device.class);
         doReturn(UDN).when(device).getUdn();
         holder.add(device);
@@ -70,7 +101,7 @@ public class DeviceHolderTest {
 
     @Test
     public void clear() throws Exception {
-        final DeviceHolder holder = new DeviceHolder(mock(ExpireListener.class));
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, mock(ExpireListener.class));
         final Device device = mock(Device.class);
         doReturn(UDN).when(device).getUdn();
         holder.add(device);
@@ -83,7 +114,7 @@ public class DeviceHolderTest {
 
     @Test
     public void getDeviceList() throws Exception {
-        final DeviceHolder holder = new DeviceHolder(mock(ExpireListener.class));
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, mock(ExpireListener.class));
         final Device device = mock(Device.class);
         doReturn(UDN).when(device).getUdn();
         holder.add(device);
@@ -94,7 +125,7 @@ public class DeviceHolderTest {
 
     @Test
     public void size() throws Exception {
-        final DeviceHolder holder = new DeviceHolder(mock(ExpireListener.class));
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, mock(ExpireListener.class));
         final Device device = mock(Device.class);
         doReturn(UDN).when(device).getUdn();
         holder.add(device);
@@ -105,16 +136,45 @@ public class DeviceHolderTest {
     @Test(timeout = 1000)
     public void shutdownRequest() throws Exception {
         final ExpireListener expireListener = mock(ExpireListener.class);
-        final DeviceHolder holder = new DeviceHolder(expireListener);
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, expireListener);
 
+        holder.start();
         holder.shutdownRequest();
-        holder.run();
+
+        final Device device = mock(Device.class);
+        doReturn(UDN).when(device).getUdn();
+        doReturn(System.currentTimeMillis() - 1).when(device).getExpireTime();
+        holder.add(device);
+        Thread.sleep(100);
+
+        verify(expireListener, never()).onExpire(device);
+    }
+
+    @Test
+    public void onTimer_Deviceがなければ次回の予定はない() throws Exception {
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, mock(ExpireListener.class));
+
+        assertThat(holder.onTimer(), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void onTimer_次の生存確認の時刻を返す() throws Exception {
+        final RefreshListener listener = mock(RefreshListener.class);
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, mock(ExpireListener.class), listener);
+        final Device device = mock(Device.class);
+        doReturn(UDN).when(device).getUdn();
+        final long expire = System.currentTimeMillis() + 60000L;
+        doReturn(expire).when(device).getExpireTime();
+        holder.add(device);
+
+        assertThat(holder.onTimer(), is(expire - 30000L));
+        verify(listener, never()).onRefresh(device);
     }
 
     @Test(timeout = 20000L)
     public void expireDevice_時間経過後に削除される() throws Exception {
         final ExpireListener expireListener = mock(ExpireListener.class);
-        final DeviceHolder holder = new DeviceHolder(expireListener);
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, expireListener);
         final Device device1 = mock(Device.class);
         doReturn(UDN).when(device1).getUdn();
         final Device device2 = mock(Device.class);
@@ -136,4 +196,123 @@ public class DeviceHolderTest {
         verify(expireListener).onExpire(device1);
         holder.shutdownRequest();
     }
+
+    @Test
+    public void refreshDevice_有効期限前に生存確認を要求する() throws Exception {
+        final RefreshListener listener = mock(RefreshListener.class);
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, mock(ExpireListener.class), listener);
+        final Device device = mock(Device.class);
+        doReturn(UDN).when(device).getUdn();
+        doReturn(System.currentTimeMillis() + 20000L).when(device).getExpireTime();
+        holder.add(device);
+
+        holder.refreshDevice();
+        verify(listener, times(1)).onRefresh(device);
+        holder.refreshDevice();
+        verify(listener, times(1)).onRefresh(device);
+
+        doReturn(System.currentTimeMillis() + 5000L).when(device).getExpireTime();
+        holder.refreshDevice();
+        verify(listener, times(2)).onRefresh(device);
+        holder.refreshDevice();
+        verify(listener, times(2)).onRefresh(device);
+    }
+
+    @Test
+    public void refreshDevice_有効期限まで余裕があれば要求しない() throws Exception {
+        final RefreshListener listener = mock(RefreshListener.class);
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, mock(ExpireListener.class), listener);
+        final Device device = mock(Device.class);
+        doReturn(UDN).when(device).getUdn();
+        doReturn(System.currentTimeMillis() + 60000L).when(device).getExpireTime();
+        holder.add(device);
+
+        holder.refreshDevice();
+        verify(listener, never()).onRefresh(device);
+    }
+
+    @Test
+    public void refreshDevice_有効期限が延長されれば再度要求する() throws Exception {
+        final RefreshListener listener = mock(RefreshListener.class);
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, mock(ExpireListener.class), listener);
+        final Device device = mock(Device.class);
+        doReturn(UDN).when(device).getUdn();
+        doReturn(System.currentTimeMillis() + 5000L).when(device).getExpireTime();
+        holder.add(device);
+
+        holder.refreshDevice();
+        verify(listener, times(1)).onRefresh(device);
+
+        doReturn(System.currentTimeMillis() + 5001L).when(device).getExpireTime();
+        holder.refreshDevice();
+        verify(listener, times(2)).onRefresh(device);
+    }
+
+    @Test(timeout = 10000L)
+    public void run_スレッドから生存確認が要求される() throws Exception {
+        final RefreshListener listener = mock(RefreshListener.class);
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, mock(ExpireListener.class), listener);
+        final Device device = mock(Device.class);
+        doReturn(UDN).when(device).getUdn();
+        doReturn(System.currentTimeMillis() + 20000L).when(device).getExpireTime();
+        holder.start();
+        holder.add(device);
+        verify(listener, timeout(1000)).onRefresh(device);
+        holder.shutdownRequest();
+    }
+
+    @Test
+    public void getDeviceListByType_追加削除に追従する() throws Exception {
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, mock(ExpireListener.class));
+        final Device device = mock(Device.class);
+        doReturn(UDN).when(device).getUdn();
+        doReturn("urn:schemas-upnp-org:device:MediaServer:1").when(device).getDeviceType();
+        doReturn("192.0.2.2").when(device).getIpAddress();
+        holder.add(device);
+
+        assertThat(holder.getDeviceListByType("urn:schemas-upnp-org:device:MediaServer:1"), contains(device));
+        assertThat(holder.getDeviceListByIpAddress("192.0.2.2"), contains(device));
+
+        doReturn("192.0.2.3").when(device).getIpAddress();
+        holder.updateIndex(device);
+        assertThat(holder.getDeviceListByIpAddress("192.0.2.3"), contains(device));
+
+        holder.remove(UDN);
+        assertThat(holder.getDeviceListByType("urn:schemas-upnp-org:device:MediaServer:1"), is(empty()));
+        assertThat(holder.getDeviceListByIpAddress("192.0.2.3"), is(empty()));
+    }
+
+    @Test
+    public void add_同一UDNの置き換えでインデックスが更新される() throws Exception {
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, mock(ExpireListener.class));
+        final Device device1 = mock(Device.class);
+        doReturn(UDN).when(device1).getUdn();
+        doReturn("Manufacture1").when(device1).getManufacture();
+        final Device device2 = mock(Device.class);
+        doReturn(UDN).when(device2).getUdn();
+        doReturn("Manufacture2").when(device2).getManufacture();
+        holder.add(device1);
+        holder.add(device2);
+
+        assertThat(holder.getDeviceListByManufacture("Manufacture1"), is(empty()));
+        assertThat(holder.getDeviceListByManufacture("Manufacture2"), contains(device2));
+    }
+
+    @Test
+    public void getDeviceListByServiceType_期限切れで削除される() throws Exception {
+        final DeviceHolder holder = new DeviceHolder(mTimerExecutor, mock(ExpireListener.class));
+        final Device device = mock(Device.class);
+        doReturn(UDN).when(device).getUdn();
+        final Service service = mock(Service.class);
+        doReturn("urn:schemas-upnp-org:service:ContentDirectory:1").when(service).getServiceType();
+        doReturn(Collections.singletonList(service)).when(device).getServiceList();
+        doReturn(System.currentTimeMillis() - 1).when(device).getExpireTime();
+        holder.add(device);
+        assertThat(holder.getDeviceListByServiceType("urn:schemas-upnp-org:service:ContentDirectory:1"), contains(device));
+
+        holder.start();
+        Thread.sleep(100);
+        holder.shutdownRequest();
+        assertThat(holder.getDeviceListByServiceType("urn:schemas-upnp-org:service:ContentDirectory:1"), is(empty()));
+    }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.manager;
+
+import net.mm2d.upnp.Device;
+import net.mm2d.upnp.Service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class DeviceIndexTest {
+    private static final String MEDIA_SERVER = "urn:schemas-upnp-org:device:MediaServer:1";
+    private static final String MEDIA_RENDERER = "urn:schemas-upnp-org:device:MediaRenderer:1";
+    private static final String CONTENT_DIRECTORY = "urn:schemas-upnp-org:service:ContentDirectory:1";
+    private static final String AV_TRANSPORT = "urn:schemas-upnp-org:service:AVTransport:1";
+
+    private Device mRoot;
+    private Device mEmbedded;
+    private DeviceIndex mIndex;
+
+    private static Device makeDevice(
+            final String udn,
+            final String deviceType,
+            final String manufacture,
+            final String serviceType) {
+        final Device device = mock(Device.class);
+        doReturn(udn).when(device).getUdn();
+        doReturn(deviceType).when(device).getDeviceType();
+        doReturn(manufacture).when(device).getManufacture();
+        final Service service = mock(Service.class);
+        doReturn(serviceType).when(service).getServiceType();
+        doReturn(Collections.singletonList(service)).when(device).getServiceList();
+        return device;
+    }
+
+    @Before
+    public void setUp() {
+        mRoot = makeDevice("uuid:root", MEDIA_SERVER, "mm2d.net", CONTENT_DIRECTORY);
+        mEmbedded = makeDevice("uuid:embedded", MEDIA_RENDERER, "mm2d.net", AV_TRANSPORT);
+        doReturn(Collections.singletonList(mEmbedded)).when(mRoot).getDeviceList();
+        doReturn("192.0.2.2").when(mRoot).getIpAddress();
+        mIndex = new DeviceIndex();
+    }
+
+    @Test
+    public void add_埋め込みDeviceも登録される() {
+        mIndex.add(mRoot);
+
+        assertThat(mIndex.findByDeviceType(MEDIA_SERVER), contains(mRoot));
+        assertThat(mIndex.findByDeviceType(MEDIA_RENDERER), contains(mEmbedded));
+        assertThat(mIndex.findByServiceType(CONTENT_DIRECTORY), contains(mRoot));
+        assertThat(mIndex.findByServiceType(AV_TRANSPORT), contains(mEmbedded));
+        assertThat(mIndex.findByManufacture("mm2d.net"), contains(mRoot, mEmbedded));
+        assertThat(mIndex.findByIpAddress("192.0.2.2"), contains(mRoot));
+        assertThat(mIndex.findByDeviceType("urn:schemas-upnp-org:device:Basic:1"), is(empty()));
+    }
+
+    @Test
+    public void add_複数Deviceは追加順に返る() {
+        final Device other = makeDevice("uuid:other", MEDIA_SERVER, "example.com", CONTENT_DIRECTORY);
+        mIndex.add(mRoot);
+        mIndex.add(other);
+
+        assertThat(mIndex.findByDeviceType(MEDIA_SERVER), is(Arrays.asList(mRoot, other)));
+        assertThat(mIndex.findByManufacture("example.com"), contains(other));
+    }
+
+    @Test
+    public void remove_埋め込みDeviceも削除される() {
+        mIndex.add(mRoot);
+        mIndex.remove(mRoot);
+
+        assertThat(mIndex.findByDeviceType(MEDIA_SERVER), is(empty()));
+        assertThat(mIndex.findByDeviceType(MEDIA_RENDERER), is(empty()));
+        assertThat(mIndex.findByServiceType(AV_TRANSPORT), is(empty()));
+        assertThat(mIndex.findByManufacture("mm2d.net"), is(empty()));
+        assertThat(mIndex.findByIpAddress("192.0.2.2"), is(empty()));
+    }
+
+    @Test
+    public void updateIpAddress_IPアドレスの変化が反映される() {
+        mIndex.add(mRoot);
+        doReturn("192.0.2.3").when(mRoot).getIpAddress();
+        mIndex.updateIpAddress(mRoot);
+
+        assertThat(mIndex.findByIpAddress("192.0.2.2"), is(empty()));
+        assertThat(mIndex.findByIpAddress("192.0.2.3"), contains(mRoot));
+
+        mIndex.remove(mRoot);
+        assertThat(mIndex.findByIpAddress("192.0.2.3"), is(empty()));
+    }
+
+    @Test
+    public void updateIpAddress_未登録のDeviceは無視される() {
+        mIndex.updateIpAddress(mRoot);
+
+        assertThat(mIndex.findByIpAddress("192.0.2.2"), is(empty()));
+    }
+
+    @Test
+    public void clear() {
+        mIndex.add(mRoot);
+        mIndex.clear();
+
+        assertThat(mIndex.findByDeviceType(MEDIA_SERVER), is(empty()));
+        assertThat(mIndex.findByIpAddress("192.0.2.2"), is(empty()));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.manager;
+
+import net.mm2d.upnp.internal.manager.HostGuard.State;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.InetAddress;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class HostGuardRegistryTest {
+    private HostGuardRegistry mRegistry;
+
+    @Before
+    public void setUp() {
+        mRegistry = new HostGuardRegistry();
+    }
+
+    @Test
+    public void get_同一アドレスには同一インスタンスを返す() throws Exception {
+        final HostGuard guard1 = mRegistry.get(InetAddress.getByName("192.0.2.2"));
+        final HostGuard guard2 = mRegistry.get(InetAddress.getByName("192.0.2.2"));
+        final HostGuard guard3 = mRegistry.get(InetAddress.getByName("192.0.2.3"));
+
+        assertThat(guard1, is(sameInstance(guard2)));
+        assertThat(guard1, is(not(sameInstance(guard3))));
+    }
+
+    @Test
+    public void onAlive_Locationのホストが半開状態になる() throws Exception {
+        final HostGuard guard = mRegistry.get(InetAddress.getByName("192.0.2.2"));
+        for (int i = 0; i < HostGuard.DEFAULT_TIMEOUT_THRESHOLD; i++) {
+            guard.onTimeout();
+        }
+        assertThat(guard.getState(), is(State.OPEN));
+
+        mRegistry.onAlive("http://192.0.2.3:12345/device.xml");
+        assertThat(guard.getState(), is(State.OPEN));
+
+        mRegistry.onAlive("http://192.0.2.2:12345/device.xml");
+        assertThat(guard.getState(), is(State.HALF_OPEN));
+    }
+
+    @Test
+    public void onAlive_不正なLocationでも例外は発生しない() {
+        final HostGuard guard = mRegistry.get(InetAddress.getLoopbackAddress());
+        for (int i = 0; i < HostGuard.DEFAULT_TIMEOUT_THRESHOLD; i++) {
+            guard.onTimeout();
+        }
+
+        mRegistry.onAlive(null);
+        mRegistry.onAlive("");
+        mRegistry.onAlive("invalid");
+        assertThat(guard.getState(), is(State.OPEN));
+    }
+
+    @Test
+    public void onAlive_ホスト名のLocationは名前解決しない() throws Exception {
+        final HostGuard guard = mRegistry.get(InetAddress.getLoopbackAddress());
+        for (int i = 0; i < HostGuard.DEFAULT_TIMEOUT_THRESHOLD; i++) {
+            guard.onTimeout();
+        }
+
+        mRegistry.onAlive("http://localhost:12345/device.xml");
+        assertThat(guard.getState(), is(State.OPEN));
+        mRegistry.onAlive("http://127.0.0.1:12345/device.xml");
+        assertThat(guard.getState(), is(State.HALF_OPEN));
+    }
+
+    @Test
+    public void isIpAddressLiteral() {
+        assertThat(HostGuardRegistry.isIpAddressLiteral("192.0.2.2"), is(true));
+        assertThat(HostGuardRegistry.isIpAddressLiteral("[fe80::1]"), is(true));
+        assertThat(HostGuardRegistry.isIpAddressLiteral("example.com"), is(false));
+        assertThat(HostGuardRegistry.isIpAddressLiteral(""), is(false));
+    }
+
+    @Test
+    public void getOpenCount_サーキットの開閉に追従する() throws Exception {
+        final HostGuard guard = mRegistry.get(InetAddress.getByName("192.0.2.2"));
+        assertThat(mRegistry.getOpenCount(), is(0));
+        for (int i = 0; i < HostGuard.DEFAULT_TIMEOUT_THRESHOLD; i++) {
+            guard.onTimeout();
+        }
+        assertThat(mRegistry.getOpenCount(), is(1));
+        guard.onAlive();
+        assertThat(mRegistry.getOpenCount(), is(0));
+        guard.onTimeout();
+        assertThat(mRegistry.getOpenCount(), is(1));
+        guard.onSuccess();
+        assertThat(mRegistry.getOpenCount(), is(0));
+    }
+
+    @Test
+    public void get_上限を超えると最も長く使用されていないホストを破棄する() throws Exception {
+        final InetAddress first = InetAddress.getByName("10.0.0.0");
+        final HostGuard guard = mRegistry.get(first);
+        for (int i = 0; i < HostGuard.DEFAULT_TIMEOUT_THRESHOLD; i++) {
+            guard.onTimeout();
+        }
+        assertThat(mRegistry.getOpenCount(), is(1));
+        for (int i = 1; i <= HostGuardRegistry.MAX_HOSTS; i++) {
+            mRegistry.get(InetAddress.getByAddress(new byte[]{10, 0, (byte) (i >> 8), (byte) i}));
+        }
+        assertThat(mRegistry.size(), is(HostGuardRegistry.MAX_HOSTS));
+        assertThat(mRegistry.getOpenCount(), is(0));
+        assertThat(mRegistry.get(first), is(not(sameInstance(guard))));
+    }
+
+    @Test
+    public void get_インスタンス間で状態を共有しない() throws Exception {
+        final HostGuardRegistry other = new HostGuardRegistry();
+        final InetAddress address = InetAddress.getByName("192.0.2.2");
+        final HostGuard guard = mRegistry.get(address);
+        for (int i = 0; i < HostGuard.DEFAULT_TIMEOUT_THRESHOLD; i++) {
+            guard.onTimeout();
+        }
+        assertThat(mRegistry.getOpenCount(), is(1));
+
+        assertThat(other.get(address), is(not(sameInstance(guard))));
+        assertThat(other.get(address).getState(), is(State.CLOSED));
+        assertThat(other.getOpenCount(), is(0));
+    }
+
+    @Test
+    public void setTimeoutRange_保持しているホストと以降に作成するホストに適用される() throws Exception {
+        final HostGuard guard = mRegistry.get(InetAddress.getByName("192.0.2.2"));
+        mRegistry.setTimeoutRange(100, 2000);
+        assertThat(guard.getReadTimeout(), is(2000));
+        assertThat(mRegistry.get(InetAddress.getByName("192.0.2.3")).getReadTimeout(), is(2000));
+        assertThat(new HostGuardRegistry().get(InetAddress.getByName("192.0.2.2")).getReadTimeout(),
+                is((int) HostGuardRegistry.DEFAULT_TIMEOUT_CEILING));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setTimeoutRange_不正な範囲ならException() {
+        mRegistry.setTimeoutRange(2000, 1000);
+    }
+}
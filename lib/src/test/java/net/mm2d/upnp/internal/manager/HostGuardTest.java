@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.manager;
+
+import net.mm2d.upnp.internal.manager.HostGuard.State;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class HostGuardTest {
+    @Test
+    public void acquire_同時実行数の上限までは取得できる() throws Exception {
+        final HostGuard guard = new HostGuard("host", 2, 0, 10, 3, 60000);
+        guard.acquire();
+        guard.acquire();
+        guard.release();
+        guard.acquire();
+    }
+
+    @Test(expected = IOException.class)
+    public void acquire_待機数の上限を超えれば即座に失敗する() throws Exception {
+        final HostGuard guard = new HostGuard("host", 1, 0, 10000, 3, 60000);
+        guard.acquire();
+        guard.acquire();
+    }
+
+    @Test(expected = IOException.class)
+    public void acquire_待機がタイムアウトすれば失敗する() throws Exception {
+        final HostGuard guard = new HostGuard("host", 1, 1, 10, 3, 60000);
+        guard.acquire();
+        guard.acquire();
+    }
+
+    @Test
+    public void acquire_待機中に返却されれば取得できる() throws Exception {
+        final HostGuard guard = new HostGuard("host", 1, 1, 10000, 3, 60000);
+        guard.acquire();
+        final CountDownLatch latch = new CountDownLatch(1);
+        new Thread(() -> {
+            try {
+                guard.acquire();
+                latch.countDown();
+            } catch (final IOException ignored) {
+            }
+        }).start();
+        Thread.sleep(50);
+        guard.release();
+        assertThat(latch.await(1, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void onTimeout_連続してタイムアウトするとOPENになる() throws Exception {
+        final HostGuard guard = new HostGuard("host", 2, 0, 10, 2, 60000);
+        guard.onTimeout();
+        assertThat(guard.getState(), is(State.CLOSED));
+        guard.onTimeout();
+        assertThat(guard.getState(), is(State.OPEN));
+    }
+
+    @Test
+    public void onSuccess_タイムアウト回数がリセットされる() throws Exception {
+        final HostGuard guard = new HostGuard("host", 2, 0, 10, 2, 60000);
+        guard.onTimeout();
+        guard.onSuccess();
+        guard.onTimeout();
+        assertThat(guard.getState(), is(State.CLOSED));
+    }
+
+    @Test(expected = IOException.class)
+    public void acquire_OPENなら失敗する() throws Exception {
+        final HostGuard guard = new HostGuard("host", 2, 0, 10, 1, 60000);
+        guard.onTimeout();
+        guard.acquire();
+    }
+
+    @Test
+    public void onAlive_OPENならHALF_OPENとなり一つだけ試行できる() throws Exception {
+        final HostGuard guard = new HostGuard("host", 2, 0, 10, 1, 60000);
+        guard.onTimeout();
+        guard.onAlive();
+        assertThat(guard.getState(), is(State.HALF_OPEN));
+        guard.acquire();
+        try {
+            guard.acquire();
+            fail();
+        } catch (final IOException ignored) {
+        }
+        guard.onSuccess();
+        guard.release();
+        assertThat(guard.getState(), is(State.CLOSED));
+        guard.acquire();
+    }
+
+    @Test
+    public void onTimeout_HALF_OPENでタイムアウトすると再びOPENになる() throws Exception {
+        final HostGuard guard = new HostGuard("host", 2, 0, 10, 3, 60000);
+        guard.onTimeout();
+        guard.onTimeout();
+        guard.onTimeout();
+        guard.onAlive();
+        guard.acquire();
+        guard.onTimeout();
+        guard.release();
+        assertThat(guard.getState(), is(State.OPEN));
+    }
+
+    @Test
+    public void onFailure_HALF_OPENで失敗すると再びOPENになる() throws Exception {
+        final HostGuard guard = new HostGuard("host", 2, 0, 10, 1, 60000);
+        guard.onTimeout();
+        guard.onAlive();
+        guard.acquire();
+        guard.onFailure();
+        guard.release();
+        assertThat(guard.getState(), is(State.OPEN));
+    }
+
+    @Test
+    public void onFailure_CLOSEDでは状態は変わらない() throws Exception {
+        final HostGuard guard = new HostGuard("host", 2, 0, 10, 1, 60000);
+        guard.onFailure();
+        assertThat(guard.getState(), is(State.CLOSED));
+    }
+
+    @Test
+    public void acquire_OPENから一定時間経過するとHALF_OPENになる() throws Exception {
+        final HostGuard guard = new HostGuard("host", 2, 0, 10, 1, 10);
+        guard.onTimeout();
+        Thread.sleep(20);
+        guard.acquire();
+        assertThat(guard.getState(), is(State.HALF_OPEN));
+    }
+
+    @Test
+    public void getConnectTimeout_サンプルが少なければ上限値() {
+        final HostGuard guard = new HostGuard("host");
+        guard.recordConnectTime(10);
+        guard.recordConnectTime(10);
+        assertThat(guard.getConnectTimeout(), is((int) HostGuard.DEFAULT_TIMEOUT_CEILING));
+    }
+
+    @Test
+    public void getConnectTimeout_統計から算出され下限以上となる() {
+        final HostGuard guard = new HostGuard("host");
+        for (int i = 0; i < 10; i++) {
+            guard.recordConnectTime(5);
+        }
+        assertThat(guard.getConnectTimeout(), is((int) HostGuard.DEFAULT_TIMEOUT_FLOOR));
+        for (int i = 0; i < 10; i++) {
+            guard.recordConnectTime(1000);
+        }
+        assertThat(guard.getConnectTimeout(), is(4000));
+    }
+
+    @Test
+    public void getConnectTimeout_タイムアウト発生で延長され成功で戻る() {
+        final HostGuard guard = new HostGuard("host", 2, 0, 10, 10, 60000);
+        for (int i = 0; i < 10; i++) {
+            guard.recordConnectTime(1000);
+        }
+        assertThat(guard.getConnectTimeout(), is(4000));
+        guard.onTimeout();
+        assertThat(guard.getConnectTimeout(), is(8000));
+        guard.onTimeout();
+        assertThat(guard.getConnectTimeout(), is(16000));
+        guard.onSuccess();
+        assertThat(guard.getConnectTimeout(), is(4000));
+    }
+
+    @Test
+    public void getReadTimeout_接続時間によらず上限値() {
+        final HostGuard guard = new HostGuard("host");
+        for (int i = 0; i < 10; i++) {
+            guard.recordConnectTime(5);
+        }
+        assertThat(guard.getReadTimeout(), is((int) HostGuard.DEFAULT_TIMEOUT_CEILING));
+    }
+
+    @Test
+    public void setTimeoutRange_範囲が適用される() {
+        final HostGuard guard = new HostGuard("host");
+        for (int i = 0; i < 10; i++) {
+            guard.recordConnectTime(1000);
+        }
+        guard.setTimeoutRange(100, 2000);
+        assertThat(guard.getConnectTimeout(), is(2000));
+        assertThat(guard.getReadTimeout(), is(2000));
+        guard.setTimeoutRange(5000, 10000);
+        assertThat(guard.getConnectTimeout(), is(5000));
+        assertThat(guard.getReadTimeout(), is(10000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setTimeoutRange_不正な範囲ならException() {
+        new HostGuard("host").setTimeoutRange(2000, 1000);
+    }
+
+    @Test
+    public void setGzipRequestAccepted_初期値はfalseで設定が反映される() {
+        final HostGuard guard = new HostGuard("host");
+        assertThat(guard.isGzipRequestAccepted(), is(false));
+        guard.setGzipRequestAccepted(true);
+        assertThat(guard.isGzipRequestAccepted(), is(true));
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.manager;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class LatencyStatsTest {
+    @Test
+    public void getPercentile_サンプルがなければ0() {
+        final LatencyStats stats = new LatencyStats();
+        assertThat(stats.getCount(), is(0));
+        assertThat(stats.getPercentile(95), is(0L));
+    }
+
+    @Test
+    public void getPercentile_パーセンタイル値を返す() {
+        final LatencyStats stats = new LatencyStats(100);
+        for (int i = 100; i > 0; i--) {
+            stats.add(i);
+        }
+        assertThat(stats.getPercentile(95), is(95L));
+        assertThat(stats.getPercentile(50), is(50L));
+        assertThat(stats.getPercentile(100), is(100L));
+        assertThat(stats.getPercentile(0), is(1L));
+    }
+
+    @Test
+    public void add_保持数を超えると古いものから破棄される() {
+        final LatencyStats stats = new LatencyStats(4);
+        stats.add(1000);
+        stats.add(1);
+        stats.add(2);
+        stats.add(3);
+        stats.add(4);
+        assertThat(stats.getCount(), is(4));
+        assertThat(stats.getPercentile(100), is(4L));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.manager;
+
+import net.mm2d.upnp.ControlPoint.LoadFailure;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class LoadFailureCacheTest {
+    private static final String UUID = "uuid:01234567-89ab-cdef-0123-456789abcdef";
+    private static final String LOCATION = "http://192.0.2.2:12345/device.xml";
+
+    @Test
+    public void isBackingOff_失敗がなければfalse() {
+        final LoadFailureCache cache = new LoadFailureCache();
+        assertThat(cache.isBackingOff(UUID, LOCATION), is(false));
+    }
+
+    @Test
+    public void isBackingOff_失敗後はtrue() {
+        final LoadFailureCache cache = new LoadFailureCache();
+        cache.onFailure(UUID, LOCATION, "reason");
+        assertThat(cache.isBackingOff(UUID, LOCATION), is(true));
+    }
+
+    @Test
+    public void isBackingOff_Locationが異なればfalse() {
+        final LoadFailureCache cache = new LoadFailureCache();
+        cache.onFailure(UUID, LOCATION, "reason");
+        assertThat(cache.isBackingOff(UUID, "http://192.0.2.3:12345/device.xml"), is(false));
+    }
+
+    @Test
+    public void isBackingOff_Locationがなければ記録しない() {
+        final LoadFailureCache cache = new LoadFailureCache();
+        cache.onFailure(UUID, null, "reason");
+        assertThat(cache.isBackingOff(UUID, null), is(false));
+        assertThat(cache.getList(), is(empty()));
+    }
+
+    @Test
+    public void isBackingOff_間隔経過後はfalse() throws Exception {
+        final LoadFailureCache cache = new LoadFailureCache(50, 1000);
+        cache.onFailure(UUID, LOCATION, "reason");
+        Thread.sleep(100);
+        assertThat(cache.isBackingOff(UUID, LOCATION), is(false));
+    }
+
+    @Test
+    public void onFailure_失敗する度に間隔が倍になり上限で止まる() {
+        final LoadFailureCache cache = new LoadFailureCache(1000, 3000);
+        final long[] expected = {1000, 2000, 3000, 3000};
+        for (int i = 0; i < expected.length; i++) {
+            final long before = System.currentTimeMillis();
+            cache.onFailure(UUID, LOCATION, "reason" + i);
+            final long after = System.currentTimeMillis();
+            final List<LoadFailure> list = cache.getList();
+            assertThat(list, hasSize(1));
+            final LoadFailure failure = list.get(0);
+            assertThat(failure.getFailureCount(), is(i + 1));
+            assertThat(failure.getReason(), is("reason" + i));
+            assertThat(failure.getRetryTime(), is(greaterThanOrEqualTo(before + expected[i])));
+            assertThat(failure.getRetryTime(), is(lessThanOrEqualTo(after + expected[i])));
+        }
+    }
+
+    @Test
+    public void remove_UUIDが一致するものが削除される() {
+        final LoadFailureCache cache = new LoadFailureCache();
+        cache.onFailure(UUID, LOCATION, "reason");
+        cache.onFailure(UUID, "http://192.0.2.3:12345/device.xml", "reason");
+        cache.onFailure("uuid:other", LOCATION, "reason");
+        cache.remove(UUID);
+        final List<LoadFailure> list = cache.getList();
+        assertThat(list, hasSize(1));
+        assertThat(list.get(0).getUuid(), is("uuid:other"));
+        assertThat(list.get(0).getLocation(), is(LOCATION));
+    }
+
+    @Test
+    public void clear_全て削除される() {
+        final LoadFailureCache cache = new LoadFailureCache();
+        cache.onFailure(UUID, LOCATION, "reason");
+        cache.onFailure("uuid:other", LOCATION, "reason");
+        cache.clear();
+        assertThat(cache.getList(), is(empty()));
+        assertThat(cache.isBackingOff(UUID, LOCATION), is(false));
+    }
+
+    @Test
+    public void onFailure_古いエントリは削除される() throws Exception {
+        final LoadFailureCache cache = new LoadFailureCache(10, 10);
+        cache.onFailure(UUID, LOCATION, "reason");
+        Thread.sleep(50);
+        cache.onFailure("uuid:other", LOCATION, "reason");
+        final List<LoadFailure> list = cache.getList();
+        assertThat(list, hasSize(1));
+        assertThat(list.get(0).getUuid(), is("uuid:other"));
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.manager;
+
+import net.mm2d.upnp.SearchPolicy;
+import net.mm2d.upnp.internal.thread.TimerExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class SearchSchedulerTest {
+    private final List<String> mSent = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> mSentTime = Collections.synchronizedList(new ArrayList<>());
+    private final Set<String> mUdnSet = Collections.synchronizedSet(new HashSet<>());
+    private TimerExecutor mTimerExecutor;
+    private SearchScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mTimerExecutor = new TimerExecutor();
+        mScheduler = new SearchScheduler(mTimerExecutor, new SearchScheduler.Callback() {
+            @Override
+            public void send(
+                    @Nonnull final String st,
+                    final int mx) {
+                mSent.add(st + ":" + mx);
+                mSentTime.add(System.currentTimeMillis());
+            }
+
+            @Override
+            public int getDeviceCount() {
+                return mUdnSet.size();
+            }
+
+            @Nonnull
+            @Override
+            public Set<String> getDeviceUdnSet() {
+                synchronized (mUdnSet) {
+                    return new HashSet<>(mUdnSet);
+                }
+            }
+        });
+        mScheduler.start();
+    }
+
+    @After
+    public void tearDown() {
+        mScheduler.shutdownRequest();
+        mTimerExecutor.terminate();
+    }
+
+    @Test
+    public void search_STごとに指定回数送信される() throws Exception {
+        mScheduler.setPolicy(new SearchPolicy.Builder()
+                .setBurstCount(3)
+                .setBurstInterval(20)
+                .build());
+        mScheduler.search(Arrays.asList("st1", "st2", "st1"));
+        Thread.sleep(300);
+
+        assertThat(mSent, contains("st1:1", "st2:1", "st1:1", "st2:1", "st1:1", "st2:1"));
+        assertThat(mScheduler.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void search_発見済み機器の数に応じてMXが大きくなる() throws Exception {
+        mScheduler.setPolicy(new SearchPolicy.Builder()
+                .setBurstCount(1)
+                .setMxRange(1, 3, 2)
+                .build());
+        mUdnSet.addAll(Arrays.asList("uuid:1", "uuid:2"));
+        mScheduler.search(Collections.singletonList("st"));
+        Thread.sleep(100);
+        mUdnSet.addAll(Arrays.asList("uuid:3", "uuid:4", "uuid:5", "uuid:6"));
+        mScheduler.search(Collections.singletonList("st"));
+        Thread.sleep(100);
+
+        assertThat(mSent, contains("st:2", "st:3"));
+    }
+
+    @Test
+    public void search_送信毎にUDNのセットは作成しない() throws Exception {
+        final SearchScheduler.Callback callback = mock(SearchScheduler.Callback.class);
+        doReturn(2).when(callback).getDeviceCount();
+        final SearchScheduler scheduler = new SearchScheduler(mTimerExecutor, callback);
+        scheduler.setPolicy(new SearchPolicy.Builder()
+                .setBurstCount(3)
+                .setBurstInterval(10)
+                .setMxRange(1, 3, 2)
+                .build());
+        scheduler.start();
+        try {
+            scheduler.search(Collections.singletonList("st"));
+            verify(callback, timeout(1000).times(3)).send("st", 2);
+            verify(callback, never()).getDeviceUdnSet();
+        } finally {
+            scheduler.shutdownRequest();
+        }
+    }
+
+    @Test
+    public void search_送信頻度が制限される() throws Exception {
+        mScheduler.setPolicy(new SearchPolicy.Builder()
+                .setBurstCount(1)
+                .setMaxSearchPerSecond(20)
+                .build());
+        mScheduler.search(Arrays.asList("st1", "st2", "st3", "st4"));
+        Thread.sleep(400);
+
+        assertThat(mSent, hasSize(4));
+        for (int i = 1; i < mSentTime.size(); i++) {
+            assertThat(mSentTime.get(i) - mSentTime.get(i - 1), is(greaterThanOrEqualTo(50L)));
+        }
+    }
+
+    @Test
+    public void startPeriodicSearch_変化がなければ間隔が延長される() throws Exception {
+        mScheduler.shutdownRequest();
+        mScheduler.setPolicy(new SearchPolicy.Builder()
+                .setBurstCount(1)
+                .setPeriodicInterval(50, 200)
+                .build());
+        mScheduler.startPeriodicSearch(Collections.singletonList("st"));
+        assertThat(mScheduler.isPeriodicSearching(), is(true));
+        final long now = System.currentTimeMillis();
+        mScheduler.schedulePeriodicSearch(now);
+        assertThat(mScheduler.getPeriodicInterval(), is(50L));
+        assertThat(mScheduler.getPendingCount(), is(1));
+        // 間隔が経過していなければ何もしない
+        mScheduler.schedulePeriodicSearch(now + 49);
+        assertThat(mScheduler.getPendingCount(), is(1));
+        mScheduler.schedulePeriodicSearch(now + 50);
+        assertThat(mScheduler.getPeriodicInterval(), is(100L));
+        mScheduler.schedulePeriodicSearch(now + 150);
+        assertThat(mScheduler.getPeriodicInterval(), is(200L));
+        mScheduler.schedulePeriodicSearch(now + 350);
+        assertThat(mScheduler.getPeriodicInterval(), is(200L));
+        assertThat(mScheduler.getPendingCount(), is(4));
+
+        mUdnSet.add("uuid:1");
+        mScheduler.schedulePeriodicSearch(now + 550);
+        assertThat(mScheduler.getPeriodicInterval(), is(50L));
+    }
+
+    @Test
+    public void stopPeriodicSearch_定期検索が停止する() throws Exception {
+        mScheduler.setPolicy(new SearchPolicy.Builder()
+                .setBurstCount(1)
+                .setPeriodicInterval(30, 30)
+                .build());
+        mScheduler.startPeriodicSearch(Collections.singletonList("st"));
+        Thread.sleep(10);
+        mScheduler.stopPeriodicSearch();
+        assertThat(mScheduler.isPeriodicSearching(), is(false));
+        final int count = mSent.size();
+        Thread.sleep(100);
+        assertThat(mSent, hasSize(count));
+    }
+
+    @Test
+    public void shutdownRequest_送信待ちは破棄される() throws Exception {
+        mScheduler.setPolicy(new SearchPolicy.Builder()
+                .setBurstCount(5)
+                .setBurstInterval(100)
+                .build());
+        mScheduler.search(Collections.singletonList("st"));
+        Thread.sleep(20);
+        mScheduler.shutdownRequest();
+        Thread.sleep(200);
+        assertThat(mSent, hasSize(1));
+        assertThat(mScheduler.getPendingCount(), is(0));
+    }
+
+    @Test(timeout = 5000L)
+    public void search_送信中もブロックされない() throws Exception {
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final SearchScheduler scheduler = new SearchScheduler(mTimerExecutor, new SearchScheduler.Callback() {
+            @Override
+            public void send(
+                    @Nonnull final String st,
+                    final int mx) {
+                sending.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException ignored) {
+                }
+            }
+
+            @Override
+            public int getDeviceCount() {
+                return 0;
+            }
+
+            @Nonnull
+            @Override
+            public Set<String> getDeviceUdnSet() {
+                return Collections.emptySet();
+            }
+        });
+        scheduler.start();
+        try {
+            scheduler.search(Collections.singletonList("st1"));
+            assertThat(sending.await(1, TimeUnit.SECONDS), is(true));
+
+            final CountDownLatch returned = new CountDownLatch(1);
+            new Thread(() -> {
+                scheduler.search(Collections.singletonList("st2"));
+                scheduler.stopPeriodicSearch();
+                returned.countDown();
+            }).start();
+            assertThat(returned.await(1, TimeUnit.SECONDS), is(true));
+        } finally {
+            release.countDown();
+            scheduler.shutdownRequest();
+        }
+    }
+}
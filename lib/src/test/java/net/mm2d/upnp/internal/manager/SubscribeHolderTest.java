@@ -8,11 +8,16 @@
 package net.mm2d.upnp.internal.manager;
 
 import net.mm2d.upnp.Service;
+import net.mm2d.upnp.internal.thread.TaskHandler;
 
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -20,9 +25,21 @@ import static org.mockito.Mockito.*;
 @SuppressWarnings("NonAsciiCharacters")
 @RunWith(JUnit4.class)
 public class SubscribeHolderTest {
+    private TaskHandler mTaskHandler;
+
+    @Before
+    public void setUp() throws Exception {
+        mTaskHandler = new TaskHandler();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mTaskHandler.terminate();
+    }
+
     @Test(timeout = 100L)
     public void start_shutdownRequest_でロックしない() {
-        final SubscribeHolder subscribeHolder = new SubscribeHolder();
+        final SubscribeHolder subscribeHolder = new SubscribeHolder(mTaskHandler);
         subscribeHolder.start();
         subscribeHolder.shutdownRequest();
     }
@@ -32,7 +49,7 @@ public class SubscribeHolderTest {
         final String id = "id";
         final Service service = mock(Service.class);
         doReturn(id).when(service).getSubscriptionId();
-        final SubscribeHolder subscribeHolder = new SubscribeHolder();
+        final SubscribeHolder subscribeHolder = new SubscribeHolder(mTaskHandler);
 
         subscribeHolder.add(service, 1000L, false);
 
@@ -47,7 +64,7 @@ public class SubscribeHolderTest {
         final String id2 = "id2";
         final Service service2 = mock(Service.class);
         doReturn(id2).when(service2).getSubscriptionId();
-        final SubscribeHolder subscribeHolder = new SubscribeHolder();
+        final SubscribeHolder subscribeHolder = new SubscribeHolder(mTaskHandler);
 
         subscribeHolder.add(service1, 1000L, false);
         subscribeHolder.add(service2, 1000L, false);
@@ -69,7 +86,7 @@ public class SubscribeHolderTest {
         final String id2 = "id2";
         final Service service2 = mock(Service.class);
         doReturn(id2).when(service2).getSubscriptionId();
-        final SubscribeHolder subscribeHolder = new SubscribeHolder();
+        final SubscribeHolder subscribeHolder = new SubscribeHolder(mTaskHandler);
 
         subscribeHolder.add(service1, 1000L, false);
         subscribeHolder.add(service2, 1000L, false);
@@ -86,7 +103,7 @@ public class SubscribeHolderTest {
     @Test
     public void getServiceList_subscriptionIdがnullだとaddできない() {
         final Service service1 = mock(Service.class);
-        final SubscribeHolder subscribeHolder = new SubscribeHolder();
+        final SubscribeHolder subscribeHolder = new SubscribeHolder(mTaskHandler);
         subscribeHolder.add(service1, 1000L, false);
 
         assertThat(subscribeHolder.getServiceList(), not(hasItem(service1)));
@@ -100,7 +117,7 @@ public class SubscribeHolderTest {
         final String id2 = "id2";
         final Service service2 = mock(Service.class);
         doReturn(id2).when(service2).getSubscriptionId();
-        final SubscribeHolder subscribeHolder = new SubscribeHolder();
+        final SubscribeHolder subscribeHolder = new SubscribeHolder(mTaskHandler);
 
         subscribeHolder.add(service1, 1000L, false);
         subscribeHolder.add(service2, 1000L, false);
@@ -123,7 +140,7 @@ public class SubscribeHolderTest {
         final String id2 = "id2";
         final Service service2 = mock(Service.class);
         doReturn(id2).when(service2).getSubscriptionId();
-        final SubscribeHolder subscribeHolder = new SubscribeHolder();
+        final SubscribeHolder subscribeHolder = new SubscribeHolder(mTaskHandler);
         subscribeHolder.start();
 
         subscribeHolder.add(service1, 1000L, false);
@@ -156,7 +173,7 @@ public class SubscribeHolderTest {
         doReturn(true).when(service2).renewSubscribe();
         doReturn("id2").when(service2).getSubscriptionId();
 
-        final SubscribeHolder subscribeHolder = new SubscribeHolder();
+        final SubscribeHolder subscribeHolder = new SubscribeHolder(mTaskHandler);
         subscribeHolder.start();
 
         subscribeHolder.add(service1, 1000L, true);
@@ -177,7 +194,7 @@ public class SubscribeHolderTest {
         final Service service = mock(Service.class);
         doReturn(false).when(service).renewSubscribe();
         doReturn(id).when(service).getSubscriptionId();
-        final SubscribeHolder subscribeHolder = new SubscribeHolder();
+        final SubscribeHolder subscribeHolder = new SubscribeHolder(mTaskHandler);
         subscribeHolder.start();
 
         subscribeHolder.add(service, 1000L, true);
@@ -186,4 +203,23 @@ public class SubscribeHolderTest {
 
         subscribeHolder.shutdownRequest();
     }
+
+    @Test(timeout = 10000L)
+    public void renew_IOスレッドで実行される() throws Exception {
+        final Service service = mock(Service.class);
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+        doAnswer(invocation -> {
+            thread.set(Thread.currentThread());
+            return true;
+        }).when(service).renewSubscribe();
+        doReturn("id").when(service).getSubscriptionId();
+        final SubscribeHolder subscribeHolder = new SubscribeHolder(mTaskHandler);
+        subscribeHolder.start();
+
+        subscribeHolder.add(service, 500L, true);
+        verify(service, timeout(3000L).atLeastOnce()).renewSubscribe();
+
+        assertThat(thread.get().getName(), is(not("TimerExecutor")));
+        subscribeHolder.shutdownRequest();
+    }
 }
@@ -10,18 +10,23 @@ package net.mm2d.upnp.internal.manager;
 import net.mm2d.upnp.ControlPoint.NotifyEventListener;
 import net.mm2d.upnp.Service;
 import net.mm2d.upnp.internal.impl.DiFactory;
+import net.mm2d.upnp.internal.impl.ServiceImpl;
 import net.mm2d.upnp.internal.server.EventReceiver;
 import net.mm2d.upnp.internal.server.EventReceiver.EventMessageListener;
+import net.mm2d.upnp.internal.thread.IoTaskType;
 import net.mm2d.upnp.internal.thread.TaskHandler;
 import net.mm2d.util.StringPair;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import javax.annotation.Nonnull;
 
@@ -40,7 +45,7 @@ public class SubscribeManagerTest {
         final DiFactory factory = new DiFactory() {
             @Nonnull
             @Override
-            public SubscribeHolder createSubscribeHolder() {
+            public SubscribeHolder createSubscribeHolder(@Nonnull final TaskHandler taskHandler) {
                 return holder;
             }
         };
@@ -56,7 +61,7 @@ public class SubscribeManagerTest {
         final DiFactory factory = new DiFactory() {
             @Nonnull
             @Override
-            public SubscribeHolder createSubscribeHolder() {
+            public SubscribeHolder createSubscribeHolder(@Nonnull final TaskHandler taskHandler) {
                 return holder;
             }
         };
@@ -70,6 +75,105 @@ public class SubscribeManagerTest {
         handler.terminate();
     }
 
+    @Test
+    public void onEventReceived_Description未読み込みの場合IOスレッドで読み込んでから通知する() throws Exception {
+        final SubscribeHolder holder = mock(SubscribeHolder.class);
+        final TaskHandler handler = mock(TaskHandler.class);
+        doReturn(true).when(handler).io(ArgumentMatchers.any(IoTaskType.class), ArgumentMatchers.any(Runnable.class));
+        doReturn(true).when(handler).callback(ArgumentMatchers.any(Runnable.class));
+        final NotifyEventListener listener = mock(NotifyEventListener.class);
+        final DiFactory factory = new DiFactory() {
+            @Nonnull
+            @Override
+            public SubscribeHolder createSubscribeHolder(@Nonnull final TaskHandler taskHandler) {
+                return holder;
+            }
+        };
+        final SubscribeManager manager = new SubscribeManager(handler, listener, factory);
+        final String sid = "sid";
+        final ServiceImpl service = mock(ServiceImpl.class);
+        doReturn(false).when(service).isDescriptionLoaded();
+        doReturn(true).when(service).loadDescriptionIfNeeded();
+        doReturn(service).when(holder).getService(sid);
+
+        final List<StringPair> properties = Arrays.asList(new StringPair("a", "1"), new StringPair("b", "2"));
+        assertThat(manager.onEventReceived(sid, 0, properties), is(true));
+
+        final ArgumentCaptor<Runnable> ioCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).io(ArgumentMatchers.eq(IoTaskType.SUBSCRIPTION), ioCaptor.capture());
+        verify(handler, never()).callback(ArgumentMatchers.any(Runnable.class));
+        verify(service, never()).loadDescriptionIfNeeded();
+
+        ioCaptor.getValue().run();
+        verify(service, times(1)).loadDescriptionIfNeeded();
+        final ArgumentCaptor<Runnable> callbackCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).callback(callbackCaptor.capture());
+
+        callbackCaptor.getValue().run();
+        verify(service).findStateVariable("a");
+        verify(service).findStateVariable("b");
+    }
+
+    @Test
+    public void onEventReceived_Description読み込みに失敗した場合イベントを破棄する() throws Exception {
+        final SubscribeHolder holder = mock(SubscribeHolder.class);
+        final TaskHandler handler = mock(TaskHandler.class);
+        doReturn(true).when(handler).io(ArgumentMatchers.any(IoTaskType.class), ArgumentMatchers.any(Runnable.class));
+        final NotifyEventListener listener = mock(NotifyEventListener.class);
+        final DiFactory factory = new DiFactory() {
+            @Nonnull
+            @Override
+            public SubscribeHolder createSubscribeHolder(@Nonnull final TaskHandler taskHandler) {
+                return holder;
+            }
+        };
+        final SubscribeManager manager = new SubscribeManager(handler, listener, factory);
+        final String sid = "sid";
+        final ServiceImpl service = mock(ServiceImpl.class);
+        doReturn(false).when(service).isDescriptionLoaded();
+        doReturn(false).when(service).loadDescriptionIfNeeded();
+        doReturn(service).when(holder).getService(sid);
+
+        final List<StringPair> properties = Arrays.asList(new StringPair("a", "1"), new StringPair("b", "2"));
+        assertThat(manager.onEventReceived(sid, 0, properties), is(true));
+
+        final ArgumentCaptor<Runnable> ioCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).io(ArgumentMatchers.eq(IoTaskType.SUBSCRIPTION), ioCaptor.capture());
+        ioCaptor.getValue().run();
+
+        verify(service, times(1)).loadDescriptionIfNeeded();
+        verify(handler, never()).callback(ArgumentMatchers.any(Runnable.class));
+        verify(service, never()).findStateVariable(ArgumentMatchers.anyString());
+        verify(listener, never()).onNotifyEvent(
+                ArgumentMatchers.any(), ArgumentMatchers.anyLong(), ArgumentMatchers.anyString(), ArgumentMatchers.anyString());
+    }
+
+    @Test
+    public void onEventReceived_Description読み込み済みの場合IOスレッドを経由しない() throws Exception {
+        final SubscribeHolder holder = mock(SubscribeHolder.class);
+        final TaskHandler handler = mock(TaskHandler.class);
+        doReturn(true).when(handler).callback(ArgumentMatchers.any(Runnable.class));
+        final NotifyEventListener listener = mock(NotifyEventListener.class);
+        final DiFactory factory = new DiFactory() {
+            @Nonnull
+            @Override
+            public SubscribeHolder createSubscribeHolder(@Nonnull final TaskHandler taskHandler) {
+                return holder;
+            }
+        };
+        final SubscribeManager manager = new SubscribeManager(handler, listener, factory);
+        final String sid = "sid";
+        final ServiceImpl service = mock(ServiceImpl.class);
+        doReturn(true).when(service).isDescriptionLoaded();
+        doReturn(service).when(holder).getService(sid);
+
+        assertThat(manager.onEventReceived(sid, 0, Collections.singletonList(new StringPair("a", "1"))), is(true));
+
+        verify(handler, never()).io(ArgumentMatchers.any(IoTaskType.class), ArgumentMatchers.any(Runnable.class));
+        verify(handler).callback(ArgumentMatchers.any(Runnable.class));
+        verify(service, never()).loadDescriptionIfNeeded();
+    }
+
     @Test
     public void initialize() throws Exception {
         final SubscribeHolder holder = mock(SubscribeHolder.class);
@@ -78,7 +182,7 @@ public class SubscribeManagerTest {
         final DiFactory factory = new DiFactory() {
             @Nonnull
             @Override
-            public SubscribeHolder createSubscribeHolder() {
+            public SubscribeHolder createSubscribeHolder(@Nonnull final TaskHandler taskHandler) {
                 return holder;
             }
         };
@@ -131,7 +235,7 @@ public class SubscribeManagerTest {
         final DiFactory factory = new DiFactory() {
             @Nonnull
             @Override
-            public SubscribeHolder createSubscribeHolder() {
+            public SubscribeHolder createSubscribeHolder(@Nonnull final TaskHandler taskHandler) {
                 return holder;
             }
 
@@ -145,7 +249,7 @@ public class SubscribeManagerTest {
         doReturn(Collections.singletonList(mock(Service.class))).when(holder).getServiceList();
         manager.stop();
 
-        verify(handler).io(ArgumentMatchers.any(Runnable.class));
+        verify(handler).io(ArgumentMatchers.eq(IoTaskType.SUBSCRIPTION), ArgumentMatchers.any(Runnable.class));
         verify(holder).clear();
         verify(receiver).close();
     }
@@ -158,7 +262,7 @@ public class SubscribeManagerTest {
         final DiFactory factory = new DiFactory() {
             @Nonnull
             @Override
-            public SubscribeHolder createSubscribeHolder() {
+            public SubscribeHolder createSubscribeHolder(@Nonnull final TaskHandler taskHandler) {
                 return holder;
             }
         };
@@ -196,7 +300,7 @@ public class SubscribeManagerTest {
         final DiFactory factory = new DiFactory() {
             @Nonnull
             @Override
-            public SubscribeHolder createSubscribeHolder() {
+            public SubscribeHolder createSubscribeHolder(@Nonnull final TaskHandler taskHandler) {
                 return holder;
             }
         };
@@ -218,7 +322,7 @@ public class SubscribeManagerTest {
         final DiFactory factory = new DiFactory() {
             @Nonnull
             @Override
-            public SubscribeHolder createSubscribeHolder() {
+            public SubscribeHolder createSubscribeHolder(@Nonnull final TaskHandler taskHandler) {
                 return holder;
             }
         };
@@ -257,7 +361,7 @@ public class SubscribeManagerTest {
         final DiFactory factory = new DiFactory() {
             @Nonnull
             @Override
-            public SubscribeHolder createSubscribeHolder() {
+            public SubscribeHolder createSubscribeHolder(@Nonnull final TaskHandler taskHandler) {
                 return holder;
             }
         };
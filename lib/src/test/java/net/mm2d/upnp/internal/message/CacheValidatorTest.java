@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.message;
+
+import net.mm2d.upnp.Http;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class CacheValidatorTest {
+    @Test
+    public void from_ETagとLast_Modifiedを取り出す() {
+        final HttpResponse response = new HttpResponse();
+        response.setStatusLine("HTTP/1.1 200 OK");
+        response.setHeader(Http.ETAG, "\"v1\"");
+        response.setHeader(Http.LAST_MODIFIED, "Sun, 01 Jan 2017 00:00:00 GMT");
+        final CacheValidator validator = CacheValidator.from(response);
+        assertThat(validator, is(not(nullValue())));
+        assertThat(validator.getETag(), is("\"v1\""));
+        assertThat(validator.getLastModified(), is("Sun, 01 Jan 2017 00:00:00 GMT"));
+    }
+
+    @Test
+    public void from_いずれも含まれなければnull() {
+        final HttpResponse response = new HttpResponse();
+        response.setStatusLine("HTTP/1.1 200 OK");
+        assertThat(CacheValidator.from(response), is(nullValue()));
+    }
+
+    @Test
+    public void apply_条件ヘッダが設定される() {
+        final HttpRequest request = new HttpRequest();
+        new CacheValidator("\"v1\"", "Sun, 01 Jan 2017 00:00:00 GMT").apply(request);
+        assertThat(request.getHeader(Http.IF_NONE_MATCH), is("\"v1\""));
+        assertThat(request.getHeader(Http.IF_MODIFIED_SINCE), is("Sun, 01 Jan 2017 00:00:00 GMT"));
+    }
+
+    @Test
+    public void apply_値がなければ設定しない() {
+        final HttpRequest request = new HttpRequest();
+        new CacheValidator(null, "Sun, 01 Jan 2017 00:00:00 GMT").apply(request);
+        assertThat(request.getHeader(Http.IF_NONE_MATCH), is(nullValue()));
+        assertThat(request.getHeader(Http.IF_MODIFIED_SINCE), is("Sun, 01 Jan 2017 00:00:00 GMT"));
+    }
+
+    @Test
+    public void equals_同一の値であればtrue() {
+        final CacheValidator validator = new CacheValidator("\"v1\"", null);
+        assertThat(validator, is(new CacheValidator("\"v1\"", null)));
+        assertThat(validator.hashCode(), is(new CacheValidator("\"v1\"", null).hashCode()));
+        assertThat(validator, is(not(new CacheValidator("\"v2\"", null))));
+        assertThat(validator, is(not(new CacheValidator("\"v1\"", "Sun, 01 Jan 2017 00:00:00 GMT"))));
+    }
+}
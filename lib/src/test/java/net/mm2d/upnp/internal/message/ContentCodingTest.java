@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.message;
+
+import net.mm2d.util.TestUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class ContentCodingTest {
+    @Test
+    public void isSupported_gzipとdeflateに対応() {
+        assertThat(ContentCoding.isSupported("gzip"), is(true));
+        assertThat(ContentCoding.isSupported("x-gzip"), is(true));
+        assertThat(ContentCoding.isSupported(" Deflate "), is(true));
+        assertThat(ContentCoding.isSupported("br"), is(false));
+        assertThat(ContentCoding.isSupported("identity"), is(false));
+        assertThat(ContentCoding.isSupported(null), is(false));
+    }
+
+    @Test
+    public void encodeGzip_decodeで元に戻る() throws Exception {
+        final byte[] data = TestUtils.getResourceAsByteArray("cds.xml");
+        final byte[] encoded = ContentCoding.encodeGzip(data);
+        assertThat(encoded.length, is(lessThan(data.length)));
+        assertThat(ContentCoding.decode("gzip", encoded), is(data));
+    }
+
+    @Test
+    public void decode_zlib形式のdeflate() throws Exception {
+        final byte[] data = TestUtils.getResourceAsByteArray("cds.xml");
+        assertThat(ContentCoding.decode("deflate", deflate(data, false)), is(data));
+    }
+
+    @Test
+    public void decode_生のdeflate() throws Exception {
+        final byte[] data = TestUtils.getResourceAsByteArray("cds.xml");
+        assertThat(ContentCoding.decode("deflate", deflate(data, true)), is(data));
+    }
+
+    @Test
+    public void decode_空のボディ() throws Exception {
+        assertThat(ContentCoding.decode("gzip", new byte[0]).length, is(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_未対応の形式はIOException() throws Exception {
+        ContentCoding.decode("br", new byte[]{1, 2, 3});
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_不正なデータはIOException() throws Exception {
+        ContentCoding.decode("gzip", new byte[]{1, 2, 3});
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_復号後のサイズが上限を超える場合IOException() throws Exception {
+        final byte[] encoded = ContentCoding.encodeGzip(new byte[1024 * 1024]);
+        ContentCoding.decode("gzip", encoded, 1024 * 1024 - 1);
+    }
+
+    @Test
+    public void decode_復号後のサイズが上限以内なら復号する() throws Exception {
+        final byte[] data = new byte[1024 * 1024];
+        assertThat(ContentCoding.decode("deflate", deflate(data, false), data.length), is(data));
+    }
+
+    @Test
+    public void acceptsGzip_q値を考慮して判定する() {
+        assertThat(ContentCoding.acceptsGzip("gzip"), is(true));
+        assertThat(ContentCoding.acceptsGzip("deflate, GZIP;q=0.5"), is(true));
+        assertThat(ContentCoding.acceptsGzip("gzip;q=0"), is(false));
+        assertThat(ContentCoding.acceptsGzip("gzip; q=0.0, deflate"), is(false));
+        assertThat(ContentCoding.acceptsGzip("deflate"), is(false));
+        assertThat(ContentCoding.acceptsGzip(""), is(false));
+        assertThat(ContentCoding.acceptsGzip(null), is(false));
+    }
+
+    private static byte[] deflate(
+            final byte[] data,
+            final boolean nowrap) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final DeflaterOutputStream dos = new DeflaterOutputStream(baos, new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap));
+        dos.write(data);
+        dos.close();
+        return baos.toByteArray();
+    }
+}
@@ -267,4 +267,91 @@ public class HttpHeadersTest {
         assertThat(header1.get(name2), is(value2));
         assertThat(header2.get(name2), is(value1));
     }
+
+    @Test
+    public void containsValue_大文字小文字に関係なく判定できる() {
+        final HttpHeaders header = new HttpHeaders();
+        header.put("Connection", "Keep-Alive");
+
+        assertThat(header.containsValue("CONNECTION", "keep-alive"), is(true));
+        assertThat(header.containsValue("connection", "ALIVE"), is(true));
+        assertThat(header.containsValue("connection", "close"), is(false));
+        assertThat(header.containsValue("connection", "keep-alive-timeout"), is(false));
+    }
+
+    @Test
+    public void getName_登録順に取得できる() {
+        final HttpHeaders header = new HttpHeaders();
+        header.put("name1", "value1");
+        header.put("name2", "value2");
+        header.put("NAME1", "value3");
+
+        assertThat(header.getName(0), is("NAME1"));
+        assertThat(header.getValue(0), is("value3"));
+        assertThat(header.getName(1), is("name2"));
+        assertThat(header.getValue(1), is("value2"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getName_範囲外はException() {
+        final HttpHeaders header = new HttpHeaders();
+        header.put("name1", "value1");
+        header.getName(1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getValue_範囲外はException() {
+        new HttpHeaders().getValue(0);
+    }
+
+    @Test
+    public void remove_削除後も登録順が維持される() {
+        final HttpHeaders header = new HttpHeaders();
+        header.put("name1", "value1");
+        header.put("name2", "value2");
+        header.put("name3", "value3");
+        header.remove("name2");
+
+        assertThat(header.size(), is(2));
+        assertThat(header.getName(0), is("name1"));
+        assertThat(header.getName(1), is("name3"));
+        assertThat(header.get("name3"), is("value3"));
+    }
+
+    @Test
+    public void put_初期容量を超えて登録できる() {
+        final HttpHeaders header = new HttpHeaders();
+        for (int i = 0; i < 20; i++) {
+            header.put("name" + i, "value" + i);
+        }
+        assertThat(header.size(), is(20));
+        for (int i = 0; i < 20; i++) {
+            assertThat(header.get("NAME" + i), is("value" + i));
+        }
+        final HttpHeaders copy = new HttpHeaders(header);
+        copy.put("name20", "value20");
+        assertThat(copy.size(), is(21));
+        assertThat(header.size(), is(20));
+    }
+
+    @Test
+    public void hashIgnoreCase_大文字小文字に関係なく同一() {
+        assertThat(HttpHeaders.hashIgnoreCase("Content-Length"), is(HttpHeaders.hashIgnoreCase("CONTENT-LENGTH")));
+        assertThat(HttpHeaders.hashIgnoreCase("content-length"), is("content-length".hashCode()));
+    }
+
+    @Test
+    public void equalsIgnoreCase_大文字小文字に関係なく比較できる() {
+        assertThat(HttpHeaders.equalsIgnoreCase("Content-Length", "CONTENT-LENGTH"), is(true));
+        assertThat(HttpHeaders.equalsIgnoreCase("Content-Length", "Content-Type"), is(false));
+        assertThat(HttpHeaders.equalsIgnoreCase("Content", "Content-Type"), is(false));
+    }
+
+    @Test
+    public void containsIgnoreCase_大文字小文字に関係なく判定できる() {
+        assertThat(HttpHeaders.containsIgnoreCase("gzip, Chunked", "chunked"), is(true));
+        assertThat(HttpHeaders.containsIgnoreCase("chunked", "chunked"), is(true));
+        assertThat(HttpHeaders.containsIgnoreCase("chunk", "chunked"), is(false));
+        assertThat(HttpHeaders.containsIgnoreCase("", ""), is(true));
+    }
 }
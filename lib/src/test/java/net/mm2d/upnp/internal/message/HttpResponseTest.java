@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
+import java.util.zip.DeflaterOutputStream;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
@@ -90,6 +91,73 @@ public class HttpResponseTest {
         assertThat(response.getBody(), is(TestUtils.getResourceAsString("cds.xml")));
     }
 
+    @Test
+    public void readData_符号化されたボディは復号しない() throws IOException {
+        final byte[] encoded = ContentCoding.encodeGzip(TestUtils.getResourceAsString("cds.xml").getBytes("utf-8"));
+        final HttpResponse original = new HttpResponse();
+        original.setStatus(Http.Status.HTTP_OK);
+        original.setHeader(Http.CONTENT_ENCODING, Http.GZIP);
+        original.setBodyBinary(encoded, true);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        original.writeData(baos);
+
+        final HttpResponse response = new HttpResponse()
+                .readData(new ByteArrayInputStream(baos.toByteArray()));
+        assertThat(response.getBodyBinary(), is(encoded));
+        assertThat(response.getHeader(Http.CONTENT_ENCODING), is(Http.GZIP));
+    }
+
+    @Test
+    public void decodeBody_gzipで符号化されたボディを復号する() throws IOException {
+        final String body = TestUtils.getResourceAsString("cds.xml");
+        final HttpResponse original = new HttpResponse();
+        original.setStatus(Http.Status.HTTP_OK);
+        original.setHeader(Http.CONTENT_ENCODING, Http.GZIP);
+        original.setBodyBinary(ContentCoding.encodeGzip(body.getBytes("utf-8")), true);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        original.writeData(baos);
+
+        final HttpResponse response = new HttpResponse()
+                .readData(new ByteArrayInputStream(baos.toByteArray()))
+                .decodeBody();
+        assertThat(response.getBody(), is(body));
+        assertThat(response.getHeader(Http.CONTENT_ENCODING), is(nullValue()));
+        assertThat(response.getHeader(Http.CONTENT_LENGTH), is(String.valueOf(body.getBytes("utf-8").length)));
+    }
+
+    @Test
+    public void decodeBody_Chunkかつdeflateで符号化されたボディを復号する() throws IOException {
+        final String body = TestUtils.getResourceAsString("cds.xml");
+        final ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+        final DeflaterOutputStream dos = new DeflaterOutputStream(deflated);
+        dos.write(body.getBytes("utf-8"));
+        dos.close();
+        final HttpResponse original = new HttpResponse();
+        original.setStatus(Http.Status.HTTP_OK);
+        original.setHeader(Http.TRANSFER_ENCODING, Http.CHUNKED);
+        original.setHeader(Http.CONTENT_ENCODING, Http.DEFLATE);
+        original.setBodyBinary(deflated.toByteArray());
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        original.writeData(baos);
+
+        final HttpResponse response = new HttpResponse()
+                .readData(new ByteArrayInputStream(baos.toByteArray()))
+                .decodeBody();
+        assertThat(response.getBody(), is(body));
+        assertThat(response.getHeader(Http.CONTENT_ENCODING), is(nullValue()));
+    }
+
+    @Test(expected = IOException.class)
+    public void decodeBody_符号化されたボディが不正な場合IOException() throws IOException {
+        final HttpResponse original = new HttpResponse();
+        original.setStatus(Http.Status.HTTP_OK);
+        original.setHeader(Http.CONTENT_ENCODING, Http.GZIP);
+        original.setBody("not gzip", true);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        original.writeData(baos);
+        new HttpResponse().readData(new ByteArrayInputStream(baos.toByteArray())).decodeBody();
+    }
+
     @Test(expected = IOException.class)
     public void readData_読み出せない場合IOException() throws Exception {
         new HttpResponse().readData(new ByteArrayInputStream("\n".getBytes()));
@@ -10,6 +10,7 @@ package net.mm2d.upnp.internal.parser;
 import net.mm2d.upnp.ControlPoint;
 import net.mm2d.upnp.Device;
 import net.mm2d.upnp.HttpClient;
+import net.mm2d.upnp.Service;
 import net.mm2d.upnp.SsdpMessage;
 import net.mm2d.upnp.internal.impl.ControlPointImpl;
 import net.mm2d.upnp.internal.impl.DeviceImpl;
@@ -204,6 +205,77 @@ public class DeviceParserTest {
             final Device device1 = device.findDeviceByType("urn:schemas-upnp-org:device:WANDevice:1");
             assertThat(device1.getSsdpMessage(), is(message));
         }
+
+        @Test
+        public void revalidateDescription_変更がなければfalse() throws Exception {
+            doReturn(TestUtils.getResourceAsString("device.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/device.xml"));
+            final DeviceImpl.Builder builder = new DeviceImpl.Builder(mControlPoint, mSubscribeManager, mSsdpMessage);
+            DeviceParser.loadDescription(mHttpClient, builder);
+            final DeviceImpl device = builder.build();
+
+            final DeviceImpl.Builder newBuilder = new DeviceImpl.Builder(mControlPoint, mSubscribeManager, mSsdpMessage);
+            assertThat(DeviceParser.revalidateDescription(mHttpClient, newBuilder, device, false), is(false));
+            verify(mHttpClient).downloadStringIfModified(new URL("http://192.0.2.2:12345/cds.xml"), null);
+            verify(mHttpClient, times(1)).downloadString(new URL("http://192.0.2.2:12345/cds.xml"));
+
+            final Device newDevice = newBuilder.build();
+            assertThat(newDevice.getServiceList(), hasSize(3));
+            final Service cds = newDevice.findServiceByType("urn:schemas-upnp-org:service:ContentDirectory:1");
+            assertThat(cds.getDescription(), is(TestUtils.getResourceAsString("cds.xml")));
+            assertThat(cds.findAction("Browse"), is(not(nullValue())));
+        }
+
+        @Test
+        public void revalidateDescription_SCPDに変更があればtrue() throws Exception {
+            doReturn(TestUtils.getResourceAsString("device.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/device.xml"));
+            final DeviceImpl.Builder builder = new DeviceImpl.Builder(mControlPoint, mSubscribeManager, mSsdpMessage);
+            DeviceParser.loadDescription(mHttpClient, builder);
+            final DeviceImpl device = builder.build();
+
+            final String cms = TestUtils.getResourceAsString("cms.xml")
+                    .replace("GetProtocolInfo", "GetProtocolInfoEx");
+            doReturn(cms).when(mHttpClient)
+                    .downloadStringIfModified(new URL("http://192.0.2.2:12345/cms.xml"), null);
+            final DeviceImpl.Builder newBuilder = new DeviceImpl.Builder(mControlPoint, mSubscribeManager, mSsdpMessage);
+            assertThat(DeviceParser.revalidateDescription(mHttpClient, newBuilder, device, false), is(true));
+
+            final Service service = newBuilder.build()
+                    .findServiceByType("urn:schemas-upnp-org:service:ConnectionManager:1");
+            assertThat(service.findAction("GetProtocolInfoEx"), is(not(nullValue())));
+        }
+
+        @Test
+        public void revalidateDescription_Descriptionに変更があればtrue() throws Exception {
+            doReturn(TestUtils.getResourceAsString("device.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/device.xml"));
+            final DeviceImpl.Builder builder = new DeviceImpl.Builder(mControlPoint, mSubscribeManager, mSsdpMessage);
+            DeviceParser.loadDescription(mHttpClient, builder);
+            final DeviceImpl device = builder.build();
+
+            final String description = TestUtils.getResourceAsString("device.xml")
+                    .replace("<friendlyName>mmupnp</friendlyName>", "<friendlyName>renamed</friendlyName>");
+            doReturn(description).when(mHttpClient)
+                    .downloadStringIfModified(new URL("http://192.0.2.2:12345/device.xml"), null);
+            final DeviceImpl.Builder newBuilder = new DeviceImpl.Builder(mControlPoint, mSubscribeManager, mSsdpMessage);
+            assertThat(DeviceParser.revalidateDescription(mHttpClient, newBuilder, device, false), is(true));
+            assertThat(newBuilder.build().getFriendlyName(), is("renamed"));
+        }
+
+        @Test
+        public void revalidateDescription_未読み込みのServiceは遅延読み込みのまま() throws Exception {
+            doReturn(TestUtils.getResourceAsString("device.xml"))
+                    .when(mHttpClient).downloadString(new URL("http://192.0.2.2:12345/device.xml"));
+            final DeviceImpl.Builder builder = new DeviceImpl.Builder(mControlPoint, mSubscribeManager, mSsdpMessage);
+            DeviceParser.loadDescription(mHttpClient, builder, true);
+            final DeviceImpl device = builder.build();
+
+            final DeviceImpl.Builder newBuilder = new DeviceImpl.Builder(mControlPoint, mSubscribeManager, mSsdpMessage);
+            assertThat(DeviceParser.revalidateDescription(mHttpClient, newBuilder, device, true), is(false));
+            verify(mHttpClient, never()).downloadStringIfModified(new URL("http://192.0.2.2:12345/cds.xml"), null);
+            verify(mHttpClient, never()).downloadString(new URL("http://192.0.2.2:12345/cds.xml"));
+        }
     }
 
     @RunWith(JUnit4.class)
@@ -10,13 +10,18 @@ package net.mm2d.upnp.internal.parser;
 import net.mm2d.upnp.HttpClient;
 import net.mm2d.upnp.internal.impl.DeviceImpl;
 import net.mm2d.upnp.internal.impl.ServiceImpl;
+import net.mm2d.upnp.internal.message.CacheValidator;
+import net.mm2d.util.TestUtils;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import java.io.IOException;
+import java.net.URL;
 
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 @SuppressWarnings("NonAsciiCharacters")
@@ -26,4 +31,30 @@ public class ServiceParserTest {
     public void loadDescription_パラメータがとれないとException() throws Exception {
         ServiceParser.loadDescription(mock(HttpClient.class), mock(DeviceImpl.Builder.class), mock(ServiceImpl.Builder.class));
     }
+
+    @Test
+    public void revalidateDescription_変更がなければBuilderに登録しない() throws Exception {
+        final HttpClient client = mock(HttpClient.class);
+        final URL url = new URL("http://192.0.2.2:12345/cds.xml");
+        final CacheValidator validator = new CacheValidator("\"v1\"", null);
+        final ServiceImpl.Builder builder = mock(ServiceImpl.Builder.class);
+        assertThat(ServiceParser.revalidateDescription(client, url, builder, validator), is(false));
+        verify(client).downloadStringIfModified(url, validator);
+        verifyZeroInteractions(builder);
+    }
+
+    @Test
+    public void revalidateDescription_変更があればパースして検証子を登録する() throws Exception {
+        final HttpClient client = mock(HttpClient.class);
+        final URL url = new URL("http://192.0.2.2:12345/cds.xml");
+        final CacheValidator validator = new CacheValidator("\"v1\"", null);
+        final CacheValidator newValidator = new CacheValidator("\"v2\"", null);
+        final String description = TestUtils.getResourceAsString("cds.xml");
+        doReturn(description).when(client).downloadStringIfModified(url, validator);
+        doReturn(newValidator).when(client).getCacheValidator();
+        final ServiceImpl.Builder builder = new ServiceImpl.Builder();
+        assertThat(ServiceParser.revalidateDescription(client, url, builder, validator), is(true));
+        assertThat(builder.getDescription(), is(description));
+        verify(client).getCacheValidator();
+    }
 }
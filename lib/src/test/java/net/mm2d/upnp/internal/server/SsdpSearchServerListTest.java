@@ -17,6 +17,8 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.NetworkInterface;
 import java.util.Collections;
 
@@ -98,4 +100,35 @@ public class SsdpSearchServerListTest {
 
         verify(server, times(1)).search("");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void search_MX指定() {
+        final SsdpSearchServerList list = spy(new SsdpSearchServerList());
+        final SsdpSearchServer server = mock(SsdpSearchServer.class);
+        final ResponseListener listener = mock(ResponseListener.class);
+        doReturn(server).when(list).newSsdpSearchServer(eq(Address.IP_V4), any(NetworkInterface.class), eq(listener));
+
+        final NetworkInterface nif = NetworkUtils.getAvailableInet4Interfaces().get(0);
+        list.init(Protocol.DEFAULT, Collections.singletonList(nif), listener);
+
+        list.search("upnp:rootdevice", 3);
+
+        verify(server, times(1)).search("upnp:rootdevice", 3);
+    }
+
+    @Test
+    public void searchUnicast() throws Exception {
+        final SsdpSearchServerList list = spy(new SsdpSearchServerList());
+        final SsdpSearchServer server = mock(SsdpSearchServer.class);
+        final ResponseListener listener = mock(ResponseListener.class);
+        doReturn(server).when(list).newSsdpSearchServer(eq(Address.IP_V4), any(NetworkInterface.class), eq(listener));
+
+        final NetworkInterface nif = NetworkUtils.getAvailableInet4Interfaces().get(0);
+        list.init(Protocol.DEFAULT, Collections.singletonList(nif), listener);
+
+        final InetSocketAddress address = new InetSocketAddress(InetAddress.getByName("192.0.2.2"), 1900);
+        list.searchUnicast("uuid:01234567-89ab-cdef-0123-456789abcdef", address);
+
+        verify(server, times(1)).searchUnicast("uuid:01234567-89ab-cdef-0123-456789abcdef", address);
+    }
+}
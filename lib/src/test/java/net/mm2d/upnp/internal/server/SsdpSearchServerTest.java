@@ -28,6 +28,7 @@ import org.mockito.Mockito;
 
 import java.net.DatagramPacket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.InterfaceAddress;
 import java.net.NetworkInterface;
 
@@ -84,6 +85,128 @@ public class SsdpSearchServerTest {
         assertThat(message.getHeader(Http.MAN), is(SsdpMessage.SSDP_DISCOVER));
     }
 
+    @Test
+    public void search_MXを指定したサーチ() throws Exception {
+        final NetworkInterface networkInterface = NetworkUtils.getAvailableInet4Interfaces().get(0);
+        final SsdpServerDelegate delegate = spy(new SsdpServerDelegate(mock(Receiver.class), Address.IP_V4, networkInterface));
+        final InterfaceAddress interfaceAddress = TestUtils.createInterfaceAddress("192.0.2.2", "255.255.255.0", 16);
+        doReturn(interfaceAddress).when(delegate).getInterfaceAddress();
+        final MockMulticastSocket socket = new MockMulticastSocket();
+        doReturn(socket).when(delegate).createMulticastSocket(anyInt());
+        final SsdpSearchServer server = Mockito.spy(new SsdpSearchServer(delegate));
+        server.open();
+        server.start();
+        server.search(SsdpSearchServer.ST_ROOTDEVICE, 3);
+        server.stop();
+        server.close();
+
+        final DatagramPacket packet = socket.getSendPacket();
+        final SsdpRequest message = new SsdpRequest(
+                mock(InetAddress.class), packet.getData(), packet.getLength());
+        assertThat(message.getHeader(Http.ST), is(SsdpSearchServer.ST_ROOTDEVICE));
+        assertThat(message.getHeader(Http.MX), is("3"));
+    }
+
+    @Test
+    public void search_同一のSTとMXであればエンコード済みのデータとパケットを使い回す() throws Exception {
+        final NetworkInterface networkInterface = NetworkUtils.getAvailableInet4Interfaces().get(0);
+        final SsdpServerDelegate delegate = spy(new SsdpServerDelegate(mock(Receiver.class), Address.IP_V4, networkInterface));
+        final MockMulticastSocket socket = new MockMulticastSocket();
+        doReturn(socket).when(delegate).createMulticastSocket(anyInt());
+        final SsdpSearchServer server = new SsdpSearchServer(delegate);
+        server.open();
+        server.search(SsdpSearchServer.ST_ROOTDEVICE, 3);
+        final DatagramPacket packet1 = socket.getSendPacket();
+        final byte[] data1 = packet1.getData();
+        server.search(SsdpSearchServer.ST_ROOTDEVICE, 3);
+        final DatagramPacket packet2 = socket.getSendPacket();
+        server.close();
+
+        assertThat(packet2, is(sameInstance(packet1)));
+        assertThat(packet2.getData(), is(sameInstance(data1)));
+        assertThat(packet2.getSocketAddress(), is(Address.IP_V4.getSocketAddress()));
+    }
+
+    @Test
+    public void getSearchMessage_STかMXが異なれば作り直す() throws Exception {
+        final NetworkInterface networkInterface = NetworkUtils.getAvailableInet4Interfaces().get(0);
+        final SsdpServerDelegate delegate = new SsdpServerDelegate(mock(Receiver.class), Address.IP_V4, networkInterface);
+        final SsdpSearchServer server = new SsdpSearchServer(delegate);
+        final byte[] data = server.getSearchMessage(SsdpSearchServer.ST_ALL, 1);
+        assertThat(server.getSearchMessage(SsdpSearchServer.ST_ALL, 1), is(sameInstance(data)));
+        assertThat(server.getSearchMessage(SsdpSearchServer.ST_ROOTDEVICE, 1), is(not(sameInstance(data))));
+
+        final byte[] data2 = server.getSearchMessage(SsdpSearchServer.ST_ALL, 2);
+        assertThat(data2, is(not(sameInstance(data))));
+        final SsdpRequest message = new SsdpRequest(mock(InetAddress.class), data2, data2.length);
+        assertThat(message.getHeader(Http.HOST), is(Address.IP_V4.getAddressString()));
+        assertThat(message.getHeader(Http.ST), is(SsdpSearchServer.ST_ALL));
+        assertThat(message.getHeader(Http.MX), is("2"));
+    }
+
+    @Test
+    public void getSearchMessage_MXが交互に変化してもキャッシュを使用する() throws Exception {
+        final NetworkInterface networkInterface = NetworkUtils.getAvailableInet4Interfaces().get(0);
+        final SsdpServerDelegate delegate = new SsdpServerDelegate(mock(Receiver.class), Address.IP_V4, networkInterface);
+        final SsdpSearchServer server = new SsdpSearchServer(delegate);
+        final byte[] data1 = server.getSearchMessage(SsdpSearchServer.ST_ALL, 1);
+        final byte[] data2 = server.getSearchMessage(SsdpSearchServer.ST_ALL, 2);
+
+        assertThat(server.getSearchMessage(SsdpSearchServer.ST_ALL, 1), is(sameInstance(data1)));
+        assertThat(server.getSearchMessage(SsdpSearchServer.ST_ALL, 2), is(sameInstance(data2)));
+    }
+
+    @Test
+    public void getSearchMessage_上限を超えたら最も古く使用されたものから破棄する() throws Exception {
+        final NetworkInterface networkInterface = NetworkUtils.getAvailableInet4Interfaces().get(0);
+        final SsdpServerDelegate delegate = new SsdpServerDelegate(mock(Receiver.class), Address.IP_V4, networkInterface);
+        final SsdpSearchServer server = new SsdpSearchServer(delegate);
+        final byte[] data1 = server.getSearchMessage("st1", 1);
+        final byte[] data2 = server.getSearchMessage("st2", 1);
+        for (int i = 0; i < 14; i++) {
+            server.getSearchMessage("st", i);
+        }
+        assertThat(server.getSearchMessage("st1", 1), is(sameInstance(data1)));
+        server.getSearchMessage("st", 14);
+
+        assertThat(server.getSearchMessage("st1", 1), is(sameInstance(data1)));
+        assertThat(server.getSearchMessage("st2", 1), is(not(sameInstance(data2))));
+    }
+
+    @Test
+    public void searchUnicast_指定アドレスに送信される() throws Exception {
+        final NetworkInterface networkInterface = NetworkUtils.getAvailableInet4Interfaces().get(0);
+        final SsdpServerDelegate delegate = spy(new SsdpServerDelegate(mock(Receiver.class), Address.IP_V4, networkInterface));
+        final InterfaceAddress interfaceAddress = TestUtils.createInterfaceAddress("192.0.2.2", "255.255.255.0", 16);
+        doReturn(interfaceAddress).when(delegate).getInterfaceAddress();
+        final MockMulticastSocket socket = new MockMulticastSocket();
+        doReturn(socket).when(delegate).createMulticastSocket(anyInt());
+        final SsdpSearchServer server = new SsdpSearchServer(delegate);
+        server.open();
+        final InetSocketAddress address = new InetSocketAddress(InetAddress.getByName("192.0.2.3"), 50000);
+        assertThat(server.searchUnicast("uuid:01234567-89ab-cdef-0123-456789abcdef", address), is(true));
+        server.close();
+
+        final DatagramPacket packet = socket.getSendPacket();
+        assertThat(packet.getSocketAddress(), is(address));
+        final SsdpRequest message = new SsdpRequest(
+                mock(InetAddress.class), packet.getData(), packet.getLength());
+        assertThat(message.getMethod(), is(SsdpMessage.M_SEARCH));
+        assertThat(message.getHeader(Http.HOST), is("192.0.2.3:50000"));
+        assertThat(message.getHeader(Http.ST), is("uuid:01234567-89ab-cdef-0123-456789abcdef"));
+        assertThat(message.getHeader(Http.MX), is(nullValue()));
+    }
+
+    @Test
+    public void searchUnicast_アドレスファミリーが異なれば送信しない() throws Exception {
+        final SsdpServerDelegate delegate = mock(SsdpServerDelegate.class);
+        doReturn(Address.IP_V4).when(delegate).getAddress();
+        final SsdpSearchServer server = new SsdpSearchServer(delegate);
+        final InetSocketAddress address = new InetSocketAddress(InetAddress.getByName("fe80::1"), 1900);
+        assertThat(server.searchUnicast("uuid:01234567-89ab-cdef-0123-456789abcdef", address), is(false));
+        verify(delegate, never()).send(ArgumentMatchers.any(SsdpMessage.class), ArgumentMatchers.any(InetSocketAddress.class));
+    }
+
     @Test
     public void setResponseListener_受信メッセージが通知されること() throws Exception {
         final SsdpServerDelegate delegate = mock(SsdpServerDelegate.class);
@@ -26,6 +26,7 @@ import org.mockito.ArgumentMatchers;
 import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.InterfaceAddress;
 import java.net.MulticastSocket;
 import java.net.NetworkInterface;
@@ -198,6 +199,29 @@ public class SsdpServerDelegateTest {
         assertThat(new String(packet.getData()), is(message.getMessage().getMessageString()));
     }
 
+    @Test
+    public void send_DatagramPacketを使い回す() throws IOException {
+        final NetworkInterface networkInterface = NetworkUtils.getAvailableInet4Interfaces().get(0);
+        final SsdpServerDelegate server = spy(new SsdpServerDelegate(mock(Receiver.class), Address.IP_V4, networkInterface));
+        final MockMulticastSocket socket = spy(new MockMulticastSocket());
+        doReturn(socket).when(server).createMulticastSocket(anyInt());
+        final InetSocketAddress address = new InetSocketAddress(InetAddress.getByName("192.0.2.3"), 50000);
+
+        server.open();
+        server.send(new byte[]{1, 2, 3});
+        final DatagramPacket packet = socket.getSendPacket();
+        assertThat(packet.getSocketAddress(), is(Address.IP_V4.getSocketAddress()));
+        assertThat(packet.getLength(), is(3));
+
+        final SsdpRequest message = new SsdpRequest();
+        message.setMethod(SsdpMessage.M_SEARCH);
+        message.setUri("*");
+        server.send(message, address);
+        assertThat(socket.getSendPacket(), is(sameInstance(packet)));
+        assertThat(packet.getSocketAddress(), is(address));
+        assertThat(new String(packet.getData()), is(message.getMessage().getMessageString()));
+    }
+
     @Test
     public void send_socketでExceptionが発生したら無視する() throws IOException {
         final NetworkInterface networkInterface = NetworkUtils.getAvailableInet4Interfaces().get(0);
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.thread;
+
+import net.mm2d.upnp.ControlPoint.SsdpReceiveStats;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class BatchDispatcherTest {
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_バッチサイズ0以下はException() {
+        new BatchDispatcher<String>(4, 0, task -> true, element -> {
+        });
+    }
+
+    @Test
+    public void offer_消費タスクは一つだけ依頼される() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<String> handled = new ArrayList<>();
+        final BatchDispatcher<String> dispatcher = new BatchDispatcher<>(8, 8, tasks::add, handled::add);
+        dispatcher.offer("1");
+        dispatcher.offer("2");
+        dispatcher.offer("3");
+        assertThat(tasks, hasSize(1));
+        assertThat(handled, is(empty()));
+
+        tasks.get(0).run();
+        assertThat(handled, is(Arrays.asList("1", "2", "3")));
+        assertThat(tasks, hasSize(1));
+
+        dispatcher.offer("4");
+        assertThat(tasks, hasSize(2));
+    }
+
+    @Test
+    public void drain_バッチサイズを超える分は再依頼される() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<String> handled = new ArrayList<>();
+        final BatchDispatcher<String> dispatcher = new BatchDispatcher<>(8, 2, tasks::add, handled::add);
+        dispatcher.offer("1");
+        dispatcher.offer("2");
+        dispatcher.offer("3");
+        tasks.get(0).run();
+        assertThat(handled, is(Arrays.asList("1", "2")));
+        assertThat(tasks, hasSize(2));
+        tasks.get(1).run();
+        assertThat(handled, is(Arrays.asList("1", "2", "3")));
+        assertThat(tasks, hasSize(2));
+    }
+
+    @Test
+    public void offer_満杯なら破棄してfalse() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final BatchDispatcher<String> dispatcher = new BatchDispatcher<>(2, 8, tasks::add, element -> {
+        });
+        assertThat(dispatcher.offer("1"), is(true));
+        assertThat(dispatcher.offer("2"), is(true));
+        assertThat(dispatcher.offer("3"), is(false));
+        final SsdpReceiveStats stats = dispatcher.getStats();
+        assertThat(stats.getReceivedCount(), is(3L));
+        assertThat(stats.getDroppedCount(), is(1L));
+        assertThat(stats.getOccupancy(), is(2));
+        assertThat(stats.getCapacity(), is(2));
+    }
+
+    @Test
+    public void offer_依頼に失敗しても次の投入で再依頼する() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final AtomicInteger attempt = new AtomicInteger();
+        final List<String> handled = new ArrayList<>();
+        final BatchDispatcher<String> dispatcher = new BatchDispatcher<>(8, 8, task -> {
+            if (attempt.getAndIncrement() == 0) {
+                return false;
+            }
+            return tasks.add(task);
+        }, handled::add);
+        dispatcher.offer("1");
+        assertThat(tasks, is(empty()));
+        dispatcher.offer("2");
+        assertThat(tasks, hasSize(1));
+        tasks.get(0).run();
+        assertThat(handled, is(Arrays.asList("1", "2")));
+    }
+
+    @Test
+    public void drain_Handlerの例外は後続の処理に影響しない() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<String> handled = new ArrayList<>();
+        final BatchDispatcher<String> dispatcher = new BatchDispatcher<>(8, 8, tasks::add, element -> {
+            if (element.equals("2")) {
+                throw new RuntimeException();
+            }
+            handled.add(element);
+        });
+        dispatcher.offer("1");
+        dispatcher.offer("2");
+        dispatcher.offer("3");
+        tasks.get(0).run();
+        assertThat(handled, is(Arrays.asList("1", "3")));
+    }
+
+    @Test
+    public void getStats_バッチサイズが集計される() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final BatchDispatcher<String> dispatcher = new BatchDispatcher<>(8, 8, tasks::add, element -> {
+        });
+        dispatcher.offer("1");
+        dispatcher.offer("2");
+        dispatcher.offer("3");
+        tasks.get(0).run();
+        dispatcher.offer("4");
+        tasks.get(1).run();
+
+        final SsdpReceiveStats stats = dispatcher.getStats();
+        assertThat(stats.getReceivedCount(), is(4L));
+        assertThat(stats.getDroppedCount(), is(0L));
+        assertThat(stats.getBatchCount(), is(2L));
+        assertThat(stats.getMaxBatchSize(), is(3));
+        assertThat(stats.getAverageBatchSize(), is(2.0));
+        assertThat(stats.getMaxOccupancy(), is(3));
+        assertThat(stats.getOccupancy(), is(0));
+    }
+
+    @Test
+    public void getStats_未実行なら平均は0() {
+        final BatchDispatcher<String> dispatcher = new BatchDispatcher<>(task -> true, element -> {
+        });
+        final SsdpReceiveStats stats = dispatcher.getStats();
+        assertThat(stats.getCapacity(), is(BatchDispatcher.DEFAULT_CAPACITY));
+        assertThat(stats.getAverageBatchSize(), is(0.0));
+    }
+
+    @Test(timeout = 10000L)
+    public void offer_複数スレッドから投入しても全て処理される() throws Exception {
+        final int producers = 4;
+        final int count = 5000;
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final AtomicInteger handled = new AtomicInteger();
+        final BatchDispatcher<Integer> dispatcher = new BatchDispatcher<>(64, 16, task -> {
+            executor.execute(task);
+            return true;
+        }, element -> handled.incrementAndGet());
+        final Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < count; i++) {
+                    while (!dispatcher.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        while (handled.get() < producers * count) {
+            Thread.sleep(10);
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+        final SsdpReceiveStats stats = dispatcher.getStats();
+        assertThat(stats.getReceivedCount() - stats.getDroppedCount(), is((long) producers * count));
+        assertThat(stats.getMaxBatchSize(), lessThanOrEqualTo(16));
+    }
+}
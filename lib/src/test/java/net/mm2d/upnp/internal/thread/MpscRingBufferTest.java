@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.thread;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class MpscRingBufferTest {
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_0以下はException() {
+        new MpscRingBuffer<String>(0);
+    }
+
+    @Test
+    public void capacity_2のべき乗に切り上げられる() {
+        assertThat(new MpscRingBuffer<String>(1).capacity(), is(1));
+        assertThat(new MpscRingBuffer<String>(5).capacity(), is(8));
+        assertThat(new MpscRingBuffer<String>(16).capacity(), is(16));
+    }
+
+    @Test
+    public void poll_空ならnull() {
+        final MpscRingBuffer<String> buffer = new MpscRingBuffer<>(4);
+        assertThat(buffer.poll(), is(nullValue()));
+        assertThat(buffer.isEmpty(), is(true));
+    }
+
+    @Test
+    public void offer_poll_投入順に取り出せる() {
+        final MpscRingBuffer<String> buffer = new MpscRingBuffer<>(4);
+        assertThat(buffer.offer("1"), is(true));
+        assertThat(buffer.offer("2"), is(true));
+        assertThat(buffer.offer("3"), is(true));
+        assertThat(buffer.size(), is(3));
+        assertThat(buffer.poll(), is("1"));
+        assertThat(buffer.poll(), is("2"));
+        assertThat(buffer.poll(), is("3"));
+        assertThat(buffer.poll(), is(nullValue()));
+        assertThat(buffer.size(), is(0));
+    }
+
+    @Test
+    public void offer_満杯ならfalse() {
+        final MpscRingBuffer<String> buffer = new MpscRingBuffer<>(2);
+        assertThat(buffer.offer("1"), is(true));
+        assertThat(buffer.offer("2"), is(true));
+        assertThat(buffer.offer("3"), is(false));
+        assertThat(buffer.size(), is(2));
+        assertThat(buffer.poll(), is("1"));
+        assertThat(buffer.offer("3"), is(true));
+        assertThat(buffer.poll(), is("2"));
+        assertThat(buffer.poll(), is("3"));
+    }
+
+    @Test
+    public void offer_poll_周回しても順序が保たれる() {
+        final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        for (int i = 0; i < 100; i++) {
+            assertThat(buffer.offer(i), is(true));
+            assertThat(buffer.poll(), is(i));
+        }
+        assertThat(buffer.isEmpty(), is(true));
+    }
+
+    @Test(timeout = 10000L)
+    public void offer_複数スレッドから投入しても欠落しない() throws Exception {
+        final int producers = 4;
+        final int count = 10000;
+        final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(64);
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (final InterruptedException ignored) {
+                    return;
+                }
+                for (int i = 0; i < count; i++) {
+                    final Integer value = id * count + i;
+                    while (!buffer.offer(value)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        start.countDown();
+        final int[] last = new int[producers];
+        for (int p = 0; p < producers; p++) {
+            last[p] = -1;
+        }
+        int received = 0;
+        while (received < producers * count) {
+            final Integer value = buffer.poll();
+            if (value == null) {
+                Thread.yield();
+                continue;
+            }
+            final int id = value / count;
+            final int seq = value % count;
+            // 同一生産者の要素は投入順に取り出される
+            assertThat(seq, is(last[id] + 1));
+            last[id] = seq;
+            received++;
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(buffer.poll(), is(nullValue()));
+    }
+}
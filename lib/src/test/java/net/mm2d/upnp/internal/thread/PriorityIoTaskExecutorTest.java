@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.thread;
+
+import net.mm2d.upnp.internal.thread.IoTaskPolicy.Rejection;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class PriorityIoTaskExecutorTest {
+    private PriorityIoTaskExecutor mExecutor;
+    private Semaphore mBlocker;
+    private int mThreads;
+    private List<String> mResult;
+
+    @Before
+    public void setUp() throws Exception {
+        final Map<IoTaskType, IoTaskPolicy> policies = new EnumMap<>(IoTaskType.class);
+        policies.put(IoTaskType.SSDP, new IoTaskPolicy(0, 2, Rejection.DISCARD_OLDEST));
+        policies.put(IoTaskType.DESCRIPTION, new IoTaskPolicy(1, 2, Rejection.REJECT));
+        mExecutor = new PriorityIoTaskExecutor(policies);
+        mBlocker = new Semaphore(0);
+        mResult = Collections.synchronizedList(new ArrayList<>());
+        // ワーカースレッドを全て埋めて、以降のタスクを実行待ちにする
+        mThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        final CountDownLatch started = new CountDownLatch(mThreads);
+        for (int i = 0; i < mThreads; i++) {
+            mExecutor.execute(IoTaskType.USER_INVOKE, () -> {
+                started.countDown();
+                try {
+                    mBlocker.acquire();
+                } catch (final InterruptedException ignored) {
+                }
+            });
+        }
+        assertThat(started.await(1, TimeUnit.SECONDS), is(true));
+    }
+
+    @After
+    public void tearDown() {
+        mBlocker.release(mThreads);
+        mExecutor.terminate();
+    }
+
+    private Runnable record(final String name) {
+        return () -> mResult.add(name);
+    }
+
+    @Test
+    public void execute_優先度の高い種別から実行される() throws Exception {
+        mExecutor.execute(IoTaskType.SSDP, record("ssdp"));
+        mExecutor.execute(IoTaskType.DESCRIPTION, record("description1"));
+        mExecutor.execute(IoTaskType.SUBSCRIPTION, record("subscription"));
+        mExecutor.execute(IoTaskType.DESCRIPTION, record("description2"));
+        final CountDownLatch finished = new CountDownLatch(1);
+        mExecutor.execute(IoTaskType.USER_INVOKE, () -> {
+            mResult.add("invoke");
+            finished.countDown();
+        });
+        // 一つのワーカースレッドだけを解放し、順に実行させる
+        mBlocker.release();
+        assertThat(finished.await(1, TimeUnit.SECONDS), is(true));
+        Thread.sleep(100);
+
+        assertThat(mResult, contains("invoke", "subscription", "description1", "description2", "ssdp"));
+    }
+
+    @Test
+    public void getQueueDepth_種別毎の実行待ちの数を返す() {
+        mExecutor.execute(IoTaskType.SSDP, record("ssdp"));
+        mExecutor.execute(IoTaskType.DESCRIPTION, record("description1"));
+        mExecutor.execute(IoTaskType.DESCRIPTION, record("description2"));
+
+        assertThat(mExecutor.getQueueDepth(IoTaskType.SSDP), is(1));
+        assertThat(mExecutor.getQueueDepth(IoTaskType.DESCRIPTION), is(2));
+        assertThat(mExecutor.getQueueDepth(IoTaskType.SUBSCRIPTION), is(0));
+        assertThat(mExecutor.getQueueDepth(IoTaskType.USER_INVOKE), is(0));
+    }
+
+    @Test
+    public void execute_REJECTの場合上限を超えると拒否される() {
+        assertThat(mExecutor.execute(IoTaskType.DESCRIPTION, record("description1")), is(true));
+        assertThat(mExecutor.execute(IoTaskType.DESCRIPTION, record("description2")), is(true));
+        assertThat(mExecutor.execute(IoTaskType.DESCRIPTION, record("description3")), is(false));
+
+        assertThat(mExecutor.getQueueDepth(IoTaskType.DESCRIPTION), is(2));
+        assertThat(mExecutor.getRejectedCount(IoTaskType.DESCRIPTION), is(1L));
+    }
+
+    @Test
+    public void execute_DISCARD_OLDESTの場合上限を超えると古いものが破棄される() throws Exception {
+        assertThat(mExecutor.execute(IoTaskType.SSDP, record("ssdp1")), is(true));
+        assertThat(mExecutor.execute(IoTaskType.SSDP, record("ssdp2")), is(true));
+        assertThat(mExecutor.execute(IoTaskType.SSDP, record("ssdp3")), is(true));
+
+        assertThat(mExecutor.getQueueDepth(IoTaskType.SSDP), is(2));
+        assertThat(mExecutor.getRejectedCount(IoTaskType.SSDP), is(1L));
+
+        mBlocker.release(mThreads);
+        Thread.sleep(200);
+        assertThat(mResult, contains("ssdp2", "ssdp3"));
+        assertThat(mExecutor.getQueueDepth(IoTaskType.SSDP), is(0));
+    }
+
+    @Test
+    public void execute_DISCARD_OLDESTで大量に溢れても最新のものが残る() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            assertThat(mExecutor.execute(IoTaskType.SSDP, record("ssdp" + i)), is(true));
+        }
+        assertThat(mExecutor.getQueueDepth(IoTaskType.SSDP), is(2));
+        assertThat(mExecutor.getRejectedCount(IoTaskType.SSDP), is(998L));
+
+        mBlocker.release(mThreads);
+        Thread.sleep(200);
+        assertThat(mResult, contains("ssdp998", "ssdp999"));
+    }
+
+    @Test
+    public void execute_SSDPが溢れてもSSDP_DISPATCHのタスクは破棄されない() throws Exception {
+        final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        final BatchDispatcher<String> dispatcher = new BatchDispatcher<>(
+                task -> mExecutor.execute(IoTaskType.SSDP_DISPATCH, task), handled::add);
+        assertThat(dispatcher.offer("message1"), is(true));
+        for (int i = 0; i < 1000; i++) {
+            assertThat(mExecutor.execute(IoTaskType.SSDP, record("ssdp" + i)), is(true));
+        }
+        assertThat(mExecutor.getQueueDepth(IoTaskType.SSDP_DISPATCH), is(1));
+        assertThat(mExecutor.getRejectedCount(IoTaskType.SSDP_DISPATCH), is(0L));
+
+        mBlocker.release(mThreads);
+        Thread.sleep(200);
+        assertThat(handled, contains("message1"));
+        assertThat(mResult, contains("ssdp998", "ssdp999"));
+
+        // 消費タスクの実行依頼状態が解除され、以降のメッセージも処理される
+        assertThat(dispatcher.offer("message2"), is(true));
+        Thread.sleep(200);
+        assertThat(handled, contains("message1", "message2"));
+    }
+
+    @Test
+    public void execute_terminate後はfalse() {
+        mExecutor.terminate();
+
+        assertThat(mExecutor.execute(IoTaskType.SSDP, record("ssdp")), is(false));
+        assertThat(mExecutor.getQueueDepth(IoTaskType.SSDP), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void IoTaskPolicy_上限が0以下ならException() {
+        new IoTaskPolicy(0, 0, Rejection.REJECT);
+    }
+}
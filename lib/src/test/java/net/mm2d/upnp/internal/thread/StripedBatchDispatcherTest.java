@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.thread;
+
+import net.mm2d.upnp.ControlPoint.SsdpReceiveStats;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class StripedBatchDispatcherTest {
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_分割数0以下はException() {
+        new StripedBatchDispatcher<String>(0, 8, 8, element -> element, task -> true, element -> {
+        });
+    }
+
+    @Test
+    public void offer_同一キーは同一の消費タスクで投入順に処理される() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<String> handled = new ArrayList<>();
+        final StripedBatchDispatcher<String> dispatcher = new StripedBatchDispatcher<>(
+                4, 8, 8, element -> element.substring(0, 1), tasks::add, handled::add);
+        dispatcher.offer("a1");
+        dispatcher.offer("a2");
+        dispatcher.offer("a3");
+        assertThat(tasks, hasSize(1));
+
+        tasks.get(0).run();
+        assertThat(handled, is(Arrays.asList("a1", "a2", "a3")));
+    }
+
+    @Test
+    public void offer_分割が異なるキーは別の消費タスクで処理される() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<String> handled = new ArrayList<>();
+        final StripedBatchDispatcher<String> dispatcher = new StripedBatchDispatcher<>(
+                4, 8, 8, element -> element.substring(0, 1), tasks::add, handled::add);
+        // "a"と"b"のハッシュ値は連続するため異なる分割となる
+        assertThat(StripedLock.indexOf("a", 4), is(not(StripedLock.indexOf("b", 4))));
+        dispatcher.offer("a1");
+        dispatcher.offer("b1");
+        dispatcher.offer("a2");
+        assertThat(tasks, hasSize(2));
+
+        tasks.get(1).run();
+        assertThat(handled, is(Arrays.asList("b1")));
+        tasks.get(0).run();
+        assertThat(handled, is(Arrays.asList("b1", "a1", "a2")));
+    }
+
+    @Test
+    public void getStats_全ての分割の合計を返す() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final StripedBatchDispatcher<String> dispatcher = new StripedBatchDispatcher<>(
+                4, 2, 8, element -> element.substring(0, 1), tasks::add, element -> {
+        });
+        dispatcher.offer("a1");
+        dispatcher.offer("a2");
+        dispatcher.offer("a3");
+        dispatcher.offer("b1");
+        for (final Runnable task : tasks) {
+            task.run();
+        }
+        final SsdpReceiveStats stats = dispatcher.getStats();
+        assertThat(stats.getCapacity(), is(8));
+        assertThat(stats.getReceivedCount(), is(4L));
+        assertThat(stats.getDroppedCount(), is(1L));
+        assertThat(stats.getBatchCount(), is(2L));
+        assertThat(stats.getMaxBatchSize(), is(2));
+        assertThat(stats.getAverageBatchSize(), is(1.5));
+        assertThat(stats.getOccupancy(), is(0));
+    }
+
+    @Test
+    public void getStats_デフォルトの容量は分割の合計で維持される() {
+        final StripedBatchDispatcher<String> dispatcher = new StripedBatchDispatcher<>(
+                element -> element, task -> true, element -> {
+        });
+        assertThat(dispatcher.getStats().getCapacity(), is(BatchDispatcher.DEFAULT_CAPACITY));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.thread;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class StripedLockTest {
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_0以下はException() {
+        new StripedLock(0);
+    }
+
+    @Test
+    public void get_同一キーには同一のロックを返す() {
+        final StripedLock lock = new StripedLock();
+        final String key1 = "uuid:01234567-89ab-cdef-0123-456789abcdef";
+        final String key2 = new String(key1);
+        assertThat(lock.get(key1), sameInstance(lock.get(key2)));
+    }
+
+    @Test
+    public void get_ロックは分割数以下に分散される() {
+        final StripedLock lock = new StripedLock(4);
+        final Set<Object> set = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            set.add(lock.get("uuid:" + i));
+        }
+        assertThat(set.size(), is(4));
+    }
+
+    @Test
+    public void get_負のハッシュ値でも取得できる() {
+        final StripedLock lock = new StripedLock(3);
+        final Object key = new Object() {
+            @Override
+            public int hashCode() {
+                return Integer.MIN_VALUE;
+            }
+        };
+        assertThat(lock.get(key), is(notNullValue()));
+    }
+
+    @Test
+    public void indexOf_分割数が約数であれば異なる分割のキーは異なるロックとなる() {
+        final StripedLock lock = new StripedLock(32);
+        for (int i = 0; i < 100; i++) {
+            final String key1 = "uuid:" + i;
+            final String key2 = "uuid:" + (i + 1);
+            if (StripedLock.indexOf(key1, 4) != StripedLock.indexOf(key2, 4)) {
+                assertThat(lock.get(key1), not(sameInstance(lock.get(key2))));
+            }
+        }
+    }
+}
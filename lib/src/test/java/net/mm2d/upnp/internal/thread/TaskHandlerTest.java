@@ -12,6 +12,8 @@ import net.mm2d.upnp.TaskExecutor;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 public class TaskHandlerTest {
@@ -42,6 +44,40 @@ public class TaskHandlerTest {
         verify(mIo, times(1)).execute(task);
     }
 
+    @Test
+    public void io_種別を指定しても指定されたTaskExecutorで実行される() {
+        final Runnable task = mock(Runnable.class);
+        mTaskHandler.io(IoTaskType.SSDP, task);
+
+        verify(mIo, times(1)).execute(task);
+        assertThat(mTaskHandler.getIoQueueDepth(IoTaskType.SSDP), is(0));
+    }
+
+    @Test
+    public void io_TaskExecutorの指定がなければ種別毎に実行される() throws Exception {
+        final TaskHandler taskHandler = new TaskHandler(mCallback, null);
+        final Runnable task = mock(Runnable.class);
+        assertThat(taskHandler.io(IoTaskType.DESCRIPTION, task), is(true));
+        Thread.sleep(100);
+
+        verify(task, times(1)).run();
+        verify(mIo, never()).execute(task);
+        assertThat(taskHandler.getIoQueueDepth(IoTaskType.DESCRIPTION), is(0));
+        assertThat(taskHandler.getIoRejectedCount(IoTaskType.DESCRIPTION), is(0L));
+        taskHandler.terminate();
+        assertThat(taskHandler.io(IoTaskType.DESCRIPTION, task), is(false));
+    }
+
+    @Test
+    public void lowPriorityIo() throws Exception {
+        final Runnable task = mock(Runnable.class);
+        mTaskHandler.lowPriorityIo(task);
+        Thread.sleep(100);
+
+        verify(task, times(1)).run();
+        verify(mIo, never()).execute(task);
+    }
+
     @Test
     public void terminate() {
         mTaskHandler.terminate();
@@ -49,4 +85,32 @@ public class TaskHandlerTest {
         verify(mCallback, times(1)).terminate();
         verify(mIo, times(1)).terminate();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void createSharedHandler_Executorを共有する() {
+        final TaskHandler shared = mTaskHandler.createSharedHandler();
+        assertThat(mTaskHandler.isShared(), is(false));
+        assertThat(shared.isShared(), is(true));
+        final Runnable callback = mock(Runnable.class);
+        final Runnable io = mock(Runnable.class);
+        shared.callback(callback);
+        shared.io(io);
+
+        verify(mCallback, times(1)).execute(callback);
+        verify(mIo, times(1)).execute(io);
+    }
+
+    @Test
+    public void createSharedHandler_terminateでExecutorを終了させない() {
+        final TaskHandler shared = mTaskHandler.createSharedHandler();
+        shared.terminate();
+
+        verify(mCallback, never()).terminate();
+        verify(mIo, never()).terminate();
+
+        mTaskHandler.terminate();
+
+        verify(mCallback, times(1)).terminate();
+        verify(mIo, times(1)).terminate();
+    }
+}
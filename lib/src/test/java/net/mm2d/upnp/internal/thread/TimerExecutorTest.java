@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2019 大前良介 (OHMAE Ryosuke)
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/MIT
+ */
+
+package net.mm2d.upnp.internal.thread;
+
+import net.mm2d.upnp.internal.thread.TimerExecutor.Timer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("NonAsciiCharacters")
+@RunWith(JUnit4.class)
+public class TimerExecutorTest {
+    private TimerExecutor mTimerExecutor;
+
+    @Before
+    public void setUp() throws Exception {
+        mTimerExecutor = new TimerExecutor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mTimerExecutor.terminate();
+    }
+
+    @Test(timeout = 1000L)
+    public void wakeUp_すぐに実行される() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Timer timer = mTimerExecutor.create(() -> {
+            latch.countDown();
+            return Long.MAX_VALUE;
+        });
+        timer.wakeUp();
+
+        latch.await();
+    }
+
+    @Test(timeout = 1000L)
+    public void create_スケジュールするまで実行されない() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        mTimerExecutor.create(() -> {
+            count.incrementAndGet();
+            return Long.MAX_VALUE;
+        });
+        Thread.sleep(100L);
+
+        assertThat(count.get(), is(0));
+    }
+
+    @Test(timeout = 1000L)
+    public void schedule_戻り値の時刻に再度実行される() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(3);
+        final Timer timer = mTimerExecutor.create(() -> {
+            latch.countDown();
+            return latch.getCount() == 0 ? Long.MAX_VALUE : System.currentTimeMillis() + 10L;
+        });
+        timer.wakeUp();
+
+        latch.await();
+    }
+
+    @Test(timeout = 1000L)
+    public void schedule_より前の時刻が優先される() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Timer timer = mTimerExecutor.create(() -> {
+            latch.countDown();
+            return Long.MAX_VALUE;
+        });
+        final long start = System.currentTimeMillis();
+        timer.schedule(start + 10000L);
+        timer.schedule(start + 50L);
+        timer.schedule(start + 20000L);
+
+        latch.await();
+        assertThat(System.currentTimeMillis() - start, is(lessThan(1000L)));
+    }
+
+    @Test(timeout = 1000L)
+    public void cancel_以降実行されない() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        final Timer timer = mTimerExecutor.create(() -> {
+            count.incrementAndGet();
+            return Long.MAX_VALUE;
+        });
+        timer.schedule(System.currentTimeMillis() + 50L);
+        timer.cancel();
+        timer.wakeUp();
+        Thread.sleep(200L);
+
+        assertThat(count.get(), is(0));
+    }
+
+    @Test(timeout = 1000L)
+    public void wakeUp_実行中の要求は実行後に反映される() throws Exception {
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch resume = new CountDownLatch(1);
+        final CountDownLatch latch = new CountDownLatch(2);
+        final Timer timer = mTimerExecutor.create(() -> {
+            running.countDown();
+            try {
+                resume.await();
+            } catch (final InterruptedException ignored) {
+            }
+            latch.countDown();
+            return Long.MAX_VALUE;
+        });
+        timer.wakeUp();
+        running.await();
+        timer.wakeUp();
+        resume.countDown();
+
+        assertThat(latch.await(500L, TimeUnit.MILLISECONDS), is(true));
+    }
+
+    @Test(timeout = 1000L)
+    public void create_複数のTimerを一つのスレッドで実行する() throws Exception {
+        final List<String> threadNames = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch latch = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            mTimerExecutor.create(() -> {
+                threadNames.add(Thread.currentThread().getName());
+                latch.countDown();
+                return Long.MAX_VALUE;
+            }).wakeUp();
+        }
+        latch.await();
+
+        assertThat(threadNames, everyItem(is("TimerExecutor")));
+    }
+
+    @Test(timeout = 1000L)
+    public void run_例外が発生しても継続する() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Timer timer1 = mTimerExecutor.create(() -> {
+            throw new RuntimeException();
+        });
+        final Timer timer2 = mTimerExecutor.create(() -> {
+            latch.countDown();
+            return Long.MAX_VALUE;
+        });
+        timer1.wakeUp();
+        timer2.schedule(System.currentTimeMillis() + 10L);
+
+        latch.await();
+    }
+}